@@ -0,0 +1,47 @@
+package com.lancy.aichat.alert;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesced triggers of one symbol, and later the model's commentary on them.
+ *
+ * @param timestamp  market time of the last event that triggered a rule
+ * @param rules      rules that fired, at most {@code ai.alerts.max-rules-per-alert}
+ * @param triggers   number of times rules fired, including repeats and rules not listed
+ * @param metrics    metric values at the last trigger; metrics without a value are left out
+ * @param raisedAt   when the alert was raised, after debouncing
+ * @param commentary null until the model has commented
+ */
+public record Alert(
+        String id,
+        String symbol,
+        Instant timestamp,
+        List<AlertRule> rules,
+        int triggers,
+        Map<AlertMetric, Double> metrics,
+        Instant raisedAt,
+        String commentary
+) {
+
+    public Alert withCommentary(String text) {
+        return new Alert(id, symbol, timestamp, rules, triggers, metrics, raisedAt, text);
+    }
+
+    /**
+     * Request for commentary; naming the symbol lets the market-context enrichers add its indicators.
+     */
+    String toPrompt() {
+        String fired = rules.stream().map(rule -> "- " + rule.describe()).collect(Collectors.joining("\n"));
+        String values = metrics.entrySet().stream()
+                .map(entry -> entry.getKey().label() + " " + AlertRule.format(entry.getValue()))
+                .collect(Collectors.joining(", "));
+        return "Alert on " + symbol + " at " + timestamp + ". Conditions just met:\n" + fired
+                + (triggers > rules.size() ? "\n(rules fired " + triggers + " times in total)" : "")
+                + "\nNow: " + values
+                + "\nIn two or three sentences, say what this move likely means for a trader in "
+                + symbol + " and which risk to watch next.";
+    }
+}
@@ -0,0 +1,290 @@
+package com.lancy.aichat.alert;
+
+import com.lancy.aichat.config.AlertProperties;
+import com.lancy.aichat.config.MarketDataProperties;
+import com.lancy.aichat.marketdata.IndicatorListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Evaluates {@link AlertRule}s on every bar and tick and coalesces what fires into {@link Alert}s.
+ *
+ * <p>Runs on the market-data consumer thread as an {@link IndicatorListener}.
+ * Per symbol it keeps the metric values of the previous event, so each event
+ * only asks the compiled {@link RuleBook} which thresholds the metrics crossed.
+ * Symbol state is created on a symbol's first event; after that, evaluation
+ * allocates nothing, whatever the number of rules.</p>
+ *
+ * <p>Fired rules accumulate per symbol until {@link #due(long)}, polled by
+ * {@link AlertService}, finds the symbol's debounce window closed and turns them
+ * into one alert.</p>
+ *
+ * <p>Rules live in memory and are lost on restart.</p>
+ */
+@Component
+public class AlertEngine implements IndicatorListener {
+
+    private static final int METRICS = AlertMetric.ALL.length;
+
+    private final AlertProperties properties;
+
+    private final Counter triggers;
+
+    private final Counter raised;
+
+    /** Rules by id, in insertion order; guarded by itself */
+    private final Map<String, AlertRule> rules = new LinkedHashMap<>();
+
+    /** Compiled {@link #rules}, swapped as a whole on every change */
+    private volatile RuleBook book = RuleBook.EMPTY;
+
+    /** By symbol ID; written by the consumer thread only */
+    private final SymbolState[] states;
+
+    /** One past the highest symbol ID with state; published after the state itself */
+    private volatile int symbols;
+
+    public AlertEngine(AlertProperties properties, MarketDataProperties marketDataProperties,
+                       MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.states = new SymbolState[marketDataProperties.getMaxSymbols()];
+        this.triggers = meterRegistry.counter("alerts.triggers");
+        this.raised = meterRegistry.counter("alerts.raised");
+        meterRegistry.gauge("alerts.rules", this, engine -> engine.book.size());
+    }
+
+    /**
+     * Adds a rule, or replaces the rule with the same id.
+     *
+     * @return the rule as stored, with defaults filled in
+     * @throws IllegalArgumentException if the rule is invalid or {@code ai.alerts.max-rules} is reached
+     */
+    public AlertRule add(AlertRule rule) {
+        AlertRule normalized = rule.normalized();
+        synchronized (rules) {
+            if (!rules.containsKey(normalized.id()) && rules.size() >= properties.getMaxRules()) {
+                throw new IllegalArgumentException("Rule limit reached: " + properties.getMaxRules());
+            }
+            rules.put(normalized.id(), normalized);
+            book = new RuleBook(rules.values());
+        }
+        return normalized;
+    }
+
+    /**
+     * @return false if no rule has that id
+     */
+    public boolean remove(String id) {
+        synchronized (rules) {
+            if (rules.remove(id) == null) {
+                return false;
+            }
+            book = new RuleBook(rules.values());
+            return true;
+        }
+    }
+
+    public List<AlertRule> rules() {
+        return book.rules();
+    }
+
+    @Override
+    public void onIndicators(int symbolId, String symbol, long timestamp, double open, double close,
+                             double ema, double rsi, double atr, double volatility) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        SymbolState state = states[symbolId];
+        if (state == null) {
+            state = new SymbolState(symbol, properties.getMaxRulesPerAlert());
+            states[symbolId] = state;
+            if (symbolId >= symbols) {
+                symbols = symbolId + 1;
+            }
+        }
+        state.measure(open, close, ema, rsi, atr, volatility);
+
+        RuleBook rulesNow = book;
+        RuleBook.Groups any = rulesNow.any();
+        RuleBook.Groups own = rulesNow.of(symbol);
+        int fired = 0;
+        if (any != null || own != null) {
+            fired = state.evaluate(any, own, timestamp);
+        }
+        System.arraycopy(state.current, 0, state.previous, 0, METRICS);
+        if (fired > 0) {
+            triggers.increment(fired);
+        }
+    }
+
+    /**
+     * Alerts of symbols whose triggers are due at {@code nowNanos}: quiet for
+     * {@code debounce} or pending for {@code maxDelay}, and out of {@code cooldown}.
+     */
+    List<Alert> due(long nowNanos) {
+        List<Alert> alerts = new ArrayList<>();
+        int count = symbols;
+        for (int id = 0; id < count; id++) {
+            SymbolState state = states[id];
+            if (state != null && state.pending) {
+                Alert alert = state.flush(nowNanos, properties.getDebounce().toNanos(),
+                        properties.getMaxDelay().toNanos(), properties.getCooldown().toNanos());
+                if (alert != null) {
+                    raised.increment();
+                    alerts.add(alert);
+                }
+            }
+        }
+        return alerts;
+    }
+
+    /**
+     * Metric values and pending triggers of one symbol.
+     *
+     * <p>Metrics are touched by the consumer thread only. Pending triggers are
+     * shared with the thread polling {@link #due(long)} and guarded by the
+     * state's monitor.</p>
+     */
+    private static final class SymbolState implements RuleBook.Sink {
+
+        final String symbol;
+
+        final double[] current = new double[METRICS];
+
+        final double[] previous = new double[METRICS];
+
+        double previousClose = Double.NaN;
+
+        double peak = Double.NaN;
+
+        /** Fired rules, without repeats, up to the array's length */
+        private final AlertRule[] fired;
+
+        private int firedCount;
+
+        private int triggerCount;
+
+        private long timestamp;
+
+        private final double[] values = new double[METRICS];
+
+        private long firstNanos;
+
+        private long lastNanos;
+
+        private boolean alerted;
+
+        private long alertedNanos;
+
+        volatile boolean pending;
+
+        SymbolState(String symbol, int maxRules) {
+            this.symbol = symbol;
+            this.fired = new AlertRule[Math.max(1, maxRules)];
+            Arrays.fill(previous, Double.NaN);
+        }
+
+        void measure(double open, double close, double ema, double rsi, double atr, double volatility) {
+            if (!(close <= peak)) {
+                peak = close;
+            }
+            current[AlertMetric.PRICE.ordinal()] = close;
+            current[AlertMetric.GAP_PCT.ordinal()] = (open - previousClose) / previousClose * 100;
+            current[AlertMetric.RSI.ordinal()] = rsi;
+            current[AlertMetric.DRAWDOWN_PCT.ordinal()] = (peak - close) / peak * 100;
+            current[AlertMetric.EMA_DISTANCE_PCT.ordinal()] = (close - ema) / ema * 100;
+            current[AlertMetric.ATR_PCT.ordinal()] = atr / close * 100;
+            current[AlertMetric.VOLATILITY_PCT.ordinal()] = volatility * 100;
+            for (int metric = 0; metric < METRICS; metric++) {
+                if (Double.isInfinite(current[metric])) {
+                    current[metric] = Double.NaN;
+                }
+            }
+            previousClose = close;
+        }
+
+        /**
+         * Evaluates the rules on the latest metrics and marks the symbol pending if any
+         * fired, in one critical section: a {@link #flush} in between would take the
+         * fired rules and leave the symbol pending with none.
+         *
+         * @return number of rule firings
+         */
+        synchronized int evaluate(RuleBook.Groups any, RuleBook.Groups own, long eventTimestamp) {
+            int count = 0;
+            for (int metric = 0; metric < METRICS; metric++) {
+                double before = previous[metric];
+                double value = current[metric];
+                if (any != null) {
+                    count += any.evaluate(metric, before, value, this);
+                }
+                if (own != null) {
+                    count += own.evaluate(metric, before, value, this);
+                }
+            }
+            if (count > 0) {
+                triggered(eventTimestamp, System.nanoTime());
+            }
+            return count;
+        }
+
+        /** Called from {@link #evaluate} with the monitor held. */
+        @Override
+        public void fired(AlertRule rule) {
+            triggerCount++;
+            for (int i = 0; i < firedCount; i++) {
+                if (fired[i] == rule) {
+                    return;
+                }
+            }
+            if (firedCount < fired.length) {
+                fired[firedCount++] = rule;
+            }
+        }
+
+        private void triggered(long eventTimestamp, long nowNanos) {
+            timestamp = eventTimestamp;
+            System.arraycopy(current, 0, values, 0, METRICS);
+            if (!pending) {
+                firstNanos = nowNanos;
+            }
+            lastNanos = nowNanos;
+            pending = true;
+        }
+
+        synchronized Alert flush(long nowNanos, long debounce, long maxDelay, long cooldown) {
+            if (!pending
+                    || nowNanos - lastNanos < debounce && nowNanos - firstNanos < maxDelay
+                    || alerted && nowNanos - alertedNanos < cooldown) {
+                return null;
+            }
+            Map<AlertMetric, Double> metrics = new EnumMap<>(AlertMetric.class);
+            for (AlertMetric metric : AlertMetric.ALL) {
+                if (!Double.isNaN(values[metric.ordinal()])) {
+                    metrics.put(metric, values[metric.ordinal()]);
+                }
+            }
+            Alert alert = new Alert(UUID.randomUUID().toString(), symbol, Instant.ofEpochMilli(timestamp),
+                    List.of(Arrays.copyOf(fired, firedCount)), triggerCount, Collections.unmodifiableMap(metrics),
+                    Instant.now(), null);
+            Arrays.fill(fired, 0, firedCount, null);
+            firedCount = 0;
+            triggerCount = 0;
+            pending = false;
+            alerted = true;
+            alertedNanos = nowNanos;
+            return alert;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.lancy.aichat.alert;
+
+/**
+ * Value an {@link AlertRule} compares with its threshold, computed per symbol on every bar or tick.
+ */
+public enum AlertMetric {
+
+    /** Last price */
+    PRICE("price"),
+
+    /** Open against the previous close, in percent; a bar opening 2% above the last close is a 2% gap up */
+    GAP_PCT("gap %"),
+
+    /** Relative strength index, 0 to 100 */
+    RSI("RSI"),
+
+    /** Decline of the last price from its highest close since the symbol was first seen, in percent */
+    DRAWDOWN_PCT("drawdown %"),
+
+    /** Last price against its EMA, in percent */
+    EMA_DISTANCE_PCT("distance from EMA %"),
+
+    /** Average true range relative to the last price, in percent */
+    ATR_PCT("ATR %"),
+
+    /** Annualized rolling volatility, in percent */
+    VOLATILITY_PCT("volatility %");
+
+    /** Cached; {@code values()} copies the array on every call */
+    static final AlertMetric[] ALL = values();
+
+    private final String label;
+
+    AlertMetric(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
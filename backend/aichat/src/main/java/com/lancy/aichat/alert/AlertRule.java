@@ -0,0 +1,72 @@
+package com.lancy.aichat.alert;
+
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Condition on a symbol's {@link AlertMetric}, e.g. RSI above 70 on AAPL.
+ *
+ * <p>Rules fire when the condition starts to hold, i.e. when the metric crosses
+ * the threshold or gets its first value beyond it, not on every event while it
+ * keeps holding. A rule added while its condition holds fires on the next crossing.</p>
+ *
+ * @param id     unique; generated if blank
+ * @param symbol symbol the rule watches; null or {@code *} for every symbol
+ * @param note   optional context for the commentary, e.g. "core position, stop at 180"
+ */
+public record AlertRule(
+        String id,
+        String symbol,
+        AlertMetric metric,
+        Condition condition,
+        double threshold,
+        String note
+) {
+
+    public static final String ANY_SYMBOL = "*";
+
+    public enum Condition {
+
+        /** Fires when the metric rises to or above the threshold */
+        ABOVE,
+
+        /** Fires when the metric falls to or below the threshold */
+        BELOW
+    }
+
+    /**
+     * Checks the rule and fills in defaults.
+     *
+     * @throws IllegalArgumentException if the metric or condition is missing or the threshold not finite
+     */
+    public AlertRule normalized() {
+        if (metric == null) {
+            throw new IllegalArgumentException("metric is required");
+        }
+        if (condition == null) {
+            throw new IllegalArgumentException("condition is required (ABOVE or BELOW)");
+        }
+        if (!Double.isFinite(threshold)) {
+            throw new IllegalArgumentException("threshold must be a finite number");
+        }
+        String normalizedSymbol = symbol == null || symbol.isBlank() ? ANY_SYMBOL
+                : symbol.strip().toUpperCase(Locale.ROOT);
+        String normalizedId = id == null || id.isBlank() ? UUID.randomUUID().toString() : id.strip();
+        return new AlertRule(normalizedId, normalizedSymbol, metric, condition, threshold,
+                note == null || note.isBlank() ? null : note.strip());
+    }
+
+    /**
+     * Prompt form, e.g. {@code RSI above 70}.
+     */
+    public String describe() {
+        return String.format(Locale.ROOT, "%s %s %s", metric.label(), condition.name().toLowerCase(Locale.ROOT),
+                format(threshold)) + (note == null ? "" : " (" + note + ")");
+    }
+
+    static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? String.valueOf((long) value)
+                : String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,211 @@
+package com.lancy.aichat.alert;
+
+import com.lancy.aichat.config.AlertProperties;
+import com.lancy.aichat.dto.ChatRequest;
+import com.lancy.aichat.routing.ProviderRouter;
+import com.lancy.aichat.service.ChatService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raises the alerts of {@link AlertEngine}, gets the model's commentary on them
+ * and streams both to subscribers.
+ *
+ * <p>A scheduler thread polls the engine for due alerts every
+ * {@code ai.alerts.flush-interval} and sends each to subscribers as an
+ * {@code alert} event. Alerts then wait in a bounded queue (the oldest is dropped
+ * when full) for one worker, which asks {@link ChatService} for commentary and
+ * sends it as a {@code commentary} event.</p>
+ *
+ * <p>Commentary runs at background priority: one call at a time, started only
+ * while fewer than {@code ai.alerts.max-foreground-in-flight} provider calls are
+ * in flight, and skipped once the alert is older than {@code ai.alerts.max-age}.
+ * Being made outside an HTTP request, the calls get the {@code background} output
+ * cap of the token budget.</p>
+ *
+ * <p>Metrics: {@code alerts.queue.size}, {@code alerts.dropped{reason}} and
+ * {@code alerts.commentary{outcome}}.</p>
+ */
+@Service
+public class AlertService {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertService.class);
+
+    static final String SYSTEM_PROMPT = "You are an AI Quantitative Trading Assistant commenting on market alerts. "
+            + "Be brief and precise. Focus on risk management.";
+
+    /** How often the worker checks whether foreground calls have finished */
+    private static final long FOREGROUND_POLL_MILLIS = 50;
+
+    private final AlertEngine engine;
+
+    private final ChatService chatService;
+
+    private final ProviderRouter router;
+
+    private final AlertProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final BlockingQueue<Alert> queue;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private Thread worker;
+
+    public AlertService(AlertEngine engine, ChatService chatService, ProviderRouter router,
+                        AlertProperties properties, MeterRegistry meterRegistry) {
+        this.engine = engine;
+        this.chatService = chatService;
+        this.router = router;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        meterRegistry.gauge("alerts.queue.size", queue, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("alert-flush").daemon().factory());
+        long interval = properties.getFlushInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+        worker = Thread.ofVirtual().name("alert-commentary").start(this::work);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+        subscribers.forEach(subscriber -> subscriber.emitter().complete());
+        subscribers.clear();
+    }
+
+    /**
+     * Streams {@code alert} and {@code commentary} events.
+     *
+     * @param symbols symbols to receive alerts of; empty for all
+     */
+    public SseEmitter subscribe(Set<String> symbols) {
+        SseEmitter emitter = new SseEmitter(properties.getStreamTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter, symbols);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    /**
+     * Raises due alerts: sends them to subscribers and queues them for commentary.
+     */
+    void flush() {
+        for (Alert alert : engine.due(System.nanoTime())) {
+            log.info("Alert on {}: {} rules, {} triggers", alert.symbol(), alert.rules().size(), alert.triggers());
+            publish("alert", alert);
+            while (!queue.offer(alert)) {
+                if (queue.poll() != null) {
+                    meterRegistry.counter("alerts.dropped", "reason", "queue_full").increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets and publishes commentary on one alert, waiting for foreground calls first.
+     */
+    void comment(Alert alert) throws InterruptedException {
+        int maxForeground = properties.getMaxForegroundInFlight();
+        while (maxForeground > 0 && router.inFlight() >= maxForeground && !stale(alert)) {
+            Thread.sleep(FOREGROUND_POLL_MILLIS);
+        }
+        if (stale(alert)) {
+            meterRegistry.counter("alerts.dropped", "reason", "stale").increment();
+            log.info("No commentary on stale alert {} for {}", alert.id(), alert.symbol());
+            return;
+        }
+        String commentary;
+        try {
+            commentary = chatService.chat(new ChatRequest(alert.toPrompt(), null, SYSTEM_PROMPT, null)).response();
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Stopped during commentary on alert " + alert.id());
+            }
+            meterRegistry.counter("alerts.commentary", "outcome", "failure").increment();
+            log.warn("Commentary on alert {} for {} failed: {}", alert.id(), alert.symbol(), e.toString());
+            return;
+        }
+        meterRegistry.counter("alerts.commentary", "outcome", "success").increment();
+        publish("commentary", alert.withCommentary(commentary));
+    }
+
+    private boolean stale(Alert alert) {
+        return Duration.between(alert.raisedAt(), Instant.now()).compareTo(properties.getMaxAge()) > 0;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // A failure must not cancel the periodic task
+            log.warn("Raising alerts failed: {}", e.toString());
+        }
+    }
+
+    private void work() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                comment(queue.take());
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+    }
+
+    private void publish(String event, Alert alert) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.wants(alert.symbol())) {
+                try {
+                    subscriber.emitter().send(SseEmitter.event().name(event).id(alert.id()).data(alert));
+                } catch (Exception e) {
+                    // Client went away; the emitter's callbacks unsubscribe it
+                    subscriber.emitter().completeWithError(e);
+                }
+            }
+        }
+    }
+
+    private record Subscriber(SseEmitter emitter, Set<String> symbols) {
+
+        boolean wants(String symbol) {
+            return symbols.isEmpty() || symbols.contains(symbol);
+        }
+    }
+}
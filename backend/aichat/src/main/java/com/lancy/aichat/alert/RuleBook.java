@@ -0,0 +1,174 @@
+package com.lancy.aichat.alert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rules compiled for evaluation without allocation; immutable, replaced as a whole when rules change.
+ *
+ * <p>Rules are grouped by symbol ({@code *} rules in their own group), then by
+ * metric and condition, each group holding its thresholds in one sorted
+ * {@code double[]}. The rules a move of a metric from {@code previous} to
+ * {@code value} makes fire are the thresholds crossed, a contiguous range found
+ * with two binary searches, so the cost of an event grows with the log of the
+ * rule count plus the rules that actually fire.</p>
+ */
+final class RuleBook {
+
+    static final RuleBook EMPTY = new RuleBook(List.of());
+
+    private static final int GROUPS = AlertMetric.ALL.length * AlertRule.Condition.values().length;
+
+    private final List<AlertRule> rules;
+
+    private final Groups any;
+
+    private final Map<String, Groups> bySymbol;
+
+    RuleBook(Collection<AlertRule> rules) {
+        this.rules = List.copyOf(rules);
+        Map<String, List<AlertRule>> grouped = new HashMap<>();
+        for (AlertRule rule : rules) {
+            grouped.computeIfAbsent(rule.symbol(), symbol -> new ArrayList<>()).add(rule);
+        }
+        List<AlertRule> anySymbol = grouped.remove(AlertRule.ANY_SYMBOL);
+        this.any = anySymbol == null ? null : new Groups(anySymbol);
+        this.bySymbol = new HashMap<>();
+        grouped.forEach((symbol, symbolRules) -> bySymbol.put(symbol, new Groups(symbolRules)));
+    }
+
+    List<AlertRule> rules() {
+        return rules;
+    }
+
+    int size() {
+        return rules.size();
+    }
+
+    /**
+     * Rules for every symbol; null if there are none.
+     */
+    Groups any() {
+        return any;
+    }
+
+    /**
+     * Rules of one symbol; null if there are none.
+     */
+    Groups of(String symbol) {
+        return bySymbol.get(symbol);
+    }
+
+    /**
+     * Receives the rules that fire.
+     */
+    @FunctionalInterface
+    interface Sink {
+
+        void fired(AlertRule rule);
+    }
+
+    /**
+     * Rules of one symbol group by metric and condition, sorted by threshold.
+     */
+    static final class Groups {
+
+        private final double[][] thresholds = new double[GROUPS][];
+
+        private final AlertRule[][] rules = new AlertRule[GROUPS][];
+
+        private Groups(List<AlertRule> symbolRules) {
+            for (int group = 0; group < GROUPS; group++) {
+                int g = group;
+                AlertRule[] sorted = symbolRules.stream()
+                        .filter(rule -> group(rule.metric(), rule.condition()) == g)
+                        .sorted(Comparator.comparingDouble(AlertRule::threshold))
+                        .toArray(AlertRule[]::new);
+                if (sorted.length > 0) {
+                    rules[group] = sorted;
+                    thresholds[group] = Arrays.stream(sorted).mapToDouble(AlertRule::threshold).toArray();
+                }
+            }
+        }
+
+        /**
+         * Hands the rules on {@code metric} that the move from {@code previous} to
+         * {@code value} makes fire to {@code sink}. A {@code NaN} previous value
+         * (no value yet) counts as not meeting any condition.
+         *
+         * @return number of rules fired
+         */
+        int evaluate(int metric, double previous, double value, Sink sink) {
+            if (Double.isNaN(value)) {
+                return 0;
+            }
+            int fired = 0;
+            int above = metric * 2;
+            double[] up = thresholds[above];
+            if (up != null) {
+                // previous < threshold <= value
+                int from = Double.isNaN(previous) ? 0 : upperBound(up, previous);
+                int to = upperBound(up, value);
+                for (int i = from; i < to; i++) {
+                    sink.fired(rules[above][i]);
+                }
+                fired += Math.max(0, to - from);
+            }
+            int below = above + 1;
+            double[] down = thresholds[below];
+            if (down != null) {
+                // value <= threshold < previous
+                int from = lowerBound(down, value);
+                int to = Double.isNaN(previous) ? down.length : lowerBound(down, previous);
+                for (int i = from; i < to; i++) {
+                    sink.fired(rules[below][i]);
+                }
+                fired += Math.max(0, to - from);
+            }
+            return fired;
+        }
+    }
+
+    private static int group(AlertMetric metric, AlertRule.Condition condition) {
+        return metric.ordinal() * 2 + (condition == AlertRule.Condition.ABOVE ? 0 : 1);
+    }
+
+    /**
+     * Index of the first element greater than {@code key}.
+     */
+    static int upperBound(double[] sorted, double key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index of the first element greater than or equal to {@code key}.
+     */
+    static int lowerBound(double[] sorted, double key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
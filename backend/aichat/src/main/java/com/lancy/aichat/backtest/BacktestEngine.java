@@ -0,0 +1,149 @@
+package com.lancy.aichat.backtest;
+
+import com.lancy.aichat.marketdata.history.BarSeries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs every (symbol, parameter set) combination on a {@link ForkJoinPool}.
+ *
+ * <p>The list of runs is split recursively until a task holds at most
+ * {@link #LEAF_RUNS} runs, so idle workers steal the other halves and a grid with
+ * uneven symbol histories still keeps every core busy. Bar arrays are shared
+ * read-only between runs; each run owns its {@link Simulator}.</p>
+ *
+ * <p>{@link ForkJoinPool#invoke} does not respond to interrupts, so a cancellable
+ * run passes a flag that every task checks before splitting and before each run.</p>
+ */
+public class BacktestEngine {
+
+    /** Runs executed sequentially by one leaf task. */
+    static final int LEAF_RUNS = 4;
+
+    private final ForkJoinPool pool;
+
+    public BacktestEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Number of runs of {@code symbols} series over {@link #expand expanded} {@code grid}, without expanding.
+     *
+     * @return symbols times the product of the non-empty value list sizes, or {@link Long#MAX_VALUE} if it overflows
+     */
+    public static long runs(int symbols, Map<String, List<Double>> grid) {
+        long runs = symbols;
+        if (grid == null) {
+            return runs;
+        }
+        for (List<Double> values : grid.values()) {
+            if (values == null || values.isEmpty()) {
+                continue;
+            }
+            try {
+                runs = Math.multiplyExact(runs, values.size());
+            } catch (ArithmeticException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Expands {@code grid} into the cartesian product of parameter values applied to {@code base}.
+     *
+     * @param grid parameter name to candidate values (see {@link StrategySpec#with}); may be empty.
+     *             Check {@link #runs} first: the product is materialized.
+     */
+    public static List<StrategySpec> expand(StrategySpec base, Map<String, List<Double>> grid) {
+        List<StrategySpec> specs = List.of(base);
+        if (grid == null) {
+            return specs;
+        }
+        for (Map.Entry<String, List<Double>> parameter : grid.entrySet()) {
+            if (parameter.getValue() == null || parameter.getValue().isEmpty()) {
+                continue;
+            }
+            List<StrategySpec> next = new ArrayList<>(specs.size() * parameter.getValue().size());
+            for (StrategySpec spec : specs) {
+                for (double value : parameter.getValue()) {
+                    next.add(spec.with(parameter.getKey(), value));
+                }
+            }
+            specs = next;
+        }
+        return specs;
+    }
+
+    /**
+     * Runs every strategy over every series.
+     *
+     * @return one result per (series, strategy), series-major
+     */
+    public List<BacktestResult> run(List<BarSeries> series, List<StrategySpec> strategies, double barsPerYear) {
+        return run(series, strategies, barsPerYear, () -> false);
+    }
+
+    /**
+     * Runs every strategy over every series until {@code cancelled} turns true.
+     *
+     * @return one result per (series, strategy), series-major
+     * @throws CancellationException if {@code cancelled} turned true before every run finished
+     */
+    public List<BacktestResult> run(List<BarSeries> series, List<StrategySpec> strategies, double barsPerYear,
+                                    BooleanSupplier cancelled) {
+        BacktestResult[] results = new BacktestResult[series.size() * strategies.size()];
+        pool.invoke(new RunTask(series, strategies, barsPerYear, cancelled, results, 0, results.length));
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Backtest cancelled");
+        }
+        return Arrays.asList(results);
+    }
+
+    private static final class RunTask extends RecursiveAction {
+
+        private final List<BarSeries> series;
+        private final List<StrategySpec> strategies;
+        private final double barsPerYear;
+        private final BooleanSupplier cancelled;
+        private final BacktestResult[] results;
+        private final int from;
+        private final int to;
+
+        RunTask(List<BarSeries> series, List<StrategySpec> strategies, double barsPerYear,
+                BooleanSupplier cancelled, BacktestResult[] results, int from, int to) {
+            this.series = series;
+            this.strategies = strategies;
+            this.barsPerYear = barsPerYear;
+            this.cancelled = cancelled;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.getAsBoolean()) {
+                return;
+            }
+            if (to - from <= LEAF_RUNS) {
+                for (int i = from; i < to && !cancelled.getAsBoolean(); i++) {
+                    BarSeries bars = series.get(i / strategies.size());
+                    StrategySpec spec = strategies.get(i % strategies.size());
+                    results[i] = new Simulator(spec, barsPerYear).run(bars.symbol(), bars);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RunTask(series, strategies, barsPerYear, cancelled, results, from, mid),
+                    new RunTask(series, strategies, barsPerYear, cancelled, results, mid, to));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.lancy.aichat.backtest;
+
+import com.lancy.aichat.dto.TradeAnalysis;
+
+import java.util.List;
+
+/**
+ * Response of {@code POST /api/backtest}.
+ *
+ * @param runs        strategy runs executed (symbols x parameter sets)
+ * @param bars        bars simulated across all runs
+ * @param elapsedMs   wall-clock time of the simulation
+ * @param results     best runs by Sharpe ratio, at most {@code top}
+ * @param analysis    {@link BacktestResult#toTradeAnalysis()} of the best run, null without results
+ * @param summary     AI summary when requested, otherwise null
+ */
+public record BacktestReport(
+        int runs,
+        long bars,
+        long elapsedMs,
+        List<BacktestResult> results,
+        TradeAnalysis analysis,
+        String summary
+) {
+
+    BacktestReport withSummary(String text) {
+        return new BacktestReport(runs, bars, elapsedMs, results, analysis, text);
+    }
+}
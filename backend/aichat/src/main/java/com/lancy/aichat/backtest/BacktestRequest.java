@@ -0,0 +1,44 @@
+package com.lancy.aichat.backtest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request body of {@code POST /api/backtest}.
+ *
+ * <pre>
+ * {
+ *   "symbols": ["AAPL", "MSFT"],
+ *   "from": "2020-01-01T00:00:00Z",
+ *   "interval": "1d",
+ *   "strategy": {
+ *     "entry": { "indicator": "RSI", "operator": "BELOW", "threshold": 30 },
+ *     "exit":  { "indicator": "RSI", "operator": "ABOVE", "threshold": 55 },
+ *     "stopAtr": 2, "riskPerTrade": 0.01, "costBps": 2
+ *   },
+ *   "grid": { "entryThreshold": [20, 25, 30], "stopAtr": [1.5, 2, 3] },
+ *   "summarize": true
+ * }
+ * </pre>
+ *
+ * @param symbols   symbols with history in the bar store
+ * @param from      inclusive start; null for all history
+ * @param to        exclusive end; null for all history
+ * @param interval  bar size the history is downsampled to, e.g. {@code 1h}; default {@code 1d}
+ * @param strategy  base strategy
+ * @param grid      optional parameter values to sweep (see {@link StrategySpec#with})
+ * @param top       number of best runs returned; default 20
+ * @param summarize ask the configured AI provider to summarize the results
+ */
+public record BacktestRequest(
+        List<String> symbols,
+        Instant from,
+        Instant to,
+        String interval,
+        StrategySpec strategy,
+        Map<String, List<Double>> grid,
+        Integer top,
+        boolean summarize
+) {
+}
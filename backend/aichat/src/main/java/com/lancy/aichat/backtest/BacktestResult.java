@@ -0,0 +1,80 @@
+package com.lancy.aichat.backtest;
+
+import com.lancy.aichat.dto.TradeAnalysis;
+
+import java.util.Locale;
+
+/**
+ * Metrics of one strategy run over one symbol. Returns and drawdown are fractions
+ * ({@code 0.12} = 12%).
+ *
+ * @param symbol         ticker
+ * @param strategy       parameters of this run
+ * @param bars           bars simulated
+ * @param trades         closed trades
+ * @param winRate        fraction of trades with positive P&amp;L
+ * @param totalReturn    final equity / initial equity - 1
+ * @param sharpe         annualized Sharpe ratio of per-bar returns (zero risk-free rate)
+ * @param maxDrawdown    largest peak-to-trough equity decline
+ * @param profitFactor   gross profit / gross loss ({@code Infinity} without losing trades)
+ * @param avgTradeReturn mean P&amp;L per trade as a fraction of equity at entry
+ * @param tradeTStat     t-statistic of the per-trade returns
+ * @param exposure       fraction of bars with an open position
+ */
+public record BacktestResult(
+        String symbol,
+        StrategySpec strategy,
+        int bars,
+        int trades,
+        double winRate,
+        double totalReturn,
+        double sharpe,
+        double maxDrawdown,
+        double profitFactor,
+        double avgTradeReturn,
+        double tradeTStat,
+        double exposure
+) {
+
+    /**
+     * Maps the metrics onto {@link TradeAnalysis} so backtests and LLM trade reviews
+     * share one shape:
+     * <ul>
+     *     <li>sentiment - POSITIVE / NEGATIVE by average trade, NEUTRAL without trades</li>
+     *     <li>setupQuality - HIGH (Sharpe &ge; 1 and profit factor &ge; 1.5), MEDIUM (Sharpe &ge; 0.5), else LOW</li>
+     *     <li>confidenceScore - trade t-statistic scaled so t = 3 gives 1.0</li>
+     * </ul>
+     */
+    public TradeAnalysis toTradeAnalysis() {
+        String sentiment = trades == 0 ? "NEUTRAL" : avgTradeReturn > 0 ? "POSITIVE" : "NEGATIVE";
+        String quality = sharpe >= 1 && profitFactor >= 1.5 ? "HIGH" : sharpe >= 0.5 ? "MEDIUM" : "LOW";
+        double confidence = Math.round(Math.max(0, Math.min(1, tradeTStat / 3)) * 100) / 100.0;
+        String risk = String.format(Locale.ROOT,
+                "Max drawdown %.1f%%, %d trades, win rate %.0f%%, profit factor %.2f, exposure %.0f%%",
+                maxDrawdown * 100, trades, winRate * 100, profitFactor, exposure * 100);
+        return new TradeAnalysis(sentiment, quality, confidence, risk, suggestion());
+    }
+
+    private String suggestion() {
+        if (trades < 30) {
+            return "Too few trades to be significant; test more symbols or a longer period.";
+        }
+        if (profitFactor < 1) {
+            return "The rules lose money after costs; revise the entry condition.";
+        }
+        if (maxDrawdown > 0.2) {
+            return "Drawdown exceeds 20%; tighten the stop or reduce position size.";
+        }
+        return "Validate on out-of-sample data before trading it.";
+    }
+
+    /**
+     * Single line for prompts, e.g.
+     * {@code AAPL LONG entry RSI BELOW 30.0: return=+12.4% sharpe=0.85 maxDD=9.1% trades=41 win=56%}.
+     */
+    public String toPromptLine() {
+        return String.format(Locale.ROOT, "%s %s: return=%+.1f%% sharpe=%.2f maxDD=%.1f%% trades=%d win=%.0f%% pf=%.2f",
+                symbol, strategy.describe(), totalReturn * 100, sharpe, maxDrawdown * 100, trades, winRate * 100,
+                profitFactor);
+    }
+}
@@ -0,0 +1,158 @@
+package com.lancy.aichat.backtest;
+
+import com.lancy.aichat.config.BacktestProperties;
+import com.lancy.aichat.marketdata.history.BarSeries;
+import com.lancy.aichat.marketdata.history.BarStore;
+import com.lancy.aichat.service.ChatService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Backtests strategies over the {@link BarStore} and optionally asks the AI
+ * provider to summarize the results.
+ *
+ * <p>History is downsampled once per symbol and shared by all parameter sets;
+ * the runs execute on a dedicated fork-join pool so a large grid does not
+ * starve the common pool used elsewhere.</p>
+ */
+@Service
+public class BacktestService {
+
+    private static final Logger log = LoggerFactory.getLogger(BacktestService.class);
+
+    /** Runs listed in the summary prompt. */
+    private static final int SUMMARY_RUNS = 10;
+
+    private static final int DEFAULT_TOP = 20;
+
+    private final BarStore barStore;
+    private final ChatService chatService;
+    private final BacktestProperties properties;
+    private final ForkJoinPool pool;
+    private final BacktestEngine engine;
+    private final Timer duration;
+    private final Counter barsSimulated;
+
+    public BacktestService(BarStore barStore, ChatService chatService, BacktestProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.barStore = barStore;
+        this.chatService = chatService;
+        this.properties = properties;
+        this.pool = new ForkJoinPool(properties.getParallelism() > 0
+                ? properties.getParallelism() : Runtime.getRuntime().availableProcessors());
+        this.engine = new BacktestEngine(pool);
+        this.duration = meterRegistry.timer("backtest.duration");
+        this.barsSimulated = meterRegistry.counter("backtest.bars");
+    }
+
+    /**
+     * Runs a backtest request.
+     *
+     * @throws IllegalArgumentException for an invalid request, too many runs or no history
+     */
+    public BacktestReport run(BacktestRequest request) {
+        return run(request, () -> false);
+    }
+
+    /**
+     * Runs a backtest request, stopping the simulations once {@code cancelled} turns true.
+     *
+     * @throws IllegalArgumentException for an invalid request, too many runs or no history
+     * @throws CancellationException    if cancelled before every run finished
+     */
+    public BacktestReport run(BacktestRequest request, BooleanSupplier cancelled) {
+        if (request.symbols() == null || request.symbols().isEmpty() || request.strategy() == null) {
+            throw new IllegalArgumentException("symbols and strategy are required");
+        }
+        Duration interval = DurationStyle.detectAndParse(request.interval() != null ? request.interval() : "1d");
+        if (interval.toMillis() <= 0) {
+            throw new IllegalArgumentException("interval must be at least 1ms");
+        }
+        // Checked before expanding: a large grid would not fit in memory
+        long runs = BacktestEngine.runs(request.symbols().size(), request.grid());
+        if (runs > properties.getMaxRuns()) {
+            throw new IllegalArgumentException("Backtest has " + (runs == Long.MAX_VALUE ? "too many" : runs)
+                    + " runs; the limit is " + properties.getMaxRuns());
+        }
+        List<StrategySpec> strategies = BacktestEngine.expand(request.strategy(), request.grid());
+
+        long from = request.from() != null ? request.from().toEpochMilli() : Long.MIN_VALUE;
+        long to = request.to() != null ? request.to().toEpochMilli() : Long.MAX_VALUE;
+        List<BarSeries> series = new ArrayList<>();
+        long bars = 0;
+        for (String symbol : request.symbols()) {
+            BarSeries history = barStore.downsample(symbol, from, to, interval);
+            if (history.size() > 0) {
+                series.add(history);
+                bars += history.size();
+            }
+        }
+        if (series.isEmpty()) {
+            throw new IllegalArgumentException("No history for " + request.symbols() + " in the requested range");
+        }
+
+        long start = System.nanoTime();
+        List<BacktestResult> results = engine.run(series, strategies, barsPerYear(interval), cancelled);
+        long elapsed = System.nanoTime() - start;
+        duration.record(Duration.ofNanos(elapsed));
+        barsSimulated.increment((double) bars * strategies.size());
+        log.info("Backtested {} runs over {} bars in {} ms", results.size(), bars * strategies.size(),
+                elapsed / 1_000_000);
+
+        List<BacktestResult> best = results.stream()
+                .sorted(Comparator.comparingDouble(BacktestResult::sharpe).reversed())
+                .limit(request.top() != null && request.top() > 0 ? request.top() : DEFAULT_TOP)
+                .toList();
+        BacktestReport report = new BacktestReport(results.size(), bars * strategies.size(), elapsed / 1_000_000,
+                best, best.get(0).toTradeAnalysis(), null);
+
+        return request.summarize() ? report.withSummary(summarize(interval, report)) : report;
+    }
+
+    /**
+     * Asks the configured provider for a short summary. A provider failure leaves
+     * the summary empty rather than failing the backtest.
+     */
+    private String summarize(Duration interval, BacktestReport report) {
+        StringBuilder prompt = new StringBuilder()
+                .append("Summarize this backtest for a trader in 3-5 sentences: which parameters worked, ")
+                .append("the risk taken, and whether the sample is large enough to trust.\n\n[Backtest] interval=")
+                .append(DurationStyle.SIMPLE.print(interval)).append(" runs=").append(report.runs()).append('\n');
+        report.results().stream().limit(SUMMARY_RUNS)
+                .forEach(result -> prompt.append(result.toPromptLine()).append('\n'));
+        try {
+            return chatService.getResponse(prompt.toString().stripTrailing(), null);
+        } catch (RuntimeException e) {
+            log.warn("Backtest summary failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Bars per year for annualizing: 252 trading days, 6.5 trading hours per day intraday.
+     */
+    static double barsPerYear(Duration interval) {
+        double millis = interval.toMillis();
+        double day = Duration.ofDays(1).toMillis();
+        return millis >= day ? 252 * day / millis : 252 * Duration.ofMinutes(390).toMillis() / millis;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
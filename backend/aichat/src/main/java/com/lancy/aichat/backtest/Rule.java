@@ -0,0 +1,51 @@
+package com.lancy.aichat.backtest;
+
+/**
+ * Threshold condition on an indicator, e.g. {@code RSI BELOW 30}.
+ *
+ * @param indicator value compared on each bar close
+ * @param operator  comparison with {@code threshold}
+ * @param threshold level in the indicator's unit (RSI points, percent, price)
+ */
+public record Rule(Indicator indicator, Operator operator, double threshold) {
+
+    public Rule {
+        if (indicator == null || operator == null) {
+            throw new IllegalArgumentException("Rule requires an indicator and an operator");
+        }
+    }
+
+    public enum Indicator {
+        /** Close price. */
+        CLOSE,
+        /** RSI in [0, 100]. */
+        RSI,
+        /** Distance of the close from its EMA in percent. */
+        EMA_DISTANCE,
+        /** ATR as percent of the close. */
+        ATR_PERCENT,
+        /** Annualized close-to-close volatility in percent. */
+        VOLATILITY
+    }
+
+    public enum Operator {
+        ABOVE,
+        BELOW
+    }
+
+    Rule withThreshold(double value) {
+        return new Rule(indicator, operator, value);
+    }
+
+    /**
+     * False while the indicator is still warming up ({@code NaN}).
+     */
+    boolean test(double value) {
+        return operator == Operator.ABOVE ? value > threshold : value < threshold;
+    }
+
+    @Override
+    public String toString() {
+        return indicator + " " + operator + " " + threshold;
+    }
+}
@@ -0,0 +1,186 @@
+package com.lancy.aichat.backtest;
+
+import com.lancy.aichat.backtest.StrategySpec.Direction;
+import com.lancy.aichat.marketdata.history.BarSeries;
+import com.lancy.aichat.marketdata.indicator.Atr;
+import com.lancy.aichat.marketdata.indicator.Ema;
+import com.lancy.aichat.marketdata.indicator.RollingVolatility;
+import com.lancy.aichat.marketdata.indicator.Rsi;
+
+/**
+ * Single-threaded simulation of one strategy over one symbol.
+ *
+ * <p>Signals are evaluated on each bar close and filled at that close. Stops and
+ * targets are checked against the next bars' high/low, filling at the level or
+ * at the open when the bar gaps through it; if both are hit in one bar the stop
+ * is assumed first. An open position is closed on the last bar.</p>
+ *
+ * <p>The per-bar loop works on primitive arrays and fields only: indicators are
+ * the same O(1) incremental classes used for live data, and return and trade
+ * statistics are accumulated with Welford's algorithm instead of being stored.</p>
+ */
+final class Simulator {
+
+    private final StrategySpec spec;
+    private final double sign;
+    private final double cost;
+    private final double barsPerYear;
+
+    private final Ema ema;
+    private final Rsi rsi;
+    private final Atr atr;
+    private final RollingVolatility volatility;
+
+    private double cash = 1.0;
+    private double qty;
+    private double entryEquity;
+    private double stop = Double.NaN;
+    private double target = Double.NaN;
+    private int entryBar;
+    private long barsInMarket;
+
+    private int trades;
+    private int wins;
+    private double grossProfit;
+    private double grossLoss;
+    private double tradeMean;
+    private double tradeM2;
+
+    Simulator(StrategySpec spec, double barsPerYear) {
+        this.spec = spec;
+        this.sign = spec.direction() == Direction.LONG ? 1 : -1;
+        this.cost = spec.costBps() / 10_000;
+        this.barsPerYear = barsPerYear;
+        this.ema = new Ema(spec.emaPeriod());
+        this.rsi = new Rsi(spec.rsiPeriod());
+        this.atr = new Atr(spec.atrPeriod());
+        this.volatility = new RollingVolatility(StrategySpec.VOLATILITY_WINDOW, barsPerYear);
+    }
+
+    BacktestResult run(String symbol, BarSeries series) {
+        double[] open = series.open();
+        double[] high = series.high();
+        double[] low = series.low();
+        double[] close = series.close();
+        int n = series.size();
+
+        double prevEquity = 1.0;
+        double peak = 1.0;
+        double maxDrawdown = 0;
+        double returnMean = 0;
+        double returnM2 = 0;
+
+        for (int i = 0; i < n; i++) {
+            if (qty != 0) {
+                double fill = stopOrTarget(open[i], high[i], low[i]);
+                if (!Double.isNaN(fill)) {
+                    exit(fill);
+                }
+            }
+
+            double c = close[i];
+            ema.update(c);
+            rsi.update(c);
+            atr.update(high[i], low[i], c);
+            volatility.update(c);
+
+            if (qty != 0) {
+                barsInMarket++;
+                boolean timeUp = spec.maxHoldingBars() > 0 && i - entryBar >= spec.maxHoldingBars();
+                if (timeUp || i == n - 1 || (spec.exit() != null && spec.exit().test(indicator(spec.exit(), c)))) {
+                    exit(c);
+                }
+            } else if (i < n - 1 && spec.entry().test(indicator(spec.entry(), c))) {
+                enter(c, i);
+            }
+
+            double equity = cash + qty * c;
+            if (i > 0) {
+                double r = equity / prevEquity - 1;
+                double delta = r - returnMean;
+                returnMean += delta / i;
+                returnM2 += delta * (r - returnMean);
+            }
+            prevEquity = equity;
+            peak = Math.max(peak, equity);
+            maxDrawdown = Math.max(maxDrawdown, 1 - equity / peak);
+        }
+
+        double returnSd = n > 2 ? Math.sqrt(returnM2 / (n - 2)) : 0;
+        double sharpe = returnSd > 0 ? returnMean / returnSd * Math.sqrt(barsPerYear) : 0;
+        double tradeSd = trades > 1 ? Math.sqrt(tradeM2 / (trades - 1)) : 0;
+        double tStat = tradeSd > 0 ? tradeMean / (tradeSd / Math.sqrt(trades)) : 0;
+        double profitFactor = grossLoss > 0 ? grossProfit / grossLoss
+                : grossProfit > 0 ? Double.POSITIVE_INFINITY : 0;
+
+        return new BacktestResult(symbol, spec, n, trades,
+                trades > 0 ? (double) wins / trades : 0,
+                prevEquity - 1, sharpe, maxDrawdown, profitFactor, tradeMean, tStat,
+                n > 0 ? (double) barsInMarket / n : 0);
+    }
+
+    private double indicator(Rule rule, double close) {
+        return switch (rule.indicator()) {
+            case CLOSE -> close;
+            case RSI -> rsi.value();
+            case EMA_DISTANCE -> (close / ema.value() - 1) * 100;
+            case ATR_PERCENT -> atr.value() / close * 100;
+            case VOLATILITY -> volatility.value() * 100;
+        };
+    }
+
+    /**
+     * Fill price if this bar hits the stop or target, otherwise NaN.
+     */
+    private double stopOrTarget(double open, double high, double low) {
+        if (sign > 0) {
+            if (low <= stop) {
+                return Math.min(open, stop);
+            }
+            if (high >= target) {
+                return Math.max(open, target);
+            }
+        } else {
+            if (high >= stop) {
+                return Math.max(open, stop);
+            }
+            if (low <= target) {
+                return Math.min(open, target);
+            }
+        }
+        return Double.NaN;
+    }
+
+    private void enter(double price, int bar) {
+        double equity = cash;
+        double a = atr.value();
+        double fraction = spec.positionFraction();
+        if (spec.riskPerTrade() > 0 && spec.stopAtr() > 0 && a > 0) {
+            fraction = Math.min(fraction, spec.riskPerTrade() * price / (spec.stopAtr() * a));
+        }
+        qty = sign * equity * fraction / price;
+        cash -= qty * price + Math.abs(qty * price) * cost;
+        entryEquity = equity;
+        entryBar = bar;
+        // Comparisons with NaN are false, so an unset stop/target never triggers
+        stop = spec.stopAtr() > 0 && a > 0 ? price - sign * spec.stopAtr() * a : Double.NaN;
+        target = spec.takeProfitAtr() > 0 && a > 0 ? price + sign * spec.takeProfitAtr() * a : Double.NaN;
+    }
+
+    private void exit(double price) {
+        cash += qty * price - Math.abs(qty * price) * cost;
+        qty = 0;
+        double pnl = cash - entryEquity;
+        trades++;
+        if (pnl > 0) {
+            wins++;
+            grossProfit += pnl;
+        } else {
+            grossLoss -= pnl;
+        }
+        double r = pnl / entryEquity;
+        double delta = r - tradeMean;
+        tradeMean += delta / trades;
+        tradeM2 += delta * (r - tradeMean);
+    }
+}
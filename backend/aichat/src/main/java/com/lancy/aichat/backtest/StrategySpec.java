@@ -0,0 +1,123 @@
+package com.lancy.aichat.backtest;
+
+import java.util.Locale;
+
+/**
+ * Rule-based strategy: enter when {@code entry} holds on a bar close, leave when
+ * {@code exit} holds, the stop or target is hit, or after {@code maxHoldingBars}.
+ *
+ * <p>Zero means "off" for {@code stopAtr}, {@code takeProfitAtr} and
+ * {@code maxHoldingBars}, and "default" for the indicator periods. Sizing risks
+ * {@code riskPerTrade} of equity against the ATR stop when both are set,
+ * otherwise invests {@code positionFraction} of equity (default 1).</p>
+ *
+ * @param direction        LONG or SHORT (default LONG)
+ * @param entry            entry condition (required)
+ * @param exit             optional exit condition
+ * @param stopAtr          stop distance in ATRs from the entry price
+ * @param takeProfitAtr    target distance in ATRs from the entry price
+ * @param maxHoldingBars   time stop
+ * @param riskPerTrade     fraction of equity lost if the stop is hit
+ * @param positionFraction fraction of equity invested when not risk-sized
+ * @param costBps          commission and slippage per side in basis points
+ * @param emaPeriod        EMA period (default 20)
+ * @param rsiPeriod        RSI period (default 14)
+ * @param atrPeriod        ATR period (default 14)
+ */
+public record StrategySpec(
+        Direction direction,
+        Rule entry,
+        Rule exit,
+        double stopAtr,
+        double takeProfitAtr,
+        int maxHoldingBars,
+        double riskPerTrade,
+        double positionFraction,
+        double costBps,
+        int emaPeriod,
+        int rsiPeriod,
+        int atrPeriod
+) {
+
+    /** Returns used for rolling volatility. */
+    static final int VOLATILITY_WINDOW = 20;
+
+    public enum Direction {
+        LONG,
+        SHORT
+    }
+
+    public StrategySpec {
+        if (entry == null) {
+            throw new IllegalArgumentException("Strategy requires an entry rule");
+        }
+        if (stopAtr < 0 || takeProfitAtr < 0 || maxHoldingBars < 0 || riskPerTrade < 0
+                || positionFraction < 0 || costBps < 0) {
+            throw new IllegalArgumentException("Strategy parameters must not be negative");
+        }
+        direction = direction != null ? direction : Direction.LONG;
+        positionFraction = positionFraction > 0 ? positionFraction : 1.0;
+        emaPeriod = emaPeriod > 0 ? emaPeriod : 20;
+        rsiPeriod = rsiPeriod > 0 ? rsiPeriod : 14;
+        atrPeriod = atrPeriod > 0 ? atrPeriod : 14;
+    }
+
+    /**
+     * Copy with one grid parameter replaced.
+     *
+     * @param name one of {@code entryThreshold, exitThreshold, stopAtr, takeProfitAtr,
+     *             maxHoldingBars, riskPerTrade, positionFraction, emaPeriod, rsiPeriod, atrPeriod}
+     * @throws IllegalArgumentException for an unknown name, or an exit threshold without exit rule
+     */
+    public StrategySpec with(String name, double value) {
+        return switch (name) {
+            case "entryThreshold" -> new StrategySpec(direction, entry.withThreshold(value), exit, stopAtr,
+                    takeProfitAtr, maxHoldingBars, riskPerTrade, positionFraction, costBps, emaPeriod, rsiPeriod, atrPeriod);
+            case "exitThreshold" -> {
+                if (exit == null) {
+                    throw new IllegalArgumentException("exitThreshold requires an exit rule");
+                }
+                yield new StrategySpec(direction, entry, exit.withThreshold(value), stopAtr,
+                        takeProfitAtr, maxHoldingBars, riskPerTrade, positionFraction, costBps, emaPeriod, rsiPeriod, atrPeriod);
+            }
+            case "stopAtr" -> new StrategySpec(direction, entry, exit, value,
+                    takeProfitAtr, maxHoldingBars, riskPerTrade, positionFraction, costBps, emaPeriod, rsiPeriod, atrPeriod);
+            case "takeProfitAtr" -> new StrategySpec(direction, entry, exit, stopAtr,
+                    value, maxHoldingBars, riskPerTrade, positionFraction, costBps, emaPeriod, rsiPeriod, atrPeriod);
+            case "maxHoldingBars" -> new StrategySpec(direction, entry, exit, stopAtr,
+                    takeProfitAtr, (int) value, riskPerTrade, positionFraction, costBps, emaPeriod, rsiPeriod, atrPeriod);
+            case "riskPerTrade" -> new StrategySpec(direction, entry, exit, stopAtr,
+                    takeProfitAtr, maxHoldingBars, value, positionFraction, costBps, emaPeriod, rsiPeriod, atrPeriod);
+            case "positionFraction" -> new StrategySpec(direction, entry, exit, stopAtr,
+                    takeProfitAtr, maxHoldingBars, riskPerTrade, value, costBps, emaPeriod, rsiPeriod, atrPeriod);
+            case "emaPeriod" -> new StrategySpec(direction, entry, exit, stopAtr,
+                    takeProfitAtr, maxHoldingBars, riskPerTrade, positionFraction, costBps, (int) value, rsiPeriod, atrPeriod);
+            case "rsiPeriod" -> new StrategySpec(direction, entry, exit, stopAtr,
+                    takeProfitAtr, maxHoldingBars, riskPerTrade, positionFraction, costBps, emaPeriod, (int) value, atrPeriod);
+            case "atrPeriod" -> new StrategySpec(direction, entry, exit, stopAtr,
+                    takeProfitAtr, maxHoldingBars, riskPerTrade, positionFraction, costBps, emaPeriod, rsiPeriod, (int) value);
+            default -> throw new IllegalArgumentException("Unknown grid parameter: " + name);
+        };
+    }
+
+    /**
+     * One-line description used in summaries, e.g.
+     * {@code LONG entry RSI BELOW 30.0, exit RSI ABOVE 55.0, stop 2.0 ATR}.
+     */
+    public String describe() {
+        StringBuilder s = new StringBuilder().append(direction).append(" entry ").append(entry);
+        if (exit != null) {
+            s.append(", exit ").append(exit);
+        }
+        if (stopAtr > 0) {
+            s.append(String.format(Locale.ROOT, ", stop %.1f ATR", stopAtr));
+        }
+        if (takeProfitAtr > 0) {
+            s.append(String.format(Locale.ROOT, ", target %.1f ATR", takeProfitAtr));
+        }
+        if (maxHoldingBars > 0) {
+            s.append(", max ").append(maxHoldingBars).append(" bars");
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,21 @@
+package com.lancy.aichat.call;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Thrown when a provider call is aborted because its request's deadline passed or
+ * the client cancelled the request. No fallback provider is tried afterwards.
+ */
+public class CallAbortedException extends CancellationException {
+
+    private final CallContext.Reason reason;
+
+    public CallAbortedException(CallContext.Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public CallContext.Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,131 @@
+package com.lancy.aichat.call;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Deadline and cancellation state of one HTTP request.
+ *
+ * <p>Opened by {@link DeadlineInterceptor} and bound to the request thread. While a
+ * provider call is running under a {@link CallScope} the thread is "armed": aborting
+ * the context (deadline reached or client cancel) interrupts it, which makes the
+ * provider HTTP client drop the upstream connection and Ollama stop generating.</p>
+ */
+public final class CallContext {
+
+    /**
+     * Why a call was aborted.
+     */
+    public enum Reason {
+        /** The request's deadline passed. */
+        DEADLINE,
+        /** The client cancelled the request. */
+        CLIENT
+    }
+
+    private final String requestId;
+
+    private final String endpoint;
+
+    private final Duration timeout;
+
+    private final long deadlineNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Thread armed;
+
+    private boolean interrupted;
+
+    private Reason abortReason;
+
+    CallContext(String requestId, String endpoint, Duration timeout) {
+        this.requestId = requestId;
+        this.endpoint = endpoint;
+        this.timeout = timeout;
+        this.deadlineNanos = System.nanoTime() + timeout.toNanos();
+    }
+
+    public String requestId() {
+        return requestId;
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+
+    public Duration timeout() {
+        return timeout;
+    }
+
+    /**
+     * Time left until the deadline, never negative.
+     */
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * Reason the call was aborted, or null while it may proceed.
+     */
+    public Reason abortReason() {
+        lock.lock();
+        try {
+            return abortReason;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the call aborted and interrupts its running provider call, if any.
+     *
+     * @return false if it was already aborted
+     */
+    boolean abort(Reason reason) {
+        lock.lock();
+        try {
+            if (abortReason != null) {
+                return false;
+            }
+            abortReason = reason;
+            if (armed != null) {
+                interrupted = true;
+                armed.interrupt();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void arm(Thread thread) {
+        lock.lock();
+        try {
+            armed = thread;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops interrupting the thread on abort.
+     *
+     * @return true if the thread was interrupted by {@link #abort} while armed
+     */
+    boolean disarm() {
+        lock.lock();
+        try {
+            armed = null;
+            boolean wasInterrupted = interrupted;
+            interrupted = false;
+            return wasInterrupted;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.lancy.aichat.call;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks the in-flight requests that carry a deadline and aborts their provider calls.
+ *
+ * <p>A {@link CallContext} is opened per request and bound to the request thread.
+ * Provider calls run inside {@link #arm()}; a watchdog interrupts them when the
+ * deadline passes, and {@link #cancel(String)} does the same on behalf of the client
+ * (e.g. {@code DELETE /api/calls/{id}} sent when the browser tab closes).</p>
+ *
+ * <p>To report what an abort saved, the registry keeps a moving average of the
+ * duration and size of completed calls per provider. Metrics:</p>
+ * <ul>
+ *     <li>{@code chat.aborted{provider,reason}} - aborted provider calls</li>
+ *     <li>{@code chat.aborted.saved.time} - estimated generation time not spent</li>
+ *     <li>{@code chat.aborted.saved.tokens} - estimated tokens not generated</li>
+ *     <li>{@code calls.active} - requests with an open context</li>
+ * </ul>
+ */
+@Component
+public class CallRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(CallRegistry.class);
+
+    /** Weight of the newest sample in the per-provider averages */
+    private static final double ALPHA = 0.2;
+
+    /** Rough characters per token of English text */
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private static final ThreadLocal<CallContext> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, CallContext> active = new ConcurrentHashMap<>();
+
+    private final Map<String, Generation> generation = new ConcurrentHashMap<>();
+
+    private final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1,
+            Thread.ofPlatform().name("call-deadline").daemon().factory());
+
+    private final MeterRegistry meterRegistry;
+
+    private final DistributionSummary savedTokens;
+
+    private final Timer savedTime;
+
+    public CallRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        // Most calls finish well before their deadline; do not keep their timers queued
+        watchdog.setRemoveOnCancelPolicy(true);
+        this.savedTokens = DistributionSummary.builder("chat.aborted.saved.tokens")
+                .description("Estimated tokens not generated because the call was aborted")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        this.savedTime = Timer.builder("chat.aborted.saved.time")
+                .description("Estimated generation time not spent because the call was aborted")
+                .register(meterRegistry);
+        meterRegistry.gauge("calls.active", active, Map::size);
+    }
+
+    /**
+     * Opens the context of a request and binds it to the calling thread.
+     *
+     * <p>A request id still in use by another request is never taken over: the new
+     * request gets a random id instead, so a client cannot cancel someone else's
+     * call by reusing its id. Callers must report {@link CallContext#requestId()}
+     * back to the client.</p>
+     */
+    public CallContext open(String requestId, String endpoint, Duration timeout) {
+        CallContext context = new CallContext(requestId, endpoint, timeout);
+        while (active.putIfAbsent(context.requestId(), context) != null) {
+            log.warn("Request id {} is already in flight; issuing a new one", context.requestId());
+            context = new CallContext(UUID.randomUUID().toString(), endpoint, timeout);
+        }
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * Unbinds the context from the calling thread and forgets it.
+     */
+    public void close(CallContext context) {
+        active.remove(context.requestId(), context);
+        if (CURRENT.get() == context) {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Context bound to the calling thread, if the current request has one.
+     */
+    public static Optional<CallContext> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Aborts the provider call of the given request on behalf of the client.
+     *
+     * @return false if no such request is in flight or it was already aborted
+     */
+    public boolean cancel(String requestId) {
+        CallContext context = active.get(requestId);
+        if (context == null || !context.abort(CallContext.Reason.CLIENT)) {
+            return false;
+        }
+        log.info("Request {} cancelled by client", requestId);
+        return true;
+    }
+
+    /**
+     * Starts a provider call on the calling thread under the deadline of the current request.
+     *
+     * @throws CallAbortedException if the request is already past its deadline or cancelled
+     */
+    public CallScope arm() {
+        return new CallScope(this, CURRENT.get());
+    }
+
+    ScheduledFuture<?> schedule(Runnable task, Duration delay) {
+        return watchdog.schedule(task, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a completed call for the savings estimate of later aborts.
+     */
+    void recordCompletion(String provider, long elapsedNanos, int responseChars) {
+        generation.computeIfAbsent(provider, p -> new Generation())
+                .add(elapsedNanos / 1e9, (double) responseChars / CHARS_PER_TOKEN);
+    }
+
+    /**
+     * Counts an aborted call and records what was saved by not letting it run to completion.
+     *
+     * @param reason null for callers cancelled outside a request (e.g. analysis jobs)
+     */
+    void recordAbort(String provider, CallContext.Reason reason, long elapsedNanos) {
+        String reasonTag = reason == null ? "cancelled" : reason.name().toLowerCase();
+        meterRegistry.counter("chat.aborted", "provider", provider, "reason", reasonTag).increment();
+
+        Generation typical = generation.get(provider);
+        double[] estimate = typical == null ? null : typical.snapshot();
+        if (estimate == null || estimate[0] <= 0) {
+            log.info("Aborted {} call after {} ms ({})", provider, elapsedNanos / 1_000_000, reasonTag);
+            return;
+        }
+        double remainingSeconds = Math.max(0, estimate[0] - elapsedNanos / 1e9);
+        double tokens = remainingSeconds * estimate[1] / estimate[0];
+        savedTime.record(Duration.ofNanos((long) (remainingSeconds * 1e9)));
+        savedTokens.record(tokens);
+        log.info("Aborted {} call after {} ms ({}); ~{} tokens / {} s of generation saved",
+                provider, elapsedNanos / 1_000_000, reasonTag, Math.round(tokens),
+                String.format("%.1f", remainingSeconds));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * Exponential moving averages of call duration and response tokens of one provider.
+     */
+    private static final class Generation {
+
+        private double seconds;
+
+        private double tokens;
+
+        private boolean seeded;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        void add(double callSeconds, double callTokens) {
+            lock.lock();
+            try {
+                if (!seeded) {
+                    seconds = callSeconds;
+                    tokens = callTokens;
+                    seeded = true;
+                } else {
+                    seconds += ALPHA * (callSeconds - seconds);
+                    tokens += ALPHA * (callTokens - tokens);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Average seconds and tokens per call, or null before the first sample.
+         */
+        double[] snapshot() {
+            lock.lock();
+            try {
+                return seeded ? new double[]{seconds, tokens} : null;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
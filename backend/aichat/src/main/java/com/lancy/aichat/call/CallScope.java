@@ -0,0 +1,97 @@
+package com.lancy.aichat.call;
+
+import com.lancy.aichat.dto.ChatResponse;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Provider calls of one request made on the calling thread, bounded by its deadline.
+ *
+ * <p>Obtained from {@link CallRegistry#arm()}. While open, the request's deadline and
+ * client cancellation interrupt the thread. Closing the scope clears an interrupt
+ * it caused, so a pooled request thread is handed back clean. Without a current
+ * {@link CallContext} (analysis jobs, WebSocket streams) the scope only times
+ * calls; those callers cancel by interrupting the thread themselves.</p>
+ */
+public final class CallScope implements AutoCloseable {
+
+    private final CallRegistry registry;
+
+    private final CallContext context;
+
+    private final ScheduledFuture<?> watchdog;
+
+    CallScope(CallRegistry registry, CallContext context) {
+        this.registry = registry;
+        this.context = context;
+        if (context == null) {
+            this.watchdog = null;
+            return;
+        }
+        if (context.isExpired()) {
+            context.abort(CallContext.Reason.DEADLINE);
+        }
+        CallContext.Reason reason = context.abortReason();
+        if (reason != null) {
+            throw new CallAbortedException(reason, describe(reason, null));
+        }
+        context.arm(Thread.currentThread());
+        this.watchdog = registry.schedule(() -> context.abort(CallContext.Reason.DEADLINE), context.remaining());
+    }
+
+    /**
+     * Records a successful call to {@code provider} started at {@code startNanos}.
+     */
+    public void completed(String provider, long startNanos, ChatResponse response) {
+        int chars = response == null || response.response() == null ? 0 : response.response().length();
+        registry.recordCompletion(provider, System.nanoTime() - startNanos, chars);
+    }
+
+    /**
+     * Checks whether a failed call was aborted rather than failing on its own.
+     *
+     * @param provider   provider that was called
+     * @param startNanos when the call started
+     * @param cause      the failure
+     * @return the exception to throw instead of trying another provider, or null
+     *         if the failure was the provider's own
+     */
+    public CancellationException aborted(String provider, long startNanos, Exception cause) {
+        CallContext.Reason reason = null;
+        if (context != null) {
+            if (context.isExpired()) {
+                // The call failed right at the deadline, before the watchdog fired
+                context.abort(CallContext.Reason.DEADLINE);
+            }
+            reason = context.abortReason();
+        }
+        if (reason == null && !Thread.currentThread().isInterrupted()) {
+            return null;
+        }
+        registry.recordAbort(provider, reason, System.nanoTime() - startNanos);
+        CancellationException aborted = reason == null
+                ? new CancellationException("Call to " + provider + " was cancelled")
+                : new CallAbortedException(reason, describe(reason, provider));
+        aborted.initCause(cause);
+        return aborted;
+    }
+
+    private String describe(CallContext.Reason reason, String provider) {
+        String call = provider == null ? "Request " + context.requestId() : "Call to " + provider;
+        return reason == CallContext.Reason.DEADLINE
+                ? call + " exceeded its deadline of " + context.timeout().toMillis() + " ms"
+                : call + " was cancelled by the client";
+    }
+
+    @Override
+    public void close() {
+        if (context == null) {
+            return;
+        }
+        watchdog.cancel(false);
+        if (context.disarm()) {
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.lancy.aichat.call;
+
+import com.lancy.aichat.config.DeadlineProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Opens a {@link CallContext} for each {@code /api/**} request.
+ *
+ * <ul>
+ *     <li>{@code X-Request-Id} - id under which the request can be cancelled through
+ *     {@code DELETE /api/calls/{id}}. Knowing the id is what allows cancelling, so a
+ *     client-chosen id must be random (e.g. {@code crypto.randomUUID()}); ids shorter
+ *     than 16 characters, malformed or already in flight are replaced by a random
+ *     UUID. The id in effect is echoed in the response</li>
+ *     <li>{@code X-Request-Timeout} - deadline in milliseconds or as a duration
+ *     ({@code 30s}); capped at {@code ai.deadline.max-timeout}</li>
+ * </ul>
+ *
+ * <p>The context lives until the handler returns. Handlers that continue
+ * asynchronously (SSE streams) hand their work to other threads and are not
+ * bounded by it.</p>
+ */
+@Component
+public class DeadlineInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadlineInterceptor.class);
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private static final String CONTEXT_ATTRIBUTE = CallContext.class.getName();
+
+    /** Long enough to rule out short guessable ids such as sequence numbers */
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._:-]{16,128}");
+
+    private static final Pattern MILLIS = Pattern.compile("\\d{1,10}");
+
+    private final CallRegistry registry;
+
+    private final DeadlineProperties properties;
+
+    public DeadlineInterceptor(CallRegistry registry, DeadlineProperties properties) {
+        this.registry = registry;
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId == null || !VALID_ID.matcher(requestId).matches()) {
+            requestId = UUID.randomUUID().toString();
+        }
+
+        String endpoint = endpoint(request.getRequestURI().substring(request.getContextPath().length()));
+        Duration timeout = timeout(endpoint, request.getHeader(TIMEOUT_HEADER));
+        CallContext context = registry.open(requestId, endpoint, timeout);
+        response.setHeader(REQUEST_ID_HEADER, context.requestId());
+        request.setAttribute(CONTEXT_ATTRIBUTE, context);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        close(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response,
+                                Object handler, Exception ex) {
+        close(request);
+    }
+
+    private void close(HttpServletRequest request) {
+        if (request.getAttribute(CONTEXT_ATTRIBUTE) instanceof CallContext context) {
+            request.removeAttribute(CONTEXT_ATTRIBUTE);
+            registry.close(context);
+        }
+    }
+
+    /**
+     * Path below {@code /api/}, e.g. {@code chat/tools}.
+     */
+    static String endpoint(String path) {
+        String endpoint = path.startsWith("/api/") ? path.substring("/api/".length()) : path;
+        return endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint;
+    }
+
+    /**
+     * Deadline requested by the client, else the endpoint's (or closest parent path's)
+     * default, capped at the configured maximum.
+     */
+    Duration timeout(String endpoint, String header) {
+        Duration timeout = null;
+        if (header != null && !header.isBlank()) {
+            try {
+                timeout = MILLIS.matcher(header.trim()).matches()
+                        ? Duration.ofMillis(Long.parseLong(header.trim()))
+                        : DurationStyle.detectAndParse(header.trim());
+            } catch (IllegalArgumentException e) {
+                log.debug("Ignoring invalid {} header '{}'", TIMEOUT_HEADER, header);
+            }
+        }
+        for (String key = endpoint; timeout == null && !key.isEmpty(); key = parent(key)) {
+            timeout = properties.getEndpoints().get(key);
+        }
+        if (timeout == null || timeout.isNegative()) {
+            timeout = properties.getDefaultTimeout();
+        }
+        return timeout.compareTo(properties.getMaxTimeout()) > 0 ? properties.getMaxTimeout() : timeout;
+    }
+
+    private static String parent(String key) {
+        int slash = key.lastIndexOf('/');
+        return slash < 0 ? "" : key.substring(0, slash);
+    }
+}
@@ -0,0 +1,26 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for the {@code /api/admin/**} endpoints.
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.admin")
+public class AdminProperties {
+
+    /**
+     * Secret required as {@code X-Admin-Secret} on /api/admin calls; the endpoints are
+     * closed while it is unset.
+     */
+    private String secret;
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+}
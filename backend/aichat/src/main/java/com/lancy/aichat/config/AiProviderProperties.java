@@ -4,15 +4,28 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Configuration for AI provider selection.
+ *
+ * <p>These are the startup values; the routing can be switched at runtime through
+ * {@code /api/admin/provider} (see {@link com.lancy.aichat.routing.ProviderRouter}).</p>
  */
 
 @Component
 @ConfigurationProperties(prefix = "ai.provider")
 public class AiProviderProperties {
 
-    private Provider provider = Provider.PRIMARY; // default
+    /** Must name a registered provider; checked at startup */
+    private Provider provider = Provider.OLLAMA;
+
+    /** Providers tried in order when the primary fails */
+    private List<Provider> fallbacks = new ArrayList<>(List.of(Provider.OPENAI));
+
+    /** Model requested from the primary provider; empty for its configured default */
+    private String model;
 
     public Provider getProvider() {
         return provider;
@@ -22,8 +35,26 @@ public class AiProviderProperties {
         this.provider = provider;
     }
 
+    public List<Provider> getFallbacks() {
+        return fallbacks;
+    }
+
+    public void setFallbacks(List<Provider> fallbacks) {
+        this.fallbacks = fallbacks;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
     public enum Provider {
         PRIMARY,
-        OPENAI
+        OLLAMA,
+        OPENAI,
+        ANTHROPIC
     }
 }
@@ -0,0 +1,140 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration for alert rules on market data and the commentary they trigger.
+ *
+ * <p>Triggers of one symbol are coalesced into one alert: it is raised once no
+ * rule of the symbol has fired for {@code debounce}, or {@code maxDelay} after
+ * the first trigger, but never within {@code cooldown} of the symbol's previous
+ * alert. Each alert gets one provider call for commentary.</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.alerts")
+public class AlertProperties {
+
+    /** Evaluates rules on incoming bars and ticks. */
+    private boolean enabled = true;
+
+    /** Maximum number of rules. */
+    private int maxRules = 10_000;
+
+    /** Quiet period after a symbol's last trigger before its alert is raised. */
+    private Duration debounce = Duration.ofSeconds(2);
+
+    /** Longest an alert waits for triggers to stop. */
+    private Duration maxDelay = Duration.ofSeconds(10);
+
+    /** Minimum time between two alerts of the same symbol; triggers in between join the next one. */
+    private Duration cooldown = Duration.ofMinutes(5);
+
+    /** Rules listed per alert; further triggered rules are only counted. */
+    private int maxRulesPerAlert = 20;
+
+    /** Alerts waiting for commentary; the oldest is dropped when full. */
+    private int queueCapacity = 64;
+
+    /** Commentary waits while this many provider calls are in flight, so chat requests go first. */
+    private int maxForegroundInFlight = 1;
+
+    /** Alerts older than this get no commentary. */
+    private Duration maxAge = Duration.ofMinutes(2);
+
+    /** How often pending triggers are checked for due alerts. */
+    private Duration flushInterval = Duration.ofMillis(250);
+
+    /** Lifetime of an alert event stream. */
+    private Duration streamTimeout = Duration.ofMinutes(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxRules() {
+        return maxRules;
+    }
+
+    public void setMaxRules(int maxRules) {
+        this.maxRules = maxRules;
+    }
+
+    public Duration getDebounce() {
+        return debounce;
+    }
+
+    public void setDebounce(Duration debounce) {
+        this.debounce = debounce;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(Duration maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public Duration getCooldown() {
+        return cooldown;
+    }
+
+    public void setCooldown(Duration cooldown) {
+        this.cooldown = cooldown;
+    }
+
+    public int getMaxRulesPerAlert() {
+        return maxRulesPerAlert;
+    }
+
+    public void setMaxRulesPerAlert(int maxRulesPerAlert) {
+        this.maxRulesPerAlert = maxRulesPerAlert;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxForegroundInFlight() {
+        return maxForegroundInFlight;
+    }
+
+    public void setMaxForegroundInFlight(int maxForegroundInFlight) {
+        this.maxForegroundInFlight = maxForegroundInFlight;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public Duration getStreamTimeout() {
+        return streamTimeout;
+    }
+
+    public void setStreamTimeout(Duration streamTimeout) {
+        this.streamTimeout = streamTimeout;
+    }
+}
@@ -0,0 +1,34 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for the backtesting engine.
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.backtest")
+public class BacktestProperties {
+
+    /** Fork-join worker threads; 0 uses one per available processor. */
+    private int parallelism = 0;
+
+    /** Upper bound on symbols x parameter sets per request. */
+    private int maxRuns = 10_000;
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getMaxRuns() {
+        return maxRuns;
+    }
+
+    public void setMaxRuns(int maxRuns) {
+        this.maxRuns = maxRuns;
+    }
+}
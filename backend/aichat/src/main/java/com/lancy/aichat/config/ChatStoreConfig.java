@@ -0,0 +1,62 @@
+package com.lancy.aichat.config;
+
+import com.lancy.aichat.store.ChatStore;
+import com.lancy.aichat.store.FileChatStore;
+import com.lancy.aichat.store.InMemoryChatStore;
+import com.lancy.aichat.store.NearCacheChatStore;
+import com.lancy.aichat.store.PeerInvalidationBroadcaster;
+import com.lancy.aichat.store.RemoteChatStore;
+import com.lancy.aichat.store.StoreSecretInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestClient;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Creates the {@link ChatStore} selected by {@code ai.store.type}.
+ *
+ * <p>The remote store is always wrapped in a {@link NearCacheChatStore} whose
+ * invalidations are broadcast to every configured node except this one. Both
+ * clients send {@code ai.store.secret} to the {@code /internal/store} endpoints.</p>
+ */
+@Configuration
+public class ChatStoreConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatStoreConfig.class);
+
+    @Bean
+    public ChatStore chatStore(ChatStoreProperties properties,
+                               RestClient.Builder restClientBuilder,
+                               MeterRegistry meterRegistry) {
+
+        return switch (properties.getType()) {
+            case MEMORY -> new InMemoryChatStore(properties.getMaxEntries());
+            case FILE -> new FileChatStore(Path.of(properties.getDirectory()));
+            case REMOTE -> {
+                RestClient.Builder internal = restClientBuilder.clone();
+                if (properties.getSecret() == null || properties.getSecret().isEmpty()) {
+                    log.warn("ai.store.secret is not set: store servers and peers will refuse this node's calls");
+                } else {
+                    internal.defaultHeader(StoreSecretInterceptor.SECRET_HEADER, properties.getSecret());
+                }
+                RemoteChatStore remote = new RemoteChatStore(
+                        internal.clone().baseUrl(properties.getRemoteUrl()).build(), meterRegistry);
+
+                List<String> peers = properties.getNodes().stream()
+                        .filter(node -> !node.equals(properties.getSelfNode()))
+                        .map(node -> "http://" + node)
+                        .toList();
+
+                yield new NearCacheChatStore(remote, properties.getNearCacheTtl(),
+                        properties.getNearCacheMaxEntries(),
+                        new PeerInvalidationBroadcaster(peers, internal.build()),
+                        meterRegistry);
+            }
+        };
+    }
+}
@@ -0,0 +1,161 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration for the shared session / response store.
+ *
+ * <p>Selects the {@link com.lancy.aichat.store.ChatStore} implementation and
+ * describes the replica set used for near-cache invalidation and session
+ * affinity hints.</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.store")
+public class ChatStoreProperties {
+
+    /** Store implementation. */
+    private Type type = Type.MEMORY;
+
+    /** Maximum entries for the in-memory store. */
+    private int maxEntries = 10_000;
+
+    /** Directory of the file store. */
+    private String directory = "data/store";
+
+    /** Base URL of the store server used by the remote store. */
+    private String remoteUrl = "http://localhost:8080";
+
+    /** How long remote values stay in the local near cache. */
+    private Duration nearCacheTtl = Duration.ofSeconds(2);
+
+    /** Maximum entries in the local near cache. */
+    private int nearCacheMaxEntries = 1000;
+
+    /** Exposes this node's store over /internal/store so other replicas can use it remotely. */
+    private boolean serve = false;
+
+    /**
+     * Shared secret of the replica set, sent and required as {@code X-Store-Secret} on
+     * /internal/store calls; the endpoints are closed while it is unset.
+     */
+    private String secret;
+
+    /** TTL of cached responses for session-less requests; zero disables response caching. */
+    private Duration responseTtl = Duration.ZERO;
+
+    /** Replica addresses (host:port) forming the affinity ring and invalidation peers. */
+    private List<String> nodes = new ArrayList<>();
+
+    /** This replica's address as it appears in {@link #nodes}. */
+    private String selfNode;
+
+    /** Points per node on the consistent-hash ring. */
+    private int virtualNodes = 100;
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public String getRemoteUrl() {
+        return remoteUrl;
+    }
+
+    public void setRemoteUrl(String remoteUrl) {
+        this.remoteUrl = remoteUrl;
+    }
+
+    public Duration getNearCacheTtl() {
+        return nearCacheTtl;
+    }
+
+    public void setNearCacheTtl(Duration nearCacheTtl) {
+        this.nearCacheTtl = nearCacheTtl;
+    }
+
+    public int getNearCacheMaxEntries() {
+        return nearCacheMaxEntries;
+    }
+
+    public void setNearCacheMaxEntries(int nearCacheMaxEntries) {
+        this.nearCacheMaxEntries = nearCacheMaxEntries;
+    }
+
+    public boolean isServe() {
+        return serve;
+    }
+
+    public void setServe(boolean serve) {
+        this.serve = serve;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+
+    public void setSecret(String secret) {
+        this.secret = secret;
+    }
+
+    public Duration getResponseTtl() {
+        return responseTtl;
+    }
+
+    public void setResponseTtl(Duration responseTtl) {
+        this.responseTtl = responseTtl;
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(List<String> nodes) {
+        this.nodes = nodes;
+    }
+
+    public String getSelfNode() {
+        return selfNode;
+    }
+
+    public void setSelfNode(String selfNode) {
+        this.selfNode = selfNode;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public enum Type {
+        MEMORY,
+        FILE,
+        REMOTE
+    }
+}
@@ -0,0 +1,67 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration for per-request deadlines on {@code /api/**}.
+ *
+ * <p>A client can set its own deadline with the {@code X-Request-Timeout} header
+ * (milliseconds, or a duration such as {@code 30s}); otherwise the endpoint's
+ * default applies. Provider calls still running at the deadline are aborted.</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.deadline")
+public class DeadlineProperties {
+
+    /** Enables request deadlines and cancellation through {@code DELETE /api/calls/{id}}. */
+    private boolean enabled = true;
+
+    /** Deadline of endpoints without an entry in {@code endpoints}. */
+    private Duration defaultTimeout = Duration.ofMinutes(2);
+
+    /** Upper bound for deadlines requested through the header. */
+    private Duration maxTimeout = Duration.ofMinutes(10);
+
+    /**
+     * Default deadline per endpoint, keyed by the path below {@code /api/}
+     * (e.g. {@code chat}, {@code chat/tools}); a key also covers the paths below it.
+     */
+    private Map<String, Duration> endpoints = new HashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    public void setDefaultTimeout(Duration defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    public Duration getMaxTimeout() {
+        return maxTimeout;
+    }
+
+    public void setMaxTimeout(Duration maxTimeout) {
+        this.maxTimeout = maxTimeout;
+    }
+
+    public Map<String, Duration> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(Map<String, Duration> endpoints) {
+        this.endpoints = endpoints;
+    }
+}
@@ -0,0 +1,92 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for the on-disk historical bar store.
+ *
+ * <p>With the defaults a segment holds 65,536 bars (about 3 MB), so a year of
+ * minute bars for one symbol fits in two segments.</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.history")
+public class HistoryProperties {
+
+    /** Root directory; one sub-directory per symbol. */
+    private String directory = "data/history";
+
+    /** Bars per segment file; must be a multiple of {@code indexStride}. */
+    private int rowsPerSegment = 1 << 16;
+
+    /** One timestamp of every {@code indexStride} bars is kept in the in-memory sparse index. */
+    private int indexStride = 1024;
+
+    /** Maximum number of sealed segments kept memory-mapped at once. */
+    private int maxMappedSegments = 4096;
+
+    /** Maximum number of symbols kept open (each maps its active segment read-write). */
+    private int maxOpenSeries = 1024;
+
+    /** Appends a 30-day history line for mentioned symbols to chat prompts. */
+    private boolean enrichPrompts = true;
+
+    /** Directory {@code /api/history/import} reads files from; requests cannot name files outside it. */
+    private String importDirectory = "data/import";
+
+    public String getImportDirectory() {
+        return importDirectory;
+    }
+
+    public void setImportDirectory(String importDirectory) {
+        this.importDirectory = importDirectory;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getRowsPerSegment() {
+        return rowsPerSegment;
+    }
+
+    public void setRowsPerSegment(int rowsPerSegment) {
+        this.rowsPerSegment = rowsPerSegment;
+    }
+
+    public int getIndexStride() {
+        return indexStride;
+    }
+
+    public void setIndexStride(int indexStride) {
+        this.indexStride = indexStride;
+    }
+
+    public int getMaxMappedSegments() {
+        return maxMappedSegments;
+    }
+
+    public void setMaxMappedSegments(int maxMappedSegments) {
+        this.maxMappedSegments = maxMappedSegments;
+    }
+
+    public int getMaxOpenSeries() {
+        return maxOpenSeries;
+    }
+
+    public void setMaxOpenSeries(int maxOpenSeries) {
+        this.maxOpenSeries = maxOpenSeries;
+    }
+
+    public boolean isEnrichPrompts() {
+        return enrichPrompts;
+    }
+
+    public void setEnrichPrompts(boolean enrichPrompts) {
+        this.enrichPrompts = enrichPrompts;
+    }
+}
@@ -0,0 +1,58 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration for asynchronous analysis jobs.
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.jobs")
+public class JobProperties {
+
+    /** Jobs running at the same time; further jobs wait in the queue. */
+    private int maxConcurrent = 8;
+
+    /** Queued plus running jobs; submissions beyond this are rejected. */
+    private int maxActive = 1000;
+
+    /** How long finished jobs (and their results) can be polled. */
+    private Duration resultTtl = Duration.ofHours(1);
+
+    /** Lifetime of a progress event stream. */
+    private Duration streamTimeout = Duration.ofMinutes(30);
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public int getMaxActive() {
+        return maxActive;
+    }
+
+    public void setMaxActive(int maxActive) {
+        this.maxActive = maxActive;
+    }
+
+    public Duration getResultTtl() {
+        return resultTtl;
+    }
+
+    public void setResultTtl(Duration resultTtl) {
+        this.resultTtl = resultTtl;
+    }
+
+    public Duration getStreamTimeout() {
+        return streamTimeout;
+    }
+
+    public void setStreamTimeout(Duration streamTimeout) {
+        this.streamTimeout = streamTimeout;
+    }
+}
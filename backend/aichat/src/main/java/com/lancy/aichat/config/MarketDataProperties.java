@@ -0,0 +1,132 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration for market-data ingestion and incremental indicators.
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.marketdata")
+public class MarketDataProperties {
+
+    /** Ring buffer slots; must be a power of two. */
+    private int bufferCapacity = 1 << 16;
+
+    /** Maximum number of distinct symbols. */
+    private int maxSymbols = 10_000;
+
+    private int emaPeriod = 20;
+
+    private int rsiPeriod = 14;
+
+    private int atrPeriod = 14;
+
+    /** Number of returns in the rolling volatility window. */
+    private int volatilityWindow = 20;
+
+    /** Bars per year used to annualize volatility (252 for daily bars, 98280 for minute bars). */
+    private double barsPerYear = 252;
+
+    /** TCP port of the line-based socket feed; 0 disables it. */
+    private int socketPort = 0;
+
+    /** Appends indicator snapshots of symbols mentioned in a chat message to the prompt. */
+    private boolean enrichPrompts = true;
+
+    /** How long publishing waits for room in a full ring buffer before failing. */
+    private Duration publishTimeout = Duration.ofSeconds(5);
+
+    /** Directory {@code /api/market/replay} reads files from; requests cannot name files outside it. */
+    private String replayDirectory = "data/replay";
+
+    public Duration getPublishTimeout() {
+        return publishTimeout;
+    }
+
+    public void setPublishTimeout(Duration publishTimeout) {
+        this.publishTimeout = publishTimeout;
+    }
+
+    public String getReplayDirectory() {
+        return replayDirectory;
+    }
+
+    public void setReplayDirectory(String replayDirectory) {
+        this.replayDirectory = replayDirectory;
+    }
+
+    public int getBufferCapacity() {
+        return bufferCapacity;
+    }
+
+    public void setBufferCapacity(int bufferCapacity) {
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    public int getMaxSymbols() {
+        return maxSymbols;
+    }
+
+    public void setMaxSymbols(int maxSymbols) {
+        this.maxSymbols = maxSymbols;
+    }
+
+    public int getEmaPeriod() {
+        return emaPeriod;
+    }
+
+    public void setEmaPeriod(int emaPeriod) {
+        this.emaPeriod = emaPeriod;
+    }
+
+    public int getRsiPeriod() {
+        return rsiPeriod;
+    }
+
+    public void setRsiPeriod(int rsiPeriod) {
+        this.rsiPeriod = rsiPeriod;
+    }
+
+    public int getAtrPeriod() {
+        return atrPeriod;
+    }
+
+    public void setAtrPeriod(int atrPeriod) {
+        this.atrPeriod = atrPeriod;
+    }
+
+    public int getVolatilityWindow() {
+        return volatilityWindow;
+    }
+
+    public void setVolatilityWindow(int volatilityWindow) {
+        this.volatilityWindow = volatilityWindow;
+    }
+
+    public double getBarsPerYear() {
+        return barsPerYear;
+    }
+
+    public void setBarsPerYear(double barsPerYear) {
+        this.barsPerYear = barsPerYear;
+    }
+
+    public int getSocketPort() {
+        return socketPort;
+    }
+
+    public void setSocketPort(int socketPort) {
+        this.socketPort = socketPort;
+    }
+
+    public boolean isEnrichPrompts() {
+        return enrichPrompts;
+    }
+
+    public void setEnrichPrompts(boolean enrichPrompts) {
+        this.enrichPrompts = enrichPrompts;
+    }
+}
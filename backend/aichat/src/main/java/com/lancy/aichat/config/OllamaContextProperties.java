@@ -0,0 +1,62 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration for Ollama session context reuse.
+ *
+ * <p>Controls how much conversation state is kept per {@code sessionId} so that
+ * follow-up turns resend an identical prompt prefix and Ollama can reuse its
+ * KV cache instead of re-evaluating the whole conversation.</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.ollama.context")
+public class OllamaContextProperties {
+
+    /** Enables session-level context reuse. */
+    private boolean enabled = true;
+
+    /** Maximum number of user/assistant turns kept per session; exceeding it cuts the history to the newest half. */
+    private int maxTurns = 20;
+
+    /** Sessions idle for longer than this expire from the session store. */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    /** Ollama keep_alive value so the model (and its KV cache) stays loaded between turns. */
+    private String keepAlive = "30m";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxTurns() {
+        return maxTurns;
+    }
+
+    public void setMaxTurns(int maxTurns) {
+        this.maxTurns = maxTurns;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(String keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+}
@@ -0,0 +1,56 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for the Monte Carlo risk engine.
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.risk")
+public class RiskProperties {
+
+    /** Fork-join worker threads; 0 uses one per available processor. */
+    private int parallelism = 0;
+
+    /** Paths simulated when the request does not say. */
+    private int defaultPaths = 100_000;
+
+    /** Upper bound on paths per request; each path keeps 8 bytes of results. */
+    private int maxPaths = 10_000_000;
+
+    /** Calendar days of daily history the return model is fitted on. */
+    private int lookbackDays = 730;
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getDefaultPaths() {
+        return defaultPaths;
+    }
+
+    public void setDefaultPaths(int defaultPaths) {
+        this.defaultPaths = defaultPaths;
+    }
+
+    public int getMaxPaths() {
+        return maxPaths;
+    }
+
+    public void setMaxPaths(int maxPaths) {
+        this.maxPaths = maxPaths;
+    }
+
+    public int getLookbackDays() {
+        return lookbackDays;
+    }
+
+    public void setLookbackDays(int lookbackDays) {
+        this.lookbackDays = lookbackDays;
+    }
+}
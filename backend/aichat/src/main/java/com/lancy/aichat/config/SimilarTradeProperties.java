@@ -0,0 +1,115 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the similar-trade index.
+ *
+ * <p>Below {@code lshThreshold} trades a query scans every vector; above it,
+ * candidates come from {@code lshTables} random-hyperplane hash tables of
+ * {@code lshBits} bits each and only those are ranked exactly.</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.similar")
+public class SimilarTradeProperties {
+
+    /** Adds a summary of similar past trades to each trade of a review. */
+    private boolean enrichReviews = true;
+
+    /** Neighbours summarised per reviewed trade. */
+    private int reviewNeighbors = 5;
+
+    /** Upper bound on neighbours per query. */
+    private int maxNeighbors = 100;
+
+    /** Upper bound on indexed trades; later trades are not indexed. */
+    private int maxTrades = 1_000_000;
+
+    /** Index size from which queries use locality-sensitive hashing. */
+    private int lshThreshold = 20_000;
+
+    private int lshTables = 8;
+
+    private int lshBits = 12;
+
+    /** Bar interval of the entry context (indicators at the time the trade was opened). */
+    private Duration contextInterval = Duration.ofMinutes(5);
+
+    /** Bars of {@code contextInterval} the entry indicators are computed from. */
+    private int contextBars = 100;
+
+    public boolean isEnrichReviews() {
+        return enrichReviews;
+    }
+
+    public void setEnrichReviews(boolean enrichReviews) {
+        this.enrichReviews = enrichReviews;
+    }
+
+    public int getReviewNeighbors() {
+        return reviewNeighbors;
+    }
+
+    public void setReviewNeighbors(int reviewNeighbors) {
+        this.reviewNeighbors = reviewNeighbors;
+    }
+
+    public int getMaxNeighbors() {
+        return maxNeighbors;
+    }
+
+    public void setMaxNeighbors(int maxNeighbors) {
+        this.maxNeighbors = maxNeighbors;
+    }
+
+    public int getMaxTrades() {
+        return maxTrades;
+    }
+
+    public void setMaxTrades(int maxTrades) {
+        this.maxTrades = maxTrades;
+    }
+
+    public int getLshThreshold() {
+        return lshThreshold;
+    }
+
+    public void setLshThreshold(int lshThreshold) {
+        this.lshThreshold = lshThreshold;
+    }
+
+    public int getLshTables() {
+        return lshTables;
+    }
+
+    public void setLshTables(int lshTables) {
+        this.lshTables = lshTables;
+    }
+
+    public int getLshBits() {
+        return lshBits;
+    }
+
+    public void setLshBits(int lshBits) {
+        this.lshBits = lshBits;
+    }
+
+    public Duration getContextInterval() {
+        return contextInterval;
+    }
+
+    public void setContextInterval(Duration contextInterval) {
+        this.contextInterval = contextInterval;
+    }
+
+    public int getContextBars() {
+        return contextBars;
+    }
+
+    public void setContextBars(int contextBars) {
+        this.contextBars = contextBars;
+    }
+}
@@ -0,0 +1,100 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration for the token budget of prompts and completions.
+ *
+ * <p>Tokens are counted locally with a BPE encoding chosen per model or provider
+ * ({@code cl100k_base}, {@code o200k_base}, ...). For models with a different
+ * vocabulary (e.g. Llama) the count is an estimate within a few percent.</p>
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.tokens")
+public class TokenBudgetProperties {
+
+    /** Enables counting, trimming and output caps. */
+    private boolean enabled = true;
+
+    /** Budget of system prompt, session history and user message (with market context) sent to the model. */
+    private int maxInputTokens = 6000;
+
+    /** User messages above this many tokens are rejected before any other work. */
+    private int rejectAboveTokens = 32000;
+
+    /** Completion cap of endpoints without an entry in {@code endpointOutputTokens}. */
+    private int maxOutputTokens = 1024;
+
+    /**
+     * Completion cap per endpoint, keyed by the path below {@code /api/} like
+     * {@code ai.deadline.endpoints}; {@code background} applies to calls made
+     * outside an HTTP request (WebSocket chat, analysis jobs).
+     */
+    private Map<String, Integer> endpointOutputTokens = new HashMap<>();
+
+    /** Encoding used for models and providers without an entry in {@code encodings}. */
+    private String defaultEncoding = "cl100k_base";
+
+    /** Encoding per model name or provider name (e.g. {@code OPENAI=o200k_base}). */
+    private Map<String, String> encodings = new HashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxInputTokens() {
+        return maxInputTokens;
+    }
+
+    public void setMaxInputTokens(int maxInputTokens) {
+        this.maxInputTokens = maxInputTokens;
+    }
+
+    public int getRejectAboveTokens() {
+        return rejectAboveTokens;
+    }
+
+    public void setRejectAboveTokens(int rejectAboveTokens) {
+        this.rejectAboveTokens = rejectAboveTokens;
+    }
+
+    public int getMaxOutputTokens() {
+        return maxOutputTokens;
+    }
+
+    public void setMaxOutputTokens(int maxOutputTokens) {
+        this.maxOutputTokens = maxOutputTokens;
+    }
+
+    public Map<String, Integer> getEndpointOutputTokens() {
+        return endpointOutputTokens;
+    }
+
+    public void setEndpointOutputTokens(Map<String, Integer> endpointOutputTokens) {
+        this.endpointOutputTokens = endpointOutputTokens;
+    }
+
+    public String getDefaultEncoding() {
+        return defaultEncoding;
+    }
+
+    public void setDefaultEncoding(String defaultEncoding) {
+        this.defaultEncoding = defaultEncoding;
+    }
+
+    public Map<String, String> getEncodings() {
+        return encodings;
+    }
+
+    public void setEncodings(Map<String, String> encodings) {
+        this.encodings = encodings;
+    }
+}
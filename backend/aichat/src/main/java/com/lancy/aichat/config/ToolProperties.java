@@ -0,0 +1,47 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration for model tool calling ({@code POST /api/chat/tools}).
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.tools")
+public class ToolProperties {
+
+    /** Model turns that may request tools; the turn after the last one must answer in text. */
+    private int maxRounds = 4;
+
+    /** Tool calls executed per model turn; further calls in the same turn get an error result. */
+    private int maxCallsPerRound = 16;
+
+    /** Time a round waits for its tool calls before reporting the stragglers as timed out. */
+    private Duration timeout = Duration.ofSeconds(10);
+
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    public void setMaxRounds(int maxRounds) {
+        this.maxRounds = maxRounds;
+    }
+
+    public int getMaxCallsPerRound() {
+        return maxCallsPerRound;
+    }
+
+    public void setMaxCallsPerRound(int maxCallsPerRound) {
+        this.maxCallsPerRound = maxCallsPerRound;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
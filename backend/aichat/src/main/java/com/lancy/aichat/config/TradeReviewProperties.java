@@ -0,0 +1,67 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration for batched LLM trade reviews.
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.review")
+public class TradeReviewProperties {
+
+    /** Upper bound on system prompt, instructions and trades of one provider call. */
+    private int maxPromptTokens = 3000;
+
+    /** Upper bound on trades per provider call; 1 reviews one trade at a time. */
+    private int maxBatchSize = 25;
+
+    /** Completion tokens reserved per trade; batches are also bounded by the output cap. */
+    private int outputTokensPerTrade = 90;
+
+    /** Calls a trade may take part in before it is reported as failed. */
+    private int maxAttempts = 3;
+
+    /** Upper bound on trades per request. */
+    private int maxTrades = 2000;
+
+    public int getMaxPromptTokens() {
+        return maxPromptTokens;
+    }
+
+    public void setMaxPromptTokens(int maxPromptTokens) {
+        this.maxPromptTokens = maxPromptTokens;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getOutputTokensPerTrade() {
+        return outputTokensPerTrade;
+    }
+
+    public void setOutputTokensPerTrade(int outputTokensPerTrade) {
+        this.outputTokensPerTrade = outputTokensPerTrade;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public int getMaxTrades() {
+        return maxTrades;
+    }
+
+    public void setMaxTrades(int maxTrades) {
+        this.maxTrades = maxTrades;
+    }
+}
@@ -1,7 +1,11 @@
 package com.lancy.aichat.config;
 
+import com.lancy.aichat.call.DeadlineInterceptor;
+import com.lancy.aichat.controller.AdminSecretInterceptor;
+import com.lancy.aichat.store.StoreSecretInterceptor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
@@ -18,6 +22,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  *     <li>allowedMethods: HTTP methods including OPTIONS for preflight</li>
  *     <li>allowedHeaders: Allows Content-Type, Authorization, and other headers</li>
  *     <li>allowCredentials: Supports cookies and authentication headers</li>
+ *     <li>exposedHeaders: X-Request-Id, so the frontend can cancel a pending request</li>
  * </ul>
  * </p>
  * <p>
@@ -31,6 +36,19 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private final DeadlineInterceptor deadlineInterceptor;
+
+    private final StoreSecretInterceptor storeSecretInterceptor;
+
+    private final AdminSecretInterceptor adminSecretInterceptor;
+
+    public WebConfig(DeadlineInterceptor deadlineInterceptor, StoreSecretInterceptor storeSecretInterceptor,
+                     AdminSecretInterceptor adminSecretInterceptor) {
+        this.deadlineInterceptor = deadlineInterceptor;
+        this.storeSecretInterceptor = storeSecretInterceptor;
+        this.adminSecretInterceptor = adminSecretInterceptor;
+    }
+
     /**
      * Configure global CORS mappings for the application.
      *
@@ -42,8 +60,27 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedOrigins("http://localhost:4200") // Allow Angular frontend
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS") // OPTIONS needed for preflight requests
                 .allowedHeaders("*") // Angular sends Content-Type: application/json
+                .exposedHeaders(DeadlineInterceptor.REQUEST_ID_HEADER)
                 // Future auth tokens require headers
                 .allowCredentials(true); // Allow cookies or auth headers
         // OPTIONS preflight requests need support
     }
+
+    /**
+     * Bound provider calls of API requests by a deadline; see {@link DeadlineInterceptor}.
+     * Require the replica secret on the internal store endpoints; see {@link StoreSecretInterceptor}.
+     * Require the admin secret on the admin endpoints; see {@link AdminSecretInterceptor}.
+     *
+     * @param registry The InterceptorRegistry to add the interceptors to
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(adminSecretInterceptor)
+                .addPathPatterns("/api/admin/**");
+        registry.addInterceptor(deadlineInterceptor)
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/calls/**");
+        registry.addInterceptor(storeSecretInterceptor)
+                .addPathPatterns("/internal/store/**");
+    }
 }
@@ -0,0 +1,47 @@
+package com.lancy.aichat.config;
+
+import com.lancy.aichat.ws.ChatWebSocketHandler;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Registers the WebSocket chat channel.
+ *
+ * <p>One connection to {@code /ws/chat} carries many chat sessions, so the
+ * Angular frontend pays the handshake (and the CORS checks configured in
+ * {@link WebConfig}) once instead of on every message. The allowed origin
+ * matches {@link WebConfig}.</p>
+ */
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final ChatWebSocketHandler chatHandler;
+
+    public WebSocketConfig(ChatWebSocketHandler chatHandler) {
+        this.chatHandler = chatHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(chatHandler, "/ws/chat")
+                .setAllowedOrigins("http://localhost:4200");
+    }
+
+    /**
+     * Raises Tomcat's inbound text buffer (8 KB by default) to {@code ai.ws.max-message-size}
+     * so long prompts are not rejected with close code 1009.
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> webSocketBufferCustomizer(
+            WebSocketProperties properties) {
+        return factory -> factory.addContextCustomizers(context -> context.addParameter(
+                "org.apache.tomcat.websocket.textBufferSize",
+                String.valueOf(properties.getMaxMessageSize())));
+    }
+}
@@ -0,0 +1,80 @@
+package com.lancy.aichat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the WebSocket chat channel ({@code /ws/chat}).
+ */
+@Component
+@ConfigurationProperties(prefix = "ai.ws")
+public class WebSocketProperties {
+
+    /** Token frames a chat session may receive before the client grants more credit. */
+    private int initialCredits = 32;
+
+    /** Chat sessions multiplexed on a single connection. */
+    private int maxSessions = 16;
+
+    /** How long a paused session waits for credit before its request is failed. */
+    private Duration creditTimeout = Duration.ofMinutes(1);
+
+    /** Time a single send may take before the connection is closed as unresponsive. */
+    private Duration sendTimeLimit = Duration.ofSeconds(10);
+
+    /** Bytes buffered for a connection while a send is in progress. */
+    private int sendBufferSize = 512 * 1024;
+
+    /** Largest inbound text frame in bytes. */
+    private int maxMessageSize = 64 * 1024;
+
+    public int getInitialCredits() {
+        return initialCredits;
+    }
+
+    public void setInitialCredits(int initialCredits) {
+        this.initialCredits = initialCredits;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    public Duration getCreditTimeout() {
+        return creditTimeout;
+    }
+
+    public void setCreditTimeout(Duration creditTimeout) {
+        this.creditTimeout = creditTimeout;
+    }
+
+    public Duration getSendTimeLimit() {
+        return sendTimeLimit;
+    }
+
+    public void setSendTimeLimit(Duration sendTimeLimit) {
+        this.sendTimeLimit = sendTimeLimit;
+    }
+
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public void setSendBufferSize(int sendBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+    }
+
+    public int getMaxMessageSize() {
+        return maxMessageSize;
+    }
+
+    public void setMaxMessageSize(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+}
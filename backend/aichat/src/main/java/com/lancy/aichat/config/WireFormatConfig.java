@@ -0,0 +1,37 @@
+package com.lancy.aichat.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Binary wire format for high-volume API clients.
+ *
+ * <p>Registers a CBOR ({@code application/cbor}, RFC 8949) message converter next
+ * to the default JSON one, so every REST endpoint accepts and produces CBOR when
+ * the client asks for it through {@code Content-Type} / {@code Accept}. Browsers and
+ * clients that send nothing keep getting JSON.</p>
+ *
+ * <p>CBOR encodes the same Jackson model as JSON, so the DTO records are the
+ * schema for both formats and no separate schema has to be kept in sync. Numbers,
+ * and especially the {@code double[]} columns of history and risk responses, are
+ * written as fixed-width binary values instead of decimal text, which is where most
+ * of the size and CPU savings come from. Response compression is negotiated
+ * separately per request through {@code Accept-Encoding} (see
+ * {@code server.compression.*}).</p>
+ */
+@Configuration
+public class WireFormatConfig {
+
+    /**
+     * CBOR converter built from Spring Boot's {@link Jackson2ObjectMapperBuilder}, so
+     * {@code spring.jackson.*} settings and registered modules apply to both formats.
+     * Spring Boot puts it in place of the framework's default CBOR converter.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
@@ -1,4 +1,64 @@
 package com.lancy.aichat.controller;
 
+import com.lancy.aichat.dto.SwitchProviderRequest;
+import com.lancy.aichat.routing.ProviderRouter;
+import com.lancy.aichat.routing.RoutingConfig;
+import com.lancy.aichat.routing.RoutingStatus;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST controller for switching the AI provider at runtime.
+ *
+ * <ul>
+ *     <li>GET  /api/admin/provider - active routing, provider calls in flight and
+ *     earlier routings still draining</li>
+ *     <li>POST /api/admin/provider - switch provider, fallback chain and/or model</li>
+ * </ul>
+ *
+ * <p>A switch takes effect for the next request; requests already running finish
+ * on the routing they started with, so nothing is dropped or retried.</p>
+ *
+ * <p>Both require {@code X-Admin-Secret} (see {@link AdminSecretInterceptor}).</p>
+ */
+@RestController
+@RequestMapping("/api/admin/provider")
 public class AdminController {
+
+    private final ProviderRouter router;
+
+    public AdminController(ProviderRouter router) {
+        this.router = router;
+    }
+
+    @GetMapping
+    public RoutingStatus status() {
+        return router.status();
+    }
+
+    /**
+     * Switches the routing. With a {@code drainTimeout}, answers once the requests on
+     * earlier routings have finished or the timeout elapsed; the wait is capped at a
+     * few seconds, after which the client polls {@code GET /api/admin/provider}.
+     *
+     * @return 200 with the routing status once drained, 202 while requests are still
+     *         draining, 400 for an unknown provider
+     */
+    @PostMapping
+    public ResponseEntity<?> switchProvider(@RequestBody SwitchProviderRequest request) {
+        RoutingConfig next;
+        try {
+            next = router.update(request);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        boolean drained = request.drainTimeout() == null
+                ? router.status().draining().isEmpty()
+                : router.awaitDrained(next.version(), request.drainTimeout());
+        return ResponseEntity.status(drained ? HttpStatus.OK : HttpStatus.ACCEPTED).body(router.status());
+    }
 }
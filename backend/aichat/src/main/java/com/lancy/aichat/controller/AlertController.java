@@ -0,0 +1,79 @@
+package com.lancy.aichat.controller;
+
+import com.lancy.aichat.alert.AlertEngine;
+import com.lancy.aichat.alert.AlertRule;
+import com.lancy.aichat.alert.AlertService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * REST controller for alert rules and the alerts they raise.
+ *
+ * <ul>
+ *     <li>GET    /api/alerts/rules                  - list rules</li>
+ *     <li>POST   /api/alerts/rules                  - add a rule, or replace the rule with its id</li>
+ *     <li>DELETE /api/alerts/rules/{id}             - remove a rule</li>
+ *     <li>GET    /api/alerts/events?symbols=AAPL,.. - server-sent {@code alert} and {@code commentary} events</li>
+ * </ul>
+ *
+ * <p>Rules are evaluated on every bar and tick of the market-data feeds
+ * (socket feed, {@code /api/market/replay}).</p>
+ */
+@RestController
+@RequestMapping("/api/alerts")
+public class AlertController {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertController.class);
+
+    private final AlertEngine engine;
+
+    private final AlertService alertService;
+
+    public AlertController(AlertEngine engine, AlertService alertService) {
+        this.engine = engine;
+        this.alertService = alertService;
+    }
+
+    @GetMapping("/rules")
+    public List<AlertRule> rules() {
+        return engine.rules();
+    }
+
+    @PostMapping("/rules")
+    public ResponseEntity<?> add(@RequestBody AlertRule rule) {
+        try {
+            return ResponseEntity.ok(engine.add(rule));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid alert rule: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/rules/{id}")
+    public ResponseEntity<Void> remove(@PathVariable String id) {
+        return engine.remove(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@RequestParam(required = false) String symbols) {
+        Set<String> wanted = symbols == null ? Set.of() : Arrays.stream(symbols.split(","))
+                .map(String::strip)
+                .filter(symbol -> !symbol.isEmpty())
+                .map(symbol -> symbol.toUpperCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        return alertService.subscribe(wanted);
+    }
+}
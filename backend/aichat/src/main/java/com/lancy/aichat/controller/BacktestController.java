@@ -0,0 +1,47 @@
+package com.lancy.aichat.controller;
+
+import com.lancy.aichat.backtest.BacktestRequest;
+import com.lancy.aichat.backtest.BacktestService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST controller for strategy backtests over stored history.
+ *
+ * <ul>
+ *     <li>POST /api/backtest - run a strategy (optionally a parameter grid) and optionally summarize it</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/api/backtest")
+public class BacktestController {
+
+    private static final Logger log = LoggerFactory.getLogger(BacktestController.class);
+
+    private final BacktestService backtestService;
+
+    public BacktestController(BacktestService backtestService) {
+        this.backtestService = backtestService;
+    }
+
+    /**
+     * Runs a backtest; see {@link BacktestRequest} for the body.
+     *
+     * @return 200 with the report, or 400 with an {@code error} for invalid requests
+     */
+    @PostMapping
+    public ResponseEntity<?> backtest(@RequestBody BacktestRequest request) {
+        try {
+            return ResponseEntity.ok(backtestService.run(request));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid backtest request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
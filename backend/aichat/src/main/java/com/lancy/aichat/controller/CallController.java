@@ -0,0 +1,48 @@
+package com.lancy.aichat.controller;
+
+import com.lancy.aichat.call.CallRegistry;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST controller for cancelling in-flight requests.
+ *
+ * <ul>
+ *     <li>DELETE /api/calls/{requestId}        - abort the provider call of the request
+ *     whose response carries that {@code X-Request-Id}</li>
+ *     <li>POST   /api/calls/{requestId}/cancel - same, for {@code navigator.sendBeacon}
+ *     when the tab closes (beacons can only POST)</li>
+ * </ul>
+ *
+ * <p>The aborted request answers 499; no fallback provider is tried for it.</p>
+ */
+@RestController
+@RequestMapping("/api/calls")
+public class CallController {
+
+    private final CallRegistry callRegistry;
+
+    public CallController(CallRegistry callRegistry) {
+        this.callRegistry = callRegistry;
+    }
+
+    /**
+     * Cancels a request.
+     *
+     * @return 200 if it was cancelled, 404 if it is unknown, finished or already aborted
+     */
+    @DeleteMapping("/{requestId}")
+    public ResponseEntity<Map<String, Object>> delete(@PathVariable String requestId) {
+        return cancel(requestId);
+    }
+
+    @PostMapping("/{requestId}/cancel")
+    public ResponseEntity<Map<String, Object>> cancel(@PathVariable String requestId) {
+        return callRegistry.cancel(requestId)
+                ? ResponseEntity.ok(Map.of("requestId", requestId, "cancelled", true))
+                : ResponseEntity.notFound().build();
+    }
+}
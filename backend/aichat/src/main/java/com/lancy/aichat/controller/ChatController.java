@@ -1,6 +1,12 @@
 package com.lancy.aichat.controller;
 
+import com.lancy.aichat.call.CallAbortedException;
+import com.lancy.aichat.call.CallContext;
+import com.lancy.aichat.exception.GlobalExceptionHandler;
 import com.lancy.aichat.service.ChatService;
+import com.lancy.aichat.store.SessionAffinity;
+import com.lancy.aichat.token.PromptTooLargeException;
+import com.lancy.aichat.tool.ToolRegistry;
 import com.lancy.aichat.dto.ChatRequest;
 import com.lancy.aichat.dto.ChatResponse;
 
@@ -22,6 +28,7 @@ import org.springframework.web.bind.annotation.*;
  * <ul>
  *     <li>GET  /api/chat  - Simple query-based chat request</li>
  *     <li>POST /api/chat  - JSON body-based chat request</li>
+ *     <li>POST /api/chat/tools - chat request in which the model may call local quant tools</li>
  * </ul>
  *
  * <p>
@@ -30,7 +37,8 @@ import org.springframework.web.bind.annotation.*;
  * <ul>
  *     <li>Input validation</li>
  *     <li>Logging for observability</li>
- *     <li>Error handling with proper HTTP status codes</li>
+ *     <li>Error handling with proper HTTP status codes (504 past the request deadline,
+ *     499 when cancelled through {@code /api/calls}, 413 for messages far over the token budget)</li>
  * </ul>
  *
  * <p>
@@ -51,13 +59,32 @@ public class ChatController {
      */
     private final ChatService chatService;
 
+    /**
+     * Consistent-hash ring used to hint which replica owns a session.
+     */
+    private final SessionAffinity sessionAffinity;
+
+    /**
+     * Local quant tools offered to the model on {@code /api/chat/tools}.
+     */
+    private final ToolRegistry toolRegistry;
+
+    /**
+     * Header naming the replica that owns the session, for load balancer affinity.
+     */
+    static final String SESSION_OWNER_HEADER = "X-Session-Owner";
+
     /**
      * Constructor-based dependency injection.
      *
-     * @param chatService the service that handles AI response generation
+     * @param chatService     the service that handles AI response generation
+     * @param sessionAffinity session-to-replica routing hints
+     * @param toolRegistry    tools the model may call
      */
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService, SessionAffinity sessionAffinity, ToolRegistry toolRegistry) {
         this.chatService = chatService;
+        this.sessionAffinity = sessionAffinity;
+        this.toolRegistry = toolRegistry;
     }
 
     /**
@@ -95,6 +122,15 @@ public class ChatController {
 
             return ResponseEntity.ok(new ChatResponse(response));
 
+        } catch (PromptTooLargeException e) {
+            log.warn("Rejected oversized chat request: {}", e.getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(new ChatResponse("Error: " + e.getMessage() + "."));
+
+        } catch (CallAbortedException e) {
+            return aborted(e);
+
         } catch (Exception e) {
             // Log error for monitoring and debugging
             log.error("Error while calling AI model (GET)", e);
@@ -138,6 +174,14 @@ public class ChatController {
         }
 
         try {
+            // Session-scoped requests keep conversation context on the provider side
+            if (request.sessionId() != null && !request.sessionId().isBlank()) {
+                ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+                sessionAffinity.ownerOf(request.sessionId())
+                        .ifPresent(owner -> ok.header(SESSION_OWNER_HEADER, owner));
+                return ok.body(chatService.chat(request));
+            }
+
             // Delegate to service layer (business logic)
             String response = chatService.getResponse(
                     request.message(),
@@ -146,6 +190,15 @@ public class ChatController {
 
             return ResponseEntity.ok(new ChatResponse(response));
 
+        } catch (PromptTooLargeException e) {
+            log.warn("Rejected oversized chat request: {}", e.getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(new ChatResponse("Error: " + e.getMessage() + "."));
+
+        } catch (CallAbortedException e) {
+            return aborted(e);
+
         } catch (Exception e) {
             // Log exception for observability
             log.error("Error while calling AI model (POST)", e);
@@ -155,4 +208,57 @@ public class ChatController {
                     .body(new ChatResponse("Error: Unable to process request at this time."));
         }
     }
+
+    /**
+     * Handles chat requests in which the model may call local quant tools
+     * (position sizing, live indicators, P&amp;L statistics) before answering.
+     *
+     * @param request {@link ChatRequest} containing user message and optional metadata
+     * @return {@link ResponseEntity} containing {@link ChatResponse}
+     */
+    @PostMapping("/chat/tools")
+    public ResponseEntity<ChatResponse> chatWithTools(@RequestBody ChatRequest request) {
+
+        log.info("Received tool-enabled POST request with message: {}", request.message());
+
+        if (request.message() == null || request.message().trim().isEmpty()) {
+            log.warn("Invalid tool-enabled request: message is empty");
+            return ResponseEntity
+                    .badRequest()
+                    .body(new ChatResponse("Message cannot be empty."));
+        }
+
+        try {
+            return ResponseEntity.ok(chatService.chat(request, toolRegistry.newSession()));
+
+        } catch (PromptTooLargeException e) {
+            log.warn("Rejected oversized chat request: {}", e.getMessage());
+            return ResponseEntity
+                    .status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(new ChatResponse("Error: " + e.getMessage() + "."));
+
+        } catch (CallAbortedException e) {
+            return aborted(e);
+
+        } catch (Exception e) {
+            log.error("Error while calling AI model with tools", e);
+
+            return ResponseEntity
+                    .status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ChatResponse("Error: Unable to process request at this time."));
+        }
+    }
+
+    /**
+     * Response for a call aborted at its deadline (504) or by the client (499).
+     */
+    private ResponseEntity<ChatResponse> aborted(CallAbortedException e) {
+        log.warn("Chat request aborted: {}", e.getMessage());
+        String message = e.getReason() == CallContext.Reason.DEADLINE
+                ? "Error: The request exceeded its deadline."
+                : "Error: The request was cancelled.";
+        return ResponseEntity
+                .status(GlobalExceptionHandler.statusOf(e))
+                .body(new ChatResponse(message));
+    }
 }
@@ -0,0 +1,43 @@
+package com.lancy.aichat.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Resolves file names sent by clients against a configured directory.
+ *
+ * <p>Clients never name arbitrary server paths: the name is resolved below the
+ * root and normalized, and anything that ends up outside the root (absolute
+ * paths, {@code ..}, symbolic links pointing elsewhere) is rejected.</p>
+ */
+final class DataFiles {
+
+    private DataFiles() {
+    }
+
+    /**
+     * @param root directory the file must live in
+     * @param name file name or path relative to {@code root}
+     * @return the readable file, or empty if it is missing, unreadable or outside {@code root}
+     */
+    static Optional<Path> resolve(String root, String name) {
+        if (root == null || root.isBlank() || name == null || name.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            Path base = Path.of(root).toAbsolutePath().normalize();
+            Path file = base.resolve(name).normalize();
+            if (!file.startsWith(base) || !Files.isRegularFile(file) || !Files.isReadable(file)) {
+                return Optional.empty();
+            }
+            // Links inside the root may still point outside of it
+            Path real = file.toRealPath();
+            return real.startsWith(base.toRealPath()) ? Optional.of(real) : Optional.empty();
+        } catch (InvalidPathException | IOException e) {
+            return Optional.empty();
+        }
+    }
+}
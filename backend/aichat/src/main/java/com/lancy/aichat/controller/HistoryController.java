@@ -0,0 +1,117 @@
+package com.lancy.aichat.controller;
+
+import com.lancy.aichat.config.HistoryProperties;
+import com.lancy.aichat.marketdata.history.BarSeries;
+import com.lancy.aichat.marketdata.history.BarStore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * REST controller for the historical bar store.
+ *
+ * <ul>
+ *     <li>GET  /api/history                     - symbols with stored history</li>
+ *     <li>GET  /api/history/{symbol}?from=&amp;to=&amp;interval= - downsampled bars</li>
+ *     <li>POST /api/history/import              - import a bar/tick file from {@code ai.history.import-directory}</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/api/history")
+public class HistoryController {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryController.class);
+
+    private final BarStore barStore;
+
+    private final HistoryProperties properties;
+
+    public HistoryController(BarStore barStore, HistoryProperties properties) {
+        this.barStore = barStore;
+        this.properties = properties;
+    }
+
+    @GetMapping
+    public List<String> symbols() {
+        return barStore.symbols();
+    }
+
+    /**
+     * Returns bars of a symbol aggregated to {@code interval}.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * GET /api/history/AAPL?from=2024-01-01T00:00:00Z&amp;to=2024-07-01T00:00:00Z&amp;interval=1h
+     * </pre>
+     * </p>
+     *
+     * @param symbol   ticker, e.g. AAPL
+     * @param from     inclusive start (ISO-8601); defaults to the first stored bar
+     * @param to       exclusive end (ISO-8601); defaults to after the last stored bar
+     * @param interval bar size, e.g. {@code 5m}, {@code 1h}, {@code 1d}
+     * @return 200 with column arrays, 400 for bad parameters, 404 if there are no bars
+     */
+    @GetMapping("/{symbol}")
+    public ResponseEntity<BarSeries> bars(
+            @PathVariable String symbol,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "1d") String interval) {
+
+        Duration step;
+        try {
+            step = DurationStyle.detectAndParse(interval);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!BarStore.isValidSymbol(symbol) || step.toMillis() <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        BarSeries bars = barStore.downsample(symbol,
+                from != null ? from.toEpochMilli() : Long.MIN_VALUE,
+                to != null ? to.toEpochMilli() : Long.MAX_VALUE,
+                step);
+        return bars.size() == 0 ? ResponseEntity.notFound().build() : ResponseEntity.ok(bars);
+    }
+
+    /**
+     * Imports a file into the store. Bars older than what is already stored are ignored.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * POST /api/history/import
+     * { "path": "aapl-1m.csv" }
+     * </pre>
+     * </p>
+     *
+     * @param body JSON object with the file {@code path}, relative to {@code ai.history.import-directory}
+     * @return number of bars appended, or 400 if the file is not a readable file in that directory
+     */
+    @PostMapping("/import")
+    public ResponseEntity<Map<String, Object>> importFile(@RequestBody Map<String, String> body) {
+
+        String path = body.get("path");
+        Optional<Path> file = DataFiles.resolve(properties.getImportDirectory(), path);
+        if (file.isEmpty()) {
+            log.warn("Invalid import request: {}", path);
+            return ResponseEntity.badRequest().body(Map.of("error", "Readable file in the import directory required."));
+        }
+
+        return ResponseEntity.ok(Map.of("bars", barStore.importFile(file.get())));
+    }
+}
@@ -0,0 +1,116 @@
+package com.lancy.aichat.controller;
+
+import com.lancy.aichat.backtest.BacktestRequest;
+import com.lancy.aichat.job.AnalysisJobs;
+import com.lancy.aichat.job.ChatJobRequest;
+import com.lancy.aichat.job.JobService;
+import com.lancy.aichat.job.JobState;
+import com.lancy.aichat.job.JobView;
+import com.lancy.aichat.review.TradeReviewRequest;
+import com.lancy.aichat.risk.RiskRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * REST controller for asynchronous analysis jobs.
+ *
+ * <ul>
+ *     <li>POST   /api/jobs/chat        - batch of chat messages (e.g. one review per symbol)</li>
+ *     <li>POST   /api/jobs/review      - {@code /api/review/trades} as a job</li>
+ *     <li>POST   /api/jobs/backtest    - {@code /api/backtest} as a job</li>
+ *     <li>POST   /api/jobs/risk        - {@code /api/risk} as a job</li>
+ *     <li>GET    /api/jobs/{id}        - poll state, progress and result</li>
+ *     <li>GET    /api/jobs/{id}/events - server-sent progress events</li>
+ *     <li>DELETE /api/jobs/{id}        - cancel, aborting in-flight provider calls</li>
+ * </ul>
+ *
+ * <p>Submissions answer 202 Accepted with a {@code Location} header to poll.</p>
+ */
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private static final Logger log = LoggerFactory.getLogger(JobController.class);
+
+    private final JobService jobService;
+
+    private final AnalysisJobs analysisJobs;
+
+    public JobController(JobService jobService, AnalysisJobs analysisJobs) {
+        this.jobService = jobService;
+        this.analysisJobs = analysisJobs;
+    }
+
+    @PostMapping("/chat")
+    public ResponseEntity<?> chat(@RequestBody ChatJobRequest request) {
+        return accepted(() -> analysisJobs.chat(request));
+    }
+
+    @PostMapping("/review")
+    public ResponseEntity<?> review(@RequestBody TradeReviewRequest request) {
+        return accepted(() -> analysisJobs.review(request));
+    }
+
+    @PostMapping("/backtest")
+    public ResponseEntity<?> backtest(@RequestBody BacktestRequest request) {
+        return accepted(() -> analysisJobs.backtest(request));
+    }
+
+    @PostMapping("/risk")
+    public ResponseEntity<?> risk(@RequestBody RiskRequest request) {
+        return accepted(() -> analysisJobs.risk(request));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<JobView> get(@PathVariable String id) {
+        return jobService.get(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(@PathVariable String id) {
+        return jobService.subscribe(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Cancels a job.
+     *
+     * @return 200 with the cancelled job, 409 if it had already finished, 404 if unknown
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<JobView> cancel(@PathVariable String id) {
+        return jobService.cancel(id)
+                .map(view -> view.state() == JobState.CANCELLED
+                        ? ResponseEntity.ok(view)
+                        : ResponseEntity.status(HttpStatus.CONFLICT).body(view))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private ResponseEntity<?> accepted(Supplier<JobView> submit) {
+        try {
+            JobView job = submit.get();
+            return ResponseEntity.accepted().location(URI.create("/api/jobs/" + job.id())).body(job);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid job request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            log.warn("Job rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.lancy.aichat.controller;
+
+import com.lancy.aichat.config.MarketDataProperties;
+import com.lancy.aichat.marketdata.IndicatorSnapshot;
+import com.lancy.aichat.marketdata.MarketDataService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * REST controller for market-data ingestion and indicator lookup.
+ *
+ * <ul>
+ *     <li>GET  /api/market/{symbol}  - latest indicator snapshot</li>
+ *     <li>POST /api/market/replay    - replay a bar/tick file from {@code ai.marketdata.replay-directory}</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/api/market")
+public class MarketDataController {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketDataController.class);
+
+    private final MarketDataService marketDataService;
+
+    private final MarketDataProperties properties;
+
+    public MarketDataController(MarketDataService marketDataService, MarketDataProperties properties) {
+        this.marketDataService = marketDataService;
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the latest indicators of a symbol.
+     *
+     * @param symbol ticker, e.g. AAPL
+     * @return 200 with the snapshot, or 404 if there is no data for the symbol
+     */
+    @GetMapping("/{symbol}")
+    public ResponseEntity<IndicatorSnapshot> snapshot(@PathVariable String symbol) {
+        return marketDataService.snapshot(symbol)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Replays a file and waits for the indicators to catch up.
+     *
+     * <p>
+     * Example:
+     * <pre>
+     * POST /api/market/replay
+     * { "path": "aapl-1m.csv" }
+     * </pre>
+     * </p>
+     *
+     * @param body JSON object with the file {@code path}, relative to {@code ai.marketdata.replay-directory}
+     * @return number of events published, 400 if the file is not a readable file in that directory,
+     *         or 503 if the market-data consumer is stopped or stalled
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<Map<String, Object>> replay(@RequestBody Map<String, String> body)
+            throws InterruptedException {
+
+        String path = body.get("path");
+        Optional<Path> file = DataFiles.resolve(properties.getReplayDirectory(), path);
+        if (file.isEmpty()) {
+            log.warn("Invalid replay request: {}", path);
+            return ResponseEntity.badRequest().body(Map.of("error", "Readable file in the replay directory required."));
+        }
+
+        long events;
+        try {
+            events = marketDataService.replay(file.get());
+        } catch (IllegalStateException e) {
+            log.warn("Replay of {} aborted: {}", path, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+        boolean drained = marketDataService.awaitDrained(Duration.ofSeconds(30));
+        return ResponseEntity.ok(Map.of("events", events, "drained", drained));
+    }
+}
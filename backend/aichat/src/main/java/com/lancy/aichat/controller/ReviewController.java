@@ -0,0 +1,50 @@
+package com.lancy.aichat.controller;
+
+import com.lancy.aichat.review.TradeReviewRequest;
+import com.lancy.aichat.review.TradeReviewService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST controller for LLM trade reviews.
+ *
+ * <ul>
+ *     <li>POST /api/review/trades - one {@code TradeAnalysis} per closed trade, many
+ *     trades per provider call, with throughput and token cost of the run</li>
+ * </ul>
+ *
+ * <p>Large trade logs are better sent to {@code POST /api/jobs/review}.</p>
+ */
+@RestController
+@RequestMapping("/api/review")
+public class ReviewController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewController.class);
+
+    private final TradeReviewService reviewService;
+
+    public ReviewController(TradeReviewService reviewService) {
+        this.reviewService = reviewService;
+    }
+
+    /**
+     * Reviews trades; see {@link TradeReviewRequest} for the body.
+     *
+     * @return 200 with the report, or 400 with an {@code error} for invalid requests
+     */
+    @PostMapping("/trades")
+    public ResponseEntity<?> trades(@RequestBody TradeReviewRequest request) {
+        try {
+            return ResponseEntity.ok(reviewService.review(request));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid review request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
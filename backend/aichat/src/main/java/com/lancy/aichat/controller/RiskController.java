@@ -0,0 +1,47 @@
+package com.lancy.aichat.controller;
+
+import com.lancy.aichat.risk.RiskRequest;
+import com.lancy.aichat.risk.RiskService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * REST controller for Monte Carlo portfolio risk.
+ *
+ * <ul>
+ *     <li>POST /api/risk - VaR, CVaR and drawdown distribution of a portfolio</li>
+ * </ul>
+ */
+@RestController
+@RequestMapping("/api/risk")
+public class RiskController {
+
+    private static final Logger log = LoggerFactory.getLogger(RiskController.class);
+
+    private final RiskService riskService;
+
+    public RiskController(RiskService riskService) {
+        this.riskService = riskService;
+    }
+
+    /**
+     * Simulates a portfolio; see {@link RiskRequest} for the body.
+     *
+     * @return 200 with the report, or 400 with an {@code error} for invalid requests
+     */
+    @PostMapping
+    public ResponseEntity<?> analyze(@RequestBody RiskRequest request) {
+        try {
+            return ResponseEntity.ok(riskService.analyze(request));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid risk request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.lancy.aichat.controller;
+
+import com.lancy.aichat.review.TradeReviewRequest.Trade;
+import com.lancy.aichat.similar.SimilarTrade;
+import com.lancy.aichat.similar.SimilarTradeIndex;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller for looking up similar past trades.
+ *
+ * <ul>
+ *     <li>POST /api/similar/trades            - index closed trades (ids already indexed are skipped)</li>
+ *     <li>POST /api/similar?k=5               - nearest indexed trades to the trade in the body</li>
+ *     <li>GET  /api/similar/trades/{id}?k=5   - nearest indexed trades to an indexed trade</li>
+ * </ul>
+ *
+ * <p>Reviewed trades ({@code /api/review/trades}) are indexed as well.</p>
+ */
+@RestController
+@RequestMapping("/api/similar")
+public class SimilarTradeController {
+
+    private final SimilarTradeIndex index;
+
+    public SimilarTradeController(SimilarTradeIndex index) {
+        this.index = index;
+    }
+
+    @PostMapping("/trades")
+    public Map<String, Integer> ingest(@RequestBody List<Trade> trades) {
+        return Map.of("indexed", index.ingest(trades), "size", index.size());
+    }
+
+    @PostMapping
+    public List<SimilarTrade> similar(@RequestBody Trade trade, @RequestParam(defaultValue = "5") int k) {
+        return index.similar(trade, k);
+    }
+
+    /**
+     * @return 404 if no trade with that id is indexed
+     */
+    @GetMapping("/trades/{id}")
+    public ResponseEntity<List<SimilarTrade>> similar(@PathVariable String id,
+                                                      @RequestParam(defaultValue = "5") int k) {
+        return index.similar(id, k)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,74 @@
+package com.lancy.aichat.controller;
+
+import com.lancy.aichat.config.ChatStoreProperties;
+import com.lancy.aichat.store.ChatStore;
+import com.lancy.aichat.store.RemoteChatStore;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+
+/**
+ * Internal endpoints used between replicas for the shared {@link ChatStore}.
+ *
+ * <ul>
+ *     <li>GET/PUT/DELETE /internal/store/{namespace}?key=... - store server, only when {@code ai.store.serve=true}</li>
+ *     <li>POST /internal/store/invalidate/{namespace}?key=... - drops this node's near-cache copy</li>
+ * </ul>
+ *
+ * <p>These endpoints are meant for the private replica network and must not be
+ * exposed through the public load balancer. Every call must carry the replica
+ * secret ({@link com.lancy.aichat.store.StoreSecretInterceptor}).</p>
+ */
+@RestController
+@RequestMapping("/internal/store")
+public class StoreController {
+
+    private final ChatStore store;
+
+    private final ChatStoreProperties properties;
+
+    public StoreController(ChatStore store, ChatStoreProperties properties) {
+        this.store = store;
+        this.properties = properties;
+    }
+
+    @GetMapping(value = "/{namespace}", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> get(@PathVariable String namespace, @RequestParam String key) {
+        if (!properties.isServe()) {
+            return ResponseEntity.notFound().build();
+        }
+        return store.get(namespace, key)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PutMapping(value = "/{namespace}", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<Void> put(@PathVariable String namespace,
+                                    @RequestParam String key,
+                                    @RequestHeader(value = RemoteChatStore.TTL_HEADER, defaultValue = "0") long ttlMillis,
+                                    @RequestBody String value) {
+        if (!properties.isServe()) {
+            return ResponseEntity.notFound().build();
+        }
+        store.put(namespace, key, value, Duration.ofMillis(ttlMillis));
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{namespace}")
+    public ResponseEntity<Void> remove(@PathVariable String namespace, @RequestParam String key) {
+        if (!properties.isServe()) {
+            return ResponseEntity.notFound().build();
+        }
+        store.remove(namespace, key);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/invalidate/{namespace}")
+    public ResponseEntity<Void> invalidate(@PathVariable String namespace, @RequestParam String key) {
+        store.invalidateLocal(namespace, key);
+        return ResponseEntity.noContent().build();
+    }
+}
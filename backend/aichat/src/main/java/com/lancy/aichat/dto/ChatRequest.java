@@ -5,6 +5,9 @@ package com.lancy.aichat.dto;
  *
  * <p>Contains the user message, session ID, and optional
  * system prompt for dynamic persona/context injection.</p>
+ *
+ * <p>When {@code sessionId} is set, the provider keeps conversation context
+ * for the session and {@code model} selects the underlying LLM model.</p>
  */
 public record ChatRequest(
         String message,
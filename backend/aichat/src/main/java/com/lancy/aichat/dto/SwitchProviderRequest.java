@@ -1,4 +1,23 @@
 package com.lancy.aichat.dto;
 
-public class SwitchProviderRequest {
-}
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * DTO for switching the provider routing at runtime.
+ *
+ * <p>Fields left null keep their current value; an empty {@code model} reverts to
+ * the provider's default model.</p>
+ *
+ * @param provider     new primary provider (e.g. "OPENAI")
+ * @param fallbacks    providers tried in order when the primary fails
+ * @param model        model requested from the primary provider
+ * @param drainTimeout how long to wait for requests on the previous routing to
+ *                     finish before answering (e.g. "PT30S"); null answers at once
+ */
+public record SwitchProviderRequest(
+        String provider,
+        List<String> fallbacks,
+        String model,
+        Duration drainTimeout
+) {}
@@ -1,4 +1,53 @@
 package com.lancy.aichat.exception;
 
+import com.lancy.aichat.call.CallAbortedException;
+import com.lancy.aichat.call.CallContext;
+import com.lancy.aichat.token.PromptTooLargeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Maps exceptions that escape the controllers to error responses.
+ *
+ * <ul>
+ *     <li>{@link CallAbortedException} past the deadline - 504 Gateway Timeout</li>
+ *     <li>{@link CallAbortedException} cancelled by the client - 499 Client Closed Request</li>
+ *     <li>{@link PromptTooLargeException} - 413 Payload Too Large</li>
+ * </ul>
+ */
+@RestControllerAdvice
 public class GlobalExceptionHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+    /**
+     * Non-standard status (nginx) for requests the client abandoned.
+     */
+    public static final HttpStatusCode CLIENT_CLOSED_REQUEST = HttpStatusCode.valueOf(499);
+
+    @ExceptionHandler(CallAbortedException.class)
+    public ResponseEntity<Map<String, String>> handleAborted(CallAbortedException e) {
+        log.warn("Request aborted: {}", e.getMessage());
+        return ResponseEntity.status(statusOf(e)).body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(PromptTooLargeException.class)
+    public ResponseEntity<Map<String, String>> handleTooLarge(PromptTooLargeException e) {
+        log.warn("Request rejected: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+    }
+
+    /**
+     * HTTP status reported for an aborted call.
+     */
+    public static HttpStatusCode statusOf(CallAbortedException e) {
+        return e.getReason() == CallContext.Reason.DEADLINE ? HttpStatus.GATEWAY_TIMEOUT : CLIENT_CLOSED_REQUEST;
+    }
 }
@@ -0,0 +1,105 @@
+package com.lancy.aichat.job;
+
+import com.lancy.aichat.backtest.BacktestRequest;
+import com.lancy.aichat.backtest.BacktestService;
+import com.lancy.aichat.review.TradeReviewRequest;
+import com.lancy.aichat.review.TradeReviewService;
+import com.lancy.aichat.risk.RiskRequest;
+import com.lancy.aichat.risk.RiskService;
+import com.lancy.aichat.service.ChatService;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Analyses available as background jobs: chat batches, trade reviews, backtests and risk simulations.
+ */
+@Component
+public class AnalysisJobs {
+
+    /** Upper bound on messages per chat job. */
+    static final int MAX_MESSAGES = 500;
+
+    private final JobService jobService;
+    private final ChatService chatService;
+    private final BacktestService backtestService;
+    private final RiskService riskService;
+    private final TradeReviewService reviewService;
+
+    public AnalysisJobs(JobService jobService, ChatService chatService, BacktestService backtestService,
+                        RiskService riskService, TradeReviewService reviewService) {
+        this.jobService = jobService;
+        this.chatService = chatService;
+        this.backtestService = backtestService;
+        this.riskService = riskService;
+        this.reviewService = reviewService;
+    }
+
+    /**
+     * Sends each message to the provider in turn. A failed message is recorded
+     * and the batch continues; cancellation stops it.
+     *
+     * @throws IllegalArgumentException if there is nothing to send or too much
+     */
+    public JobView chat(ChatJobRequest request) {
+        List<String> messages = request.expand();
+        if (messages.isEmpty() || messages.size() > MAX_MESSAGES) {
+            throw new IllegalArgumentException("A chat job needs 1 to " + MAX_MESSAGES + " messages");
+        }
+        return jobService.submit("chat", context -> {
+            List<ChatJobRequest.Item> items = new ArrayList<>(messages.size());
+            for (int i = 0; i < messages.size(); i++) {
+                if (context.isCancelled()) {
+                    throw new CancellationException();
+                }
+                context.progress(i, messages.size(), "Sending message " + (i + 1) + " of " + messages.size());
+                String message = messages.get(i);
+                try {
+                    items.add(new ChatJobRequest.Item(message, chatService.getResponse(message, request.provider()), null));
+                } catch (RuntimeException e) {
+                    if (context.isCancelled()) {
+                        throw e;
+                    }
+                    items.add(new ChatJobRequest.Item(message, null, e.getMessage()));
+                }
+            }
+            context.progress(messages.size(), messages.size(), "Done");
+            return items;
+        });
+    }
+
+    /**
+     * Reviews a trade log; progress counts finished trades.
+     *
+     * @throws IllegalArgumentException for an invalid trade list
+     */
+    public JobView review(TradeReviewRequest request) {
+        int total = reviewService.validate(request).size();
+        return jobService.submit("review", context -> {
+            context.progress(0, total, "Reviewing trades");
+            return reviewService.review(request, (done, message) -> context.progress(done, total, message));
+        });
+    }
+
+    /**
+     * Runs a backtest; cancellation stops the fork-join runs, which ignore interrupts.
+     */
+    public JobView backtest(BacktestRequest request) {
+        return jobService.submit("backtest", context -> {
+            context.progress(0, 1, "Running backtest");
+            return backtestService.run(request, context::isCancelled);
+        });
+    }
+
+    /**
+     * Simulates a portfolio; cancellation stops the fork-join paths, which ignore interrupts.
+     */
+    public JobView risk(RiskRequest request) {
+        return jobService.submit("risk", context -> {
+            context.progress(0, 1, "Simulating portfolio");
+            return riskService.analyze(request, context::isCancelled);
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package com.lancy.aichat.job;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Request body of {@code POST /api/jobs/chat}: a batch of chat messages, given
+ * directly or generated from a prompt template per symbol.
+ *
+ * <pre>
+ * { "symbols": ["AAPL", "MSFT", "NVDA"], "prompt": "Review the setup and risk of {symbol}." }
+ * </pre>
+ *
+ * @param messages messages to send, one provider call each
+ * @param symbols  symbols substituted into {@code prompt}
+ * @param prompt   template with a {@code {symbol}} placeholder
+ * @param provider optional provider override, as for {@code GET /api/chat?model=}
+ */
+public record ChatJobRequest(
+        List<String> messages,
+        List<String> symbols,
+        String prompt,
+        String provider
+) {
+
+    static final String DEFAULT_PROMPT = "Review the current setup and risk of {symbol}.";
+
+    /**
+     * Messages to process: {@code messages} followed by one per symbol.
+     */
+    List<String> expand() {
+        List<String> expanded = new ArrayList<>();
+        if (messages != null) {
+            messages.stream().filter(m -> m != null && !m.isBlank()).forEach(expanded::add);
+        }
+        if (symbols != null) {
+            String template = prompt != null && !prompt.isBlank() ? prompt : DEFAULT_PROMPT;
+            for (String symbol : symbols) {
+                expanded.add(template.contains("{symbol}")
+                        ? template.replace("{symbol}", symbol) : template + " " + symbol);
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * Outcome of one message of the batch.
+     */
+    public record Item(String message, String response, String error) {
+    }
+}
@@ -0,0 +1,45 @@
+package com.lancy.aichat.job;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Mutable state of an active job, owned by {@link JobService}.
+ */
+final class Job {
+
+    final String id;
+    final String type;
+    final Instant submittedAt = Instant.now();
+    final long submittedNanos = System.nanoTime();
+    final AtomicReference<JobState> state = new AtomicReference<>(JobState.QUEUED);
+    final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+    /** Claimed by whichever of completion, failure or cancellation happens first. */
+    final AtomicBoolean finishing = new AtomicBoolean();
+
+    volatile Instant startedAt;
+    volatile Instant finishedAt;
+    volatile int completed;
+    volatile int total;
+    volatile String message;
+    volatile Object result;
+    volatile String error;
+    volatile Future<?> future;
+
+    Job(String id, String type) {
+        this.id = id;
+        this.type = type;
+    }
+
+    JobView view() {
+        return new JobView(id, type, state.get(), completed, total, message, submittedAt, startedAt, finishedAt,
+                result, error);
+    }
+}
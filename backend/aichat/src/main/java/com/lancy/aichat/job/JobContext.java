@@ -0,0 +1,37 @@
+package com.lancy.aichat.job;
+
+/**
+ * Handle given to {@link JobWork} for reporting progress.
+ */
+public final class JobContext {
+
+    private final Job job;
+
+    private final JobService service;
+
+    JobContext(Job job, JobService service) {
+        this.job = job;
+        this.service = service;
+    }
+
+    public String jobId() {
+        return job.id;
+    }
+
+    /**
+     * Publishes progress to pollers and event-stream subscribers.
+     */
+    public void progress(int completed, int total, String message) {
+        job.completed = completed;
+        job.total = total;
+        job.message = message;
+        service.publishProgress(job);
+    }
+
+    /**
+     * True once the job was cancelled; long CPU-bound loops should check it.
+     */
+    public boolean isCancelled() {
+        return job.state.get() == JobState.CANCELLED || Thread.currentThread().isInterrupted();
+    }
+}
@@ -0,0 +1,285 @@
+package com.lancy.aichat.job;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.config.JobProperties;
+import com.lancy.aichat.store.ChatStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs long analyses in the background so HTTP requests return immediately.
+ *
+ * <p>Each job gets its own virtual thread; a semaphore of {@code maxConcurrent}
+ * permits bounds how many run at once, so queued jobs cost a parked virtual
+ * thread rather than a platform thread. Queued plus running jobs are capped at
+ * {@code maxActive} by a second semaphore: a submission takes a slot without
+ * blocking and the job returns it when it reaches a terminal state.</p>
+ *
+ * <p>Active jobs live in this node's memory. When a job finishes its final
+ * {@link JobView}, including the result, is written to the shared
+ * {@link ChatStore} ({@value #NAMESPACE} namespace) with {@code resultTtl}, so
+ * results can be polled from any replica and expire on their own.</p>
+ *
+ * <p>Cancelling interrupts the job's virtual thread. The provider HTTP client
+ * aborts the in-flight exchange on interrupt, and {@code ChatService} does not
+ * start a fallback call for an interrupted caller. Fork-join work ignores
+ * interrupts, so backtests and risk simulations poll {@link JobContext#isCancelled}
+ * from their tasks instead.</p>
+ */
+@Service
+public class JobService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobService.class);
+
+    static final String NAMESPACE = "job";
+
+    private final ChatStore store;
+    private final ObjectMapper objectMapper;
+    private final JobProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Semaphore slots;
+    private final ConcurrentHashMap<String, Job> active = new ConcurrentHashMap<>();
+    private final AtomicInteger running = new AtomicInteger();
+
+    public JobService(ChatStore store, ObjectMapper objectMapper, JobProperties properties,
+                      MeterRegistry meterRegistry) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("job-", 0).factory());
+        this.permits = new Semaphore(properties.getMaxConcurrent());
+        this.slots = new Semaphore(properties.getMaxActive());
+        meterRegistry.gauge("jobs.active", active, ConcurrentHashMap::size);
+        meterRegistry.gauge("jobs.running", running, AtomicInteger::get);
+    }
+
+    /**
+     * Queues a job.
+     *
+     * @param type kind of work, used in metrics and the job view
+     * @return the job in state QUEUED
+     * @throws RejectedExecutionException if {@code maxActive} jobs are already queued or running
+     */
+    public JobView submit(String type, JobWork work) {
+        // Reserved atomically; checking active.size() first would let concurrent submits overshoot
+        if (!slots.tryAcquire()) {
+            meterRegistry.counter("jobs.rejected", "type", type).increment();
+            throw new RejectedExecutionException("Too many active jobs (" + properties.getMaxActive() + ")");
+        }
+        Job job = new Job(UUID.randomUUID().toString(), type);
+        active.put(job.id, job);
+        // Snapshot before submitting; a short job may already be done when submit returns
+        JobView queued = job.view();
+        try {
+            job.future = executor.submit(() -> execute(job, work));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the job never existed
+            active.remove(job.id);
+            slots.release();
+            throw e;
+        }
+        meterRegistry.counter("jobs.submitted", "type", type).increment();
+        log.info("Submitted {} job {}", type, job.id);
+        return queued;
+    }
+
+    /**
+     * Current view of a job, or empty if unknown or expired.
+     */
+    public Optional<JobView> get(String id) {
+        Job job = active.get(id);
+        return job != null ? Optional.of(job.view()) : load(id);
+    }
+
+    /**
+     * Cancels a queued or running job and interrupts its provider calls.
+     *
+     * @return the job's view afterwards (CANCELLED, or the terminal state it
+     * already had), or empty if unknown
+     */
+    public Optional<JobView> cancel(String id) {
+        Job job = active.get(id);
+        if (job == null) {
+            return load(id);
+        }
+        if (finish(job, JobState.CANCELLED, null, "Cancelled by client")) {
+            Future<?> future = job.future;
+            if (future != null) {
+                future.cancel(true);
+            }
+            log.info("Cancelled {} job {}", job.type, job.id);
+        }
+        return get(id);
+    }
+
+    /**
+     * Streams {@code progress} events and a final {@code done} event.
+     *
+     * @return emitter, or empty if the job is unknown or expired
+     */
+    public Optional<SseEmitter> subscribe(String id) {
+        SseEmitter emitter = new SseEmitter(properties.getStreamTimeout().toMillis());
+        Job job = active.get(id);
+        if (job != null) {
+            job.subscribers.add(emitter);
+            emitter.onCompletion(() -> job.subscribers.remove(emitter));
+            emitter.onTimeout(() -> job.subscribers.remove(emitter));
+            send(emitter, "progress", job.view());
+            if (job.finishing.get()) {
+                // Finished while subscribing; the done event may have been missed
+                get(id).ifPresent(view -> done(emitter, view));
+            }
+            return Optional.of(emitter);
+        }
+        return load(id).map(view -> {
+            done(emitter, view);
+            return emitter;
+        });
+    }
+
+    private void execute(Job job, JobWork work) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            // Cancelled while queued; cancel() already finished the job
+            return;
+        }
+        try {
+            if (job.finishing.get() || !job.state.compareAndSet(JobState.QUEUED, JobState.RUNNING)) {
+                return;
+            }
+            job.startedAt = Instant.now();
+            Timer.builder("jobs.queue.time").tag("type", job.type)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - job.submittedNanos, TimeUnit.NANOSECONDS);
+            running.incrementAndGet();
+            publishProgress(job);
+            try {
+                finish(job, JobState.SUCCEEDED, work.run(new JobContext(job, this)), null);
+            } catch (Exception e) {
+                if (finish(job, JobState.FAILED, null, e.getMessage() != null ? e.getMessage() : e.toString())) {
+                    log.warn("{} job {} failed: {}", job.type, job.id, e.toString());
+                }
+            } finally {
+                running.decrementAndGet();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Moves a job to a terminal state once; later calls return false.
+     */
+    private boolean finish(Job job, JobState terminal, Object result, String error) {
+        if (!job.finishing.compareAndSet(false, true)) {
+            return false;
+        }
+        job.result = result;
+        job.error = error;
+        job.finishedAt = Instant.now();
+
+        // Record before the terminal state becomes visible to pollers
+        meterRegistry.counter("jobs.completed", "type", job.type, "state", terminal.name()).increment();
+        if (job.startedAt != null) {
+            Timer.builder("jobs.run.time").tag("type", job.type).tag("state", terminal.name())
+                    .register(meterRegistry)
+                    .record(Duration.between(job.startedAt, job.finishedAt));
+        }
+
+        job.state.set(terminal);
+        JobView view = job.view();
+
+        persist(view);
+        active.remove(job.id);
+        slots.release();
+
+        for (SseEmitter emitter : job.subscribers) {
+            done(emitter, view);
+        }
+        return true;
+    }
+
+    void publishProgress(Job job) {
+        if (job.subscribers.isEmpty()) {
+            return;
+        }
+        JobView view = job.view();
+        for (SseEmitter emitter : job.subscribers) {
+            send(emitter, "progress", view);
+        }
+    }
+
+    private void persist(JobView view) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(view);
+        } catch (JsonProcessingException e) {
+            log.warn("Result of job {} is not serializable: {}", view.id(), e.getMessage());
+            json = toJson(new JobView(view.id(), view.type(), JobState.FAILED, view.completed(), view.total(),
+                    view.message(), view.submittedAt(), view.startedAt(), view.finishedAt(), null,
+                    "Result is not serializable"));
+        }
+        store.put(NAMESPACE, view.id(), json, properties.getResultTtl());
+    }
+
+    private String toJson(JobView view) {
+        try {
+            return objectMapper.writeValueAsString(view);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize job " + view.id(), e);
+        }
+    }
+
+    private Optional<JobView> load(String id) {
+        return store.get(NAMESPACE, id).flatMap(json -> {
+            try {
+                return Optional.of(objectMapper.readValue(json, JobView.class));
+            } catch (JsonProcessingException e) {
+                log.warn("Discarding unreadable job {}: {}", id, e.getMessage());
+                return Optional.empty();
+            }
+        });
+    }
+
+    private static void send(SseEmitter emitter, String event, JobView view) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(view));
+        } catch (Exception e) {
+            // Client went away; the emitter's completion callback unsubscribes it
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static void done(SseEmitter emitter, JobView view) {
+        send(emitter, "done", view);
+        emitter.complete();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
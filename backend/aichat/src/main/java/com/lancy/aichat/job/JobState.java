@@ -0,0 +1,16 @@
+package com.lancy.aichat.job;
+
+/**
+ * Lifecycle of an analysis job: QUEUED, RUNNING, then one terminal state.
+ */
+public enum JobState {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    CANCELLED;
+
+    public boolean isTerminal() {
+        return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+    }
+}
@@ -0,0 +1,33 @@
+package com.lancy.aichat.job;
+
+import java.time.Instant;
+
+/**
+ * Client-facing snapshot of a job, returned by submit, poll and the event stream.
+ *
+ * @param id          job identifier
+ * @param type        kind of work, e.g. {@code chat}, {@code backtest}
+ * @param state       current state
+ * @param completed   work items done
+ * @param total       work items in total; 0 if unknown
+ * @param message     latest progress message
+ * @param submittedAt when the job was accepted
+ * @param startedAt   when it left the queue; null while queued
+ * @param finishedAt  when it reached a terminal state; null before
+ * @param result      job output once SUCCEEDED
+ * @param error       failure or cancellation reason
+ */
+public record JobView(
+        String id,
+        String type,
+        JobState state,
+        int completed,
+        int total,
+        String message,
+        Instant submittedAt,
+        Instant startedAt,
+        Instant finishedAt,
+        Object result,
+        String error
+) {
+}
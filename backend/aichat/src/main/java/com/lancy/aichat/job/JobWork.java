@@ -0,0 +1,14 @@
+package com.lancy.aichat.job;
+
+/**
+ * Body of an analysis job. Runs on a virtual thread; blocking provider calls are
+ * aborted by interrupting it when the job is cancelled.
+ */
+@FunctionalInterface
+public interface JobWork {
+
+    /**
+     * @return job result; must be serializable to JSON
+     */
+    Object run(JobContext context) throws Exception;
+}
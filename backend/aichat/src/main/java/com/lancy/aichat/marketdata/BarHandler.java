@@ -0,0 +1,13 @@
+package com.lancy.aichat.marketdata;
+
+/**
+ * Callback receiving bars drained from the {@link MarketDataRingBuffer}.
+ *
+ * <p>All values are passed as primitives so the hot path never allocates.
+ * A tick is delivered as a bar with {@code open == high == low == close}.</p>
+ */
+@FunctionalInterface
+public interface BarHandler {
+
+    void onBar(long timestamp, int symbolId, double open, double high, double low, double close, double volume);
+}
@@ -0,0 +1,13 @@
+package com.lancy.aichat.marketdata;
+
+/**
+ * Destination for bars parsed from a feed or file, keyed by symbol name.
+ *
+ * <p>Implemented by the live {@link MarketDataService} and by the historical
+ * {@link com.lancy.aichat.marketdata.history.BarStore}.</p>
+ */
+@FunctionalInterface
+public interface BarSink {
+
+    void accept(String symbol, long timestamp, double open, double high, double low, double close, double volume);
+}
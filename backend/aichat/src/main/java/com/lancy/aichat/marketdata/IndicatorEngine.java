@@ -0,0 +1,56 @@
+package com.lancy.aichat.marketdata;
+
+import com.lancy.aichat.config.MarketDataProperties;
+
+import java.util.Optional;
+
+/**
+ * {@link BarHandler} that routes each bar to the indicators of its symbol.
+ *
+ * <p>Indicator state is created the first time a symbol is seen and indexed by
+ * symbol ID, so steady-state updates are an array lookup plus O(1) math.
+ * {@link IndicatorListener}s then see the updated values on the same thread.</p>
+ */
+public final class IndicatorEngine implements BarHandler {
+
+    private final SymbolRegistry registry;
+    private final MarketDataProperties properties;
+    private final SymbolIndicators[] indicators;
+    private final IndicatorListener[] listeners;
+
+    public IndicatorEngine(SymbolRegistry registry, MarketDataProperties properties) {
+        this(registry, properties, new IndicatorListener[0]);
+    }
+
+    public IndicatorEngine(SymbolRegistry registry, MarketDataProperties properties,
+                           IndicatorListener[] listeners) {
+        this.registry = registry;
+        this.properties = properties;
+        this.indicators = new SymbolIndicators[properties.getMaxSymbols()];
+        this.listeners = listeners.clone();
+    }
+
+    @Override
+    public void onBar(long timestamp, int symbolId, double open, double high, double low, double close,
+                      double volume) {
+        SymbolIndicators state = indicators[symbolId];
+        if (state == null) {
+            state = new SymbolIndicators(registry.nameOf(symbolId), properties.getEmaPeriod(),
+                    properties.getRsiPeriod(), properties.getAtrPeriod(), properties.getVolatilityWindow(),
+                    properties.getBarsPerYear());
+            indicators[symbolId] = state;
+        }
+        state.update(timestamp, high, low, close, volume);
+        for (IndicatorListener listener : listeners) {
+            state.publish(listener, symbolId, open);
+        }
+    }
+
+    /**
+     * Snapshot for a symbol ID, or empty if no bar has been processed for it yet.
+     */
+    public Optional<IndicatorSnapshot> snapshot(int symbolId) {
+        SymbolIndicators state = indicators[symbolId];
+        return state == null ? Optional.empty() : Optional.of(state.snapshot());
+    }
+}
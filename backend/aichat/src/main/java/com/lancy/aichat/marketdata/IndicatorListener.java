@@ -0,0 +1,15 @@
+package com.lancy.aichat.marketdata;
+
+/**
+ * Callback receiving a symbol's indicators right after each bar or tick updated them.
+ *
+ * <p>Called on the market-data consumer thread, so implementations must be fast
+ * and must not block. Values are passed as primitives so the hot path never
+ * allocates; values not yet warmed up are {@code NaN}.</p>
+ */
+@FunctionalInterface
+public interface IndicatorListener {
+
+    void onIndicators(int symbolId, String symbol, long timestamp, double open, double close,
+                      double ema, double rsi, double atr, double volatility);
+}
@@ -0,0 +1,31 @@
+package com.lancy.aichat.marketdata;
+
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Point-in-time copy of the indicators of one symbol.
+ *
+ * <p>Values not yet warmed up are {@code NaN}.</p>
+ */
+public record IndicatorSnapshot(
+        String symbol,
+        long timestamp,
+        double last,
+        double ema,
+        double rsi,
+        double atr,
+        double vwap,
+        double volatility,
+        long updates
+) {
+
+    /**
+     * Compact single-line form used to enrich provider prompts, e.g.
+     * {@code AAPL @2024-05-01T14:30:00Z last=189.20 ema=188.91 rsi=61.2 atr=2.31 vwap=188.70 vol=24.1%}.
+     */
+    public String toPromptLine() {
+        return String.format(Locale.ROOT, "%s @%s last=%.2f ema=%.2f rsi=%.1f atr=%.2f vwap=%.2f vol=%.1f%%",
+                symbol, Instant.ofEpochMilli(timestamp), last, ema, rsi, atr, vwap, volatility * 100);
+    }
+}
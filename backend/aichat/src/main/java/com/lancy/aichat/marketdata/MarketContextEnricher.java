@@ -0,0 +1,68 @@
+package com.lancy.aichat.marketdata;
+
+import com.lancy.aichat.config.MarketDataProperties;
+import com.lancy.aichat.service.PromptEnricher;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Appends indicator snapshots of tickers mentioned in a chat message.
+ *
+ * <p>A ticker is an upper-case token (optionally prefixed with {@code $}) that
+ * has market data. For "what's the setup on AAPL right now" the provider
+ * receives the message followed by a {@code [Market data]} block with one
+ * {@link IndicatorSnapshot#toPromptLine()} per symbol.</p>
+ */
+@Component
+@Order(10)
+public class MarketContextEnricher implements PromptEnricher {
+
+    /** Upper bound on symbols appended to one message. */
+    private static final int MAX_SYMBOLS = 5;
+
+    private final MarketDataService marketDataService;
+
+    private final MarketDataProperties properties;
+
+    public MarketContextEnricher(MarketDataService marketDataService, MarketDataProperties properties) {
+        this.marketDataService = marketDataService;
+        this.properties = properties;
+    }
+
+    @Override
+    public String enrich(String message) {
+        if (!properties.isEnrichPrompts() || message == null) {
+            return message;
+        }
+        StringBuilder context = new StringBuilder();
+        for (String symbol : mentionedTickers(message)) {
+            marketDataService.snapshot(symbol)
+                    .ifPresent(snapshot -> context.append(snapshot.toPromptLine()).append('\n'));
+        }
+        return context.isEmpty() ? message : message + "\n\n[Market data]\n" + context.toString().stripTrailing();
+    }
+
+    /**
+     * Upper-case tokens of a message that look like tickers, in order of appearance.
+     */
+    public static Set<String> mentionedTickers(String message) {
+        Set<String> tickers = new LinkedHashSet<>();
+        for (String token : message.split("[^A-Za-z0-9.$]+")) {
+            String candidate = token.startsWith("$") ? token.substring(1) : token;
+            if (candidate.endsWith(".")) {
+                candidate = candidate.substring(0, candidate.length() - 1);
+            }
+            if (!candidate.isEmpty() && candidate.length() <= 6 && candidate.equals(candidate.toUpperCase())
+                    && Character.isLetter(candidate.charAt(0))) {
+                tickers.add(candidate);
+                if (tickers.size() == MAX_SYMBOLS) {
+                    break;
+                }
+            }
+        }
+        return tickers;
+    }
+}
@@ -0,0 +1,67 @@
+package com.lancy.aichat.marketdata;
+
+import java.time.Instant;
+
+/**
+ * Parses the line protocol shared by file replay, the socket feed and history import.
+ *
+ * <p>Comma-separated, one event per line, {@code #} starts a comment:</p>
+ * <pre>
+ * timestamp,symbol,open,high,low,close,volume   # bar
+ * timestamp,symbol,price,size                    # tick
+ * </pre>
+ * <p>{@code timestamp} is epoch millis or ISO-8601 instant. A header line
+ * starting with {@code timestamp} is skipped.</p>
+ */
+public final class MarketDataLineParser {
+
+    private MarketDataLineParser() {
+    }
+
+    /**
+     * Parses one line and passes it to the sink; ticks become bars with
+     * {@code open == high == low == close}.
+     *
+     * @return true if an event was published, false for blank, comment or header lines
+     * @throws IllegalArgumentException for malformed lines; exceptions of the sink propagate unchanged
+     */
+    public static boolean parse(String line, BarSink sink) {
+        String trimmed = line.strip();
+        if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("timestamp")) {
+            return false;
+        }
+        String[] f = trimmed.split(",");
+        long ts;
+        String symbol;
+        double open;
+        double high;
+        double low;
+        double close;
+        double volume;
+        try {
+            ts = parseTimestamp(f[0].strip());
+            symbol = f[1].strip();
+            if (f.length == 4) {
+                open = high = low = close = Double.parseDouble(f[2]);
+                volume = Double.parseDouble(f[3]);
+            } else if (f.length == 7) {
+                open = Double.parseDouble(f[2]);
+                high = Double.parseDouble(f[3]);
+                low = Double.parseDouble(f[4]);
+                close = Double.parseDouble(f[5]);
+                volume = Double.parseDouble(f[6]);
+            } else {
+                throw new IllegalArgumentException("Expected 4 or 7 fields but got " + f.length);
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed market data line: " + line, e);
+        }
+        // Outside the try: a failing sink (stalled buffer, stopped service) is not a bad line
+        sink.accept(symbol, ts, open, high, low, close, volume);
+        return true;
+    }
+
+    private static long parseTimestamp(String value) {
+        return value.indexOf('T') >= 0 ? Instant.parse(value).toEpochMilli() : Long.parseLong(value);
+    }
+}
@@ -0,0 +1,174 @@
+package com.lancy.aichat.marketdata;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated, lock-free multi-producer / single-consumer ring buffer of bars.
+ *
+ * <p>Bars are stored column-wise in primitive arrays sized once at
+ * construction, so publishing and draining never allocate. Producers claim a
+ * slot with a CAS on the claim sequence, write the columns and then publish
+ * the slot by storing its sequence with release semantics; the consumer reads
+ * a slot only once it observes that sequence.</p>
+ */
+public final class MarketDataRingBuffer {
+
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int capacity;
+    private final int mask;
+
+    private final long[] timestamps;
+    private final int[] symbolIds;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] volume;
+
+    /** Sequence published in each slot; -1 while never written. */
+    private final long[] published;
+
+    /** Next sequence to claim (producers). */
+    private final Sequence claimed = new Sequence();
+
+    /** Next sequence to consume (single consumer). */
+    private final Sequence consumed = new Sequence();
+
+    /**
+     * @param capacity number of slots; must be a power of two
+     */
+    public MarketDataRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.timestamps = new long[capacity];
+        this.symbolIds = new int[capacity];
+        this.open = new double[capacity];
+        this.high = new double[capacity];
+        this.low = new double[capacity];
+        this.close = new double[capacity];
+        this.volume = new double[capacity];
+        this.published = new long[capacity];
+        Arrays.fill(published, -1L);
+    }
+
+    /**
+     * Publishes a bar if there is room.
+     *
+     * @return false if the buffer is full
+     */
+    public boolean offer(long timestamp, int symbolId,
+                         double o, double h, double l, double c, double v) {
+        long seq;
+        do {
+            seq = claimed.getAcquire();
+            if (seq - consumed.getAcquire() >= capacity) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+
+        int i = (int) (seq & mask);
+        timestamps[i] = timestamp;
+        symbolIds[i] = symbolId;
+        open[i] = o;
+        high[i] = h;
+        low[i] = l;
+        close[i] = c;
+        volume[i] = v;
+        PUBLISHED.setRelease(published, i, seq);
+        return true;
+    }
+
+    /**
+     * Publishes a bar, spinning and then parking briefly while the buffer is full.
+     *
+     * @param timeoutNanos how long to wait for room
+     * @return false if the buffer stayed full for {@code timeoutNanos}, e.g. because the consumer stopped
+     */
+    public boolean put(long timestamp, int symbolId,
+                       double o, double h, double l, double c, double v, long timeoutNanos) {
+        if (offer(timestamp, symbolId, o, h, l, c, v)) {
+            return true;
+        }
+        long start = System.nanoTime();
+        int attempts = 0;
+        while (!offer(timestamp, symbolId, o, h, l, c, v)) {
+            if (System.nanoTime() - start > timeoutNanos) {
+                return false;
+            }
+            backoff(attempts++);
+        }
+        return true;
+    }
+
+    /**
+     * Publishes a tick as a bar with {@code open == high == low == close}.
+     *
+     * @see #put
+     */
+    public boolean putTick(long timestamp, int symbolId, double price, double size, long timeoutNanos) {
+        return put(timestamp, symbolId, price, price, price, price, size, timeoutNanos);
+    }
+
+    /**
+     * Delivers up to {@code max} published bars to the handler, in sequence order.
+     * Must only be called from the single consumer thread.
+     *
+     * <p>If the handler throws, the bars delivered so far, including the failed
+     * one, are consumed and the exception is rethrown: the next call continues
+     * with the following bar.</p>
+     *
+     * @return number of bars delivered
+     */
+    public int drain(BarHandler handler, int max) {
+        long seq = consumed.getPlain();
+        int n = 0;
+        try {
+            while (n < max) {
+                int i = (int) (seq & mask);
+                if ((long) PUBLISHED.getAcquire(published, i) != seq) {
+                    break;
+                }
+                seq++;
+                n++;
+                handler.onBar(timestamps[i], symbolIds[i], open[i], high[i], low[i], close[i], volume[i]);
+            }
+        } finally {
+            if (n > 0) {
+                consumed.setRelease(seq);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Number of published but not yet consumed bars (approximate under concurrency).
+     */
+    public long size() {
+        return Math.max(0, claimed.getAcquire() - consumed.getAcquire());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Spin, then yield, then park for 50µs: keeps latency low under load
+     * without burning a core when idle.
+     */
+    static void backoff(int attempts) {
+        if (attempts < 100) {
+            Thread.onSpinWait();
+        } else if (attempts < 110) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50_000L);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.lancy.aichat.marketdata;
+
+import com.lancy.aichat.config.MarketDataProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Market-data ingestion subsystem.
+ *
+ * <p>Feeds (file replay, the optional TCP socket feed, or direct calls) publish
+ * bars and ticks into a preallocated {@link MarketDataRingBuffer}. A single
+ * consumer thread drains the buffer into the {@link IndicatorEngine}, which
+ * maintains EMA, RSI, ATR, VWAP and rolling volatility per symbol in O(1) per
+ * update without allocating. {@link IndicatorListener} beans (e.g. the alert
+ * rules) are called with the updated values on the same thread. A bar whose
+ * indicator update or listener throws is logged, counted in
+ * {@code marketdata.bars.failed} and skipped; the consumer keeps running.</p>
+ *
+ * <p>Publishing waits at most {@code ai.marketdata.publish-timeout} for room in
+ * the buffer and then fails with {@link IllegalStateException}, as it does when
+ * the service is stopped, instead of blocking feeds forever on a dead consumer.</p>
+ *
+ * <p>Chat prompts can be enriched with {@link IndicatorSnapshot#toPromptLine()}
+ * via {@link MarketContextEnricher}.</p>
+ */
+@Service
+public class MarketDataService {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketDataService.class);
+
+    /** Maximum bars handed to the engine per drain call. */
+    private static final int DRAIN_BATCH = 4096;
+
+    /** Failures logged in full before logging only every {@link #FAILURE_LOG_INTERVAL}th one */
+    private static final long FAILURES_LOGGED = 10;
+    private static final long FAILURE_LOG_INTERVAL = 10_000;
+
+    private final MarketDataProperties properties;
+    private final SymbolRegistry registry;
+    private final MarketDataRingBuffer ringBuffer;
+    private final IndicatorEngine engine;
+    private final Counter ingested;
+    private final Counter failed;
+    private final long publishTimeoutNanos;
+    private long failures;
+
+    private volatile boolean running;
+    private Thread consumer;
+    private SocketMarketDataFeed socketFeed;
+
+    public MarketDataService(MarketDataProperties properties, List<IndicatorListener> listeners,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.registry = new SymbolRegistry(properties.getMaxSymbols());
+        this.ringBuffer = new MarketDataRingBuffer(properties.getBufferCapacity());
+        this.engine = new IndicatorEngine(registry, properties, listeners.toArray(new IndicatorListener[0]));
+        this.ingested = meterRegistry.counter("marketdata.bars.ingested");
+        this.failed = meterRegistry.counter("marketdata.bars.failed");
+        this.publishTimeoutNanos = properties.getPublishTimeout().toNanos();
+        meterRegistry.gauge("marketdata.buffer.size", ringBuffer, MarketDataRingBuffer::size);
+        meterRegistry.gauge("marketdata.symbols", registry, SymbolRegistry::size);
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        consumer = Thread.ofPlatform().name("market-data-consumer").daemon().start(this::consume);
+        if (properties.getSocketPort() > 0) {
+            socketFeed = new SocketMarketDataFeed(properties.getSocketPort(), this);
+            socketFeed.start();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (socketFeed != null) {
+            socketFeed.stop();
+            socketFeed = null;
+        }
+        if (consumer != null) {
+            consumer.interrupt();
+            consumer = null;
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the service is stopped or the buffer stays full for the publish timeout
+     */
+    public void publishBar(String symbol, long timestamp,
+                           double open, double high, double low, double close, double volume) {
+        checkRunning();
+        if (!ringBuffer.put(timestamp, registry.idOf(symbol), open, high, low, close, volume, publishTimeoutNanos)) {
+            throw stalled();
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the service is stopped or the buffer stays full for the publish timeout
+     */
+    public void publishTick(String symbol, long timestamp, double price, double size) {
+        checkRunning();
+        if (!ringBuffer.putTick(timestamp, registry.idOf(symbol), price, size, publishTimeoutNanos)) {
+            throw stalled();
+        }
+    }
+
+    private void checkRunning() {
+        if (!running) {
+            throw new IllegalStateException("Market data service is not running");
+        }
+    }
+
+    private IllegalStateException stalled() {
+        return new IllegalStateException("Market data buffer stayed full for " + properties.getPublishTimeout());
+    }
+
+    /**
+     * Replays a file in the {@link MarketDataLineParser} format. Malformed lines are
+     * logged and skipped.
+     *
+     * @return number of events published
+     * @throws IllegalStateException if the service stops or the buffer stalls; the replay is aborted
+     */
+    public long replay(Path file) {
+        long published = 0;
+        long skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    if (MarketDataLineParser.parse(line, this::publishBar)) {
+                        published++;
+                    }
+                } catch (IllegalArgumentException e) {
+                    if (skipped++ < 10) {
+                        log.warn("Skipping line during replay of {}: {}", file, e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay market data file " + file, e);
+        }
+        log.info("Replayed {} events from {} ({} malformed lines skipped)", published, file, skipped);
+        return published;
+    }
+
+    /**
+     * Latest indicators of a symbol, or empty if the symbol has no data yet.
+     */
+    public Optional<IndicatorSnapshot> snapshot(String symbol) {
+        return registry.find(symbol).flatMap(engine::snapshot);
+    }
+
+    /**
+     * Waits until every published event has been applied to the indicators.
+     *
+     * @return true if the buffer drained within the timeout
+     */
+    public boolean awaitDrained(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (ringBuffer.size() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    private void consume() {
+        int idle = 0;
+        while (running) {
+            int drained;
+            try {
+                drained = ringBuffer.drain(engine, DRAIN_BATCH);
+            } catch (RuntimeException e) {
+                // The failed bar is consumed; the rest of the batch follows on the next drain
+                failed.increment();
+                if (++failures <= FAILURES_LOGGED || failures % FAILURE_LOG_INTERVAL == 0) {
+                    log.warn("Applying a market data event failed ({} failures so far)", failures, e);
+                }
+                continue;
+            }
+            if (drained > 0) {
+                ingested.increment(drained);
+                idle = 0;
+            } else {
+                MarketDataRingBuffer.backoff(idle++);
+            }
+        }
+    }
+}
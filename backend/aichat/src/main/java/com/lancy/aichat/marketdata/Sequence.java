@@ -0,0 +1,54 @@
+package com.lancy.aichat.marketdata;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Cache-line padded sequence counter.
+ *
+ * <p>The producer claim counter and the consumer counter of the
+ * {@link MarketDataRingBuffer} are written by different cores; padding keeps
+ * them on separate cache lines so they do not invalidate each other.</p>
+ */
+final class Sequence extends SequenceValue {
+
+    @SuppressWarnings("unused")
+    private long p9, p10, p11, p12, p13, p14, p15;
+
+    private static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    long getAcquire() {
+        return (long) VALUE.getAcquire(this);
+    }
+
+    long getPlain() {
+        return value;
+    }
+
+    void setRelease(long newValue) {
+        VALUE.setRelease(this, newValue);
+    }
+
+    boolean compareAndSet(long expected, long newValue) {
+        return VALUE.compareAndSet(this, expected, newValue);
+    }
+}
+
+class SequencePadding {
+
+    @SuppressWarnings("unused")
+    private long p1, p2, p3, p4, p5, p6, p7;
+}
+
+class SequenceValue extends SequencePadding {
+
+    protected long value;
+}
@@ -0,0 +1,84 @@
+package com.lancy.aichat.marketdata;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Local TCP feed accepting events in the {@link MarketDataLineParser} format.
+ *
+ * <p>Binds to the loopback interface only. Each connection is read on its own
+ * virtual thread; malformed lines are skipped.</p>
+ */
+final class SocketMarketDataFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(SocketMarketDataFeed.class);
+
+    private final int port;
+    private final MarketDataService service;
+    private ServerSocket serverSocket;
+
+    SocketMarketDataFeed(int port, MarketDataService service) {
+        this.port = port;
+        this.service = service;
+    }
+
+    void start() {
+        try {
+            serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open market data socket on port " + port, e);
+        }
+        Thread.ofPlatform().name("market-data-socket").daemon().start(this::acceptLoop);
+        log.info("Market data socket feed listening on {}", serverSocket.getLocalSocketAddress());
+    }
+
+    void stop() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.debug("Error closing market data socket: {}", e.getMessage());
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().name("market-data-conn").start(() -> read(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Market data socket accept failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void read(Socket socket) {
+        try (socket; BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    MarketDataLineParser.parse(line, service::publishBar);
+                } catch (IllegalArgumentException e) {
+                    log.debug("Skipping socket line: {}", e.getMessage());
+                } catch (IllegalStateException e) {
+                    // Stopped or stalled consumer: drop the connection, the client reconnects
+                    log.warn("Closing market data connection: {}", e.getMessage());
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Market data connection closed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.lancy.aichat.marketdata;
+
+import com.lancy.aichat.marketdata.indicator.Atr;
+import com.lancy.aichat.marketdata.indicator.Ema;
+import com.lancy.aichat.marketdata.indicator.RollingVolatility;
+import com.lancy.aichat.marketdata.indicator.Rsi;
+import com.lancy.aichat.marketdata.indicator.Vwap;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Incremental indicator state for a single symbol.
+ *
+ * <p>Written only by the market-data consumer thread; readers take a
+ * consistent {@link #snapshot} with an optimistic {@link StampedLock} read, so
+ * they never block the writer. Updates are O(1) and allocation-free.</p>
+ */
+public final class SymbolIndicators {
+
+    private final String symbol;
+    private final Ema ema;
+    private final Rsi rsi;
+    private final Atr atr;
+    private final Vwap vwap = new Vwap();
+    private final RollingVolatility volatility;
+    private final StampedLock lock = new StampedLock();
+
+    private long timestamp;
+    private double last = Double.NaN;
+    private long updates;
+
+    public SymbolIndicators(String symbol, int emaPeriod, int rsiPeriod, int atrPeriod,
+                            int volatilityWindow, double barsPerYear) {
+        this.symbol = symbol;
+        this.ema = new Ema(emaPeriod);
+        this.rsi = new Rsi(rsiPeriod);
+        this.atr = new Atr(atrPeriod);
+        this.volatility = new RollingVolatility(volatilityWindow, barsPerYear);
+    }
+
+    public void update(long ts, double high, double low, double close, double volume) {
+        long stamp = lock.writeLock();
+        try {
+            ema.update(close);
+            rsi.update(close);
+            atr.update(high, low, close);
+            vwap.update(ts, high, low, close, volume);
+            volatility.update(close);
+            timestamp = ts;
+            last = close;
+            updates++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Hands the latest values to {@code listener}. Only called by the writer thread,
+     * which needs no lock to read its own writes.
+     */
+    void publish(IndicatorListener listener, int symbolId, double open) {
+        listener.onIndicators(symbolId, symbol, timestamp, open, last, ema.value(), rsi.value(), atr.value(),
+                volatility.value());
+    }
+
+    public IndicatorSnapshot snapshot() {
+        long stamp = lock.tryOptimisticRead();
+        IndicatorSnapshot snapshot = read();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                snapshot = read();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return snapshot;
+    }
+
+    private IndicatorSnapshot read() {
+        return new IndicatorSnapshot(symbol, timestamp, last, ema.value(), rsi.value(), atr.value(),
+                vwap.value(), volatility.value(), updates);
+    }
+}
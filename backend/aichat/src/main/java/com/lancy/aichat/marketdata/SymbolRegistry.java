@@ -0,0 +1,62 @@
+package com.lancy.aichat.marketdata;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps ticker symbols to dense integer IDs used as array indexes on the hot path.
+ */
+public final class SymbolRegistry {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final String[] names;
+    private int next;
+
+    public SymbolRegistry(int maxSymbols) {
+        this.names = new String[maxSymbols];
+    }
+
+    /**
+     * Returns the ID of the symbol, registering it on first use.
+     *
+     * @throws IllegalStateException when {@code maxSymbols} is exceeded
+     */
+    public int idOf(String symbol) {
+        String key = symbol.toUpperCase(Locale.ROOT);
+        Integer id = ids.get(key);
+        if (id != null) {
+            return id;
+        }
+        return register(key);
+    }
+
+    /**
+     * Returns the ID of an already registered symbol.
+     */
+    public Optional<Integer> find(String symbol) {
+        return Optional.ofNullable(ids.get(symbol.toUpperCase(Locale.ROOT)));
+    }
+
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    private synchronized int register(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        if (next == names.length) {
+            throw new IllegalStateException("Symbol limit reached: " + names.length);
+        }
+        names[next] = symbol;
+        ids.put(symbol, next);
+        return next++;
+    }
+}
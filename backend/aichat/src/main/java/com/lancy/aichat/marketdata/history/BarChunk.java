@@ -0,0 +1,24 @@
+package com.lancy.aichat.marketdata.history;
+
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Contiguous run of bars from one segment, as read-only views over the mapped
+ * columns. No data is copied; index {@code i} of every buffer is the same bar.
+ *
+ * <p>Use absolute gets ({@code close().get(i)}) in hot loops.</p>
+ */
+public record BarChunk(
+        LongBuffer timestamps,
+        DoubleBuffer open,
+        DoubleBuffer high,
+        DoubleBuffer low,
+        DoubleBuffer close,
+        DoubleBuffer volume
+) {
+
+    public int size() {
+        return timestamps.limit();
+    }
+}
@@ -0,0 +1,31 @@
+package com.lancy.aichat.marketdata.history;
+
+import java.util.List;
+
+/**
+ * Result of a time-range scan: the matching bars in timestamp order, split into
+ * one {@link BarChunk} per segment touched.
+ *
+ * <pre>
+ * for (BarChunk chunk : range.chunks()) {
+ *     DoubleBuffer close = chunk.close();
+ *     for (int i = 0; i &lt; chunk.size(); i++) {
+ *         sum += close.get(i);
+ *     }
+ * }
+ * </pre>
+ */
+public record BarRange(String symbol, List<BarChunk> chunks) {
+
+    public int size() {
+        int size = 0;
+        for (BarChunk chunk : chunks) {
+            size += chunk.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return chunks.isEmpty();
+    }
+}
@@ -0,0 +1,21 @@
+package com.lancy.aichat.marketdata.history;
+
+/**
+ * Bars held in plain primitive arrays, e.g. the result of a downsampling query.
+ * Index {@code i} of every array is the same bar; {@code timestamps[i]} is the
+ * start of the bar's interval in epoch milliseconds.
+ */
+public record BarSeries(
+        String symbol,
+        long[] timestamps,
+        double[] open,
+        double[] high,
+        double[] low,
+        double[] close,
+        double[] volume
+) {
+
+    public int size() {
+        return timestamps.length;
+    }
+}
@@ -0,0 +1,336 @@
+package com.lancy.aichat.marketdata.history;
+
+import com.lancy.aichat.config.HistoryProperties;
+import com.lancy.aichat.marketdata.BarSink;
+import com.lancy.aichat.marketdata.MarketDataLineParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * On-disk columnar store of historical OHLCV bars.
+ *
+ * <p>Each symbol is a directory of fixed-size, append-only, memory-mapped
+ * segment files with one column per field (see {@link Segment}). Range scans
+ * locate the first bar through an in-memory sparse time index and return
+ * read-only views of the mapped columns ({@link BarRange}), so reading a year
+ * of minute bars copies nothing. {@link #downsample} aggregates a range into
+ * coarser bars in a single pass.</p>
+ *
+ * <p>Sizing: a year of minute bars is ~100k rows, or ~4.7 MB per symbol. Symbols
+ * are opened lazily on first access; only the {@code maxOpenSeries} most recently
+ * used symbols stay open and only the {@code maxMappedSegments} most recently read
+ * sealed segments stay mapped, so thousands of symbols with years of history only
+ * cost memory for what is being queried.</p>
+ *
+ * <p>Bars for a symbol must arrive in strictly increasing timestamp order; older
+ * or duplicate bars are ignored, which makes re-importing a file idempotent.</p>
+ */
+@Component
+public class BarStore implements BarSink {
+
+    private static final Logger log = LoggerFactory.getLogger(BarStore.class);
+
+    /** Symbols become directory names, so keep them to a safe alphabet. */
+    private static final Pattern SYMBOL = Pattern.compile("[A-Z0-9][A-Z0-9._-]{0,15}");
+
+    private final Path root;
+    private final int rowsPerSegment;
+    private final int indexStride;
+    private final SegmentCache cache;
+    private final ReentrantLock seriesLock = new ReentrantLock();
+
+    /** Open symbols, least recently used first; guarded by {@link #seriesLock}. */
+    private final LinkedHashMap<String, SymbolSeries> series;
+    private final Counter appended;
+
+    public BarStore(HistoryProperties properties, MeterRegistry meterRegistry) {
+        if (properties.getIndexStride() <= 0 || properties.getRowsPerSegment() <= 0
+                || properties.getRowsPerSegment() % properties.getIndexStride() != 0) {
+            throw new IllegalArgumentException("ai.history.rows-per-segment must be a positive multiple of index-stride");
+        }
+        if ((long) properties.getRowsPerSegment() * 6 * Long.BYTES + Segment.HEADER_BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("ai.history.rows-per-segment is too large for one mapping");
+        }
+        int maxOpenSeries = properties.getMaxOpenSeries();
+        if (maxOpenSeries <= 0) {
+            throw new IllegalArgumentException("ai.history.max-open-series must be positive");
+        }
+        this.root = Path.of(properties.getDirectory());
+        this.rowsPerSegment = properties.getRowsPerSegment();
+        this.indexStride = properties.getIndexStride();
+        this.cache = new SegmentCache(properties.getMaxMappedSegments());
+        this.series = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SymbolSeries> eldest) {
+                if (size() <= maxOpenSeries) {
+                    return false;
+                }
+                eldest.getValue().close();
+                return true;
+            }
+        };
+        this.appended = meterRegistry.counter("history.bars.appended");
+        meterRegistry.gauge("history.segments.mapped", cache, SegmentCache::size);
+        meterRegistry.gauge("history.symbols.open", this, BarStore::openSeries);
+        FunctionCounter.builder("history.segment.maps", cache, SegmentCache::maps)
+                .description("Segment files mapped into memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * True if {@code symbol} can be stored (letters, digits, '.', '_' or '-', at most 16 characters).
+     */
+    public static boolean isValidSymbol(String symbol) {
+        return symbol != null && SYMBOL.matcher(symbol.toUpperCase(Locale.ROOT)).matches();
+    }
+
+    /**
+     * Appends a bar.
+     *
+     * @return false if the bar is not newer than the last stored bar of the symbol
+     * @throws IllegalArgumentException for an invalid symbol
+     */
+    public boolean append(String symbol, long timestamp,
+                          double open, double high, double low, double close, double volume) {
+        String key = normalize(symbol);
+        SymbolSeries.Appended result;
+        do {
+            // A series evicted between lookup and append refuses it; the retry reopens it
+            result = acquire(key, true).orElseThrow().append(timestamp, open, high, low, close, volume);
+        } while (result == SymbolSeries.Appended.CLOSED);
+        if (result == SymbolSeries.Appended.ADDED) {
+            appended.increment();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void accept(String symbol, long timestamp,
+                       double open, double high, double low, double close, double volume) {
+        append(symbol, timestamp, open, high, low, close, volume);
+    }
+
+    /**
+     * Imports a file in the {@link MarketDataLineParser} format. Malformed lines are
+     * logged and skipped.
+     *
+     * @return number of bars appended
+     */
+    public long importFile(Path file) {
+        long[] added = new long[1];
+        long skipped = 0;
+        BarSink sink = (symbol, ts, o, h, l, c, v) -> {
+            if (append(symbol, ts, o, h, l, c, v)) {
+                added[0]++;
+            }
+        };
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    MarketDataLineParser.parse(line, sink);
+                } catch (IllegalArgumentException e) {
+                    if (skipped++ < 10) {
+                        log.warn("Skipping line during import of {}: {}", file, e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot import history file " + file, e);
+        }
+        flush();
+        log.info("Imported {} bars from {} ({} malformed lines skipped)", added[0], file, skipped);
+        return added[0];
+    }
+
+    /**
+     * Bars of {@code symbol} with {@code from <= timestamp < to} (epoch milliseconds),
+     * as zero-copy views. Empty if the symbol has no history.
+     */
+    public BarRange range(String symbol, long from, long to) {
+        return acquire(normalize(symbol), false)
+                .map(s -> s.range(from, to))
+                .orElseGet(() -> new BarRange(normalize(symbol), List.of()));
+    }
+
+    /**
+     * Aggregates {@code [from, to)} into bars of {@code interval}, aligned to the
+     * epoch (UTC): open of the first bar, max high, min low, close of the last bar
+     * and summed volume. Empty intervals produce no bar.
+     */
+    public BarSeries downsample(String symbol, long from, long to, Duration interval) {
+        long step = interval.toMillis();
+        if (step <= 0) {
+            throw new IllegalArgumentException("Downsampling interval must be at least 1ms");
+        }
+        BarRange range = range(symbol, from, to);
+        int capacity = range.size();
+        long[] t = new long[capacity];
+        double[] o = new double[capacity];
+        double[] h = new double[capacity];
+        double[] l = new double[capacity];
+        double[] c = new double[capacity];
+        double[] v = new double[capacity];
+
+        int n = -1;
+        long bucket = Long.MIN_VALUE;
+        for (BarChunk chunk : range.chunks()) {
+            LongBuffer ts = chunk.timestamps();
+            DoubleBuffer open = chunk.open();
+            DoubleBuffer high = chunk.high();
+            DoubleBuffer low = chunk.low();
+            DoubleBuffer close = chunk.close();
+            DoubleBuffer volume = chunk.volume();
+            for (int i = 0, size = chunk.size(); i < size; i++) {
+                long b = Math.floorDiv(ts.get(i), step) * step;
+                if (n < 0 || b != bucket) {
+                    n++;
+                    bucket = b;
+                    t[n] = b;
+                    o[n] = open.get(i);
+                    h[n] = high.get(i);
+                    l[n] = low.get(i);
+                    v[n] = volume.get(i);
+                } else {
+                    h[n] = Math.max(h[n], high.get(i));
+                    l[n] = Math.min(l[n], low.get(i));
+                    v[n] += volume.get(i);
+                }
+                c[n] = close.get(i);
+            }
+        }
+        int size = n + 1;
+        if (size < capacity) {
+            t = Arrays.copyOf(t, size);
+            o = Arrays.copyOf(o, size);
+            h = Arrays.copyOf(h, size);
+            l = Arrays.copyOf(l, size);
+            c = Arrays.copyOf(c, size);
+            v = Arrays.copyOf(v, size);
+        }
+        return new BarSeries(range.symbol(), t, o, h, l, c, v);
+    }
+
+    /**
+     * Timestamp of the newest stored bar of a symbol.
+     */
+    public OptionalLong lastTimestamp(String symbol) {
+        return acquire(normalize(symbol), false).map(SymbolSeries::lastTimestamp).orElse(OptionalLong.empty());
+    }
+
+    /**
+     * Symbols with history on disk, sorted.
+     */
+    public List<String> symbols() {
+        if (!Files.isDirectory(root)) {
+            return List.of();
+        }
+        try (Stream<Path> listing = Files.list(root)) {
+            return listing.filter(Files::isDirectory)
+                    .map(p -> p.getFileName().toString())
+                    .filter(BarStore::isValidSymbol)
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list history directory " + root, e);
+        }
+    }
+
+    /**
+     * Forces appended bars of every open symbol to disk.
+     */
+    public void flush() {
+        List<SymbolSeries> open;
+        seriesLock.lock();
+        try {
+            open = new ArrayList<>(series.values());
+        } finally {
+            seriesLock.unlock();
+        }
+        open.forEach(SymbolSeries::force);
+    }
+
+    /**
+     * Number of symbols currently open.
+     */
+    int openSeries() {
+        seriesLock.lock();
+        try {
+            return series.size();
+        } finally {
+            seriesLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        seriesLock.lock();
+        try {
+            series.values().forEach(SymbolSeries::close);
+            series.clear();
+        } finally {
+            seriesLock.unlock();
+        }
+    }
+
+    /**
+     * The open series of {@code key}, opening it if needed. Evicts the least
+     * recently used series beyond {@code maxOpenSeries}.
+     *
+     * @param create open a symbol that has no history yet
+     */
+    private Optional<SymbolSeries> acquire(String key, boolean create) {
+        seriesLock.lock();
+        try {
+            SymbolSeries open = series.get(key);
+            if (open == null) {
+                if (!create && !Files.isDirectory(root.resolve(key))) {
+                    return Optional.empty();
+                }
+                open = open(key);
+                series.put(key, open);
+            }
+            return Optional.of(open);
+        } finally {
+            seriesLock.unlock();
+        }
+    }
+
+    private SymbolSeries open(String key) {
+        return SymbolSeries.open(key, root.resolve(key), rowsPerSegment, indexStride, cache);
+    }
+
+    private static String normalize(String symbol) {
+        if (!isValidSymbol(symbol)) {
+            throw new IllegalArgumentException("Invalid symbol: " + symbol);
+        }
+        return symbol.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,81 @@
+package com.lancy.aichat.marketdata.history;
+
+import com.lancy.aichat.config.HistoryProperties;
+import com.lancy.aichat.marketdata.MarketContextEnricher;
+import com.lancy.aichat.service.PromptEnricher;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Appends a 30-day summary from the {@link BarStore} for tickers mentioned in a
+ * chat message, e.g.
+ * {@code AAPL 30d to 2024-05-01: 21 days close=189.20 chg=+4.1% high=192.40 low=165.20}.
+ *
+ * <p>Runs after {@link MarketContextEnricher}, so the provider sees live
+ * indicators followed by a {@code [History]} block.</p>
+ */
+@Component
+@Order(20)
+public class HistoryContextEnricher implements PromptEnricher {
+
+    private static final Duration LOOKBACK = Duration.ofDays(30);
+
+    private final BarStore barStore;
+
+    private final HistoryProperties properties;
+
+    public HistoryContextEnricher(BarStore barStore, HistoryProperties properties) {
+        this.barStore = barStore;
+        this.properties = properties;
+    }
+
+    @Override
+    public String enrich(String message) {
+        if (!properties.isEnrichPrompts() || message == null) {
+            return message;
+        }
+        StringBuilder context = new StringBuilder();
+        for (String symbol : MarketContextEnricher.mentionedTickers(message)) {
+            if (BarStore.isValidSymbol(symbol)) {
+                summary(symbol).ifPresent(line -> context.append(line).append('\n'));
+            }
+        }
+        return context.isEmpty() ? message : message + "\n\n[History]\n" + context.toString().stripTrailing();
+    }
+
+    /**
+     * Daily summary of the 30 days up to the newest stored bar.
+     */
+    Optional<String> summary(String symbol) {
+        OptionalLong last = barStore.lastTimestamp(symbol);
+        if (last.isEmpty()) {
+            return Optional.empty();
+        }
+        long to = last.getAsLong() + 1;
+        BarSeries daily = barStore.downsample(symbol, to - LOOKBACK.toMillis(), to, Duration.ofDays(1));
+        int days = daily.size();
+        if (days == 0) {
+            return Optional.empty();
+        }
+        double high = Double.NEGATIVE_INFINITY;
+        double low = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < days; i++) {
+            high = Math.max(high, daily.high()[i]);
+            low = Math.min(low, daily.low()[i]);
+        }
+        double first = daily.open()[0];
+        double close = daily.close()[days - 1];
+        LocalDate end = LocalDate.ofInstant(Instant.ofEpochMilli(last.getAsLong()), ZoneOffset.UTC);
+        return Optional.of(String.format(Locale.ROOT,
+                "%s 30d to %s: %d days close=%.2f chg=%+.1f%% high=%.2f low=%.2f",
+                daily.symbol(), end, days, close, (close / first - 1) * 100, high, low));
+    }
+}
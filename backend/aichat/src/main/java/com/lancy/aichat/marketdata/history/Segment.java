@@ -0,0 +1,268 @@
+package com.lancy.aichat.marketdata.history;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One append-only segment file of a symbol.
+ *
+ * <p>Layout (little-endian): a 64-byte header ({@code magic, version, capacity,
+ * count}) followed by six columns of {@code capacity} slots each: timestamps as
+ * {@code long}, then open, high, low, close and volume as {@code double}. Column
+ * {@code c} row {@code r} lives at {@code HEADER_BYTES + (c * capacity + r) * 8}.</p>
+ *
+ * <p>The header count is written after the row, so a crash mid-append leaves the
+ * last committed row count. One timestamp per {@code stride} rows is kept in an
+ * in-memory sparse index; a lookup binary-searches the index and then at most
+ * {@code stride} mapped timestamps.</p>
+ *
+ * <p>Only the owning {@link SymbolSeries} appends, under its lock. Readers see a
+ * consistent prefix through the volatile {@link #count}.</p>
+ */
+final class Segment {
+
+    static final int MAGIC = 0x4F484C43; // "OHLC"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+
+    static final int TIMESTAMP = 0;
+    static final int OPEN = 1;
+    static final int HIGH = 2;
+    static final int LOW = 3;
+    static final int CLOSE = 4;
+    static final int VOLUME = 5;
+    private static final int COLUMNS = 6;
+
+    private static final int COUNT_OFFSET = 12;
+
+    private final Path file;
+    private final int capacity;
+    private final int stride;
+    private final long[] sparseIndex;
+    private final SegmentCache cache;
+
+    /** Read-write mapping while this is the symbol's active segment, null once sealed. */
+    private volatile MappedByteBuffer writable;
+
+    private volatile int count;
+
+    private Segment(Path file, int capacity, int stride, SegmentCache cache) {
+        this.file = file;
+        this.capacity = capacity;
+        this.stride = stride;
+        this.sparseIndex = new long[(capacity + stride - 1) / stride];
+        this.cache = cache;
+    }
+
+    /**
+     * Creates a new, empty segment file and maps it for appending.
+     */
+    static Segment create(Path file, int capacity, int stride, SegmentCache cache) {
+        Segment segment = new Segment(file, capacity, stride, cache);
+        segment.writable = map(file, FileChannel.MapMode.READ_WRITE, capacity, true);
+        segment.writable.putInt(0, MAGIC);
+        segment.writable.putInt(4, VERSION);
+        segment.writable.putInt(8, capacity);
+        segment.writable.putInt(COUNT_OFFSET, 0);
+        return segment;
+    }
+
+    /**
+     * Opens an existing segment and rebuilds its sparse index.
+     *
+     * @param active map read-write so appends can continue
+     */
+    static Segment open(Path file, int stride, SegmentCache cache, boolean active) {
+        int capacity;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IllegalStateException("Not a bar segment: " + file);
+            }
+            capacity = header.getInt(8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open segment " + file, e);
+        }
+        if (capacity % stride != 0) {
+            throw new IllegalStateException("Segment " + file + " capacity " + capacity
+                    + " is not a multiple of index stride " + stride);
+        }
+
+        Segment segment = new Segment(file, capacity, stride, cache);
+        ByteBuffer buffer;
+        if (active) {
+            segment.writable = map(file, FileChannel.MapMode.READ_WRITE, capacity, false);
+            buffer = segment.writable;
+        } else {
+            buffer = cache.map(segment);
+        }
+        int rows = buffer.getInt(COUNT_OFFSET);
+        if (rows < 0 || rows > capacity) {
+            throw new IllegalStateException("Corrupt row count " + rows + " in " + file);
+        }
+        for (int row = 0; row < rows; row += stride) {
+            segment.sparseIndex[row / stride] = buffer.getLong(offset(TIMESTAMP, capacity, row));
+        }
+        segment.count = rows;
+        return segment;
+    }
+
+    /**
+     * Maps the whole segment file read-only; used by {@link SegmentCache}.
+     */
+    MappedByteBuffer mapReadOnly() {
+        return map(file, FileChannel.MapMode.READ_ONLY, capacity, false);
+    }
+
+    private static MappedByteBuffer map(Path file, FileChannel.MapMode mode, int capacity, boolean create) {
+        long size = HEADER_BYTES + (long) COLUMNS * capacity * Long.BYTES;
+        try (FileChannel channel = mode == FileChannel.MapMode.READ_ONLY
+                ? FileChannel.open(file, StandardOpenOption.READ)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        create ? StandardOpenOption.CREATE_NEW : StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(mode, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map segment " + file, e);
+        }
+    }
+
+    private static int offset(int column, int capacity, int row) {
+        return HEADER_BYTES + (column * capacity + row) * Long.BYTES;
+    }
+
+    /**
+     * Appends one row. Caller holds the series lock and has checked ordering.
+     *
+     * @return false if the segment is full
+     */
+    boolean append(long timestamp, double open, double high, double low, double close, double volume) {
+        int row = count;
+        if (row == capacity) {
+            return false;
+        }
+        MappedByteBuffer buffer = writable;
+        buffer.putLong(offset(TIMESTAMP, capacity, row), timestamp);
+        buffer.putDouble(offset(OPEN, capacity, row), open);
+        buffer.putDouble(offset(HIGH, capacity, row), high);
+        buffer.putDouble(offset(LOW, capacity, row), low);
+        buffer.putDouble(offset(CLOSE, capacity, row), close);
+        buffer.putDouble(offset(VOLUME, capacity, row), volume);
+        buffer.putInt(COUNT_OFFSET, row + 1);
+        if (row % stride == 0) {
+            sparseIndex[row / stride] = timestamp;
+        }
+        count = row + 1;
+        return true;
+    }
+
+    /**
+     * Flushes and drops the read-write mapping; later reads go through the cache.
+     */
+    void seal() {
+        MappedByteBuffer buffer = writable;
+        if (buffer != null) {
+            buffer.force();
+            writable = null;
+        }
+    }
+
+    void force() {
+        MappedByteBuffer buffer = writable;
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /**
+     * First timestamp; only valid when {@code count() > 0}.
+     */
+    long firstTimestamp() {
+        return sparseIndex[0];
+    }
+
+    long lastTimestamp(int rows) {
+        return buffer().getLong(offset(TIMESTAMP, capacity, rows - 1));
+    }
+
+    /**
+     * First row in {@code [0, rows)} whose timestamp is {@code >= timestamp}, or {@code rows}.
+     */
+    int lowerBound(ByteBuffer buffer, int rows, long timestamp) {
+        int lo = 0;
+        int hi = (rows + stride - 1) / stride - 1;
+        int block = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sparseIndex[mid] < timestamp) {
+                block = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return 0;
+        }
+        // Row block * stride is < timestamp; search the rest of its block
+        lo = block * stride + 1;
+        hi = Math.min(block * stride + stride, rows);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (buffer.getLong(offset(TIMESTAMP, capacity, mid)) < timestamp) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Current mapping: the read-write one while active, otherwise a cached read-only one.
+     */
+    ByteBuffer buffer() {
+        MappedByteBuffer buffer = writable;
+        return buffer != null ? buffer : cache.map(this);
+    }
+
+    /**
+     * Zero-copy, read-only views of rows {@code [from, to)}.
+     */
+    BarChunk chunk(ByteBuffer buffer, int from, int to) {
+        return new BarChunk(
+                column(buffer, TIMESTAMP, from, to).asLongBuffer(),
+                column(buffer, OPEN, from, to).asDoubleBuffer(),
+                column(buffer, HIGH, from, to).asDoubleBuffer(),
+                column(buffer, LOW, from, to).asDoubleBuffer(),
+                column(buffer, CLOSE, from, to).asDoubleBuffer(),
+                column(buffer, VOLUME, from, to).asDoubleBuffer());
+    }
+
+    private ByteBuffer column(ByteBuffer buffer, int column, int from, int to) {
+        return buffer.asReadOnlyBuffer()
+                .slice(offset(column, capacity, from), (to - from) * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,77 @@
+package com.lancy.aichat.marketdata.history;
+
+import java.nio.MappedByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LRU of read-only mappings of sealed segments.
+ *
+ * <p>Only recently read segments stay mapped, which keeps the process well below
+ * the kernel's per-process mapping limit ({@code vm.max_map_count}) when years
+ * of history for thousands of symbols are on disk. An evicted mapping is
+ * released by the garbage collector once no {@link BarChunk} view still
+ * references it, so handing out views never leaves a dangling mapping.</p>
+ */
+final class SegmentCache {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final AtomicLong maps = new AtomicLong();
+
+    private final LinkedHashMap<Segment, MappedByteBuffer> mapped;
+
+    SegmentCache(int maxMapped) {
+        this.mapped = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Segment, MappedByteBuffer> eldest) {
+                return size() > maxMapped;
+            }
+        };
+    }
+
+    MappedByteBuffer map(Segment segment) {
+        lock.lock();
+        try {
+            MappedByteBuffer buffer = mapped.get(segment);
+            if (buffer == null) {
+                buffer = segment.mapReadOnly();
+                mapped.put(segment, buffer);
+                maps.incrementAndGet();
+            }
+            return buffer;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the mapping of {@code segment}, if any; it is unmapped once no view references it.
+     */
+    void release(Segment segment) {
+        lock.lock();
+        try {
+            mapped.remove(segment);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return mapped.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Total number of times a segment was mapped; rising fast means the LRU is too small.
+     */
+    long maps() {
+        return maps.get();
+    }
+}
@@ -0,0 +1,215 @@
+package com.lancy.aichat.marketdata.history;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * All segments of one symbol, oldest first, in {@code <root>/<SYMBOL>/00000000.seg, 00000001.seg, ...}.
+ *
+ * <p>Appends go to the last segment; a full segment is sealed and a new one
+ * created. Timestamps must be strictly increasing across the whole series, so
+ * segments are ordered by time and a range scan only touches the segments that
+ * overlap it.</p>
+ */
+final class SymbolSeries {
+
+    private static final String SUFFIX = ".seg";
+
+    private final String symbol;
+    private final Path directory;
+    private final int rowsPerSegment;
+    private final int stride;
+    private final SegmentCache cache;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    /** Replaced (never mutated) when a segment is added, so readers need no lock. */
+    private volatile Segment[] segments;
+
+    /** Guarded by {@link #appendLock}. */
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    /** Guarded by {@link #appendLock}. */
+    private boolean closed;
+
+    /** Outcome of {@link #append}. */
+    enum Appended {
+        ADDED,
+        /** Not after the last stored bar; ignored. */
+        OUT_OF_ORDER,
+        /** The series was closed; the caller reopens it and retries. */
+        CLOSED
+    }
+
+    private SymbolSeries(String symbol, Path directory, int rowsPerSegment, int stride, SegmentCache cache,
+                         Segment[] segments) {
+        this.symbol = symbol;
+        this.directory = directory;
+        this.rowsPerSegment = rowsPerSegment;
+        this.stride = stride;
+        this.cache = cache;
+        this.segments = segments;
+        Segment last = segments.length == 0 ? null : segments[segments.length - 1];
+        if (last != null && last.count() > 0) {
+            lastTimestamp = last.lastTimestamp(last.count());
+        }
+    }
+
+    /**
+     * Opens the series stored in {@code directory}; a missing directory is an empty series.
+     */
+    static SymbolSeries open(String symbol, Path directory, int rowsPerSegment, int stride, SegmentCache cache) {
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> listing = Files.list(directory)) {
+                listing.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).sorted().forEach(files::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot list segments of " + symbol, e);
+            }
+        }
+        Segment[] segments = new Segment[files.size()];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = Segment.open(files.get(i), stride, cache, i == segments.length - 1);
+        }
+        return new SymbolSeries(symbol, directory, rowsPerSegment, stride, cache, segments);
+    }
+
+    String symbol() {
+        return symbol;
+    }
+
+    /**
+     * Appends a bar.
+     */
+    Appended append(long timestamp, double open, double high, double low, double close, double volume) {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return Appended.CLOSED;
+            }
+            if (timestamp <= lastTimestamp) {
+                return Appended.OUT_OF_ORDER;
+            }
+            Segment[] current = segments;
+            Segment active = current.length == 0 ? null : current[current.length - 1];
+            if (active == null || active.isFull()) {
+                if (active != null) {
+                    active.seal();
+                }
+                active = newSegment(current.length);
+                Segment[] grown = Arrays.copyOf(current, current.length + 1);
+                grown[current.length] = active;
+                segments = grown;
+            }
+            active.append(timestamp, open, high, low, close, volume);
+            lastTimestamp = timestamp;
+            return Appended.ADDED;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private Segment newSegment(int sequence) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create history directory for " + symbol, e);
+        }
+        Path file = directory.resolve(String.format("%08d%s", sequence, SUFFIX));
+        return Segment.create(file, rowsPerSegment, stride, cache);
+    }
+
+    /**
+     * Bars with {@code from <= timestamp < to}.
+     */
+    BarRange range(long from, long to) {
+        Segment[] current = segments;
+        List<BarChunk> chunks = new ArrayList<>();
+        for (int i = firstSegment(current, from); i < current.length; i++) {
+            Segment segment = current[i];
+            int rows = segment.count();
+            if (rows == 0 || segment.firstTimestamp() >= to) {
+                break;
+            }
+            ByteBuffer buffer = segment.buffer();
+            int lo = segment.lowerBound(buffer, rows, from);
+            int hi = segment.lowerBound(buffer, rows, to);
+            if (lo < hi) {
+                chunks.add(segment.chunk(buffer, lo, hi));
+            }
+        }
+        return new BarRange(symbol, chunks);
+    }
+
+    /**
+     * Last segment whose first bar is at or before {@code from}, or 0.
+     */
+    private static int firstSegment(Segment[] current, long from) {
+        int lo = 0;
+        int hi = current.length - 1;
+        int found = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (current[mid].count() > 0 && current[mid].firstTimestamp() <= from) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    OptionalLong lastTimestamp() {
+        Segment[] current = segments;
+        for (int i = current.length - 1; i >= 0; i--) {
+            int rows = current[i].count();
+            if (rows > 0) {
+                return OptionalLong.of(current[i].lastTimestamp(rows));
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    int segmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Flushes the active segment and drops every mapping of the series. Reads
+     * through an old reference still work (sealed segments are mapped again on
+     * demand); appends return {@link Appended#CLOSED}, so a reopened series is
+     * the only writer of the directory.
+     */
+    void close() {
+        appendLock.lock();
+        try {
+            closed = true;
+            for (Segment segment : segments) {
+                segment.seal();
+                cache.release(segment);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the active segment to disk.
+     */
+    void force() {
+        Segment[] current = segments;
+        if (current.length > 0) {
+            current[current.length - 1].force();
+        }
+    }
+}
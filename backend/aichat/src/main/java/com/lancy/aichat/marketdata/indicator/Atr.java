@@ -0,0 +1,47 @@
+package com.lancy.aichat.marketdata.indicator;
+
+/**
+ * Average True Range with Wilder smoothing, updated in O(1) per bar.
+ */
+public final class Atr {
+
+    private final int period;
+    private double prevClose = Double.NaN;
+    private double value;
+    private int count;
+
+    public Atr(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("ATR period must be positive: " + period);
+        }
+        this.period = period;
+    }
+
+    public void update(double high, double low, double close) {
+        double trueRange = high - low;
+        if (!Double.isNaN(prevClose)) {
+            trueRange = Math.max(trueRange, Math.max(Math.abs(high - prevClose), Math.abs(low - prevClose)));
+        }
+        prevClose = close;
+
+        if (count < period) {
+            value += trueRange / period;
+            count++;
+            return;
+        }
+        value = (value * (period - 1) + trueRange) / period;
+    }
+
+    /**
+     * Current value, or NaN until {@code period} bars have been seen.
+     */
+    public double value() {
+        return count < period ? Double.NaN : value;
+    }
+
+    public void reset() {
+        prevClose = Double.NaN;
+        value = 0;
+        count = 0;
+    }
+}
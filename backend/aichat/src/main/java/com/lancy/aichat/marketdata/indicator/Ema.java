@@ -0,0 +1,49 @@
+package com.lancy.aichat.marketdata.indicator;
+
+/**
+ * Exponential moving average updated in O(1) per value.
+ *
+ * <p>Seeded with the simple average of the first {@code period} values, then
+ * smoothed with {@code alpha = 2 / (period + 1)}.</p>
+ */
+public final class Ema {
+
+    private final int period;
+    private final double alpha;
+    private double value = Double.NaN;
+    private double seedSum;
+    private int count;
+
+    public Ema(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("EMA period must be positive: " + period);
+        }
+        this.period = period;
+        this.alpha = 2.0 / (period + 1);
+    }
+
+    public void update(double x) {
+        if (count < period) {
+            seedSum += x;
+            count++;
+            if (count == period) {
+                value = seedSum / period;
+            }
+            return;
+        }
+        value += alpha * (x - value);
+    }
+
+    /**
+     * Current value, or NaN until {@code period} values have been seen.
+     */
+    public double value() {
+        return value;
+    }
+
+    public void reset() {
+        value = Double.NaN;
+        seedSum = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,87 @@
+package com.lancy.aichat.marketdata.indicator;
+
+/**
+ * Annualized standard deviation of log returns over a sliding window.
+ *
+ * <p>Maintains running sums over a preallocated circular buffer, so each
+ * update is O(1) and allocation-free. The sums are recomputed exactly every
+ * time the buffer wraps to stop floating-point drift from accumulating.</p>
+ */
+public final class RollingVolatility {
+
+    private final double[] returns;
+    private final double annualization;
+    private double prevClose = Double.NaN;
+    private double sum;
+    private double sumSquares;
+    private int index;
+    private int count;
+
+    /**
+     * @param window     number of returns in the window (at least 2)
+     * @param barsPerYear bars per year used to annualize (e.g. 252 for daily bars)
+     */
+    public RollingVolatility(int window, double barsPerYear) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Volatility window must be at least 2: " + window);
+        }
+        this.returns = new double[window];
+        this.annualization = Math.sqrt(barsPerYear);
+    }
+
+    public void update(double close) {
+        if (Double.isNaN(prevClose) || prevClose <= 0 || close <= 0) {
+            prevClose = close;
+            return;
+        }
+        double r = Math.log(close / prevClose);
+        prevClose = close;
+
+        if (count == returns.length) {
+            double old = returns[index];
+            sum -= old;
+            sumSquares -= old * old;
+        } else {
+            count++;
+        }
+        returns[index] = r;
+        sum += r;
+        sumSquares += r * r;
+
+        if (++index == returns.length) {
+            index = 0;
+            recomputeSums();
+        }
+    }
+
+    /**
+     * Current annualized volatility, or NaN until the window is full.
+     */
+    public double value() {
+        if (count < returns.length) {
+            return Double.NaN;
+        }
+        double n = count;
+        double variance = (sumSquares - sum * sum / n) / (n - 1);
+        return Math.sqrt(Math.max(variance, 0)) * annualization;
+    }
+
+    public void reset() {
+        prevClose = Double.NaN;
+        sum = 0;
+        sumSquares = 0;
+        index = 0;
+        count = 0;
+    }
+
+    private void recomputeSums() {
+        double s = 0;
+        double s2 = 0;
+        for (int i = 0; i < count; i++) {
+            s += returns[i];
+            s2 += returns[i] * returns[i];
+        }
+        sum = s;
+        sumSquares = s2;
+    }
+}
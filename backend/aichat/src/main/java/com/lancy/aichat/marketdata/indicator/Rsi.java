@@ -0,0 +1,61 @@
+package com.lancy.aichat.marketdata.indicator;
+
+/**
+ * Relative Strength Index with Wilder smoothing, updated in O(1) per close.
+ */
+public final class Rsi {
+
+    private final int period;
+    private double prevClose = Double.NaN;
+    private double avgGain;
+    private double avgLoss;
+    private int count;
+
+    public Rsi(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("RSI period must be positive: " + period);
+        }
+        this.period = period;
+    }
+
+    public void update(double close) {
+        if (Double.isNaN(prevClose)) {
+            prevClose = close;
+            return;
+        }
+        double change = close - prevClose;
+        double gain = change > 0 ? change : 0;
+        double loss = change < 0 ? -change : 0;
+        prevClose = close;
+
+        if (count < period) {
+            // Seed with simple averages of the first period changes
+            avgGain += gain / period;
+            avgLoss += loss / period;
+            count++;
+            return;
+        }
+        avgGain = (avgGain * (period - 1) + gain) / period;
+        avgLoss = (avgLoss * (period - 1) + loss) / period;
+    }
+
+    /**
+     * Current value in [0, 100], or NaN until {@code period} changes have been seen.
+     */
+    public double value() {
+        if (count < period) {
+            return Double.NaN;
+        }
+        if (avgLoss == 0) {
+            return avgGain == 0 ? 50.0 : 100.0;
+        }
+        return 100.0 - 100.0 / (1.0 + avgGain / avgLoss);
+    }
+
+    public void reset() {
+        prevClose = Double.NaN;
+        avgGain = 0;
+        avgLoss = 0;
+        count = 0;
+    }
+}
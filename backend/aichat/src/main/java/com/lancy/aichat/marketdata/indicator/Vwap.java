@@ -0,0 +1,39 @@
+package com.lancy.aichat.marketdata.indicator;
+
+/**
+ * Session volume-weighted average price, reset at each UTC day boundary.
+ *
+ * <p>Uses the typical price {@code (high + low + close) / 3} of each bar.</p>
+ */
+public final class Vwap {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private long day = Long.MIN_VALUE;
+    private double priceVolume;
+    private double volume;
+
+    public void update(long timestamp, double high, double low, double close, double barVolume) {
+        long barDay = Math.floorDiv(timestamp, MILLIS_PER_DAY);
+        if (barDay != day) {
+            day = barDay;
+            priceVolume = 0;
+            volume = 0;
+        }
+        priceVolume += (high + low + close) / 3.0 * barVolume;
+        volume += barVolume;
+    }
+
+    /**
+     * Current value, or NaN before any volume has traded in the session.
+     */
+    public double value() {
+        return volume > 0 ? priceVolume / volume : Double.NaN;
+    }
+
+    public void reset() {
+        day = Long.MIN_VALUE;
+        priceVolume = 0;
+        volume = 0;
+    }
+}
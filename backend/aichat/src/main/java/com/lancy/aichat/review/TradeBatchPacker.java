@@ -0,0 +1,181 @@
+package com.lancy.aichat.review;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.dto.TradeAnalysis;
+import com.lancy.aichat.token.TokenGovernor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Packs trades into prompts under a token budget and splits the model's JSON reply.
+ *
+ * <p>The system prompt and instructions are paid once per call instead of once per
+ * trade. Replies are read object by object, so a reply cut off by the output cap
+ * still yields the trades before the cut.</p>
+ */
+final class TradeBatchPacker {
+
+    static final String SYSTEM_PROMPT = "You are an AI Quantitative Trading Assistant reviewing closed trades. "
+            + "Be precise. Be analytical. Focus on risk management.";
+
+    static final String INSTRUCTIONS = """
+            Review each closed trade below. Reply with only a JSON array holding one object per trade, \
+            in the same order, and no other text:
+            [{"tradeId":"<id>","sentiment":"POSITIVE|NEGATIVE|NEUTRAL","setupQuality":"HIGH|MEDIUM|LOW",\
+            "confidenceScore":<0 to 1>,"riskAssessment":"<one sentence>","improvementSuggestion":"<one sentence>"}]
+            "similar past trades" sums up the outcomes of the user's earlier trades that looked alike.
+
+            Trades:
+            """;
+
+    private static final Set<String> SENTIMENTS = Set.of("POSITIVE", "NEGATIVE", "NEUTRAL");
+
+    private static final Set<String> QUALITIES = Set.of("HIGH", "MEDIUM", "LOW");
+
+    private final TokenGovernor tokenGovernor;
+
+    private final ObjectMapper objectMapper;
+
+    /** Tokens of system prompt and instructions, paid by every call */
+    private final int fixedTokens;
+
+    TradeBatchPacker(TokenGovernor tokenGovernor, ObjectMapper objectMapper) {
+        this.tokenGovernor = tokenGovernor;
+        this.objectMapper = objectMapper;
+        this.fixedTokens = tokens(SYSTEM_PROMPT) + tokens(INSTRUCTIONS);
+    }
+
+    int fixedTokens() {
+        return fixedTokens;
+    }
+
+    int tokens(String text) {
+        return tokenGovernor.count(null, null, text);
+    }
+
+    /**
+     * @param context appended to the trade's line, e.g. a summary of similar past trades; may be null
+     */
+    Pending pending(TradeReviewRequest.Trade trade, String context) {
+        String line = context == null ? trade.toPromptLine() : trade.toPromptLine() + " | " + context;
+        // One more for the line break
+        return new Pending(trade, line, tokens(line) + 1);
+    }
+
+    /**
+     * Takes trades from the head of {@code queue} while the prompt stays within
+     * {@code maxPromptTokens}; at least one trade, so an oversized trade still gets its call.
+     */
+    List<Pending> next(Deque<Pending> queue, int maxPromptTokens, int maxTrades) {
+        List<Pending> batch = new ArrayList<>();
+        int tokens = fixedTokens;
+        while (!queue.isEmpty() && batch.size() < maxTrades) {
+            Pending head = queue.peekFirst();
+            if (!batch.isEmpty() && tokens + head.tokens > maxPromptTokens) {
+                break;
+            }
+            batch.add(queue.pollFirst());
+            tokens += head.tokens;
+        }
+        return batch;
+    }
+
+    /**
+     * Prompt tokens of a call for {@code batch}, system prompt included.
+     */
+    int promptTokens(List<Pending> batch) {
+        return fixedTokens + batch.stream().mapToInt(pending -> pending.tokens).sum();
+    }
+
+    static String prompt(List<Pending> batch) {
+        StringBuilder prompt = new StringBuilder(INSTRUCTIONS);
+        for (Pending pending : batch) {
+            prompt.append(pending.line).append('\n');
+        }
+        return prompt.toString().stripTrailing();
+    }
+
+    /**
+     * Valid analyses of the reply, by trade id. Objects for unknown or repeated ids,
+     * or with missing or out-of-range fields, are left out, as is anything after
+     * the point where the JSON breaks off.
+     */
+    Map<String, TradeAnalysis> parse(String reply, Set<String> tradeIds) {
+        Map<String, TradeAnalysis> analyses = new HashMap<>();
+        int start = reply == null ? -1 : reply.indexOf('[');
+        if (start < 0) {
+            return analyses;
+        }
+        // Models often wrap the array in a Markdown code fence; read from the bracket on
+        try (JsonParser parser = objectMapper.createParser(reply.substring(start))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                return analyses;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                JsonNode node = parser.readValueAsTree();
+                String id = text(node.has("tradeId") ? node.get("tradeId") : node.get("id"));
+                TradeAnalysis analysis = analysis(node);
+                if (id != null && tradeIds.contains(id) && analysis != null) {
+                    analyses.putIfAbsent(id, analysis);
+                }
+            }
+        } catch (IOException e) {
+            // Truncated or malformed: keep the objects read before the break
+        }
+        return analyses;
+    }
+
+    private static TradeAnalysis analysis(JsonNode node) {
+        String sentiment = upper(text(node.get("sentiment")));
+        String quality = upper(text(node.get("setupQuality")));
+        JsonNode confidence = node.get("confidenceScore");
+        String risk = text(node.get("riskAssessment"));
+        String suggestion = text(node.get("improvementSuggestion"));
+        // Set.of rejects contains(null), so missing fields are checked first
+        if (sentiment == null || !SENTIMENTS.contains(sentiment) || quality == null || !QUALITIES.contains(quality)
+                || risk == null || suggestion == null
+                || confidence == null || !confidence.isNumber()
+                || confidence.asDouble() < 0 || confidence.asDouble() > 1) {
+            return null;
+        }
+        return new TradeAnalysis(sentiment, quality, confidence.asDouble(), risk, suggestion);
+    }
+
+    private static String text(JsonNode node) {
+        return node == null || !node.isValueNode() || node.asText().isBlank() ? null : node.asText().strip();
+    }
+
+    private static String upper(String value) {
+        return value == null ? null : value.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * A trade waiting for a valid analysis.
+     */
+    static final class Pending {
+
+        final TradeReviewRequest.Trade trade;
+
+        final String line;
+
+        final int tokens;
+
+        int attempts;
+
+        Pending(TradeReviewRequest.Trade trade, String line, int tokens) {
+            this.trade = trade;
+            this.line = line;
+            this.tokens = tokens;
+        }
+    }
+}
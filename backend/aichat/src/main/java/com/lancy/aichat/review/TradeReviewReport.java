@@ -0,0 +1,51 @@
+package com.lancy.aichat.review;
+
+import com.lancy.aichat.dto.TradeAnalysis;
+
+import java.util.List;
+
+/**
+ * Result of {@code POST /api/review/trades}.
+ *
+ * @param results one per trade, in request order
+ * @param stats   throughput and token cost of the run
+ */
+public record TradeReviewReport(List<Result> results, Stats stats) {
+
+    /**
+     * Review of one trade.
+     *
+     * @param analysis null if the trade failed
+     * @param attempts provider calls the trade took part in
+     * @param error    why no valid analysis was obtained, null on success
+     */
+    public record Result(String tradeId, TradeAnalysis analysis, int attempts, String error) {
+    }
+
+    /**
+     * Cost of the run next to the one-at-a-time path.
+     *
+     * @param trades                    trades in the request
+     * @param analysed                  trades with a valid analysis
+     * @param calls                     provider calls made
+     * @param requeued                  trades sent again after a failed or invalid answer
+     * @param elapsedMs                 wall time of the run
+     * @param tradesPerSecond           analysed trades per second of wall time
+     * @param promptTokensPerTrade      prompt tokens sent per trade, re-sends included
+     * @param completionTokensPerTrade  completion tokens received per trade
+     * @param singlePromptTokensPerTrade prompt tokens per trade had each trade been sent on its
+     *                                  own (system prompt and instructions repeated every time)
+     */
+    public record Stats(
+            int trades,
+            int analysed,
+            int calls,
+            int requeued,
+            long elapsedMs,
+            double tradesPerSecond,
+            double promptTokensPerTrade,
+            double completionTokensPerTrade,
+            double singlePromptTokensPerTrade
+    ) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.lancy.aichat.review;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Request body of {@code POST /api/review/trades}.
+ *
+ * <pre>
+ * {
+ *   "trades": [
+ *     { "id": "T1", "symbol": "AAPL", "side": "LONG", "quantity": 100, "entryPrice": 190.0, "exitPrice": 195.5,
+ *       "stopPrice": 188.0, "openedAt": "2024-05-01T14:30:00Z", "closedAt": "2024-05-02T15:10:00Z",
+ *       "notes": "Bought the breakout above the morning high" }
+ *   ],
+ *   "maxBatchSize": 20
+ * }
+ * </pre>
+ *
+ * @param trades       closed trades to review; ids must be unique
+ * @param maxBatchSize trades per provider call, capped by {@code ai.review.max-batch-size};
+ *                     1 reviews one trade at a time (useful to compare the report)
+ */
+public record TradeReviewRequest(
+        List<Trade> trades,
+        Integer maxBatchSize
+) {
+
+    /**
+     * One closed trade.
+     *
+     * @param side      LONG or SHORT
+     * @param stopPrice initial stop, which defines the risk unit of the R-multiple
+     */
+    public record Trade(
+            String id,
+            String symbol,
+            String side,
+            Double quantity,
+            Double entryPrice,
+            Double exitPrice,
+            Double stopPrice,
+            Instant openedAt,
+            Instant closedAt,
+            String notes
+    ) {
+
+        /**
+         * -1 for a short, else 1.
+         */
+        public int direction() {
+            return "SHORT".equalsIgnoreCase(side) ? -1 : 1;
+        }
+
+        /**
+         * Price move in the trade's favour as a fraction of the entry, or NaN without prices.
+         */
+        public double returnFraction() {
+            if (entryPrice == null || exitPrice == null || entryPrice <= 0) {
+                return Double.NaN;
+            }
+            return (exitPrice - entryPrice) / entryPrice * direction();
+        }
+
+        /**
+         * Result in units of initial risk (entry to stop), or NaN without a stop.
+         */
+        public double rMultiple() {
+            if (entryPrice == null || exitPrice == null || stopPrice == null
+                    || entryPrice.doubleValue() == stopPrice.doubleValue()) {
+                return Double.NaN;
+            }
+            return (exitPrice - entryPrice) / Math.abs(entryPrice - stopPrice) * direction();
+        }
+
+        /**
+         * Hours between open and close, or NaN if either is missing.
+         */
+        public double holdingHours() {
+            if (openedAt == null || closedAt == null) {
+                return Double.NaN;
+            }
+            return Duration.between(openedAt, closedAt).toSeconds() / 3600.0;
+        }
+
+        /**
+         * Single line for prompts, e.g.
+         * {@code id=T1 | AAPL LONG 100 @ 190.00 -> 195.50 (+2.89%) +2.8R held 24.7h | notes: Bought the breakout}.
+         */
+        String toPromptLine() {
+            StringBuilder line = new StringBuilder("id=").append(id).append(" | ").append(symbol);
+            if (side != null) {
+                line.append(' ').append(side);
+            }
+            if (quantity != null) {
+                line.append(' ').append(String.format(Locale.ROOT, "%.0f", quantity));
+            }
+            if (entryPrice != null) {
+                line.append(String.format(Locale.ROOT, " @ %.2f", entryPrice));
+            }
+            if (exitPrice != null) {
+                line.append(String.format(Locale.ROOT, " -> %.2f", exitPrice));
+                if (!Double.isNaN(returnFraction())) {
+                    line.append(String.format(Locale.ROOT, " (%+.2f%%)", returnFraction() * 100));
+                }
+            }
+            if (!Double.isNaN(rMultiple())) {
+                line.append(String.format(Locale.ROOT, " %+.1fR", rMultiple()));
+            }
+            if (!Double.isNaN(holdingHours())) {
+                line.append(String.format(Locale.ROOT, " held %.1fh", holdingHours()));
+            }
+            if (notes != null && !notes.isBlank()) {
+                line.append(" | notes: ").append(notes.strip().replaceAll("\\s+", " "));
+            }
+            return line.toString();
+        }
+    }
+}
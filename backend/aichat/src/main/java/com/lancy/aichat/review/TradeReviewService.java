@@ -0,0 +1,246 @@
+package com.lancy.aichat.review;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.config.SimilarTradeProperties;
+import com.lancy.aichat.config.TradeReviewProperties;
+import com.lancy.aichat.dto.ChatRequest;
+import com.lancy.aichat.dto.ChatResponse;
+import com.lancy.aichat.dto.TradeAnalysis;
+import com.lancy.aichat.review.TradeBatchPacker.Pending;
+import com.lancy.aichat.service.ChatService;
+import com.lancy.aichat.similar.SimilarTrade;
+import com.lancy.aichat.similar.SimilarTradeIndex;
+import com.lancy.aichat.token.TokenGovernor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * LLM review of closed trades, many trades per provider call.
+ *
+ * <p>Trades are packed into one prompt while it fits {@code ai.review.max-prompt-tokens}
+ * and the expected answers fit the completion cap of the request
+ * ({@link TokenGovernor#maxOutputTokens()}). The model answers a JSON array of
+ * {@link TradeAnalysis} keyed by trade id; each entry is validated, and only the
+ * trades without a valid entry are queued again, up to {@code ai.review.max-attempts}
+ * calls each. A provider failure re-queues the whole batch.</p>
+ *
+ * <p>Each trade's line carries the outcomes of similar past trades from
+ * {@link SimilarTradeIndex}; once reviewed, the trades are indexed in turn.</p>
+ *
+ * <p>Metrics: {@code review.batch.size}, {@code review.prompt.tokens.per.trade},
+ * {@code review.trades{outcome}} and {@code review.requeued}.</p>
+ */
+@Service
+public class TradeReviewService {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeReviewService.class);
+
+    private final ChatService chatService;
+
+    private final TokenGovernor tokenGovernor;
+
+    private final TradeReviewProperties properties;
+
+    private final TradeBatchPacker packer;
+
+    private final SimilarTradeIndex similarTrades;
+
+    private final SimilarTradeProperties similarProperties;
+
+    private final DistributionSummary batchSize;
+
+    private final DistributionSummary tokensPerTrade;
+
+    private final Counter analysed;
+
+    private final Counter failed;
+
+    private final Counter requeued;
+
+    public TradeReviewService(ChatService chatService, TokenGovernor tokenGovernor, ObjectMapper objectMapper,
+                              TradeReviewProperties properties, SimilarTradeIndex similarTrades,
+                              SimilarTradeProperties similarProperties, MeterRegistry meterRegistry) {
+        this.chatService = chatService;
+        this.similarTrades = similarTrades;
+        this.similarProperties = similarProperties;
+        this.tokenGovernor = tokenGovernor;
+        this.properties = properties;
+        this.packer = new TradeBatchPacker(tokenGovernor, objectMapper);
+        this.batchSize = DistributionSummary.builder("review.batch.size")
+                .description("Trades per provider call")
+                .register(meterRegistry);
+        this.tokensPerTrade = DistributionSummary.builder("review.prompt.tokens.per.trade")
+                .description("Prompt tokens per trade of a provider call")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        this.analysed = meterRegistry.counter("review.trades", "outcome", "analysed");
+        this.failed = meterRegistry.counter("review.trades", "outcome", "failed");
+        this.requeued = meterRegistry.counter("review.requeued");
+    }
+
+    public TradeReviewReport review(TradeReviewRequest request) {
+        return review(request, (done, message) -> { });
+    }
+
+    /**
+     * Reviews the trades of the request.
+     *
+     * @param progress receives the number of finished trades after every call
+     * @throws IllegalArgumentException for a missing, oversized or ambiguous trade list
+     * @throws CancellationException    if the calling thread is interrupted
+     */
+    public TradeReviewReport review(TradeReviewRequest request, BiConsumer<Integer, String> progress) {
+        List<TradeReviewRequest.Trade> trades = validate(request);
+        long start = System.nanoTime();
+
+        Deque<Pending> queue = new ArrayDeque<>(trades.size());
+        long singleTokens = 0;
+        for (TradeReviewRequest.Trade trade : trades) {
+            Pending pending = packer.pending(trade, similarContext(trade));
+            queue.addLast(pending);
+            singleTokens += packer.fixedTokens() + pending.tokens;
+        }
+
+        Map<String, TradeReviewReport.Result> results = new HashMap<>();
+        int calls = 0;
+        int resent = 0;
+        long promptTokens = 0;
+        long completionTokens = 0;
+        while (!queue.isEmpty()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Trade review cancelled");
+            }
+            List<Pending> batch = packer.next(queue, properties.getMaxPromptTokens(), batchLimit(request));
+            int tokens = packer.promptTokens(batch);
+            calls++;
+            promptTokens += tokens;
+            batchSize.record(batch.size());
+            tokensPerTrade.record((double) tokens / batch.size());
+
+            Map<String, TradeAnalysis> analyses;
+            String error;
+            try {
+                ChatResponse response = chatService.chat(new ChatRequest(TradeBatchPacker.prompt(batch), null,
+                        TradeBatchPacker.SYSTEM_PROMPT, null));
+                completionTokens += packer.tokens(response.response());
+                analyses = packer.parse(response.response(),
+                        batch.stream().map(pending -> pending.trade.id()).collect(Collectors.toSet()));
+                error = "No valid analysis in the model's reply";
+            } catch (CancellationException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                log.warn("Review call for {} trades failed: {}", batch.size(), e.getMessage());
+                analyses = Map.of();
+                error = e.getMessage();
+            }
+
+            List<Pending> retry = new ArrayList<>();
+            for (Pending pending : batch) {
+                pending.attempts++;
+                String id = pending.trade.id();
+                TradeAnalysis analysis = analyses.get(id);
+                if (analysis != null) {
+                    results.put(id, new TradeReviewReport.Result(id, analysis, pending.attempts, null));
+                    analysed.increment();
+                } else if (pending.attempts >= properties.getMaxAttempts()) {
+                    results.put(id, new TradeReviewReport.Result(id, null, pending.attempts, error));
+                    failed.increment();
+                } else {
+                    retry.add(pending);
+                }
+            }
+            // Retried next, packed together, rather than behind the rest of the queue
+            for (int i = retry.size() - 1; i >= 0; i--) {
+                queue.addFirst(retry.get(i));
+            }
+            resent += retry.size();
+            requeued.increment(retry.size());
+            progress.accept(results.size(), "Reviewed " + results.size() + " of " + trades.size() + " trades");
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        int ok = (int) results.values().stream().filter(result -> result.analysis() != null).count();
+        TradeReviewReport.Stats stats = new TradeReviewReport.Stats(trades.size(), ok, calls, resent, elapsedMs,
+                round(ok * 1000.0 / Math.max(1, elapsedMs)),
+                round((double) promptTokens / trades.size()),
+                round((double) completionTokens / trades.size()),
+                round((double) singleTokens / trades.size()));
+        log.info("Reviewed {} of {} trades in {} calls and {} ms ({} trades/s); {} prompt tokens per trade, "
+                        + "{} one at a time", ok, trades.size(), calls, elapsedMs, stats.tradesPerSecond(),
+                stats.promptTokensPerTrade(), stats.singlePromptTokensPerTrade());
+
+        similarTrades.ingest(trades);
+        List<TradeReviewReport.Result> ordered = trades.stream().map(trade -> results.get(trade.id())).toList();
+        return new TradeReviewReport(ordered, stats);
+    }
+
+    /**
+     * Outcome summary of the trade's nearest past trades, or null if there are none.
+     */
+    private String similarContext(TradeReviewRequest.Trade trade) {
+        if (!similarProperties.isEnrichReviews() || similarProperties.getReviewNeighbors() <= 0) {
+            return null;
+        }
+        List<SimilarTrade> neighbours = similarTrades.similar(trade, similarProperties.getReviewNeighbors());
+        return neighbours.isEmpty() ? null : SimilarTrade.summary(neighbours);
+    }
+
+    /**
+     * Trades per call: the configured and requested limits, and as many answers as
+     * fit the completion cap of the current request.
+     */
+    private int batchLimit(TradeReviewRequest request) {
+        int limit = properties.getMaxBatchSize();
+        if (request.maxBatchSize() != null && request.maxBatchSize() > 0) {
+            limit = Math.min(limit, request.maxBatchSize());
+        }
+        Integer outputCap = tokenGovernor.maxOutputTokens();
+        if (outputCap != null && properties.getOutputTokensPerTrade() > 0) {
+            limit = Math.min(limit, outputCap / properties.getOutputTokensPerTrade());
+        }
+        return Math.max(1, limit);
+    }
+
+    /**
+     * Checks the trade list, so a job can be rejected before it is queued.
+     *
+     * @throws IllegalArgumentException for a missing, oversized or ambiguous trade list
+     */
+    public List<TradeReviewRequest.Trade> validate(TradeReviewRequest request) {
+        List<TradeReviewRequest.Trade> trades = request.trades();
+        if (trades == null || trades.isEmpty() || trades.size() > properties.getMaxTrades()) {
+            throw new IllegalArgumentException("A review needs 1 to " + properties.getMaxTrades() + " trades");
+        }
+        Set<String> ids = new HashSet<>();
+        for (TradeReviewRequest.Trade trade : trades) {
+            if (trade == null || trade.id() == null || trade.id().isBlank()
+                    || trade.symbol() == null || trade.symbol().isBlank()) {
+                throw new IllegalArgumentException("Every trade needs an id and a symbol");
+            }
+            if (!ids.add(trade.id())) {
+                throw new IllegalArgumentException("Duplicate trade id: " + trade.id());
+            }
+        }
+        return trades;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
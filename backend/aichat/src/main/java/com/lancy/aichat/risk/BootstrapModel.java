@@ -0,0 +1,33 @@
+package com.lancy.aichat.risk;
+
+import java.util.SplittableRandom;
+
+/**
+ * Resamples whole historical days, so cross-asset correlation, fat tails and
+ * skew of the history are kept without assuming a distribution.
+ */
+final class BootstrapModel implements ReturnModel {
+
+    private final double[] returns;
+    private final int days;
+    private final int assets;
+
+    /**
+     * @param returns day-major log returns, {@code returns[day * assets + asset]}
+     */
+    BootstrapModel(double[] returns, int days, int assets) {
+        this.returns = returns;
+        this.days = days;
+        this.assets = assets;
+    }
+
+    @Override
+    public int assets() {
+        return assets;
+    }
+
+    @Override
+    public void sample(SplittableRandom random, double[] scratch, double[] out) {
+        System.arraycopy(returns, random.nextInt(days) * assets, out, 0, assets);
+    }
+}
@@ -0,0 +1,89 @@
+package com.lancy.aichat.risk;
+
+import java.util.SplittableRandom;
+
+/**
+ * Multivariate normal log returns: {@code mean + L z} with {@code z} standard
+ * normal and {@code L} the Cholesky factor of the historical covariance.
+ */
+final class CholeskyModel implements ReturnModel {
+
+    private final double[] mean;
+    private final double[] lower;
+    private final int assets;
+
+    private CholeskyModel(double[] mean, double[] lower) {
+        this.mean = mean;
+        this.lower = lower;
+        this.assets = mean.length;
+    }
+
+    /**
+     * Estimates mean and covariance from day-major log returns and factors the covariance.
+     *
+     * @throws IllegalArgumentException if the covariance is not positive definite,
+     *                                  e.g. two identical assets
+     */
+    static CholeskyModel fit(double[] returns, int days, int assets) {
+        double[] mean = new double[assets];
+        for (int d = 0; d < days; d++) {
+            for (int i = 0; i < assets; i++) {
+                mean[i] += returns[d * assets + i] / days;
+            }
+        }
+        double[] covariance = new double[assets * assets];
+        for (int d = 0; d < days; d++) {
+            for (int i = 0; i < assets; i++) {
+                double di = returns[d * assets + i] - mean[i];
+                for (int j = 0; j <= i; j++) {
+                    covariance[i * assets + j] += di * (returns[d * assets + j] - mean[j]) / (days - 1);
+                }
+            }
+        }
+        return new CholeskyModel(mean, cholesky(covariance, assets));
+    }
+
+    /**
+     * Lower-triangular factor of a symmetric matrix given by its lower triangle.
+     */
+    static double[] cholesky(double[] matrix, int n) {
+        double[] lower = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = matrix[i * n + j];
+                for (int k = 0; k < j; k++) {
+                    sum -= lower[i * n + k] * lower[j * n + k];
+                }
+                if (i == j) {
+                    if (sum <= 0) {
+                        throw new IllegalArgumentException("Return covariance is not positive definite");
+                    }
+                    lower[i * n + i] = Math.sqrt(sum);
+                } else {
+                    lower[i * n + j] = sum / lower[j * n + j];
+                }
+            }
+        }
+        return lower;
+    }
+
+    @Override
+    public int assets() {
+        return assets;
+    }
+
+    @Override
+    public void sample(SplittableRandom random, double[] scratch, double[] out) {
+        for (int i = 0; i < assets; i++) {
+            scratch[i] = random.nextGaussian();
+        }
+        for (int i = 0; i < assets; i++) {
+            double x = mean[i];
+            int row = i * assets;
+            for (int j = 0; j <= i; j++) {
+                x += lower[row + j] * scratch[j];
+            }
+            out[i] = x;
+        }
+    }
+}
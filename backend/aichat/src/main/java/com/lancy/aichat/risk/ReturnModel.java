@@ -0,0 +1,23 @@
+package com.lancy.aichat.risk;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generator of one day of joint log returns for the assets of a portfolio.
+ *
+ * <p>Implementations write into caller-owned arrays so path generation does
+ * not allocate.</p>
+ */
+interface ReturnModel {
+
+    int assets();
+
+    /**
+     * Draws one day of log returns.
+     *
+     * @param random  stream owned by the calling worker
+     * @param scratch work array of length {@link #assets()}
+     * @param out     receives one log return per asset
+     */
+    void sample(SplittableRandom random, double[] scratch, double[] out);
+}
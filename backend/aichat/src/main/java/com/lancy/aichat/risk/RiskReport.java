@@ -0,0 +1,73 @@
+package com.lancy.aichat.risk;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Response of {@code POST /api/risk}. Money amounts are in the currency of the
+ * positions; VaR, CVaR and drawdowns are reported as positive losses.
+ *
+ * @param method         simulation method
+ * @param paths          simulated paths
+ * @param horizonDays    holding period in trading days
+ * @param historyDays    daily returns the model was fitted on
+ * @param grossExposure  sum of absolute position values
+ * @param expectedPnl    mean simulated P&amp;L
+ * @param pnlStdDev      standard deviation of simulated P&amp;L
+ * @param levels         VaR and CVaR per confidence level
+ * @param pnlPercentiles P&amp;L percentiles keyed {@code p1 ... p99}
+ * @param drawdown       distribution of the maximum drawdown within the horizon
+ * @param elapsedMs      simulation wall-clock time
+ * @param riskAssessment numeric summary suitable for {@code TradeAnalysis.riskAssessment}
+ * @param explanation    AI interpretation when requested, otherwise null
+ */
+public record RiskReport(
+        RiskRequest.Method method,
+        int paths,
+        int horizonDays,
+        int historyDays,
+        double grossExposure,
+        double expectedPnl,
+        double pnlStdDev,
+        List<Level> levels,
+        Map<String, Double> pnlPercentiles,
+        Drawdown drawdown,
+        long elapsedMs,
+        String riskAssessment,
+        String explanation
+) {
+
+    /**
+     * @param confidence e.g. 0.99
+     * @param var        loss not exceeded with this confidence
+     * @param cvar       mean loss beyond the VaR (expected shortfall)
+     */
+    public record Level(double confidence, double var, double cvar) {
+    }
+
+    public record Drawdown(double mean, double p50, double p95, double p99) {
+    }
+
+    RiskReport withExplanation(String text) {
+        return new RiskReport(method, paths, horizonDays, historyDays, grossExposure, expectedPnl, pnlStdDev,
+                levels, pnlPercentiles, drawdown, elapsedMs, riskAssessment, text);
+    }
+
+    /**
+     * Numeric block for provider prompts.
+     */
+    public String toPromptContext() {
+        StringBuilder s = new StringBuilder(String.format(Locale.ROOT,
+                "[Risk] %d-day horizon, %,d %s paths on %d days of history, gross exposure %,.0f%n"
+                        + "expected P&L %,.0f, P&L std dev %,.0f%n",
+                horizonDays, paths, method, historyDays, grossExposure, expectedPnl, pnlStdDev));
+        for (Level level : levels) {
+            s.append(String.format(Locale.ROOT, "VaR%.1f%% %,.0f, CVaR %,.0f%n",
+                    level.confidence() * 100, level.var(), level.cvar()));
+        }
+        s.append(String.format(Locale.ROOT, "max drawdown mean %,.0f, p95 %,.0f, p99 %,.0f",
+                drawdown.mean(), drawdown.p95(), drawdown.p99()));
+        return s.toString();
+    }
+}
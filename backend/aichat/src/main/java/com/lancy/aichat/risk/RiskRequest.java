@@ -0,0 +1,44 @@
+package com.lancy.aichat.risk;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request body of {@code POST /api/risk}.
+ *
+ * <pre>
+ * {
+ *   "positions": { "AAPL": 50000, "MSFT": 30000, "TSLA": -10000 },
+ *   "horizonDays": 10,
+ *   "paths": 1000000,
+ *   "confidence": [0.95, 0.99],
+ *   "method": "BOOTSTRAP",
+ *   "explain": true
+ * }
+ * </pre>
+ *
+ * @param positions    market value per symbol; negative for shorts
+ * @param horizonDays  holding period in trading days; default 10
+ * @param paths        simulated paths; default {@code ai.risk.default-paths}
+ * @param confidence   VaR/CVaR confidence levels; default 0.95 and 0.99
+ * @param method       PARAMETRIC (correlated normal) or BOOTSTRAP (historical days); default BOOTSTRAP
+ * @param lookbackDays calendar days of daily history used; default {@code ai.risk.lookback-days}
+ * @param seed         random seed for reproducible results; random when null
+ * @param explain      ask the configured AI provider to interpret the numbers
+ */
+public record RiskRequest(
+        Map<String, Double> positions,
+        Integer horizonDays,
+        Integer paths,
+        List<Double> confidence,
+        Method method,
+        Integer lookbackDays,
+        Long seed,
+        boolean explain
+) {
+
+    public enum Method {
+        PARAMETRIC,
+        BOOTSTRAP
+    }
+}
@@ -0,0 +1,293 @@
+package com.lancy.aichat.risk;
+
+import com.lancy.aichat.config.RiskProperties;
+import com.lancy.aichat.marketdata.history.BarSeries;
+import com.lancy.aichat.marketdata.history.BarStore;
+import com.lancy.aichat.risk.MonteCarloEngine.Simulation;
+import com.lancy.aichat.service.ChatService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Portfolio risk from Monte Carlo simulation over stored daily history.
+ *
+ * <p>Daily closes of all positions are aligned on common dates and turned into
+ * log returns. Paths are drawn either from a correlated normal model (Cholesky
+ * factor of the historical covariance) or by bootstrapping whole historical
+ * days. VaR, CVaR and percentiles come from the sorted path P&amp;L
+ * ({@link Arrays#parallelSort(float[])}).</p>
+ */
+@Service
+public class RiskService {
+
+    private static final Logger log = LoggerFactory.getLogger(RiskService.class);
+
+    /** Fewer aligned returns than this give meaningless covariances. */
+    static final int MIN_HISTORY_DAYS = 30;
+
+    private static final double[] PERCENTILES = {0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99};
+
+    private final BarStore barStore;
+    private final ChatService chatService;
+    private final RiskProperties properties;
+    private final ForkJoinPool pool;
+    private final MonteCarloEngine engine;
+    private final Timer simulation;
+    private final Counter simulatedPaths;
+
+    public RiskService(BarStore barStore, ChatService chatService, RiskProperties properties,
+                       MeterRegistry meterRegistry) {
+        this.barStore = barStore;
+        this.chatService = chatService;
+        this.properties = properties;
+        this.pool = new ForkJoinPool(properties.getParallelism() > 0
+                ? properties.getParallelism() : Runtime.getRuntime().availableProcessors());
+        this.engine = new MonteCarloEngine(pool);
+        this.simulation = meterRegistry.timer("risk.simulation");
+        this.simulatedPaths = meterRegistry.counter("risk.paths");
+    }
+
+    /**
+     * Simulates the portfolio in the request.
+     *
+     * @throws IllegalArgumentException for invalid input or insufficient history
+     */
+    public RiskReport analyze(RiskRequest request) {
+        return analyze(request, () -> false);
+    }
+
+    /**
+     * Simulates the portfolio in the request, stopping once {@code cancelled} turns true.
+     *
+     * @throws IllegalArgumentException for invalid input or insufficient history
+     * @throws CancellationException    if cancelled before every path was generated
+     */
+    public RiskReport analyze(RiskRequest request, BooleanSupplier cancelled) {
+        if (request.positions() == null || request.positions().isEmpty()) {
+            throw new IllegalArgumentException("positions are required");
+        }
+        int horizon = request.horizonDays() != null ? request.horizonDays() : 10;
+        int paths = request.paths() != null ? request.paths() : properties.getDefaultPaths();
+        List<Double> confidence = request.confidence() != null && !request.confidence().isEmpty()
+                ? request.confidence() : List.of(0.95, 0.99);
+        RiskRequest.Method method = request.method() != null ? request.method() : RiskRequest.Method.BOOTSTRAP;
+        int lookback = request.lookbackDays() != null ? request.lookbackDays() : properties.getLookbackDays();
+        if (horizon < 1 || horizon > 252) {
+            throw new IllegalArgumentException("horizonDays must be between 1 and 252");
+        }
+        if (paths < 1 || paths > properties.getMaxPaths()) {
+            throw new IllegalArgumentException("paths must be between 1 and " + properties.getMaxPaths());
+        }
+        if (confidence.stream().anyMatch(c -> c == null || c <= 0 || c >= 1)) {
+            throw new IllegalArgumentException("confidence levels must be between 0 and 1");
+        }
+
+        List<String> symbols = new ArrayList<>(request.positions().keySet());
+        double[] positions = new double[symbols.size()];
+        double gross = 0;
+        for (int i = 0; i < positions.length; i++) {
+            Double value = request.positions().get(symbols.get(i));
+            positions[i] = value != null ? value : 0;
+            gross += Math.abs(positions[i]);
+        }
+
+        History history = history(symbols, lookback);
+        ReturnModel model = method == RiskRequest.Method.PARAMETRIC
+                ? CholeskyModel.fit(history.returns(), history.days(), symbols.size())
+                : new BootstrapModel(history.returns(), history.days(), symbols.size());
+        long seed = request.seed() != null ? request.seed() : ThreadLocalRandom.current().nextLong();
+
+        long start = System.nanoTime();
+        Simulation result = engine.simulate(model, positions, horizon, paths, seed, cancelled);
+        RiskReport report = summarize(result, method, horizon, history.days(), gross, confidence,
+                (System.nanoTime() - start) / 1_000_000);
+        simulation.record(Duration.ofMillis(report.elapsedMs()));
+        simulatedPaths.increment(paths);
+        log.info("Simulated {} {} paths over {} days for {} positions in {} ms",
+                paths, method, horizon, symbols.size(), report.elapsedMs());
+
+        return request.explain() ? report.withExplanation(explain(request, report)) : report;
+    }
+
+    /**
+     * Sorts the simulated P&amp;L and drawdowns in place and derives the report.
+     */
+    static RiskReport summarize(Simulation result, RiskRequest.Method method, int horizon, int historyDays,
+                                double gross, List<Double> confidence, long elapsedMs) {
+        float[] pnl = result.pnl();
+        float[] drawdown = result.drawdown();
+        int paths = pnl.length;
+
+        double sum = 0;
+        double sumSquares = 0;
+        for (float x : pnl) {
+            sum += x;
+            sumSquares += (double) x * x;
+        }
+        double mean = sum / paths;
+        double sd = paths > 1 ? Math.sqrt(Math.max(0, (sumSquares - sum * mean) / (paths - 1))) : 0;
+
+        Arrays.parallelSort(pnl);
+        Arrays.parallelSort(drawdown);
+
+        List<RiskReport.Level> levels = new ArrayList<>();
+        for (double c : confidence) {
+            int tail = Math.max(1, (int) ((1 - c) * paths));
+            double tailSum = 0;
+            for (int i = 0; i < tail; i++) {
+                tailSum += pnl[i];
+            }
+            levels.add(new RiskReport.Level(c, -pnl[tail - 1], -tailSum / tail));
+        }
+
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (double q : PERCENTILES) {
+            percentiles.put("p" + Math.round(q * 100), (double) pnl[index(q, paths)]);
+        }
+
+        double drawdownSum = 0;
+        for (float x : drawdown) {
+            drawdownSum += x;
+        }
+        RiskReport.Drawdown drawdowns = new RiskReport.Drawdown(drawdownSum / paths,
+                drawdown[index(0.5, paths)], drawdown[index(0.95, paths)], drawdown[index(0.99, paths)]);
+
+        RiskReport.Level worst = levels.stream()
+                .max((a, b) -> Double.compare(a.confidence(), b.confidence())).orElseThrow();
+        String assessment = String.format(Locale.ROOT,
+                "%d-day %.0f%% VaR %,.0f (%.1f%% of gross exposure), CVaR %,.0f (%.1f%%); "
+                        + "95th percentile max drawdown %,.0f (%.1f%%).",
+                horizon, worst.confidence() * 100, worst.var(), pct(worst.var(), gross), worst.cvar(),
+                pct(worst.cvar(), gross), drawdowns.p95(), pct(drawdowns.p95(), gross));
+
+        return new RiskReport(method, paths, horizon, historyDays, gross, mean, sd, levels, percentiles,
+                drawdowns, elapsedMs, assessment, null);
+    }
+
+    private static int index(double quantile, int size) {
+        return Math.min(size - 1, (int) (quantile * size));
+    }
+
+    private static double pct(double amount, double gross) {
+        return gross > 0 ? amount / gross * 100 : 0;
+    }
+
+    /**
+     * Day-major log returns of all symbols on common dates.
+     */
+    record History(double[] returns, int days) {
+    }
+
+    private History history(List<String> symbols, int lookbackDays) {
+        long end = Long.MAX_VALUE;
+        for (String symbol : symbols) {
+            if (!BarStore.isValidSymbol(symbol)) {
+                throw new IllegalArgumentException("Invalid symbol: " + symbol);
+            }
+            OptionalLong last = barStore.lastTimestamp(symbol);
+            if (last.isEmpty()) {
+                throw new IllegalArgumentException("No history for " + symbol);
+            }
+            end = Math.min(end, last.getAsLong() + 1);
+        }
+        long start = end - Duration.ofDays(lookbackDays).toMillis();
+        List<BarSeries> daily = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            daily.add(barStore.downsample(symbol, start, end, Duration.ofDays(1)));
+        }
+        History history = align(daily);
+        if (history.days() < MIN_HISTORY_DAYS) {
+            throw new IllegalArgumentException("Only " + history.days() + " common days of history for "
+                    + symbols + "; at least " + MIN_HISTORY_DAYS + " are needed");
+        }
+        return history;
+    }
+
+    /**
+     * Intersects the timestamps of all series and computes close-to-close log returns.
+     */
+    static History align(List<BarSeries> series) {
+        int assets = series.size();
+        int capacity = series.stream().mapToInt(BarSeries::size).min().orElse(0);
+        double[] closes = new double[capacity * assets];
+        int[] cursor = new int[assets];
+        int rows = 0;
+        outer:
+        while (true) {
+            long target = Long.MIN_VALUE;
+            for (int i = 0; i < assets; i++) {
+                if (cursor[i] >= series.get(i).size()) {
+                    break outer;
+                }
+                target = Math.max(target, series.get(i).timestamps()[cursor[i]]);
+            }
+            boolean aligned = true;
+            for (int i = 0; i < assets; i++) {
+                long[] timestamps = series.get(i).timestamps();
+                while (cursor[i] < timestamps.length && timestamps[cursor[i]] < target) {
+                    cursor[i]++;
+                }
+                if (cursor[i] >= timestamps.length) {
+                    break outer;
+                }
+                aligned &= timestamps[cursor[i]] == target;
+            }
+            if (aligned) {
+                for (int i = 0; i < assets; i++) {
+                    closes[rows * assets + i] = series.get(i).close()[cursor[i]++];
+                }
+                rows++;
+            }
+        }
+        int days = Math.max(0, rows - 1);
+        double[] returns = new double[days * assets];
+        for (int d = 0; d < days; d++) {
+            for (int i = 0; i < assets; i++) {
+                returns[d * assets + i] = Math.log(closes[(d + 1) * assets + i] / closes[d * assets + i]);
+            }
+        }
+        return new History(returns, days);
+    }
+
+    /**
+     * Asks the configured provider to interpret the numbers. A provider failure
+     * leaves the explanation empty rather than failing the analysis.
+     */
+    private String explain(RiskRequest request, RiskReport report) {
+        StringBuilder prompt = new StringBuilder()
+                .append("Interpret this portfolio risk simulation for a trader in 3-5 sentences. ")
+                .append("Use only the numbers given.\n\nPositions:");
+        request.positions().forEach((symbol, value) ->
+                prompt.append(String.format(Locale.ROOT, " %s %,.0f;", symbol, value)));
+        prompt.append('\n').append(report.toPromptContext());
+        try {
+            return chatService.getResponse(prompt.toString(), null);
+        } catch (RuntimeException e) {
+            log.warn("Risk explanation failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,292 @@
+package com.lancy.aichat.routing;
+
+import com.lancy.aichat.config.AiProviderProperties;
+import com.lancy.aichat.dto.SwitchProviderRequest;
+import com.lancy.aichat.service.provider.AiProviderStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runtime-switchable provider routing with graceful draining.
+ *
+ * <p>The active {@link RoutingConfig} sits in an {@link AtomicReference}; requests
+ * read it without locking through {@link #lease()} and keep that snapshot until they
+ * finish. {@link #update} swaps in a new configuration: new requests use it at once
+ * while requests on the previous one run to completion on their provider.
+ * {@link #awaitDrained} waits for them, and {@link #status()} reports how many are
+ * left, along with the provider calls in flight per provider.</p>
+ *
+ * <p>Metrics: {@code routing.version}, {@code routing.switches},
+ * {@code provider.inflight{provider}}.</p>
+ */
+@Component
+public class ProviderRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProviderRouter.class);
+
+    /**
+     * Upper bound for {@link #awaitDrained}, so an admin call holds a servlet thread only
+     * briefly; longer drains are followed by polling {@link #status()}.
+     */
+    static final Duration MAX_DRAIN_WAIT = Duration.ofSeconds(10);
+
+    private final List<AiProviderStrategy> providers;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicReference<Route> active;
+
+    /** Replaced routes that may still have requests in flight, by version */
+    private final Map<Long, Route> draining = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    /** Serializes switches; signalled when a replaced route drains */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition drained = lock.newCondition();
+
+    public ProviderRouter(AiProviderProperties properties, List<AiProviderStrategy> providers,
+                          MeterRegistry meterRegistry) {
+        this.providers = providers;
+        this.meterRegistry = meterRegistry;
+        List<String> fallbacks = properties.getFallbacks() == null ? List.of()
+                : properties.getFallbacks().stream().map(Enum::name).toList();
+        String model = properties.getModel() == null || properties.getModel().isBlank() ? null : properties.getModel();
+        this.active = new AtomicReference<>(new Route(new RoutingConfig(1, properties.getProvider().name(),
+                fallbacks, model, Instant.now())));
+        meterRegistry.gauge("routing.version", active, route -> route.get().config.version());
+    }
+
+    /**
+     * Fails startup if the configured provider or a fallback matches no registered
+     * provider, rather than failing every request later.
+     *
+     * @throws IllegalStateException naming the unknown provider
+     */
+    @PostConstruct
+    public void validate() {
+        RoutingConfig config = current();
+        List<String> names = new ArrayList<>();
+        names.add(config.provider());
+        names.addAll(config.fallbacks());
+        for (String name : names) {
+            try {
+                resolve(name);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("ai.provider: " + name + " matches no registered provider "
+                        + providers.stream().map(AiProviderStrategy::getProviderName).toList());
+            }
+        }
+    }
+
+    /**
+     * Configuration new requests are routed with.
+     */
+    public RoutingConfig current() {
+        return active.get().config;
+    }
+
+    /**
+     * Starts a request on the active routing; the request must close the lease when done.
+     */
+    public Lease lease() {
+        while (true) {
+            Route route = active.get();
+            route.requests.incrementAndGet();
+            if (active.get() == route) {
+                return new Lease(route);
+            }
+            // Switched in between; the request must not start on the replaced routing
+            release(route);
+        }
+    }
+
+    /**
+     * Counts a provider call as in flight until the returned handle is closed.
+     */
+    public InFlight call(String provider) {
+        AtomicInteger counter = inFlight.computeIfAbsent(provider.toUpperCase(), name ->
+                meterRegistry.gauge("provider.inflight", Tags.of("provider", name), new AtomicInteger()));
+        counter.incrementAndGet();
+        return counter::decrementAndGet;
+    }
+
+    /**
+     * Provider calls in flight, over all providers.
+     */
+    public int inFlight() {
+        int calls = 0;
+        for (AtomicInteger counter : inFlight.values()) {
+            calls += counter.get();
+        }
+        return calls;
+    }
+
+    /**
+     * Replaces the active routing. Requests already running keep the previous one.
+     *
+     * @return the new configuration
+     * @throws IllegalArgumentException if a provider is unknown
+     */
+    public RoutingConfig update(SwitchProviderRequest request) {
+        lock.lock();
+        try {
+            Route previous = active.get();
+            RoutingConfig old = previous.config;
+            String provider = request.provider() != null ? resolve(request.provider()) : old.provider();
+            List<String> fallbacks = request.fallbacks() == null ? old.fallbacks()
+                    : request.fallbacks().stream().map(this::resolve).distinct().toList();
+            fallbacks = fallbacks.stream().filter(name -> !name.equalsIgnoreCase(provider)).toList();
+            String model = request.model() == null ? old.model()
+                    : request.model().isBlank() ? null : request.model().trim();
+
+            RoutingConfig next = new RoutingConfig(old.version() + 1, provider, fallbacks, model, Instant.now());
+            draining.put(old.version(), previous);
+            active.set(new Route(next));
+            if (previous.requests.get() == 0) {
+                draining.remove(old.version(), previous);
+            }
+            meterRegistry.counter("routing.switches").increment();
+            log.info("Switched routing v{} {} (fallbacks {}, model {}) -> v{} {} (fallbacks {}, model {}); "
+                            + "{} requests draining", old.version(), old.provider(), old.fallbacks(), old.model(),
+                    next.version(), next.provider(), next.fallbacks(), next.model(), previous.requests.get());
+            return next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every configuration older than {@code version} has no requests in flight.
+     *
+     * @param timeout capped at {@link #MAX_DRAIN_WAIT}
+     * @return false if requests were still running when the timeout elapsed
+     */
+    public boolean awaitDrained(long version, Duration timeout) {
+        long nanos = (timeout.compareTo(MAX_DRAIN_WAIT) > 0 ? MAX_DRAIN_WAIT : timeout).toNanos();
+        lock.lock();
+        try {
+            while (draining.values().stream().anyMatch(route -> route.config.version() < version
+                    && route.requests.get() > 0)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = drained.awaitNanos(nanos);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Active routing, provider calls in flight and configurations still draining.
+     */
+    public RoutingStatus status() {
+        Map<String, Integer> calls = new TreeMap<>();
+        inFlight.forEach((provider, counter) -> calls.put(provider, counter.get()));
+        List<RoutingStatus.Draining> replaced = new ArrayList<>();
+        for (Route route : draining.values()) {
+            int requests = route.requests.get();
+            if (requests > 0) {
+                replaced.add(new RoutingStatus.Draining(route.config, requests));
+            }
+        }
+        replaced.sort(Comparator.comparingLong(d -> d.config().version()));
+        return new RoutingStatus(current(), calls, replaced);
+    }
+
+    private void release(Route route) {
+        if (route.requests.decrementAndGet() == 0 && active.get() != route) {
+            draining.remove(route.config.version(), route);
+            lock.lock();
+            try {
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Canonical name of a registered provider.
+     */
+    private String resolve(String name) {
+        return providers.stream()
+                .map(AiProviderStrategy::getProviderName)
+                .filter(provider -> provider.equalsIgnoreCase(name.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown provider: " + name));
+    }
+
+    /**
+     * A configuration and the number of requests using it.
+     */
+    private static final class Route {
+
+        private final RoutingConfig config;
+
+        private final AtomicInteger requests = new AtomicInteger();
+
+        private Route(RoutingConfig config) {
+            this.config = config;
+        }
+    }
+
+    /**
+     * A request's hold on the routing snapshot it started with.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final Route route;
+
+        private boolean closed;
+
+        private Lease(Route route) {
+            this.route = route;
+        }
+
+        public RoutingConfig config() {
+            return route.config;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(route);
+            }
+        }
+    }
+
+    /**
+     * Handle of a running provider call.
+     */
+    @FunctionalInterface
+    public interface InFlight extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
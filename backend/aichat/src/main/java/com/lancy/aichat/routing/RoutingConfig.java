@@ -0,0 +1,28 @@
+package com.lancy.aichat.routing;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Immutable provider routing of {@link com.lancy.aichat.service.ChatService}.
+ *
+ * <p>Replaced as a whole by {@link ProviderRouter#update}; a request keeps the
+ * snapshot it started with, so a switch never mixes two configurations in one call.</p>
+ *
+ * @param version     increases with every switch
+ * @param provider    primary provider name
+ * @param fallbacks   providers tried in order when the primary fails
+ * @param model       model requested from the primary provider, or null for its default
+ * @param activatedAt when this configuration became active
+ */
+public record RoutingConfig(long version, String provider, List<String> fallbacks, String model,
+                            Instant activatedAt) {
+
+    /**
+     * Model for a call to {@code providerName}: model names are provider-specific,
+     * so only the primary gets the configured model.
+     */
+    public String modelFor(String providerName) {
+        return provider.equalsIgnoreCase(providerName) ? model : null;
+    }
+}
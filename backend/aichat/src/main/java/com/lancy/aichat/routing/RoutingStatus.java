@@ -0,0 +1,20 @@
+package com.lancy.aichat.routing;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routing state reported by {@code /api/admin/provider}.
+ *
+ * @param active   configuration new requests are routed with
+ * @param inFlight provider calls currently running, per provider
+ * @param draining earlier configurations that still have requests in flight
+ */
+public record RoutingStatus(RoutingConfig active, Map<String, Integer> inFlight, List<Draining> draining) {
+
+    /**
+     * A replaced configuration and the number of requests still using it.
+     */
+    public record Draining(RoutingConfig config, int requests) {
+    }
+}
@@ -1,28 +1,58 @@
 package com.lancy.aichat.service;
 
-import com.lancy.aichat.config.AiProviderProperties;
+import com.lancy.aichat.call.CallRegistry;
+import com.lancy.aichat.call.CallScope;
 import com.lancy.aichat.dto.ChatRequest;
 import com.lancy.aichat.dto.ChatResponse;
+import com.lancy.aichat.routing.ProviderRouter;
+import com.lancy.aichat.routing.RoutingConfig;
 import com.lancy.aichat.service.provider.AiProviderStrategy;
+import com.lancy.aichat.store.ResponseCache;
+import com.lancy.aichat.token.TokenGovernor;
+import com.lancy.aichat.tool.ToolSession;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Central orchestrator for AI chat interactions.
  *
  * <p>
- * Routes requests to the appropriate AI provider implementation based on active configuration
- * in {@link AiProviderProperties}. Provides a simple getResponse method for controller usage.
+ * Routes requests to the appropriate AI provider implementation based on the active routing
+ * of {@link ProviderRouter}, which can be switched at runtime. Provides a simple getResponse
+ * method for controller usage.
  * </p>
  *
  * <p>
  * Features:
  * <ul>
  *     <li>Dynamic system prompt injection per request</li>
- *     <li>Fallback to OpenAI if primary provider fails</li>
+ *     <li>Session-aware routing via {@link #chat(ChatRequest)}</li>
+ *     <li>Incremental replies via {@link #stream(ChatRequest, Consumer)}</li>
+ *     <li>Model calls to local quant tools via {@link #chat(ChatRequest, ToolSession)}</li>
+ *     <li>Optional shared response cache for session-less requests</li>
+ *     <li>Context enrichment of user messages via {@link PromptEnricher} beans</li>
+ *     <li>Oversized messages rejected or trimmed to the token budget via {@link TokenGovernor}</li>
+ *     <li>Fallback along the configured chain (OpenAI by default) if the primary provider
+ *     fails, unless the caller was interrupted</li>
+ *     <li>Each request keeps the routing snapshot it started with, so a provider switch
+ *     lets in-flight requests drain on the previous provider</li>
+ *     <li>Provider calls bounded by the request deadline and aborted on client cancel
+ *     via {@link CallRegistry}</li>
+ *     <li>Observations of the request, each enricher, cache lookups, routing and each
+ *     provider call (model, token counts, time to first token), exported as trace
+ *     spans when a tracer is configured</li>
  *     <li>Supports unit testing via simple getResponse method</li>
  *     <li>Structured logging for observability</li>
  * </ul>
@@ -33,16 +63,44 @@ public class ChatService {
 
     private static final Logger log = LoggerFactory.getLogger(ChatService.class);
 
+    /** Context key of a provider call's start, for the time to first token */
+    private static final String CALL_START = ChatService.class.getName() + ".callStart";
+
     /** List of AI provider strategies available in the system */
     private final List<AiProviderStrategy> providers;
 
-    /** Configuration for selecting active AI provider */
-    private final AiProviderProperties properties;
+    /** Active provider, fallback chain and model; switchable at runtime */
+    private final ProviderRouter router;
+
+    /** Shared cache of responses to session-less requests */
+    private final ResponseCache responseCache;
+
+    /** Context enrichers applied to each user message (e.g. market data) */
+    private final List<PromptEnricher> enrichers;
+
+    /** Deadlines and client cancellation of the requests provider calls are made for */
+    private final CallRegistry callRegistry;
+
+    /** Token budget of prompts and completions */
+    private final TokenGovernor tokenGovernor;
+
+    /** Timers and, with a tracer, spans of each stage of a request */
+    private final ObservationRegistry observationRegistry;
 
     public ChatService(List<AiProviderStrategy> providers,
-                       AiProviderProperties properties) {
+                       ProviderRouter router,
+                       ResponseCache responseCache,
+                       List<PromptEnricher> enrichers,
+                       CallRegistry callRegistry,
+                       TokenGovernor tokenGovernor,
+                       ObservationRegistry observationRegistry) {
         this.providers = providers;
-        this.properties = properties;
+        this.router = router;
+        this.responseCache = responseCache;
+        this.enrichers = enrichers;
+        this.callRegistry = callRegistry;
+        this.tokenGovernor = tokenGovernor;
+        this.observationRegistry = observationRegistry;
     }
 
     /**
@@ -54,17 +112,18 @@ public class ChatService {
      * @return AI-generated response text
      */
     public String getResponse(String message, String model) {
-        // Construct ChatRequest with null for optional fields (systemPrompt, sessionId)
-        ChatRequest request = new ChatRequest(message, null, null, null);
+        return observeRequest("simple", () -> {
+            try (ProviderRouter.Lease lease = router.lease()) {
+                RoutingConfig route = lease.config();
 
-        // If a model is provided, override the configured provider
-        if (model != null && !model.isBlank()) {
-            return routeToProvider(message, model, request.systemPrompt()).response();
-        }
+                // If a model is provided, override the configured provider
+                String providerName = (model != null && !model.isBlank()) ? model : route.provider();
+                TokenGovernor.Fitted prepared = prepare(message, providerName, null, null);
 
-        // Use the provider from properties configuration
-        String configuredProvider = properties.getProvider().name();
-        return routeToProvider(message, configuredProvider, request.systemPrompt()).response();
+                // No system prompt or session for this simple variant
+                return routeToProvider(prepared.message(), prepared.tokens(), providerName, null, route).response();
+            }
+        });
     }
 
     /**
@@ -72,43 +131,359 @@ public class ChatService {
      * applies fallback if necessary.
      *
      * @param message user message
+     * @param promptTokens prompt size counted by {@link #prepare}
      * @param providerName primary provider name
      * @param systemPrompt optional system prompt
+     * @param route routing snapshot of the request
+     * @return ChatResponse from the response cache, selected or fallback provider
+     */
+    private ChatResponse routeToProvider(String message, int promptTokens, String providerName, String systemPrompt,
+                                         RoutingConfig route) {
+
+        String cacheKey = cacheKey(providerName, route);
+        Optional<String> cached = cached(cacheKey, systemPrompt, message);
+        if (cached.isPresent()) {
+            log.info("Serving cached response for message '{}' (provider: {})", message, providerName);
+            return new ChatResponse(cached.get());
+        }
+
+        String[] answered = new String[1];
+        ChatResponse response = routeToProvider(message, promptTokens, providerName, null, route, provider -> {
+            String model = route.modelFor(provider.getProviderName());
+            ChatResponse reply = model == null
+                    ? provider.chat(message, systemPrompt)
+                    : provider.chat(new ChatRequest(message, null, systemPrompt, model));
+            answered[0] = provider.getProviderName();
+            return reply;
+        }, () -> true);
+        // Lookups use the primary's key, so a fallback's reply would later be served as the primary's
+        if (providerName.equalsIgnoreCase(answered[0])) {
+            responseCache.put(cacheKey, systemPrompt, message, response.response());
+        }
+        return response;
+    }
+
+    /**
+     * Routes a call to the given provider name, applying fallback if necessary.
+     *
+     * @param message user message (for logging)
+     * @param promptTokens prompt size counted by {@link #prepare}, for the provider call's observation
+     * @param providerName primary provider name
+     * @param requestedModel model the client asked for, if any
+     * @param route routing snapshot of the request, giving the fallback chain
+     * @param call provider invocation to execute on the primary and, on failure, the fallbacks in order
+     * @param canFallback whether a failed call may still be retried on the next fallback
      * @return ChatResponse from selected or fallback provider
+     * @throws CancellationException if the call was aborted (a {@link com.lancy.aichat.call.CallAbortedException}
+     *                               when the request's deadline passed or the client cancelled it)
      */
-    private ChatResponse routeToProvider(String message, String providerName, String systemPrompt) {
+    private ChatResponse routeToProvider(String message, int promptTokens, String providerName,
+                                         String requestedModel, RoutingConfig route,
+                                         Function<AiProviderStrategy, ChatResponse> call,
+                                         BooleanSupplier canFallback) {
 
         // Find primary provider
-        AiProviderStrategy primaryProvider = providers.stream()
-                .filter(p -> p.getProviderName().equalsIgnoreCase(providerName))
-                .findFirst()
+        AiProviderStrategy primaryProvider = find(providerName)
                 .orElseThrow(() -> new IllegalStateException("No AI provider found for: " + providerName));
 
-        try {
-            log.info("Routing message '{}' to primary provider: {}", message, primaryProvider.getProviderName());
-            return primaryProvider.chat(message, systemPrompt);
+        Observation observation = Observation.createNotStarted("chat.route", observationRegistry)
+                .contextualName("route " + primaryProvider.getProviderName())
+                .lowCardinalityKeyValue("primary", primaryProvider.getProviderName())
+                .lowCardinalityKeyValue("outcome", "failed");
+        return observation.observe(() -> routeToProvider(message, promptTokens, primaryProvider, requestedModel,
+                route, call, canFallback, observation));
+    }
+
+    private ChatResponse routeToProvider(String message, int promptTokens, AiProviderStrategy primaryProvider,
+                                         String requestedModel, RoutingConfig route,
+                                         Function<AiProviderStrategy, ChatResponse> call,
+                                         BooleanSupplier canFallback, Observation observation) {
+        try (CallScope scope = callRegistry.arm()) {
+            try {
+                log.info("Routing message '{}' to primary provider: {}", message, primaryProvider.getProviderName());
+                ChatResponse response = invoke(primaryProvider, true, model(requestedModel, route, primaryProvider),
+                        promptTokens, call, scope);
+                observation.lowCardinalityKeyValue("outcome", "primary");
+                return response;
+
+            } catch (CancellationException e) {
+                // Past the deadline, cancelled by the client or the caller was interrupted (e.g. an
+                // analysis job): do not start a fallback call nobody will wait for
+                throw e;
+
+            } catch (RuntimeException e) {
+                if (!canFallback.getAsBoolean() || route.fallbacks().isEmpty()) {
+                    throw e;
+                }
+                List<AiProviderStrategy> fallbackProviders = route.fallbacks().stream()
+                        .filter(name -> !name.equalsIgnoreCase(primaryProvider.getProviderName()))
+                        .map(this::find)
+                        .flatMap(Optional::stream)
+                        .toList();
+                if (fallbackProviders.isEmpty()) {
+                    throw new IllegalStateException("No fallback provider available");
+                }
+
+                RuntimeException failure = e;
+                AiProviderStrategy failed = primaryProvider;
+                for (AiProviderStrategy fallbackProvider : fallbackProviders) {
+                    log.warn("Provider {} failed. Error: {}. Attempting fallback to {}.",
+                            failed.getProviderName(), failure.getMessage(), fallbackProvider.getProviderName());
+                    try {
+                        ChatResponse response = invoke(fallbackProvider, false,
+                                model(requestedModel, route, fallbackProvider), promptTokens, call, scope);
+                        observation.lowCardinalityKeyValue("outcome", "fallback");
+                        observation.highCardinalityKeyValue("provider", fallbackProvider.getProviderName());
+                        return response;
+                    } catch (CancellationException cancelled) {
+                        throw cancelled;
+                    } catch (RuntimeException next) {
+                        if (!canFallback.getAsBoolean()) {
+                            throw next;
+                        }
+                        failure = next;
+                        failed = fallbackProvider;
+                    }
+                }
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Calls one provider, counting the call as in flight for the routing status.
+     *
+     * @param primary whether this is the first provider tried
+     * @param model   model asked for, null for the provider's default
+     * @param promptTokens prompt size as counted for the budget, or {@link TokenGovernor.Fitted#UNKNOWN}
+     * @throws CancellationException instead of the provider's failure if the call was aborted
+     */
+    private ChatResponse invoke(AiProviderStrategy provider, boolean primary, String model, int promptTokens,
+                                Function<AiProviderStrategy, ChatResponse> call, CallScope scope) {
+        String name = provider.getProviderName();
+        Observation observation = Observation.createNotStarted("chat.provider", observationRegistry)
+                .contextualName("provider " + name)
+                .lowCardinalityKeyValue("provider", name)
+                .lowCardinalityKeyValue("role", primary ? "primary" : "fallback")
+                .highCardinalityKeyValue("model", model != null ? model : "default");
+        return observation.observe(() -> {
+            // Counted once while fitting the budget rather than tokenizing the prompt per call
+            if (promptTokens != TokenGovernor.Fitted.UNKNOWN) {
+                observation.highCardinalityKeyValue("prompt.tokens", String.valueOf(promptTokens));
+            }
+            long start = System.nanoTime();
+            observation.getContext().put(CALL_START, start);
+            try (ProviderRouter.InFlight ignored = router.call(name)) {
+                ChatResponse response = call.apply(provider);
+                scope.completed(name, start, response);
+                int completionTokens = tokenGovernor.recordCompletion(name, response);
+                observation.highCardinalityKeyValue("completion.tokens", String.valueOf(completionTokens));
+                return response;
+            } catch (RuntimeException e) {
+                CancellationException aborted = scope.aborted(name, start, e);
+                throw aborted != null ? aborted : e;
+            }
+        });
+    }
+
+    /**
+     * Marks the first chunk of a streamed reply on the provider call producing it.
+     */
+    private void recordFirstToken() {
+        Observation call = observationRegistry.getCurrentObservation();
+        Long start = call == null ? null : call.getContext().get(CALL_START);
+        if (start != null) {
+            call.highCardinalityKeyValue("ttft.ms", String.valueOf((System.nanoTime() - start) / 1_000_000));
+            call.event(Observation.Event.of("first.token", "first chunk of the reply"));
+        }
+    }
+
+    /**
+     * Observed response cache lookup.
+     */
+    private Optional<String> cached(String cacheKey, String systemPrompt, String message) {
+        Observation observation = Observation.createNotStarted("chat.cache", observationRegistry)
+                .contextualName("response cache");
+        return observation.observe(() -> {
+            Optional<String> cached = responseCache.get(cacheKey, systemPrompt, message);
+            observation.lowCardinalityKeyValue("result", cached.isPresent() ? "hit" : "miss");
+            return cached;
+        });
+    }
+
+    /**
+     * Runs a public entry point as the request's {@code chat.request} observation.
+     */
+    private <T> T observeRequest(String operation, Supplier<T> request) {
+        return Observation.createNotStarted("chat.request", observationRegistry)
+                .contextualName("chat " + operation)
+                .lowCardinalityKeyValue("operation", operation)
+                .observe(request);
+    }
 
-        } catch (Exception e) {
-            log.warn("Primary provider {} failed. Error: {}. Attempting fallback to OPENAI.",
-                    primaryProvider.getProviderName(), e.getMessage());
+    private Optional<AiProviderStrategy> find(String providerName) {
+        return providers.stream()
+                .filter(p -> p.getProviderName().equalsIgnoreCase(providerName))
+                .findFirst();
+    }
 
-            // Fallback provider (OpenAI)
-            AiProviderStrategy fallbackProvider = providers.stream()
-                    .filter(p -> p.getProviderName().equalsIgnoreCase("OPENAI"))
-                    .findFirst()
-                    .orElseThrow(() -> new IllegalStateException("No fallback provider available"));
+    /**
+     * Response cache key of a provider: a model switch must not serve replies of the previous model.
+     */
+    private static String cacheKey(String providerName, RoutingConfig route) {
+        String model = route.modelFor(providerName);
+        return model == null ? providerName : providerName + "/" + model;
+    }
 
-            return fallbackProvider.chat(message, systemPrompt);
+    /**
+     * Request with the model to ask {@code provider} for: the client's choice or else the
+     * routing's model on the primary, the provider's default on a fallback (model names
+     * are provider-specific).
+     */
+    private static ChatRequest withModel(ChatRequest request, RoutingConfig route, AiProviderStrategy provider) {
+        String model = model(request.model(), route, provider);
+        if (Objects.equals(model, request.model())) {
+            return request;
         }
+        return new ChatRequest(request.message(), request.sessionId(), request.systemPrompt(), model);
+    }
+
+    private static String model(String requested, RoutingConfig route, AiProviderStrategy provider) {
+        boolean primary = route.provider().equalsIgnoreCase(provider.getProviderName());
+        return !primary ? null : requested != null && !requested.isBlank() ? requested : route.model();
     }
 
     /**
      * Existing DTO-based method that uses ChatRequest.
      *
+     * <p>The full request (including {@code sessionId} and {@code model}) is passed
+     * to the provider so session-aware providers can reuse conversation context.</p>
+     *
      * @param request ChatRequest
      * @return ChatResponse
      */
     public ChatResponse chat(ChatRequest request) {
-        return routeToProvider(request.message(), properties.getProvider().name(), request.systemPrompt());
+        return observeRequest("chat", () -> {
+            try (ProviderRouter.Lease lease = router.lease()) {
+                RoutingConfig route = lease.config();
+                TokenGovernor.Fitted prepared = prepare(request.message(), route.provider(), request.model(),
+                        request.systemPrompt());
+                ChatRequest enriched = new ChatRequest(prepared.message(), request.sessionId(), request.systemPrompt(),
+                        request.model());
+                return routeToProvider(enriched.message(), prepared.tokens(), route.provider(), request.model(), route,
+                        provider -> provider.chat(withModel(enriched, route, provider)), () -> true);
+            }
+        });
+    }
+
+    /**
+     * Variant of {@link #chat(ChatRequest)} in which the model may call local tools.
+     *
+     * <p>The same {@link ToolSession} is used if the request falls back to another
+     * provider, so tool results computed for the primary are reused. Responses are
+     * not cached since tool results depend on live data.</p>
+     *
+     * @param request ChatRequest
+     * @param tools   tool state of this request
+     * @return ChatResponse with the model's final answer
+     */
+    public ChatResponse chat(ChatRequest request, ToolSession tools) {
+        return observeRequest("tools", () -> {
+            try (ProviderRouter.Lease lease = router.lease()) {
+                RoutingConfig route = lease.config();
+                TokenGovernor.Fitted prepared = prepare(request.message(), route.provider(), request.model(),
+                        request.systemPrompt());
+                ChatRequest enriched = new ChatRequest(prepared.message(), request.sessionId(), request.systemPrompt(),
+                        request.model());
+                return routeToProvider(enriched.message(), prepared.tokens(), route.provider(), request.model(), route,
+                        provider -> provider.chat(withModel(enriched, route, provider), tools), () -> true);
+            }
+        });
+    }
+
+    /**
+     * Streaming variant of {@link #chat(ChatRequest)}.
+     *
+     * <p>Chunks are handed to {@code onToken} on the calling thread as the provider
+     * produces them. The fallback provider is only tried while nothing has been
+     * emitted yet; a failure mid-reply is rethrown since the client already holds
+     * part of the primary's answer. Session-less replies are served from and
+     * stored in the response cache like {@link #getResponse}; a fallback's reply
+     * is not stored, since lookups use the primary's key.</p>
+     *
+     * @param request ChatRequest
+     * @param onToken receives each generated chunk in order
+     * @return ChatResponse holding the complete reply
+     */
+    public ChatResponse stream(ChatRequest request, Consumer<String> onToken) {
+        return observeRequest("stream", () -> {
+            try (ProviderRouter.Lease lease = router.lease()) {
+                RoutingConfig route = lease.config();
+                String providerName = route.provider();
+                TokenGovernor.Fitted prepared = prepare(request.message(), providerName, request.model(),
+                        request.systemPrompt());
+                ChatRequest enriched = new ChatRequest(prepared.message(), request.sessionId(), request.systemPrompt(),
+                        request.model());
+                boolean cacheable = enriched.sessionId() == null || enriched.sessionId().isBlank();
+                String cacheKey = cacheKey(providerName, route);
+
+                if (cacheable) {
+                    Optional<String> cached = cached(cacheKey, enriched.systemPrompt(), enriched.message());
+                    if (cached.isPresent()) {
+                        onToken.accept(cached.get());
+                        return new ChatResponse(cached.get());
+                    }
+                }
+
+                boolean[] emitted = new boolean[1];
+                String[] answered = new String[1];
+                Consumer<String> tracking = token -> {
+                    if (!emitted[0]) {
+                        recordFirstToken();
+                    }
+                    emitted[0] = true;
+                    onToken.accept(token);
+                };
+                ChatResponse response = routeToProvider(enriched.message(), prepared.tokens(), providerName,
+                        request.model(), route,
+                        provider -> {
+                            ChatResponse reply = provider.stream(withModel(enriched, route, provider), tracking);
+                            answered[0] = provider.getProviderName();
+                            return reply;
+                        }, () -> !emitted[0]);
+
+                if (cacheable && providerName.equalsIgnoreCase(answered[0])) {
+                    responseCache.put(cacheKey, enriched.systemPrompt(), enriched.message(), response.response());
+                }
+                return response;
+            }
+        });
+    }
+
+    /**
+     * Rejects pathological messages before any other work, then applies the
+     * enrichers and trims the result to the input token budget.
+     *
+     * @return the message to send and its prompt size, reused for the provider calls' observations
+     * @throws com.lancy.aichat.token.PromptTooLargeException if the message is far over budget
+     */
+    private TokenGovernor.Fitted prepare(String message, String providerName, String model, String systemPrompt) {
+        tokenGovernor.admit(providerName, model, message);
+        return tokenGovernor.fitPrompt(providerName, model, systemPrompt, message, enrich(message));
+    }
+
+    /**
+     * Applies all {@link PromptEnricher}s to the user message.
+     */
+    private String enrich(String message) {
+        for (PromptEnricher enricher : enrichers) {
+            String input = message;
+            String name = enricher.getClass().getSimpleName();
+            message = Observation.createNotStarted("chat.enrich", observationRegistry)
+                    .contextualName("enrich " + name)
+                    .lowCardinalityKeyValue("enricher", name)
+                    .observe(() -> enricher.enrich(input));
+        }
+        return message;
     }
 }
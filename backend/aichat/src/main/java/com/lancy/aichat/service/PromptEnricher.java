@@ -0,0 +1,17 @@
+package com.lancy.aichat.service;
+
+/**
+ * Adds context to a user message before it is routed to a provider.
+ *
+ * <p>All enricher beans are applied by {@link ChatService} in order. Context is
+ * appended to the user message rather than the system prompt so that the
+ * system prompt, and with it a session's cached prefix, stays stable.</p>
+ */
+public interface PromptEnricher {
+
+    /**
+     * @param message user message (possibly already enriched by another enricher)
+     * @return the message with context appended, or the same message if nothing applies
+     */
+    String enrich(String message);
+}
@@ -1,6 +1,10 @@
 package com.lancy.aichat.service.provider;
 
+import com.lancy.aichat.dto.ChatRequest;
 import com.lancy.aichat.dto.ChatResponse;
+import com.lancy.aichat.tool.ToolSession;
+
+import java.util.function.Consumer;
 
 /**
  * Strategy interface for AI provider implementations.
@@ -23,6 +27,54 @@ public interface AiProviderStrategy {
      */
     ChatResponse chat(String message, String systemPrompt);
 
+    /**
+     * Executes a full chat request, including session and model metadata.
+     *
+     * <p>Providers that keep per-session state (e.g. Ollama context reuse)
+     * override this method. The default ignores the session and delegates to
+     * {@link #chat(String, String)}.</p>
+     *
+     * @param request chat request containing message, session ID, system prompt and model
+     * @return ChatResponse from the provider
+     */
+    default ChatResponse chat(ChatRequest request) {
+        return chat(request.message(), request.systemPrompt());
+    }
+
+    /**
+     * Executes a chat request, handing the reply to {@code onToken} as it is generated.
+     *
+     * <p>The call blocks until the reply is complete and {@code onToken} runs on the
+     * calling thread, so a consumer that blocks (e.g. waiting for a slow client)
+     * slows down reading from the provider. The default emits the reply of
+     * {@link #chat(ChatRequest)} as a single chunk.</p>
+     *
+     * @param request chat request containing message, session ID, system prompt and model
+     * @param onToken receives each generated chunk in order
+     * @return ChatResponse holding the complete reply
+     */
+    default ChatResponse stream(ChatRequest request, Consumer<String> onToken) {
+        ChatResponse response = chat(request);
+        onToken.accept(response.response());
+        return response;
+    }
+
+    /**
+     * Executes a chat request in which the model may call local tools.
+     *
+     * <p>Providers with function calling run the conversation through
+     * {@link ToolSession#run}, which executes the requested tools and bounds the
+     * number of rounds. The default ignores the tools and delegates to
+     * {@link #chat(ChatRequest)}.</p>
+     *
+     * @param request chat request containing message, system prompt and model
+     * @param tools   tool state of this request
+     * @return ChatResponse with the model's final answer
+     */
+    default ChatResponse chat(ChatRequest request, ToolSession tools) {
+        return chat(request);
+    }
+
     /**
      * Returns the unique provider name.
      *
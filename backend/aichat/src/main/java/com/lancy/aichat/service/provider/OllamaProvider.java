@@ -1,9 +1,28 @@
 package com.lancy.aichat.service.provider;
 
+import com.lancy.aichat.config.OllamaContextProperties;
+import com.lancy.aichat.dto.ChatRequest;
 import com.lancy.aichat.dto.ChatResponse;
+import com.lancy.aichat.service.provider.OllamaSessionContextCache.SessionContext;
+import com.lancy.aichat.token.TokenGovernor;
+import com.lancy.aichat.tool.ToolSession;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
 /**
  * Ollama implementation of {@link AiProviderStrategy}.
  *
@@ -11,17 +30,48 @@ import org.springframework.stereotype.Component;
  * using Spring AI's {@link ChatClient}.</p>
  *
  * <p>System prompt defines the AI Quantitative Trading Assistant persona.</p>
+ *
+ * <p>Requests carrying a {@code sessionId} replay the session history held in
+ * {@link OllamaSessionContextCache} so Ollama can reuse the KV cache of the
+ * previous turn and only evaluate the new tokens.</p>
+ *
+ * <p>Replies are capped with {@code num_predict} per {@link TokenGovernor#maxOutputTokens()};
+ * session history that no longer fits the input budget is dropped oldest first.</p>
+ *
+ * <p>{@link #stream} reads Ollama's streaming reply with a small prefetch, so a
+ * consumer that stops taking tokens also stops reads from the model.</p>
  */
 @Component
 public class OllamaProvider implements AiProviderStrategy {
 
+    /** Chunks requested ahead from the streaming reply. */
+    private static final int STREAM_PREFETCH = 8;
+
     private final ChatClient chatClient;
 
+    private final OllamaSessionContextCache contextCache;
+
+    private final OllamaContextProperties contextProperties;
+
+    /** Caps the reply length (num_predict) and trims replayed history to the token budget. */
+    private final TokenGovernor tokenGovernor;
+
+    /** Model configured for Ollama; used when the request does not specify one. */
+    private final String defaultModel;
+
     /**
-     * Constructor injection for Spring AI ChatClient.
+     * Constructor injection for Spring AI ChatClient and session context cache.
      */
-    public OllamaProvider(ChatClient.Builder builder) {
+    public OllamaProvider(ChatClient.Builder builder,
+                          OllamaSessionContextCache contextCache,
+                          OllamaContextProperties contextProperties,
+                          TokenGovernor tokenGovernor,
+                          @Value("${spring.ai.ollama.chat.options.model:llama3}") String defaultModel) {
         this.chatClient = builder.build();
+        this.contextCache = contextCache;
+        this.contextProperties = contextProperties;
+        this.tokenGovernor = tokenGovernor;
+        this.defaultModel = defaultModel;
     }
 
     /**
@@ -30,19 +80,154 @@ public class OllamaProvider implements AiProviderStrategy {
 
     @Override
     public ChatResponse chat(String message, String systemPrompt) {
+        return chat(message, systemPrompt, null);
+    }
 
-        String prompt = systemPrompt != null ? systemPrompt
-                : "You are an AI Quantitative Trading Assistant. Be precise, analytical, focus on risk management.";
+    /**
+     * Stateless chat with {@code model}, or the configured model if null.
+     */
+    private ChatResponse chat(String message, String systemPrompt, String model) {
+
+        String prompt = resolveSystemPrompt(systemPrompt);
 
         String response = chatClient.prompt()
                 .system(prompt)
                 .user(message)
+                .options(OllamaOptions.builder()
+                        .model(model)
+                        .numPredict(tokenGovernor.maxOutputTokens())
+                        .build())
                 .call()
                 .content();
 
         return new ChatResponse(response);
     }
 
+    /**
+     * Session-aware chat: replays prior turns of {@code request.sessionId()} with an
+     * unchanged prefix so Ollama only evaluates the new user message.
+     *
+     * <p>Falls back to the stateless call when no session ID is given or context
+     * reuse is disabled.</p>
+     */
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+
+        if (request.sessionId() == null || request.sessionId().isBlank() || !contextCache.isEnabled()) {
+            return chat(request.message(), request.systemPrompt(), requestedModel(request));
+        }
+
+        String prompt = resolveSystemPrompt(request.systemPrompt());
+        String model = (request.model() != null && !request.model().isBlank()) ? request.model() : defaultModel;
+
+        SessionContext context = contextCache.acquire(request.sessionId(), prompt, model);
+        try {
+            org.springframework.ai.chat.model.ChatResponse result = chatClient.prompt()
+                    .system(prompt)
+                    .messages(fittedHistory(context, model, prompt, request.message()))
+                    .user(request.message())
+                    .options(OllamaOptions.builder()
+                            .model(model)
+                            .keepAlive(contextProperties.getKeepAlive())
+                            .numPredict(tokenGovernor.maxOutputTokens())
+                            .build())
+                    .call()
+                    .chatResponse();
+
+            String response = result.getResult().getOutput().getText();
+            ChatResponseMetadata metadata = result.getMetadata();
+
+            contextCache.recordTurn(context, request.message(), response,
+                    tokenGovernor.count(getProviderName(), model, request.message()),
+                    intValue(metadata.get("prompt-eval-count")),
+                    metadata.get("prompt-eval-duration") instanceof Duration d ? d : null,
+                    intValue(metadata.get("eval-count")));
+
+            return new ChatResponse(response);
+        } finally {
+            context.unlock();
+        }
+    }
+
+    /**
+     * Streaming variant of {@link #chat(ChatRequest)}: chunks are handed to
+     * {@code onToken} as Ollama produces them and session turns are recorded
+     * once the reply is complete.
+     */
+    @Override
+    public ChatResponse stream(ChatRequest request, Consumer<String> onToken) {
+
+        String prompt = resolveSystemPrompt(request.systemPrompt());
+
+        if (request.sessionId() == null || request.sessionId().isBlank() || !contextCache.isEnabled()) {
+            Streamed streamed = drain(chatClient.prompt()
+                    .system(prompt)
+                    .user(request.message())
+                    .options(OllamaOptions.builder()
+                            .model(requestedModel(request))
+                            .numPredict(tokenGovernor.maxOutputTokens())
+                            .build())
+                    .stream()
+                    .chatResponse(), onToken);
+            return new ChatResponse(streamed.content());
+        }
+
+        String model = (request.model() != null && !request.model().isBlank()) ? request.model() : defaultModel;
+
+        SessionContext context = contextCache.acquire(request.sessionId(), prompt, model);
+        try {
+            Streamed streamed = drain(chatClient.prompt()
+                    .system(prompt)
+                    .messages(fittedHistory(context, model, prompt, request.message()))
+                    .user(request.message())
+                    .options(OllamaOptions.builder()
+                            .model(model)
+                            .keepAlive(contextProperties.getKeepAlive())
+                            .numPredict(tokenGovernor.maxOutputTokens())
+                            .build())
+                    .stream()
+                    .chatResponse(), onToken);
+
+            // Eval counters are only reported on the final chunk
+            ChatResponseMetadata metadata = streamed.metadata();
+            contextCache.recordTurn(context, request.message(), streamed.content(),
+                    tokenGovernor.count(getProviderName(), model, request.message()),
+                    metadata != null ? intValue(metadata.get("prompt-eval-count")) : 0,
+                    metadata != null && metadata.get("prompt-eval-duration") instanceof Duration d ? d : null,
+                    metadata != null ? intValue(metadata.get("eval-count")) : 0);
+
+            return new ChatResponse(streamed.content());
+        } finally {
+            context.unlock();
+        }
+    }
+
+    /**
+     * Tool-calling chat. Ollama returns the requested tool calls to
+     * {@link ToolSession}, which executes them; session context is not reused
+     * because tool results make every prompt unique.
+     */
+    @Override
+    public ChatResponse chat(ChatRequest request, ToolSession tools) {
+
+        String prompt = resolveSystemPrompt(request.systemPrompt());
+        String model = (request.model() != null && !request.model().isBlank()) ? request.model() : defaultModel;
+
+        String response = tools.run(List.of(new SystemMessage(prompt), new UserMessage(request.message())),
+                (messages, callbacks) -> chatClient.prompt(new Prompt(messages, OllamaOptions.builder()
+                                .model(model)
+                                .keepAlive(contextProperties.getKeepAlive())
+                                .numPredict(tokenGovernor.maxOutputTokens())
+                                .functionCallbacks(callbacks)
+                                .proxyToolCalls(true)
+                                .build()))
+                        .call()
+                        .chatResponse()
+                        .getResult()
+                        .getOutput());
+
+        return new ChatResponse(response);
+    }
 
     /**
      * Provider name for routing.
@@ -51,4 +236,62 @@ public class OllamaProvider implements AiProviderStrategy {
     public String getProviderName() {
         return "OLLAMA";
     }
+
+    /**
+     * Session history fitted to the token budget. Turns left out are dropped from
+     * the session too, so the following turns keep replaying the same prefix.
+     */
+    private List<Message> fittedHistory(SessionContext context, String model, String prompt, String message) {
+        List<Message> history = context.history();
+        List<Message> fitted = tokenGovernor.fitHistory(getProviderName(), model, prompt, history, message);
+        context.dropOldest(history.size() - fitted.size());
+        return fitted;
+    }
+
+    private static String requestedModel(ChatRequest request) {
+        return request.model() != null && !request.model().isBlank() ? request.model() : null;
+    }
+
+    private static String resolveSystemPrompt(String systemPrompt) {
+        return systemPrompt != null ? systemPrompt
+                : "You are an AI Quantitative Trading Assistant. Be precise, analytical, focus on risk management.";
+    }
+
+    /**
+     * Consumes a streaming reply on the calling thread. Closing the stream (also
+     * on failure or interrupt) cancels the underlying request.
+     */
+    private static Streamed drain(Flux<org.springframework.ai.chat.model.ChatResponse> chunks,
+                                  Consumer<String> onToken) {
+        StringBuilder content = new StringBuilder();
+        ChatResponseMetadata metadata = null;
+        try (Stream<org.springframework.ai.chat.model.ChatResponse> stream = chunks.toStream(STREAM_PREFETCH)) {
+            var iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                org.springframework.ai.chat.model.ChatResponse chunk = iterator.next();
+                if (chunk.getMetadata() != null && chunk.getMetadata().get("eval-count") != null) {
+                    metadata = chunk.getMetadata();
+                }
+                if (chunk.getResult() == null || chunk.getResult().getOutput().getText() == null) {
+                    continue;
+                }
+                String token = chunk.getResult().getOutput().getText();
+                if (!token.isEmpty()) {
+                    content.append(token);
+                    onToken.accept(token);
+                }
+            }
+        }
+        return new Streamed(content.toString(), metadata);
+    }
+
+    /**
+     * Complete text of a streamed reply and the metadata of its final chunk.
+     */
+    private record Streamed(String content, ChatResponseMetadata metadata) {
+    }
+
+    private static int intValue(Object value) {
+        return value instanceof Number n ? n.intValue() : 0;
+    }
 }
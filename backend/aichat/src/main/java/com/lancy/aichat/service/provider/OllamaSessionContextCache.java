@@ -0,0 +1,307 @@
+package com.lancy.aichat.service.provider;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.config.OllamaContextProperties;
+import com.lancy.aichat.store.ChatStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-session store of Ollama conversation state.
+ *
+ * <p>Ollama's {@code /api/chat} endpoint keeps the KV cache of the last evaluated
+ * prompt and only processes the tokens after the longest matching prefix. By
+ * replaying the exact same system prompt and history on every turn of a session,
+ * follow-up turns only pay prompt evaluation for the new user message.</p>
+ *
+ * <p>Features:
+ * <ul>
+ *     <li>State kept in the shared {@link ChatStore} ({@value #NAMESPACE} namespace),
+ *     so any replica can continue a session; bounded by the store and expired
+ *     after {@code idleTimeout}</li>
+ *     <li>History bounded by {@code maxTurns} user/assistant pairs: once exceeded it is
+ *     cut to the newest {@code maxTurns / 2} in one go, so the prefix (and Ollama's
+ *     KV cache) is invalidated once per {@code maxTurns / 2} turns, not on every turn</li>
+ *     <li>Invalidation when the system prompt or model of a session changes</li>
+ *     <li>Turns of one session serialized on this node by a per-session lock,
+ *     dropped once no turn holds or waits for it; other sessions never wait</li>
+ *     <li>Metrics on reused prefix tokens and prompt-eval time saved</li>
+ * </ul>
+ * </p>
+ */
+@Component
+public class OllamaSessionContextCache {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaSessionContextCache.class);
+
+    static final String NAMESPACE = "session";
+
+    private final OllamaContextProperties properties;
+
+    private final ChatStore store;
+
+    private final ObjectMapper objectMapper;
+
+    /** Locks of sessions with a turn in progress or waiting on this node */
+    private final ConcurrentMap<String, SessionLock> locks = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter reusedTokens;
+    private final Timer promptEvalSaved;
+    private final MeterRegistry meterRegistry;
+
+    public OllamaSessionContextCache(OllamaContextProperties properties,
+                                     ChatStore store,
+                                     ObjectMapper objectMapper,
+                                     MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.hits = meterRegistry.counter("ollama.context.hits");
+        this.misses = meterRegistry.counter("ollama.context.misses");
+        this.reusedTokens = meterRegistry.counter("ollama.context.reused.tokens");
+        this.promptEvalSaved = Timer.builder("ollama.context.prompt.eval.saved")
+                .description("Estimated prompt evaluation time avoided by KV cache reuse")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Locks the session and returns its context, creating a fresh one if none
+     * exists, it expired, or its system prompt / model no longer match.
+     *
+     * <p>The caller must call {@link SessionContext#unlock()} when the turn is
+     * finished. A lock is used rather than {@code synchronized} so virtual
+     * threads are not pinned while waiting on the model.</p>
+     *
+     * @param sessionId    client session identifier
+     * @param systemPrompt effective system prompt for this turn
+     * @param model        effective Ollama model for this turn
+     * @return locked session context (never null)
+     */
+    public SessionContext acquire(String sessionId, String systemPrompt, String model) {
+        SessionLock lock = locks.compute(sessionId, (id, existing) -> {
+            SessionLock sessionLock = existing != null ? existing : new SessionLock();
+            sessionLock.users++;
+            return sessionLock;
+        });
+        lock.lock();
+        try {
+            SessionState state = load(sessionId);
+            String reason = null;
+            if (state == null) {
+                misses.increment();
+            } else if (!Objects.equals(state.model(), model)) {
+                reason = "model";
+            } else if (!Objects.equals(state.systemPrompt(), systemPrompt)) {
+                reason = "system-prompt";
+            } else {
+                hits.increment();
+                return new SessionContext(this, sessionId, state, lock);
+            }
+            if (reason != null) {
+                log.debug("Invalidating Ollama context for session {} (reason: {})", sessionId, reason);
+                invalidated(reason);
+            }
+            return new SessionContext(this, sessionId, new SessionState(systemPrompt, model, List.of(), 0), lock);
+        } catch (RuntimeException e) {
+            release(sessionId, lock);
+            throw e;
+        }
+    }
+
+    private void release(String sessionId, SessionLock lock) {
+        lock.unlock();
+        locks.computeIfPresent(sessionId, (id, sessionLock) -> --sessionLock.users == 0 ? null : sessionLock);
+    }
+
+    /**
+     * Number of sessions whose lock is held or waited for on this node.
+     */
+    int lockedSessions() {
+        return locks.size();
+    }
+
+    /**
+     * Appends a completed turn to the session, persists it and records how much
+     * prompt evaluation was avoided by reusing the previously evaluated prefix.
+     *
+     * <p>Reuse is what Ollama did not evaluate: the prefix plus the new message,
+     * minus the reported {@code promptEvalCount}. After an Ollama restart, a model
+     * unload or another session taking the slot, the whole prompt is evaluated
+     * again and nothing is recorded as saved.</p>
+     *
+     * @param context            context returned by {@link #acquire}
+     * @param userMessage        user message of this turn
+     * @param assistantMessage   model reply of this turn
+     * @param messageTokens      estimated tokens of {@code userMessage}
+     * @param promptEvalCount    tokens Ollama actually evaluated for the prompt
+     * @param promptEvalDuration time Ollama spent evaluating them
+     * @param evalCount          tokens generated for the reply
+     */
+    public void recordTurn(SessionContext context, String userMessage, String assistantMessage,
+                           int messageTokens, int promptEvalCount, Duration promptEvalDuration, int evalCount) {
+
+        long expected = context.contextTokens + Math.max(messageTokens, 0);
+        if (promptEvalCount > 0) {
+            long reused = expected - promptEvalCount;
+            if (reused > 0 && promptEvalDuration != null) {
+                reusedTokens.increment(reused);
+                long perTokenNanos = promptEvalDuration.toNanos() / promptEvalCount;
+                promptEvalSaved.record(Duration.ofNanos(perTokenNanos * reused));
+            }
+        }
+
+        context.turns.add(new Turn(userMessage, assistantMessage));
+        // A full re-evaluation reports the exact prompt size; with reuse only the estimate is known
+        context.contextTokens = Math.max(expected, promptEvalCount) + Math.max(evalCount, 0);
+
+        if (context.turns.size() > properties.getMaxTurns()) {
+            int keep = Math.max(properties.getMaxTurns() / 2, 1);
+            context.turns.subList(0, context.turns.size() - keep).clear();
+            // The prefix changed, so the next turn is evaluated from scratch
+            context.contextTokens = 0;
+        }
+
+        save(context);
+    }
+
+    /**
+     * Drops the state of a session, e.g. when the client resets the conversation.
+     */
+    public void invalidate(String sessionId) {
+        store.remove(NAMESPACE, sessionId);
+        invalidated("explicit");
+    }
+
+    private SessionState load(String sessionId) {
+        return store.get(NAMESPACE, sessionId).map(json -> {
+            try {
+                return objectMapper.readValue(json, SessionState.class);
+            } catch (JsonProcessingException e) {
+                log.warn("Discarding unreadable session state for {}: {}", sessionId, e.getMessage());
+                return null;
+            }
+        }).orElse(null);
+    }
+
+    private void save(SessionContext context) {
+        SessionState state = new SessionState(context.systemPrompt, context.model,
+                List.copyOf(context.turns), context.contextTokens);
+        try {
+            store.put(NAMESPACE, context.sessionId, objectMapper.writeValueAsString(state),
+                    properties.getIdleTimeout());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize session state", e);
+        }
+    }
+
+    private void invalidated(String reason) {
+        meterRegistry.counter("ollama.context.invalidations", "reason", reason).increment();
+    }
+
+    /**
+     * Serialized form of a session kept in the {@link ChatStore}.
+     */
+    record SessionState(String systemPrompt, String model, List<Turn> turns, long contextTokens) {
+    }
+
+    /**
+     * One user/assistant exchange.
+     */
+    record Turn(String user, String assistant) {
+    }
+
+    /**
+     * Lock of one session; {@code users} counts the holder and waiters and is only
+     * changed inside {@code compute} of the lock map.
+     */
+    private static final class SessionLock extends ReentrantLock {
+
+        private int users;
+    }
+
+    /**
+     * Conversation state of a single session, held under the session lock.
+     */
+    public static final class SessionContext {
+
+        private final OllamaSessionContextCache cache;
+        private final String sessionId;
+        private final String systemPrompt;
+        private final String model;
+        private final List<Turn> turns;
+        private final SessionLock lock;
+        private long contextTokens;
+
+        SessionContext(OllamaSessionContextCache cache, String sessionId, SessionState state, SessionLock lock) {
+            this.cache = cache;
+            this.sessionId = sessionId;
+            this.systemPrompt = state.systemPrompt();
+            this.model = state.model();
+            this.turns = new ArrayList<>(state.turns());
+            this.contextTokens = state.contextTokens();
+            this.lock = lock;
+        }
+
+        /**
+         * Releases the session lock taken by {@link OllamaSessionContextCache#acquire}.
+         */
+        public void unlock() {
+            cache.release(sessionId, lock);
+        }
+
+        /**
+         * Prior turns as chat messages, oldest first.
+         */
+        public List<Message> history() {
+            List<Message> messages = new ArrayList<>(turns.size() * 2);
+            for (Turn turn : turns) {
+                messages.add(new UserMessage(turn.user()));
+                messages.add(new AssistantMessage(turn.assistant()));
+            }
+            return messages;
+        }
+
+        /**
+         * Drops the oldest {@code messages} history messages (whole turns), e.g. those
+         * left out to fit the token budget, so later turns replay the same shorter
+         * prefix. Ollama evaluates it from scratch once.
+         */
+        public void dropOldest(int messages) {
+            int dropTurns = Math.min(messages / 2, turns.size());
+            if (dropTurns > 0) {
+                turns.subList(0, dropTurns).clear();
+                contextTokens = 0;
+            }
+        }
+
+        /**
+         * Tokens already evaluated by Ollama for this session's prefix.
+         */
+        public long contextTokens() {
+            return contextTokens;
+        }
+    }
+}
@@ -1,11 +1,21 @@
 package com.lancy.aichat.service.provider;
 
+import com.lancy.aichat.dto.ChatRequest;
 import com.lancy.aichat.dto.ChatResponse;
+import com.lancy.aichat.token.TokenGovernor;
+import com.lancy.aichat.tool.ToolSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.function.FunctionCallingOptions;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 /**
  * OpenAI implementation of {@link AiProviderStrategy}.
  *
@@ -14,7 +24,8 @@ import org.springframework.stereotype.Component;
  * <p>Supports dynamic system prompt injection and logs each request and response
  * for monitoring and metrics purposes.</p>
  *
- * <p>Configuration (API key, model) is handled via Spring AI properties.</p>
+ * <p>Configuration (API key, model) is handled via Spring AI properties. Replies are
+ * capped at {@link TokenGovernor#maxOutputTokens()}.</p>
  */
 @Component
 public class OpenAiProvider implements AiProviderStrategy {
@@ -23,13 +34,17 @@ public class OpenAiProvider implements AiProviderStrategy {
 
     private final ChatClient chatClient;
 
+    private final TokenGovernor tokenGovernor;
+
     /**
      * Constructor injection for Spring AI ChatClient.
      *
-     * @param builder ChatClient builder auto-configured by Spring Boot
+     * @param builder       ChatClient builder auto-configured by Spring Boot
+     * @param tokenGovernor caps the length of replies
      */
-    public OpenAiProvider(ChatClient.Builder builder) {
+    public OpenAiProvider(ChatClient.Builder builder, TokenGovernor tokenGovernor) {
         this.chatClient = builder.build();
+        this.tokenGovernor = tokenGovernor;
     }
 
     /**
@@ -44,6 +59,21 @@ public class OpenAiProvider implements AiProviderStrategy {
      */
     @Override
     public ChatResponse chat(String message, String systemPrompt) {
+        return chat(message, systemPrompt, null);
+    }
+
+    /**
+     * Stateless chat honouring {@code request.model()}; sessions are not kept.
+     *
+     * @param request chat request containing message, optional system prompt and model
+     * @return ChatResponse containing OpenAI-generated reply
+     */
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        return chat(request.message(), request.systemPrompt(), model(request));
+    }
+
+    private ChatResponse chat(String message, String systemPrompt, String model) {
 
         String prompt = (systemPrompt != null && !systemPrompt.isBlank())
                 ? systemPrompt
@@ -55,6 +85,10 @@ public class OpenAiProvider implements AiProviderStrategy {
         String response = chatClient.prompt()
                 .system(prompt)
                 .user(message)
+                .options(ChatOptions.builder()
+                        .model(model)
+                        .maxTokens(tokenGovernor.maxOutputTokens())
+                        .build())
                 .call()
                 .content();
 
@@ -63,6 +97,43 @@ public class OpenAiProvider implements AiProviderStrategy {
         return new ChatResponse(response);
     }
 
+    /**
+     * Tool-calling chat through Spring AI function calling; tool calls are returned
+     * to {@link ToolSession}, which executes them.
+     *
+     * @param request chat request containing message and optional system prompt
+     * @param tools   tool state of this request
+     * @return ChatResponse containing the final OpenAI reply
+     */
+    @Override
+    public ChatResponse chat(ChatRequest request, ToolSession tools) {
+
+        String prompt = (request.systemPrompt() != null && !request.systemPrompt().isBlank())
+                ? request.systemPrompt()
+                : "You are an AI Quantitative Trading Assistant. " +
+                "Be precise. Be analytical. Focus on risk management.";
+
+        log.info("Sending tool-enabled message to OpenAI: {}", request.message());
+
+        String response = tools.run(List.of(new SystemMessage(prompt), new UserMessage(request.message())),
+                (messages, callbacks) -> chatClient.prompt(new Prompt(messages, FunctionCallingOptions.builder()
+                                .model(model(request))
+                                .maxTokens(tokenGovernor.maxOutputTokens())
+                                .functionCallbacks(callbacks)
+                                .proxyToolCalls(true)
+                                .build()))
+                        .call()
+                        .chatResponse()
+                        .getResult()
+                        .getOutput());
+
+        return new ChatResponse(response);
+    }
+
+    private static String model(ChatRequest request) {
+        return request.model() != null && !request.model().isBlank() ? request.model() : null;
+    }
+
     /**
      * Returns the provider name for routing in the orchestrator.
      *
@@ -0,0 +1,320 @@
+package com.lancy.aichat.similar;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * k-nearest-neighbour index of fixed-width float vectors by Euclidean distance.
+ *
+ * <p>Vectors are stored back to back in one {@code float[]}. Up to
+ * {@code lshThreshold} vectors a query scans all of them in a tight loop over
+ * contiguous primitives, which the JIT unrolls and vectorises. From the threshold
+ * on, vectors are also hashed into random-hyperplane LSH tables: a query ranks
+ * exactly only the vectors sharing a bucket with it in some table, probing the
+ * buckets one bit away as well, and falls back to the full scan if that leaves
+ * fewer than {@code k} candidates.</p>
+ *
+ * <p>Not thread-safe; {@link SimilarTradeIndex} guards it.</p>
+ */
+final class KnnIndex {
+
+    private final int dimensions;
+
+    private final int lshThreshold;
+
+    private final int tables;
+
+    private final int bits;
+
+    private final long seed;
+
+    private float[] vectors;
+
+    private int size;
+
+    /** Hyperplanes as [table][bit * dimensions + j]; null below the threshold */
+    private float[][] planes;
+
+    /** Vector ids per bucket hash, per table */
+    private List<Map<Integer, IntList>> buckets;
+
+    KnnIndex(int dimensions, int lshThreshold, int tables, int bits, long seed) {
+        if (bits < 1 || bits > 30) {
+            throw new IllegalArgumentException("LSH bits must be between 1 and 30: " + bits);
+        }
+        this.dimensions = dimensions;
+        this.lshThreshold = lshThreshold;
+        this.tables = tables;
+        this.bits = bits;
+        this.seed = seed;
+        this.vectors = new float[dimensions * 1024];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean usesLsh() {
+        return planes != null;
+    }
+
+    /**
+     * Adds a vector.
+     *
+     * @return its id, the number of vectors added before it
+     */
+    int add(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("Expected " + dimensions + " dimensions, got " + vector.length);
+        }
+        if ((size + 1) * dimensions > vectors.length) {
+            vectors = Arrays.copyOf(vectors, vectors.length * 2);
+        }
+        int id = size++;
+        System.arraycopy(vector, 0, vectors, id * dimensions, dimensions);
+        if (planes != null) {
+            hash(id);
+        } else if (size >= lshThreshold && tables > 0) {
+            buildLsh();
+        }
+        return id;
+    }
+
+    /**
+     * The {@code k} nearest vectors to {@code query}, nearest first.
+     *
+     * @param exclude ids never returned (e.g. the query trade itself)
+     */
+    Neighbors search(float[] query, int k, IntPredicate exclude) {
+        if (k <= 0 || size == 0) {
+            return new Neighbors(new int[0], new float[0]);
+        }
+        if (planes != null) {
+            BitSet candidates = candidates(query);
+            if (candidates.cardinality() >= k) {
+                TopK top = new TopK(k);
+                for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                    if (!exclude.test(id)) {
+                        top.offer(id, distance(query, id));
+                    }
+                }
+                if (top.size() >= k) {
+                    return top.sorted();
+                }
+            }
+        }
+        return scan(query, k, exclude);
+    }
+
+    /**
+     * Exact search over every vector.
+     */
+    Neighbors scan(float[] query, int k, IntPredicate exclude) {
+        TopK top = new TopK(Math.max(k, 0));
+        float[] data = vectors;
+        for (int id = 0, base = 0; id < size; id++, base += dimensions) {
+            float sum = 0;
+            for (int j = 0; j < dimensions; j++) {
+                float d = data[base + j] - query[j];
+                sum += d * d;
+            }
+            if (sum < top.worst() && !exclude.test(id)) {
+                top.offer(id, sum);
+            }
+        }
+        return top.sorted();
+    }
+
+    private float distance(float[] query, int id) {
+        int base = id * dimensions;
+        float sum = 0;
+        for (int j = 0; j < dimensions; j++) {
+            float d = vectors[base + j] - query[j];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    private void buildLsh() {
+        SplittableRandom random = new SplittableRandom(seed);
+        planes = new float[tables][bits * dimensions];
+        buckets = new ArrayList<>(tables);
+        for (int t = 0; t < tables; t++) {
+            for (int i = 0; i < planes[t].length; i++) {
+                planes[t][i] = (float) random.nextGaussian();
+            }
+            buckets.add(new HashMap<>());
+        }
+        for (int id = 0; id < size; id++) {
+            hash(id);
+        }
+    }
+
+    private void hash(int id) {
+        for (int t = 0; t < tables; t++) {
+            buckets.get(t).computeIfAbsent(signature(t, vectors, id * dimensions), h -> new IntList()).add(id);
+        }
+    }
+
+    /**
+     * Vectors sharing a bucket with the query, or one bit away from it, in any table.
+     */
+    private BitSet candidates(float[] query) {
+        BitSet candidates = new BitSet(size);
+        for (int t = 0; t < tables; t++) {
+            int signature = signature(t, query, 0);
+            collect(buckets.get(t).get(signature), candidates);
+            for (int bit = 0; bit < bits; bit++) {
+                collect(buckets.get(t).get(signature ^ (1 << bit)), candidates);
+            }
+        }
+        return candidates;
+    }
+
+    private static void collect(IntList bucket, BitSet candidates) {
+        if (bucket != null) {
+            for (int i = 0; i < bucket.size; i++) {
+                candidates.set(bucket.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Side of each hyperplane of table {@code t} the vector at {@code offset} lies on, one bit per plane.
+     */
+    private int signature(int t, float[] data, int offset) {
+        float[] table = planes[t];
+        int signature = 0;
+        for (int bit = 0; bit < bits; bit++) {
+            int base = bit * dimensions;
+            float dot = 0;
+            for (int j = 0; j < dimensions; j++) {
+                dot += table[base + j] * data[offset + j];
+            }
+            if (dot >= 0) {
+                signature |= 1 << bit;
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Ids and squared distances of a query's neighbours, nearest first.
+     */
+    record Neighbors(int[] ids, float[] distances) {
+
+        int size() {
+            return ids.length;
+        }
+    }
+
+    /**
+     * The {@code k} smallest distances seen, as a binary max-heap over parallel arrays.
+     */
+    private static final class TopK {
+
+        private final int[] ids;
+
+        private final float[] distances;
+
+        private int size;
+
+        TopK(int k) {
+            this.ids = new int[k];
+            this.distances = new float[k];
+        }
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Distance a vector must beat to enter; infinite until full.
+         */
+        float worst() {
+            if (ids.length == 0) {
+                return Float.NEGATIVE_INFINITY;
+            }
+            return size < ids.length ? Float.POSITIVE_INFINITY : distances[0];
+        }
+
+        void offer(int id, float distance) {
+            if (ids.length == 0) {
+                return;
+            }
+            if (size < ids.length) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) / 2;
+                    if (distances[parent] >= distance) {
+                        break;
+                    }
+                    ids[i] = ids[parent];
+                    distances[i] = distances[parent];
+                    i = parent;
+                }
+                ids[i] = id;
+                distances[i] = distance;
+            } else if (distance < distances[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && distances[child + 1] > distances[child]) {
+                        child++;
+                    }
+                    if (distances[child] <= distance) {
+                        break;
+                    }
+                    ids[i] = ids[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                ids[i] = id;
+                distances[i] = distance;
+            }
+        }
+
+        Neighbors sorted() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> a.equals(b) ? 0
+                    : distances[a] != distances[b] ? Float.compare(distances[a], distances[b])
+                    : Integer.compare(ids[a], ids[b]));
+            int[] sortedIds = new int[size];
+            float[] sortedDistances = new float[size];
+            for (int i = 0; i < size; i++) {
+                sortedIds[i] = ids[order[i]];
+                sortedDistances[i] = distances[order[i]];
+            }
+            return new Neighbors(sortedIds, sortedDistances);
+        }
+    }
+
+    /**
+     * Growable list of primitive ints.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[4];
+
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.lancy.aichat.similar;
+
+import com.lancy.aichat.review.TradeReviewRequest.Trade;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A past trade close to the one looked up, with its outcome.
+ *
+ * @param distance     Euclidean distance of the feature vectors; 0 is identical
+ * @param returnPct    price move in the trade's favour in percent, null without prices
+ * @param rMultiple    result in units of initial risk, null without a stop
+ * @param holdingHours null without timestamps
+ */
+public record SimilarTrade(
+        String tradeId,
+        String symbol,
+        String side,
+        Instant openedAt,
+        double distance,
+        Double returnPct,
+        Double rMultiple,
+        Double holdingHours
+) {
+
+    static SimilarTrade of(Trade trade, double distance) {
+        return new SimilarTrade(trade.id(), trade.symbol(), trade.side(), trade.openedAt(),
+                Math.round(distance * 1000) / 1000.0,
+                rounded(trade.returnFraction() * 100), rounded(trade.rMultiple()), rounded(trade.holdingHours()));
+    }
+
+    /**
+     * Outcome summary of neighbours for prompts, e.g.
+     * {@code 5 similar past trades: 3 won, avg +1.24%, avg +0.6R}; null without neighbours.
+     */
+    public static String summary(List<SimilarTrade> neighbours) {
+        int won = 0;
+        int withReturn = 0;
+        int withR = 0;
+        double returns = 0;
+        double r = 0;
+        for (SimilarTrade neighbour : neighbours) {
+            if (neighbour.returnPct() != null) {
+                withReturn++;
+                returns += neighbour.returnPct();
+                if (neighbour.returnPct() > 0) {
+                    won++;
+                }
+            }
+            if (neighbour.rMultiple() != null) {
+                withR++;
+                r += neighbour.rMultiple();
+            }
+        }
+        if (withReturn == 0) {
+            return null;
+        }
+        StringBuilder summary = new StringBuilder(String.format(Locale.ROOT,
+                "%d similar past trades: %d won, avg %+.2f%%", withReturn, won, returns / withReturn));
+        if (withR > 0) {
+            summary.append(String.format(Locale.ROOT, ", avg %+.1fR", r / withR));
+        }
+        return summary.toString();
+    }
+
+    private static Double rounded(double value) {
+        return Double.isNaN(value) ? null : Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,155 @@
+package com.lancy.aichat.similar;
+
+import com.lancy.aichat.config.SimilarTradeProperties;
+import com.lancy.aichat.review.TradeReviewRequest.Trade;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * "Past trades that looked like this one": k-NN over {@link TradeFeatures} vectors.
+ *
+ * <p>Trades are indexed when ingested (by {@code POST /api/similar/trades} and by
+ * every trade review) and kept in memory. Lookups take a read lock and run in
+ * parallel; ingestion takes the write lock only to append, after the features
+ * (which read bar history) have been computed.</p>
+ *
+ * <p>Metrics: {@code similar.trades} (gauge) and {@code similar.search{mode}}
+ * (exact scan or LSH).</p>
+ */
+@Service
+public class SimilarTradeIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SimilarTradeIndex.class);
+
+    /** Fixed, so the same indexed trades give the same approximate neighbours on every run */
+    private static final long LSH_SEED = 0x5EED_7AD3L;
+
+    private final TradeFeatures features;
+
+    private final SimilarTradeProperties properties;
+
+    private final StampedLock lock = new StampedLock();
+
+    private final KnnIndex index;
+
+    /** Trades by index id */
+    private final List<Trade> trades = new ArrayList<>();
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private final Timer scanTimer;
+
+    private final Timer lshTimer;
+
+    public SimilarTradeIndex(TradeFeatures features, SimilarTradeProperties properties, MeterRegistry meterRegistry) {
+        this.features = features;
+        this.properties = properties;
+        this.index = new KnnIndex(TradeFeatures.DIMENSIONS, properties.getLshThreshold(),
+                properties.getLshTables(), properties.getLshBits(), LSH_SEED);
+        this.scanTimer = meterRegistry.timer("similar.search", "mode", "scan");
+        this.lshTimer = meterRegistry.timer("similar.search", "mode", "lsh");
+        meterRegistry.gauge("similar.trades", this, SimilarTradeIndex::size);
+    }
+
+    /**
+     * Indexes trades not indexed yet. Trades without an id or symbol, ids already
+     * indexed and trades beyond {@code ai.similar.max-trades} are skipped.
+     *
+     * @return number of trades added
+     */
+    public int ingest(List<Trade> batch) {
+        List<Trade> accepted = new ArrayList<>(batch.size());
+        List<float[]> vectors = new ArrayList<>(batch.size());
+        for (Trade trade : batch) {
+            if (trade != null && trade.id() != null && !trade.id().isBlank() && trade.symbol() != null) {
+                accepted.add(trade);
+                vectors.add(features.extract(trade));
+            }
+        }
+        int added = 0;
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < accepted.size(); i++) {
+                Trade trade = accepted.get(i);
+                if (ids.containsKey(trade.id())) {
+                    continue;
+                }
+                if (trades.size() >= properties.getMaxTrades()) {
+                    log.warn("Similar-trade index full ({} trades); {} trades not indexed",
+                            trades.size(), accepted.size() - i);
+                    break;
+                }
+                ids.put(trade.id(), index.add(vectors.get(i)));
+                trades.add(trade);
+                added++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return added;
+    }
+
+    /**
+     * Indexed trades nearest to {@code trade}, nearest first; a trade with the same
+     * id is never its own neighbour.
+     *
+     * @param k capped at {@code ai.similar.max-neighbors}
+     */
+    public List<SimilarTrade> similar(Trade trade, int k) {
+        float[] query = features.extract(trade);
+        int limit = Math.max(0, Math.min(k, properties.getMaxNeighbors()));
+        long stamp = lock.readLock();
+        try {
+            Integer self = trade.id() == null ? null : ids.get(trade.id());
+            long start = System.nanoTime();
+            KnnIndex.Neighbors neighbours = index.search(query, limit, id -> self != null && id == self);
+            (index.usesLsh() ? lshTimer : scanTimer).record(System.nanoTime() - start,
+                    TimeUnit.NANOSECONDS);
+            List<SimilarTrade> similar = new ArrayList<>(neighbours.size());
+            for (int i = 0; i < neighbours.size(); i++) {
+                similar.add(SimilarTrade.of(trades.get(neighbours.ids()[i]),
+                        Math.sqrt(neighbours.distances()[i])));
+            }
+            return similar;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Neighbours of an indexed trade.
+     *
+     * @return empty if no trade with that id is indexed
+     */
+    public Optional<List<SimilarTrade>> similar(String tradeId, int k) {
+        Trade trade;
+        long stamp = lock.readLock();
+        try {
+            Integer id = ids.get(tradeId);
+            trade = id == null ? null : trades.get(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return Optional.ofNullable(trade).map(t -> similar(t, k));
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return trades.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
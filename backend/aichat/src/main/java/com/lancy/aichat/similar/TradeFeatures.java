@@ -0,0 +1,112 @@
+package com.lancy.aichat.similar;
+
+import com.lancy.aichat.config.MarketDataProperties;
+import com.lancy.aichat.config.SimilarTradeProperties;
+import com.lancy.aichat.marketdata.history.BarSeries;
+import com.lancy.aichat.marketdata.history.BarStore;
+import com.lancy.aichat.marketdata.indicator.Atr;
+import com.lancy.aichat.marketdata.indicator.Ema;
+import com.lancy.aichat.marketdata.indicator.Rsi;
+import com.lancy.aichat.review.TradeReviewRequest.Trade;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns a trade into a fixed-width feature vector for the similar-trade index.
+ *
+ * <p>Every feature is scaled to roughly [-1, 1] so that none dominates the
+ * Euclidean distance; features that cannot be computed (no history at the entry,
+ * no stop, no timestamps) are 0, the neutral value.</p>
+ * <ol start="0">
+ *     <li>direction: 1 long, -1 short</li>
+ *     <li>RSI at entry, centred: (rsi - 50) / 50</li>
+ *     <li>ATR at entry as a fraction of price, 2% = 1</li>
+ *     <li>distance of the entry from its EMA, in 2 ATRs</li>
+ *     <li>position of the entry in the range of the context window, -1 low to 1 high</li>
+ *     <li>holding time, logarithmic, 20 days = 1</li>
+ *     <li>R-multiple, 3R = 1</li>
+ *     <li>return, squashed: tanh(return / 5%)</li>
+ * </ol>
+ *
+ * <p>Entry indicators are recomputed from the stored bars before {@code openedAt}.</p>
+ */
+@Component
+public class TradeFeatures {
+
+    public static final int DIMENSIONS = 8;
+
+    private static final double MAX_HOLDING_HOURS = 20 * 24;
+
+    private final BarStore barStore;
+
+    private final MarketDataProperties marketDataProperties;
+
+    private final SimilarTradeProperties properties;
+
+    public TradeFeatures(BarStore barStore, MarketDataProperties marketDataProperties,
+                         SimilarTradeProperties properties) {
+        this.barStore = barStore;
+        this.marketDataProperties = marketDataProperties;
+        this.properties = properties;
+    }
+
+    public float[] extract(Trade trade) {
+        float[] features = new float[DIMENSIONS];
+        features[0] = trade.direction();
+        entryContext(trade, features);
+        double hours = trade.holdingHours();
+        if (!Double.isNaN(hours) && hours >= 0) {
+            features[5] = scaled(Math.log1p(hours) / Math.log1p(MAX_HOLDING_HOURS), 0, 1.5);
+        }
+        features[6] = scaled(trade.rMultiple() / 3, -2, 2);
+        double returnFraction = trade.returnFraction();
+        features[7] = Double.isNaN(returnFraction) ? 0 : (float) Math.tanh(returnFraction / 0.05);
+        return features;
+    }
+
+    /**
+     * Fills features 1 to 4 from the bars leading up to the entry.
+     */
+    private void entryContext(Trade trade, float[] features) {
+        if (trade.openedAt() == null || !BarStore.isValidSymbol(trade.symbol())) {
+            return;
+        }
+        long interval = properties.getContextInterval().toMillis();
+        long to = trade.openedAt().toEpochMilli();
+        // Four times the window, so nights and weekends still leave enough bars
+        long from = to - 4L * properties.getContextBars() * interval;
+        BarSeries bars = barStore.downsample(trade.symbol(), from, to, properties.getContextInterval());
+        if (bars == null || bars.size() == 0) {
+            return;
+        }
+        Ema ema = new Ema(marketDataProperties.getEmaPeriod());
+        Rsi rsi = new Rsi(marketDataProperties.getRsiPeriod());
+        Atr atr = new Atr(marketDataProperties.getAtrPeriod());
+        int first = Math.max(0, bars.size() - properties.getContextBars());
+        double high = Double.NEGATIVE_INFINITY;
+        double low = Double.POSITIVE_INFINITY;
+        for (int i = first; i < bars.size(); i++) {
+            ema.update(bars.close()[i]);
+            rsi.update(bars.close()[i]);
+            atr.update(bars.high()[i], bars.low()[i], bars.close()[i]);
+            high = Math.max(high, bars.high()[i]);
+            low = Math.min(low, bars.low()[i]);
+        }
+        double price = trade.entryPrice() != null ? trade.entryPrice() : bars.close()[bars.size() - 1];
+        double a = atr.value();
+        features[1] = scaled((rsi.value() - 50) / 50, -1, 1);
+        if (a > 0 && price > 0) {
+            features[2] = scaled(a / price / 0.02, 0, 3);
+            features[3] = scaled((price - ema.value()) / a / 2, -2, 2);
+        }
+        if (high > low) {
+            features[4] = scaled((price - low) / (high - low) * 2 - 1, -1.5, 1.5);
+        }
+    }
+
+    /**
+     * {@code value} clamped to [min, max]; 0 for NaN.
+     */
+    private static float scaled(double value, double min, double max) {
+        return Double.isNaN(value) ? 0 : (float) Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,71 @@
+package com.lancy.aichat.store;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Storage SPI for state shared by the chat path across replicas.
+ *
+ * <p>Values are opaque strings (callers serialize to JSON) grouped by
+ * namespace, e.g. {@code session} for conversation state and {@code response}
+ * for cached provider responses.</p>
+ *
+ * <p>Implementations:
+ * <ul>
+ *     <li>{@link InMemoryChatStore} – bounded, node-local</li>
+ *     <li>{@link FileChatStore} – embedded, persistent across restarts</li>
+ *     <li>{@link RemoteChatStore} – shared over HTTP, usually wrapped in a {@link NearCacheChatStore}</li>
+ * </ul>
+ * </p>
+ */
+public interface ChatStore {
+
+    /**
+     * Reads a value.
+     *
+     * @param namespace logical group of keys (lowercase letters, digits and dashes)
+     * @param key       entry key
+     * @return value if present and not expired
+     */
+    Optional<String> get(String namespace, String key);
+
+    /**
+     * Writes a value.
+     *
+     * @param namespace logical group of keys
+     * @param key       entry key
+     * @param value     value to store
+     * @param ttl       time to live; {@code null} or zero means no expiry
+     */
+    void put(String namespace, String key, String value, Duration ttl);
+
+    /**
+     * Removes a value if present.
+     */
+    void remove(String namespace, String key);
+
+    /**
+     * Drops any locally cached copy of a key after another replica changed it.
+     *
+     * <p>Only meaningful for stores with a near cache; the default does nothing.</p>
+     */
+    default void invalidateLocal(String namespace, String key) {
+    }
+
+    /**
+     * Validates a namespace so it can safely be used in paths and URLs.
+     */
+    static String checkNamespace(String namespace) {
+        if (namespace == null || !namespace.matches("[a-z0-9-]+")) {
+            throw new IllegalArgumentException("Invalid store namespace: " + namespace);
+        }
+        return namespace;
+    }
+
+    /**
+     * Converts a TTL to an absolute expiry in epoch millis; 0 means never.
+     */
+    static long expiresAt(Duration ttl) {
+        return (ttl == null || ttl.isZero() || ttl.isNegative()) ? 0L : System.currentTimeMillis() + ttl.toMillis();
+    }
+}
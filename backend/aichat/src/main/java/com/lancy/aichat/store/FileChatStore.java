@@ -0,0 +1,128 @@
+package com.lancy.aichat.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded, persistent {@link ChatStore} backed by one file per entry.
+ *
+ * <p>Layout: {@code <directory>/<namespace>/<sha256(key)>.entry}, where the
+ * first line holds the expiry in epoch millis (0 = never) and the remainder is
+ * the value. Writes go to a temporary file that is atomically moved into
+ * place, so readers never observe a partial entry and state survives restarts.</p>
+ *
+ * <p>Expired entries are removed when read and by a sweep every
+ * {@value #SWEEP_INTERVAL} writes.</p>
+ */
+public class FileChatStore implements ChatStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileChatStore.class);
+
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private static final String SUFFIX = ".entry";
+
+    private final Path directory;
+
+    private final AtomicLong writes = new AtomicLong();
+
+    public FileChatStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create store directory " + directory, e);
+        }
+    }
+
+    @Override
+    public Optional<String> get(String namespace, String key) {
+        Path file = file(namespace, key);
+        try {
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            int newline = content.indexOf('\n');
+            long expiresAt = Long.parseLong(content.substring(0, newline));
+            if (expiresAt != 0 && System.currentTimeMillis() >= expiresAt) {
+                Files.deleteIfExists(file);
+                return Optional.empty();
+            }
+            return Optional.of(content.substring(newline + 1));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unreadable store entry {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void put(String namespace, String key, String value, Duration ttl) {
+        Path file = file(namespace, key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), "put", ".tmp");
+            Files.writeString(tmp, ChatStore.expiresAt(ttl) + "\n" + value, StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write store entry " + file, e);
+        }
+        if (writes.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            sweep(file.getParent());
+        }
+    }
+
+    @Override
+    public void remove(String namespace, String key) {
+        try {
+            Files.deleteIfExists(file(namespace, key));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot remove store entry", e);
+        }
+    }
+
+    /**
+     * Deletes expired entries of one namespace directory.
+     */
+    void sweep(Path namespaceDir) {
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(namespaceDir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String content = Files.readString(file, StandardCharsets.UTF_8);
+                long expiresAt = Long.parseLong(content.substring(0, content.indexOf('\n')));
+                if (expiresAt != 0 && now >= expiresAt) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Store sweep of {} incomplete: {}", namespaceDir, e.getMessage());
+        }
+    }
+
+    private Path file(String namespace, String key) {
+        return directory.resolve(ChatStore.checkNamespace(namespace)).resolve(hash(key) + SUFFIX);
+    }
+
+    private static String hash(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.lancy.aichat.store;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Node-local {@link ChatStore} bounded to a maximum number of entries.
+ *
+ * <p>Least recently used entries are evicted once {@code maxEntries} is
+ * exceeded; expired entries are dropped when read.</p>
+ */
+public class InMemoryChatStore implements ChatStore {
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    public InMemoryChatStore(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public Optional<String> get(String namespace, String key) {
+        String id = id(namespace, key);
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (entry.isExpired(System.currentTimeMillis())) {
+                entries.remove(id);
+                return Optional.empty();
+            }
+            return Optional.of(entry.value());
+        }
+    }
+
+    @Override
+    public void put(String namespace, String key, String value, Duration ttl) {
+        Entry entry = new Entry(value, ChatStore.expiresAt(ttl));
+        synchronized (entries) {
+            entries.put(id(namespace, key), entry);
+        }
+    }
+
+    @Override
+    public void remove(String namespace, String key) {
+        synchronized (entries) {
+            entries.remove(id(namespace, key));
+        }
+    }
+
+    /**
+     * Number of entries currently held (including not yet purged expired ones).
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static String id(String namespace, String key) {
+        return ChatStore.checkNamespace(namespace) + ':' + key;
+    }
+
+    private record Entry(String value, long expiresAt) {
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now >= expiresAt;
+        }
+    }
+}
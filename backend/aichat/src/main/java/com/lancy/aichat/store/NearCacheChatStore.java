@@ -0,0 +1,79 @@
+package com.lancy.aichat.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Decorator that keeps hot reads of a shared {@link ChatStore} on the local node.
+ *
+ * <p>Entries are cached locally for at most {@code ttl}, which bounds staleness.
+ * Writes and removes through this node invalidate the local copy and are
+ * broadcast to peer replicas via {@link PeerInvalidationBroadcaster}, whose
+ * near caches drop the key through {@link #invalidateLocal}.</p>
+ */
+public class NearCacheChatStore implements ChatStore {
+
+    private final ChatStore delegate;
+
+    private final InMemoryChatStore near;
+
+    private final Duration ttl;
+
+    private final PeerInvalidationBroadcaster broadcaster;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public NearCacheChatStore(ChatStore delegate, Duration ttl, int maxEntries,
+                              PeerInvalidationBroadcaster broadcaster, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.near = new InMemoryChatStore(maxEntries);
+        this.ttl = ttl;
+        this.broadcaster = broadcaster;
+        this.hits = meterRegistry.counter("chat.store.near.hits");
+        this.misses = meterRegistry.counter("chat.store.near.misses");
+    }
+
+    @Override
+    public Optional<String> get(String namespace, String key) {
+        Optional<String> cached = near.get(namespace, key);
+        if (cached.isPresent()) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        Optional<String> value = delegate.get(namespace, key);
+        value.ifPresent(v -> near.put(namespace, key, v, ttl));
+        return value;
+    }
+
+    @Override
+    public void put(String namespace, String key, String value, Duration entryTtl) {
+        delegate.put(namespace, key, value, entryTtl);
+        near.put(namespace, key, value, shorterOf(ttl, entryTtl));
+        broadcaster.broadcast(namespace, key);
+    }
+
+    @Override
+    public void remove(String namespace, String key) {
+        delegate.remove(namespace, key);
+        near.remove(namespace, key);
+        broadcaster.broadcast(namespace, key);
+    }
+
+    @Override
+    public void invalidateLocal(String namespace, String key) {
+        near.remove(namespace, key);
+    }
+
+    private static Duration shorterOf(Duration a, Duration b) {
+        if (b == null || b.isZero() || b.isNegative()) {
+            return a;
+        }
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+}
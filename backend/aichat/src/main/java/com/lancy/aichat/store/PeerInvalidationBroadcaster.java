@@ -0,0 +1,52 @@
+package com.lancy.aichat.store;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fire-and-forget notification of peer replicas that a shared store key changed.
+ *
+ * <p>Each peer receives {@code POST /internal/store/invalidate/{namespace}?key=...}
+ * on a virtual thread so the chat path never waits on it. Lost notifications are
+ * tolerated: near-cache entries expire on their own TTL.</p>
+ */
+public class PeerInvalidationBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(PeerInvalidationBroadcaster.class);
+
+    private final List<String> peerBaseUrls;
+
+    private final RestClient restClient;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * @param peerBaseUrls base URLs of the other replicas (e.g. {@code http://10.0.0.2:8080})
+     * @param restClient   client used for the notifications
+     */
+    public PeerInvalidationBroadcaster(List<String> peerBaseUrls, RestClient restClient) {
+        this.peerBaseUrls = List.copyOf(peerBaseUrls);
+        this.restClient = restClient;
+    }
+
+    public void broadcast(String namespace, String key) {
+        for (String peer : peerBaseUrls) {
+            executor.execute(() -> {
+                try {
+                    restClient.post()
+                            .uri(peer + "/internal/store/invalidate/{namespace}?key={key}", namespace, key)
+                            .retrieve()
+                            .toBodilessEntity();
+                } catch (RestClientException e) {
+                    log.debug("Invalidation of {}/{} on {} failed: {}", namespace, key, peer, e.getMessage());
+                }
+            });
+        }
+    }
+}
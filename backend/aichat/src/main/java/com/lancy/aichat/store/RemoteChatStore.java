@@ -0,0 +1,100 @@
+package com.lancy.aichat.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Networked {@link ChatStore} that talks to a store server over HTTP.
+ *
+ * <p>The server side is {@link com.lancy.aichat.controller.StoreController}
+ * running on a node with {@code ai.store.serve=true}; any HTTP server
+ * implementing the same three calls can stand in:</p>
+ * <pre>
+ * GET    /internal/store/{namespace}?key=...   200 + text body, or 404
+ * PUT    /internal/store/{namespace}?key=...   text body, header X-Store-Ttl-Millis
+ * DELETE /internal/store/{namespace}?key=...
+ * </pre>
+ * <p>Calls carry the replica secret in {@code X-Store-Secret} when the client is
+ * configured with it (see {@link StoreSecretInterceptor}).</p>
+ *
+ * <p>Store failures never fail a chat request: reads degrade to a miss and
+ * writes are logged and counted in {@code chat.store.remote.errors}.</p>
+ */
+public class RemoteChatStore implements ChatStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RemoteChatStore.class);
+
+    /** Header carrying the entry TTL in milliseconds (0 = no expiry). */
+    public static final String TTL_HEADER = "X-Store-Ttl-Millis";
+
+    private static final String PATH = "/internal/store/{namespace}?key={key}";
+
+    private final RestClient restClient;
+
+    private final Counter errors;
+
+    public RemoteChatStore(RestClient restClient, MeterRegistry meterRegistry) {
+        this.restClient = restClient;
+        this.errors = meterRegistry.counter("chat.store.remote.errors");
+    }
+
+    @Override
+    public Optional<String> get(String namespace, String key) {
+        try {
+            return Optional.ofNullable(restClient.get()
+                    .uri(PATH, ChatStore.checkNamespace(namespace), key)
+                    .retrieve()
+                    .body(String.class));
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() != HttpStatus.NOT_FOUND) {
+                failed("get", e);
+            }
+            return Optional.empty();
+        } catch (RestClientException e) {
+            failed("get", e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void put(String namespace, String key, String value, Duration ttl) {
+        try {
+            restClient.put()
+                    .uri(PATH, ChatStore.checkNamespace(namespace), key)
+                    .header(TTL_HEADER, String.valueOf(ttl == null ? 0 : Math.max(ttl.toMillis(), 0)))
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(value)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (RestClientException e) {
+            failed("put", e);
+        }
+    }
+
+    @Override
+    public void remove(String namespace, String key) {
+        try {
+            restClient.delete()
+                    .uri(PATH, ChatStore.checkNamespace(namespace), key)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (RestClientException e) {
+            failed("remove", e);
+        }
+    }
+
+    private void failed(String operation, RestClientException e) {
+        errors.increment();
+        log.warn("Remote store {} failed: {}", operation, e.getMessage());
+    }
+}
@@ -0,0 +1,60 @@
+package com.lancy.aichat.store;
+
+import com.lancy.aichat.config.ChatStoreProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Cache of provider responses for stateless (session-less) chat requests.
+ *
+ * <p>Keys are a SHA-256 of provider, system prompt and message, stored in the
+ * {@value #NAMESPACE} namespace of the shared {@link ChatStore} so every
+ * replica benefits. Disabled while {@code ai.store.response-ttl} is zero.</p>
+ */
+@Component
+public class ResponseCache {
+
+    static final String NAMESPACE = "response";
+
+    private final ChatStore store;
+
+    private final ChatStoreProperties properties;
+
+    public ResponseCache(ChatStore store, ChatStoreProperties properties) {
+        this.store = store;
+        this.properties = properties;
+    }
+
+    public boolean isEnabled() {
+        return !properties.getResponseTtl().isZero();
+    }
+
+    public Optional<String> get(String provider, String systemPrompt, String message) {
+        return isEnabled() ? store.get(NAMESPACE, key(provider, systemPrompt, message)) : Optional.empty();
+    }
+
+    public void put(String provider, String systemPrompt, String message, String response) {
+        if (isEnabled() && response != null) {
+            store.put(NAMESPACE, key(provider, systemPrompt, message), response, properties.getResponseTtl());
+        }
+    }
+
+    private static String key(String provider, String systemPrompt, String message) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(provider.toUpperCase().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(systemPrompt).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(message.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
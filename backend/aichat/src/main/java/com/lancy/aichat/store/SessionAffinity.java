@@ -0,0 +1,71 @@
+package com.lancy.aichat.store;
+
+import com.lancy.aichat.config.ChatStoreProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring mapping session IDs to the replica that owns them.
+ *
+ * <p>The owner is returned to clients as a routing hint (see
+ * {@code X-Session-Owner} on {@code /api/chat}) so a load balancer can keep a
+ * session on one node, where its state is hot in the near cache and Ollama's
+ * KV cache. Each node is placed on the ring {@code virtualNodes} times so
+ * adding or removing a node only moves about {@code 1/n} of the sessions.</p>
+ */
+@Component
+public class SessionAffinity {
+
+    private final SortedMap<Long, String> ring;
+
+    private final String selfNode;
+
+    public SessionAffinity(ChatStoreProperties properties) {
+        TreeMap<Long, String> points = new TreeMap<>();
+        for (String node : properties.getNodes()) {
+            for (int i = 0; i < properties.getVirtualNodes(); i++) {
+                points.put(hash(node + '#' + i), node);
+            }
+        }
+        this.ring = Collections.unmodifiableSortedMap(points);
+        this.selfNode = properties.getSelfNode();
+    }
+
+    /**
+     * Returns the node owning the session, or empty when no nodes are configured.
+     */
+    public Optional<String> ownerOf(String sessionId) {
+        if (ring.isEmpty() || sessionId == null) {
+            return Optional.empty();
+        }
+        SortedMap<Long, String> tail = ring.tailMap(hash(sessionId));
+        Map.Entry<Long, String> point = tail.isEmpty() ? ring.entrySet().iterator().next()
+                : tail.entrySet().iterator().next();
+        return Optional.of(point.getValue());
+    }
+
+    /**
+     * True if this node owns the session (or no ring is configured).
+     */
+    public boolean isLocal(String sessionId) {
+        return ownerOf(sessionId).map(owner -> owner.equals(selfNode)).orElse(true);
+    }
+
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.lancy.aichat.store;
+
+import com.lancy.aichat.config.ChatStoreProperties;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Guards the {@code /internal/store/**} endpoints with the shared secret of the
+ * replica set.
+ *
+ * <p>Requests must carry {@value #SECRET_HEADER} equal to {@code ai.store.secret};
+ * others get 401. Without a configured secret the endpoints are closed (403), so
+ * a node never serves its store unauthenticated. {@link RemoteChatStore} and
+ * {@link PeerInvalidationBroadcaster} send the header when their clients are
+ * built by {@link com.lancy.aichat.config.ChatStoreConfig}.</p>
+ */
+@Component
+public class StoreSecretInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(StoreSecretInterceptor.class);
+
+    public static final String SECRET_HEADER = "X-Store-Secret";
+
+    private final ChatStoreProperties properties;
+
+    public StoreSecretInterceptor(ChatStoreProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        String secret = properties.getSecret();
+        if (secret == null || secret.isEmpty()) {
+            log.debug("Refusing {} {}: ai.store.secret is not set", request.getMethod(), request.getRequestURI());
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return false;
+        }
+        String presented = request.getHeader(SECRET_HEADER);
+        // Constant-time comparison, so the secret cannot be guessed byte by byte
+        if (presented == null || !MessageDigest.isEqual(presented.getBytes(StandardCharsets.UTF_8),
+                secret.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("Rejected {} {} from {}: missing or wrong {}", request.getMethod(), request.getRequestURI(),
+                    request.getRemoteAddr(), SECRET_HEADER);
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,26 @@
+package com.lancy.aichat.token;
+
+/**
+ * Thrown when a user message exceeds {@code ai.tokens.reject-above-tokens}, or
+ * the system prompt alone leaves no room in the input budget.
+ */
+public class PromptTooLargeException extends IllegalArgumentException {
+
+    private final int tokens;
+
+    private final int limit;
+
+    public PromptTooLargeException(String message, int tokens, int limit) {
+        super(message);
+        this.tokens = tokens;
+        this.limit = limit;
+    }
+
+    public int getTokens() {
+        return tokens;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
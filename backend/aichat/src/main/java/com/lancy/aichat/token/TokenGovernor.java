@@ -0,0 +1,327 @@
+package com.lancy.aichat.token;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+import com.knuddels.jtokkit.api.IntArrayList;
+import com.lancy.aichat.call.CallContext;
+import com.lancy.aichat.call.CallRegistry;
+import com.lancy.aichat.config.TokenBudgetProperties;
+import com.lancy.aichat.dto.ChatResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Keeps prompts and completions within a token budget.
+ *
+ * <p>Before a provider call:</p>
+ * <ul>
+ *     <li>{@link #admit} rejects pathological user messages (above
+ *     {@code ai.tokens.reject-above-tokens}) before enrichment or any provider work</li>
+ *     <li>{@link #fit} trims the message to the input budget left by the system
+ *     prompt: market context appended by enrichers is cut first, then the user's own
+ *     text loses its middle, keeping the opening and the final question</li>
+ *     <li>{@link #fitHistory} drops the oldest session turns in one block when they no longer fit</li>
+ *     <li>{@link #maxOutputTokens()} caps the completion per endpoint</li>
+ * </ul>
+ *
+ * <p>Metrics (per provider): {@code tokens.prompt}, {@code tokens.history} and
+ * {@code tokens.completion} histograms, {@code tokens.trimmed{part}} and
+ * {@code tokens.rejected}.</p>
+ */
+@Component
+public class TokenGovernor {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenGovernor.class);
+
+    /** Output cap key of calls made outside an HTTP request. */
+    static final String BACKGROUND = "background";
+
+    /** Tokens kept free for the marker inserted where text was cut. */
+    private static final int MARKER_TOKENS = 16;
+
+    /** Per-message overhead of chat formats (role, separators). */
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    /** Share of the history budget a trimmed history fills, leaving room for the following turns. */
+    private static final double HISTORY_TRIM_TARGET = 0.5;
+
+    private final TokenBudgetProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    /** Encodings are immutable and take a few hundred ms to load; shared by all instances. */
+    private static final EncodingRegistry ENCODINGS = Encodings.newLazyEncodingRegistry();
+
+    private final Counter rejected;
+
+    public TokenGovernor(TokenBudgetProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.rejected = meterRegistry.counter("tokens.rejected");
+        // Load the configured encodings now rather than on the first request
+        encoding(null, null);
+        properties.getEncodings().forEach((key, name) -> encoding(key, null));
+    }
+
+    /**
+     * Counts the tokens of {@code text} as the given model would see them.
+     *
+     * @param model model name, or null for the provider's encoding
+     */
+    public int count(String provider, String model, String text) {
+        return text == null || text.isEmpty() ? 0 : encoding(provider, model).countTokensOrdinary(text);
+    }
+
+    /**
+     * Rejects a user message far above any useful size. Tokenizes at most one token
+     * past the limit, so the check is cheap even for huge inputs.
+     *
+     * @throws PromptTooLargeException if the message exceeds {@code ai.tokens.reject-above-tokens}
+     */
+    public void admit(String provider, String model, String message) {
+        if (!properties.isEnabled() || message == null) {
+            return;
+        }
+        int limit = properties.getRejectAboveTokens();
+        if (encoding(provider, model).encodeOrdinary(message, limit).isTruncated()) {
+            rejected.increment();
+            log.warn("Rejecting message of {} chars: more than {} tokens", message.length(), limit);
+            throw new PromptTooLargeException("Message exceeds the limit of " + limit + " tokens", limit + 1, limit);
+        }
+    }
+
+    /**
+     * Fits the user message and the context appended to it into the input budget.
+     *
+     * @param message      user text as sent by the client
+     * @param enriched     {@code message} with context appended by enrichers
+     * @param systemPrompt system prompt of the call (null for the provider's default)
+     * @return the message to send, trimmed if needed
+     * @throws PromptTooLargeException if the system prompt alone exhausts the budget
+     */
+    public String fit(String provider, String model, String systemPrompt, String message, String enriched) {
+        return fitPrompt(provider, model, systemPrompt, message, enriched).message();
+    }
+
+    /**
+     * Like {@link #fit}, also returning the prompt size counted on the way, so
+     * callers need not tokenize the prompt again.
+     *
+     * @return the message to send and the tokens of system prompt and message,
+     *         or {@link Fitted#UNKNOWN} tokens if budgeting is disabled
+     */
+    public Fitted fitPrompt(String provider, String model, String systemPrompt, String message, String enriched) {
+        if (!properties.isEnabled()) {
+            return new Fitted(enriched, Fitted.UNKNOWN);
+        }
+        Encoding encoding = encoding(provider, model);
+        int systemTokens = count(provider, model, systemPrompt);
+        int available = properties.getMaxInputTokens() - systemTokens;
+        if (available <= MARKER_TOKENS) {
+            rejected.increment();
+            throw new PromptTooLargeException("System prompt leaves no room in the budget of "
+                    + properties.getMaxInputTokens() + " tokens", systemTokens, properties.getMaxInputTokens());
+        }
+
+        boolean appended = enriched.startsWith(message);
+        String user = appended ? message : enriched;
+        String context = appended ? enriched.substring(message.length()) : "";
+        int userTokens = encoding.countTokensOrdinary(user);
+        int contextTokens = context.isEmpty() ? 0 : encoding.countTokensOrdinary(context);
+
+        if (userTokens + contextTokens <= available) {
+            int tokens = systemTokens + userTokens + contextTokens;
+            summary("tokens.prompt", provider).record(tokens);
+            return new Fitted(enriched, tokens);
+        }
+        String fitted;
+        if (userTokens + MARKER_TOKENS < available) {
+            // Context is cut first: the user's own words matter most
+            fitted = user + keepHead(encoding, context, available - userTokens);
+            trimmed(provider, "context", userTokens + contextTokens - available);
+        } else {
+            fitted = keepEnds(encoding, user, available);
+            trimmed(provider, "context", contextTokens);
+            trimmed(provider, "message", userTokens - available);
+        }
+        log.info("Trimmed message from {} to the budget of {} tokens (provider: {})",
+                userTokens + contextTokens, available, provider);
+        summary("tokens.prompt", provider).record(systemTokens + available);
+        return new Fitted(fitted, systemTokens + available);
+    }
+
+    /**
+     * Drops the oldest session turns when system prompt, history and message exceed
+     * the input budget.
+     *
+     * <p>Turns are dropped in one block, down to {@value #HISTORY_TRIM_TARGET} of the
+     * room left for history, rather than one by one: each trim changes the prompt
+     * prefix and so discards the provider's KV cache, and a block trim keeps the
+     * prefix stable for the next several turns. Callers that keep the history
+     * (see {@link com.lancy.aichat.service.provider.OllamaSessionContextCache})
+     * must persist the trimmed history for that to hold.</p>
+     *
+     * @param history prior turns, oldest first, as user/assistant pairs
+     * @return the suffix of {@code history} to send
+     */
+    public List<Message> fitHistory(String provider, String model, String systemPrompt,
+                                    List<Message> history, String message) {
+        if (!properties.isEnabled() || history.isEmpty()) {
+            return history;
+        }
+        Encoding encoding = encoding(provider, model);
+        int available = properties.getMaxInputTokens() - count(provider, model, systemPrompt)
+                - count(provider, model, message);
+
+        int[] tokens = new int[history.size()];
+        int total = 0;
+        for (int i = 0; i < history.size(); i++) {
+            String content = history.get(i).getText();
+            tokens[i] = MESSAGE_OVERHEAD_TOKENS + (content == null ? 0 : encoding.countTokensOrdinary(content));
+            total += tokens[i];
+        }
+        int from = 0;
+        int dropped = 0;
+        int target = total > available ? (int) (available * HISTORY_TRIM_TARGET) : available;
+        // Whole turns go, so the history still starts with a user message
+        while (total > target && from < history.size()) {
+            int end = Math.min(from + 2, history.size());
+            for (int i = from; i < end; i++) {
+                total -= tokens[i];
+                dropped += tokens[i];
+            }
+            from = end;
+        }
+        if (from > 0) {
+            trimmed(provider, "history", dropped);
+            log.info("Dropped {} of {} history messages to fit the budget (provider: {})",
+                    from, history.size(), provider);
+        }
+        summary("tokens.history", provider).record(total);
+        return history.subList(from, history.size());
+    }
+
+    /**
+     * Completion cap of the current request's endpoint, or of {@value #BACKGROUND}
+     * outside a request.
+     *
+     * @return the cap, or null for no cap
+     */
+    public Integer maxOutputTokens() {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        String endpoint = CallRegistry.current().map(CallContext::endpoint).orElse(BACKGROUND);
+        Integer cap = null;
+        for (String key = endpoint; cap == null && !key.isEmpty(); key = parent(key)) {
+            cap = properties.getEndpointOutputTokens().get(key);
+        }
+        if (cap == null) {
+            cap = properties.getMaxOutputTokens();
+        }
+        return cap > 0 ? cap : null;
+    }
+
+    /**
+     * Records the size of a completion.
+     *
+     * @return tokens of the completion; 0 if counting is disabled or there is no reply
+     */
+    public int recordCompletion(String provider, ChatResponse response) {
+        if (!properties.isEnabled() || response == null || response.response() == null) {
+            return 0;
+        }
+        int tokens = count(provider, null, response.response());
+        summary("tokens.completion", provider).record(tokens);
+        return tokens;
+    }
+
+    /**
+     * Encoding configured for the model, else for the provider, else the default.
+     */
+    Encoding encoding(String provider, String model) {
+        String name = model != null ? properties.getEncodings().get(model) : null;
+        if (name == null && provider != null) {
+            name = properties.getEncodings().get(provider);
+        }
+        if (name == null) {
+            name = properties.getDefaultEncoding();
+        }
+        String encodingName = name;
+        EncodingType type = EncodingType.fromName(encodingName.toLowerCase())
+                .orElseThrow(() -> new IllegalStateException("Unknown token encoding: " + encodingName));
+        return ENCODINGS.getEncoding(type);
+    }
+
+    /**
+     * First tokens of {@code text} within {@code budget}, marked as truncated.
+     */
+    private static String keepHead(Encoding encoding, String text, int budget) {
+        if (budget <= MARKER_TOKENS) {
+            return "";
+        }
+        return encoding.decode(encoding.encodeOrdinary(text, budget - MARKER_TOKENS).getTokens())
+                + "\n[... context truncated ...]";
+    }
+
+    /**
+     * Opening two thirds and closing third of {@code text} within {@code budget}, with
+     * the cut marked, so the request's framing and its final question both survive.
+     */
+    private static String keepEnds(Encoding encoding, String text, int budget) {
+        IntArrayList tokens = encoding.encodeOrdinary(text);
+        int keep = budget - MARKER_TOKENS;
+        int head = keep * 2 / 3;
+        int tail = keep - head;
+        IntArrayList first = new IntArrayList(head);
+        for (int i = 0; i < head; i++) {
+            first.add(tokens.get(i));
+        }
+        IntArrayList last = new IntArrayList(tail);
+        for (int i = tokens.size() - tail; i < tokens.size(); i++) {
+            last.add(tokens.get(i));
+        }
+        return encoding.decode(first)
+                + "\n[... " + (tokens.size() - keep) + " tokens omitted ...]\n"
+                + encoding.decode(last);
+    }
+
+    private void trimmed(String provider, String part, int tokens) {
+        if (tokens > 0) {
+            meterRegistry.counter("tokens.trimmed", "provider", provider, "part", part).increment(tokens);
+        }
+    }
+
+    private DistributionSummary summary(String name, String provider) {
+        return DistributionSummary.builder(name)
+                .baseUnit("tokens")
+                .tag("provider", provider)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String parent(String key) {
+        int slash = key.lastIndexOf('/');
+        return slash < 0 ? "" : key.substring(0, slash);
+    }
+
+    /**
+     * Result of {@link #fitPrompt}.
+     *
+     * @param message message to send
+     * @param tokens  tokens of the system prompt and {@code message}, or {@link #UNKNOWN}
+     */
+    public record Fitted(String message, int tokens) {
+
+        public static final int UNKNOWN = -1;
+    }
+}
@@ -0,0 +1,26 @@
+package com.lancy.aichat.tool;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.model.function.FunctionCallback;
+
+import java.util.List;
+
+/**
+ * One provider call inside a {@link ToolSession}.
+ *
+ * <p>Implementations send {@code messages} with {@code tools} as function
+ * definitions and must return tool calls to the caller instead of executing
+ * them (Spring AI {@code proxyToolCalls}), so the session controls execution,
+ * caching and the number of rounds.</p>
+ */
+@FunctionalInterface
+public interface ModelTurn {
+
+    /**
+     * @param messages conversation so far, including earlier tool calls and results
+     * @param tools    tools the model may call this turn; empty on the final turn
+     * @return the model's reply, possibly holding tool calls
+     */
+    AssistantMessage call(List<Message> messages, List<FunctionCallback> tools);
+}
@@ -0,0 +1,198 @@
+package com.lancy.aichat.tool;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.marketdata.IndicatorSnapshot;
+import com.lancy.aichat.marketdata.MarketDataService;
+import org.springframework.ai.model.function.FunctionCallback;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Local quant functions the model can call instead of computing numbers itself.
+ *
+ * <ul>
+ *     <li>{@code position_size} - fixed-fractional sizing from account equity, risk
+ *     budget and stop distance (stop defaults to a multiple of the live ATR)</li>
+ *     <li>{@code indicators} - latest live indicators of a symbol</li>
+ *     <li>{@code pnl_stats} - statistics of a list of per-trade returns</li>
+ * </ul>
+ *
+ * <p>Each tool is a plain method, exposed to providers through {@link #callbacks()}
+ * with a JSON schema generated from its request record. Invalid input raises
+ * {@link IllegalArgumentException}; {@link ToolSession} hands the message back to
+ * the model as the tool result.</p>
+ */
+@Component
+public class QuantTools {
+
+    private final MarketDataService marketData;
+
+    private final ObjectMapper objectMapper;
+
+    public QuantTools(MarketDataService marketData, ObjectMapper objectMapper) {
+        this.marketData = marketData;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Function callbacks for all tools, in a stable order.
+     */
+    public List<FunctionCallback> callbacks() {
+        return List.of(
+                FunctionCallback.builder()
+                        .function("position_size", this::positionSize)
+                        .description("Computes how many shares to buy so that hitting the stop loses at most "
+                                + "riskPercent of account equity. Without stopPrice the stop is atrMultiple ATRs "
+                                + "below entry; without entryPrice the last live price is used.")
+                        .inputType(PositionSizeRequest.class)
+                        .objectMapper(objectMapper)
+                        .build(),
+                FunctionCallback.builder()
+                        .function("indicators", this::indicators)
+                        .description("Returns the latest live indicators of a ticker: last price, EMA, RSI, ATR, "
+                                + "VWAP and annualized volatility. Values not yet available are null.")
+                        .inputType(IndicatorRequest.class)
+                        .objectMapper(objectMapper)
+                        .build(),
+                FunctionCallback.builder()
+                        .function("pnl_stats", this::pnlStats)
+                        .description("Computes win rate, average return, profit factor, Sharpe ratio, t-statistic, "
+                                + "compounded total return and max drawdown of a list of per-trade returns "
+                                + "given as fractions (0.02 = +2%).")
+                        .inputType(PnlStatsRequest.class)
+                        .objectMapper(objectMapper)
+                        .build());
+    }
+
+    public PositionSize positionSize(PositionSizeRequest request) {
+        if (request.accountEquity() == null || request.accountEquity() <= 0) {
+            throw new IllegalArgumentException("accountEquity must be positive");
+        }
+        if (request.riskPercent() == null || request.riskPercent() <= 0 || request.riskPercent() > 100) {
+            throw new IllegalArgumentException("riskPercent must be in (0, 100]");
+        }
+
+        IndicatorSnapshot snapshot = null;
+        if (request.entryPrice() == null || request.stopPrice() == null) {
+            if (request.symbol() == null || request.symbol().isBlank()) {
+                throw new IllegalArgumentException("symbol is required when entryPrice or stopPrice is omitted");
+            }
+            snapshot = marketData.snapshot(request.symbol().trim().toUpperCase())
+                    .orElseThrow(() -> new IllegalArgumentException("No live data for " + request.symbol()));
+        }
+
+        double entry = request.entryPrice() != null ? request.entryPrice() : snapshot.last();
+        double stop;
+        if (request.stopPrice() != null) {
+            stop = request.stopPrice();
+        } else {
+            if (Double.isNaN(snapshot.atr())) {
+                throw new IllegalArgumentException("ATR of " + request.symbol() + " is not available yet; pass stopPrice");
+            }
+            double multiple = request.atrMultiple() != null ? request.atrMultiple() : 2.0;
+            stop = entry - multiple * snapshot.atr();
+        }
+
+        double perShareRisk = Math.abs(entry - stop);
+        if (!(entry > 0) || !(perShareRisk > 0)) {
+            throw new IllegalArgumentException("entryPrice must be positive and differ from stopPrice");
+        }
+
+        double riskBudget = request.accountEquity() * request.riskPercent() / 100;
+        // No leverage: never more shares than the account can pay for
+        long shares = (long) Math.min(Math.floor(riskBudget / perShareRisk), Math.floor(request.accountEquity() / entry));
+        double notional = shares * entry;
+        return new PositionSize(shares, entry, stop, perShareRisk, shares * perShareRisk, notional,
+                notional / request.accountEquity() * 100);
+    }
+
+    public IndicatorValues indicators(IndicatorRequest request) {
+        if (request.symbol() == null || request.symbol().isBlank()) {
+            throw new IllegalArgumentException("symbol is required");
+        }
+        String symbol = request.symbol().trim().toUpperCase();
+        IndicatorSnapshot s = marketData.snapshot(symbol)
+                .orElseThrow(() -> new IllegalArgumentException("No live data for " + symbol));
+        return new IndicatorValues(s.symbol(), Instant.ofEpochMilli(s.timestamp()).toString(), value(s.last()),
+                value(s.ema()), value(s.rsi()), value(s.atr()), value(s.vwap()), value(s.volatility()));
+    }
+
+    public PnlStats pnlStats(PnlStatsRequest request) {
+        List<Double> returns = request.returns();
+        if (returns == null || returns.isEmpty()) {
+            throw new IllegalArgumentException("returns must contain at least one trade");
+        }
+
+        int n = returns.size();
+        int wins = 0;
+        double sum = 0;
+        double sumSq = 0;
+        double grossProfit = 0;
+        double grossLoss = 0;
+        double equity = 1;
+        double peak = 1;
+        double maxDrawdown = 0;
+        for (Double boxed : returns) {
+            if (boxed == null || !Double.isFinite(boxed) || boxed <= -1) {
+                throw new IllegalArgumentException("returns must be finite fractions greater than -1");
+            }
+            double r = boxed;
+            sum += r;
+            sumSq += r * r;
+            if (r > 0) {
+                wins++;
+                grossProfit += r;
+            } else {
+                grossLoss -= r;
+            }
+            equity *= 1 + r;
+            peak = Math.max(peak, equity);
+            maxDrawdown = Math.max(maxDrawdown, 1 - equity / peak);
+        }
+
+        double mean = sum / n;
+        double std = n > 1 ? Math.sqrt(Math.max(0, (sumSq - n * mean * mean) / (n - 1))) : 0;
+        return new PnlStats(n, (double) wins / n, mean,
+                grossLoss > 0 ? grossProfit / grossLoss : null,
+                std > 0 ? mean / std : null,
+                std > 0 ? mean / (std / Math.sqrt(n)) : null,
+                equity - 1, maxDrawdown);
+    }
+
+    /**
+     * Not-yet-available indicators ({@code NaN}) become null, which JSON can carry.
+     */
+    private static Double value(double v) {
+        return Double.isNaN(v) ? null : v;
+    }
+
+    public record PositionSizeRequest(
+            @JsonPropertyDescription("Ticker, needed when entryPrice or stopPrice is omitted") String symbol,
+            @JsonProperty(required = true) @JsonPropertyDescription("Account equity in dollars") Double accountEquity,
+            @JsonProperty(required = true) @JsonPropertyDescription("Percent of equity to risk, e.g. 1 for 1%") Double riskPercent,
+            @JsonPropertyDescription("Entry price; defaults to the last live price") Double entryPrice,
+            @JsonPropertyDescription("Stop-loss price; defaults to atrMultiple ATRs below entry") Double stopPrice,
+            @JsonPropertyDescription("ATR multiple for the default stop, default 2") Double atrMultiple
+    ) {}
+
+    public record PositionSize(long shares, double entryPrice, double stopPrice, double perShareRisk,
+                               double dollarRisk, double notional, double percentOfEquity) {}
+
+    public record IndicatorRequest(
+            @JsonProperty(required = true) @JsonPropertyDescription("Ticker, e.g. AAPL") String symbol
+    ) {}
+
+    public record IndicatorValues(String symbol, String asOf, Double last, Double ema, Double rsi, Double atr,
+                                  Double vwap, Double volatility) {}
+
+    public record PnlStatsRequest(
+            @JsonProperty(required = true) @JsonPropertyDescription("Per-trade returns as fractions, oldest first") List<Double> returns
+    ) {}
+
+    public record PnlStats(int trades, double winRate, double averageReturn, Double profitFactor, Double sharpe,
+                           Double tStat, double totalReturn, double maxDrawdown) {}
+}
@@ -0,0 +1,157 @@
+package com.lancy.aichat.tool;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.lancy.aichat.config.ToolProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.model.function.FunctionCallback;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tools available to the model and the executor that runs them.
+ *
+ * <p>Every tool call runs on its own virtual thread so the calls of one model
+ * turn execute in parallel. Failures (bad arguments, unknown tool) are returned
+ * to the model as {@code {"error": "..."}} rather than failing the request, so the
+ * model can correct itself in the next round.</p>
+ *
+ * <p>Metrics: {@code tools.call.latency} per tool and outcome,
+ * {@code tools.cache.hits} per tool, {@code tools.rounds} and
+ * {@code tools.rounds.capped}.</p>
+ */
+@Component
+public class ToolRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolRegistry.class);
+
+    private final Map<String, FunctionCallback> tools = new LinkedHashMap<>();
+
+    private final List<FunctionCallback> callbacks;
+
+    private final ToolProperties properties;
+
+    private final ObjectMapper objectMapper;
+
+    /** Writes maps with sorted keys so equal arguments produce equal cache keys. */
+    private final ObjectWriter canonicalWriter;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ExecutorService executor;
+
+    private final DistributionSummary rounds;
+
+    public ToolRegistry(QuantTools quantTools, ToolProperties properties, ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry) {
+        this.callbacks = quantTools.callbacks();
+        for (FunctionCallback callback : callbacks) {
+            tools.put(callback.getName(), callback);
+        }
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.canonicalWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.meterRegistry = meterRegistry;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("tool-", 0).factory());
+        this.rounds = DistributionSummary.builder("tools.rounds")
+                .description("Model turns that requested tools per request")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts the tool state of one chat request.
+     */
+    public ToolSession newSession() {
+        return new ToolSession(this);
+    }
+
+    public List<FunctionCallback> callbacks() {
+        return callbacks;
+    }
+
+    ToolProperties properties() {
+        return properties;
+    }
+
+    /**
+     * Runs a tool call on a virtual thread.
+     *
+     * @return future JSON result; completes with an error result for unknown tools
+     */
+    Future<String> submit(String name, String arguments) {
+        FunctionCallback tool = tools.get(name);
+        if (tool == null) {
+            return CompletableFuture.completedFuture(error("Unknown tool: " + name + "; available: " + tools.keySet()));
+        }
+        return executor.submit(() -> invoke(tool, arguments));
+    }
+
+    private String invoke(FunctionCallback tool, String arguments) {
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            return tool.call(arguments);
+        } catch (RuntimeException e) {
+            outcome = "error";
+            log.debug("Tool {} failed for {}: {}", tool.getName(), arguments, e.getMessage());
+            return error(e.getMessage() != null ? e.getMessage() : e.toString());
+        } finally {
+            Timer.builder("tools.call.latency")
+                    .tag("tool", tool.getName())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Cache key of a call: tool name plus arguments with sorted keys. Unparseable
+     * arguments are used verbatim.
+     */
+    String cacheKey(String name, String arguments) {
+        try {
+            return name + ' ' + canonicalWriter.writeValueAsString(objectMapper.readValue(arguments, Object.class));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return name + ' ' + arguments;
+        }
+    }
+
+    String error(String message) {
+        try {
+            return objectMapper.writeValueAsString(Map.of("error", message));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize tool error", e);
+        }
+    }
+
+    void cacheHit(String name) {
+        meterRegistry.counter("tools.cache.hits", "tool", tools.containsKey(name) ? name : "unknown").increment();
+    }
+
+    void recordRounds(int toolRounds, boolean capped) {
+        rounds.record(toolRounds);
+        if (capped) {
+            meterRegistry.counter("tools.rounds.capped").increment();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
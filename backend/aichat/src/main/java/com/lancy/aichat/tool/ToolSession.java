@@ -0,0 +1,118 @@
+package com.lancy.aichat.tool;
+
+import com.lancy.aichat.config.ToolProperties;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage.ToolResponse;
+import org.springframework.ai.model.function.FunctionCallback;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tool-calling loop of a single chat request.
+ *
+ * <p>The model is called through a {@link ModelTurn}. When it answers with tool
+ * calls, all calls of that turn run in parallel, their results are appended to the
+ * conversation and the model is called again. After {@code ai.tools.max-rounds}
+ * such turns the model is called once more without tools, so it has to answer in
+ * text and the number of provider calls stays bounded.</p>
+ *
+ * <p>Results are cached for the lifetime of the session: a call repeated with the
+ * same arguments (also across rounds or after a provider fallback) reuses the first
+ * execution. Not thread-safe; a session belongs to one request thread.</p>
+ */
+public final class ToolSession {
+
+    private final ToolRegistry registry;
+
+    private final Map<String, Future<String>> results = new HashMap<>();
+
+    ToolSession(ToolRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Runs the conversation until the model answers in text.
+     *
+     * @param conversation system and user messages to start from
+     * @param turn         provider call
+     * @return the model's final text answer
+     */
+    public String run(List<Message> conversation, ModelTurn turn) {
+        List<Message> messages = new ArrayList<>(conversation);
+        int maxRounds = registry.properties().getMaxRounds();
+        for (int round = 0; ; round++) {
+            boolean toolsAllowed = round < maxRounds;
+            AssistantMessage reply = turn.call(messages, toolsAllowed ? registry.callbacks() : List.<FunctionCallback>of());
+            if (!toolsAllowed || !reply.hasToolCalls()) {
+                registry.recordRounds(round, !toolsAllowed);
+                return reply.getText();
+            }
+            messages.add(reply);
+            messages.add(new ToolResponseMessage(execute(reply.getToolCalls())));
+        }
+    }
+
+    /**
+     * Executes the tool calls of one turn in parallel and collects their results in call order.
+     */
+    List<ToolResponse> execute(List<AssistantMessage.ToolCall> calls) {
+        ToolProperties properties = registry.properties();
+        List<Future<String>> futures = new ArrayList<>(calls.size());
+        List<String> keys = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            AssistantMessage.ToolCall call = calls.get(i);
+            String key = registry.cacheKey(call.name(), call.arguments());
+            keys.add(key);
+            if (i >= properties.getMaxCallsPerRound()) {
+                futures.add(CompletableFuture.completedFuture(registry.error(
+                        "Too many tool calls in one turn; at most " + properties.getMaxCallsPerRound())));
+                continue;
+            }
+            Future<String> cached = results.get(key);
+            if (cached != null) {
+                registry.cacheHit(call.name());
+                futures.add(cached);
+            } else {
+                Future<String> future = registry.submit(call.name(), call.arguments());
+                results.put(key, future);
+                futures.add(future);
+            }
+        }
+
+        long deadline = System.nanoTime() + properties.getTimeout().toNanos();
+        List<ToolResponse> responses = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            AssistantMessage.ToolCall call = calls.get(i);
+            Future<String> future = futures.get(i);
+            String data;
+            try {
+                data = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (CancellationException | TimeoutException e) {
+                // Cancelled: a duplicate call in this batch sharing the future timed out first
+                future.cancel(true);
+                // Do not cache a timeout; the model may retry the call
+                results.remove(keys.get(i), future);
+                data = registry.error("Tool " + call.name() + " timed out after " + properties.getTimeout());
+            } catch (ExecutionException e) {
+                data = registry.error(String.valueOf(e.getCause().getMessage()));
+            } catch (InterruptedException e) {
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for tool results");
+            }
+            responses.add(new ToolResponse(call.id(), call.name(), data));
+        }
+        return responses;
+    }
+}
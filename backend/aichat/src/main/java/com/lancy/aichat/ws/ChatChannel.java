@@ -0,0 +1,163 @@
+package com.lancy.aichat.ws;
+
+import java.time.Duration;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One chat session multiplexed on a WebSocket connection.
+ *
+ * <p>Holds the session's send credit and its in-flight request. The streaming
+ * thread takes one credit per token frame and parks when none are left, which
+ * in turn stops it reading from the provider until the client grants more.
+ * Other sessions on the same connection keep streaming.</p>
+ *
+ * <p>A lock is used rather than {@code synchronized} so parked virtual threads
+ * are not pinned.</p>
+ */
+final class ChatChannel {
+
+    private final String sessionId;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition creditGranted = lock.newCondition();
+
+    private long credits;
+
+    private String requestId;
+
+    private Future<?> task;
+
+    private boolean cancelled;
+
+    ChatChannel(String sessionId, long credits) {
+        this.sessionId = sessionId;
+        this.credits = credits;
+    }
+
+    String sessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Claims the channel for a request.
+     *
+     * @return false if another request is still in flight
+     */
+    boolean begin(String requestId) {
+        lock.lock();
+        try {
+            if (this.requestId != null) {
+                return false;
+            }
+            this.requestId = requestId;
+            this.cancelled = false;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the task streaming the current request; cancels it straight away
+     * if the request was cancelled before the task was submitted.
+     */
+    void attach(Future<?> task) {
+        lock.lock();
+        try {
+            this.task = task;
+            if (cancelled) {
+                task.cancel(true);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the channel once the current request has finished.
+     */
+    void finish() {
+        lock.lock();
+        try {
+            requestId = null;
+            task = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancels the in-flight request, interrupting its streaming thread.
+     *
+     * @param requestId request to cancel, or null for whichever is in flight
+     * @return true if a request was cancelled
+     */
+    boolean cancel(String requestId) {
+        lock.lock();
+        try {
+            if (this.requestId == null || (requestId != null && !requestId.equals(this.requestId))) {
+                return false;
+            }
+            cancelled = true;
+            if (task != null) {
+                task.cancel(true);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isCancelled() {
+        lock.lock();
+        try {
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Grants the session {@code n} more token frames and wakes a paused stream.
+     */
+    void grant(long n) {
+        lock.lock();
+        try {
+            credits = credits > Long.MAX_VALUE - n ? Long.MAX_VALUE : credits + n;
+            creditGranted.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes one credit, waiting up to {@code timeout} for the client to grant more.
+     *
+     * @return nanoseconds spent paused (0 if credit was available), or -1 on timeout
+     * @throws InterruptedException if the request was cancelled while paused
+     */
+    long acquire(Duration timeout) throws InterruptedException {
+        lock.lock();
+        try {
+            if (credits > 0) {
+                credits--;
+                return 0;
+            }
+            long start = System.nanoTime();
+            long remaining = timeout.toNanos();
+            while (credits == 0) {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                remaining = creditGranted.awaitNanos(remaining);
+            }
+            credits--;
+            return Math.max(System.nanoTime() - start, 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
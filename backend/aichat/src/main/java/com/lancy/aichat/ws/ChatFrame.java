@@ -0,0 +1,28 @@
+package com.lancy.aichat.ws;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Frame sent by the client on {@code /ws/chat}.
+ *
+ * <p>{@code type} is one of:
+ * <ul>
+ *     <li>{@code chat} - starts request {@code requestId} on session {@code sessionId};
+ *     {@code message} is required, {@code systemPrompt}, {@code model} and
+ *     {@code credits} are optional</li>
+ *     <li>{@code credit} - grants the session {@code credits} more token frames</li>
+ *     <li>{@code cancel} - cancels {@code requestId} (or whatever the session is running)</li>
+ *     <li>{@code close} - cancels and forgets the session</li>
+ * </ul>
+ * </p>
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ChatFrame(
+        String type,
+        String sessionId,
+        String requestId,
+        String message,
+        String systemPrompt,
+        String model,
+        Integer credits
+) {}
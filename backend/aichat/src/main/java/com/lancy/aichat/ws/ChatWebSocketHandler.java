@@ -0,0 +1,353 @@
+package com.lancy.aichat.ws;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.config.WebSocketProperties;
+import com.lancy.aichat.dto.ChatRequest;
+import com.lancy.aichat.service.ChatService;
+import com.lancy.aichat.token.PromptTooLargeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebSocket endpoint ({@code /ws/chat}) carrying many chat sessions over one connection.
+ *
+ * <p>Frames are JSON text messages tagged with {@code sessionId} and
+ * {@code requestId} (see {@link ChatFrame} and {@link ServerFrame}). Each request
+ * streams on its own virtual thread through {@link ChatService#stream}, and its
+ * reply is pushed back as {@code token} frames followed by {@code done}.</p>
+ *
+ * <p>Backpressure:
+ * <ul>
+ *     <li>Every session starts with {@code ai.ws.initial-credits}; each token frame
+ *     costs one and {@code credit} frames grant more. A session without credit
+ *     pauses its stream (and its reads from the provider) without holding up other
+ *     sessions; a session paused longer than {@code creditTimeout} is failed</li>
+ *     <li>Sends are serialized per connection through
+ *     {@link ConcurrentWebSocketSessionDecorator}; a connection that stays unwritable
+ *     beyond {@code sendTimeLimit} / {@code sendBufferSize} is closed</li>
+ * </ul>
+ * </p>
+ *
+ * <p>Metrics: {@code ws.connections} and {@code ws.streams.active} gauges,
+ * {@code ws.frame.latency} (per outbound frame, by type: from when the frame is
+ * produced until the socket write of it returns, including the wait for client
+ * credit and for frames queued ahead of it on the connection),
+ * {@code ws.backpressure.pauses} and {@code ws.backpressure.wait}.</p>
+ */
+@Component
+public class ChatWebSocketHandler extends TextWebSocketHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatWebSocketHandler.class);
+
+    private final ChatService chatService;
+    private final ObjectMapper objectMapper;
+    private final WebSocketProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
+    private final AtomicInteger streaming = new AtomicInteger();
+    private final Counter pauses;
+    private final Timer creditWait;
+
+    public ChatWebSocketHandler(ChatService chatService, ObjectMapper objectMapper,
+                                WebSocketProperties properties, MeterRegistry meterRegistry) {
+        this.chatService = chatService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ws-chat-", 0).factory());
+        this.pauses = meterRegistry.counter("ws.backpressure.pauses");
+        this.creditWait = Timer.builder("ws.backpressure.wait")
+                .description("Time chat streams spent paused waiting for client credit")
+                .register(meterRegistry);
+        meterRegistry.gauge("ws.connections", connections, ConcurrentHashMap::size);
+        meterRegistry.gauge("ws.streams.active", streaming, AtomicInteger::get);
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        TimedSession timed = new TimedSession(session);
+        WebSocketSession concurrent = new ConcurrentWebSocketSessionDecorator(timed,
+                (int) properties.getSendTimeLimit().toMillis(), properties.getSendBufferSize());
+        connections.put(session.getId(), new Connection(concurrent, timed, new ConcurrentHashMap<>()));
+        log.info("WebSocket chat connection {} opened", session.getId());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connection connection = connections.remove(session.getId());
+        if (connection != null) {
+            connection.channels().values().forEach(channel -> channel.cancel(null));
+        }
+        log.info("WebSocket chat connection {} closed ({})", session.getId(), status);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.warn("WebSocket chat connection {} failed: {}", session.getId(), exception.getMessage());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        Connection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
+        }
+
+        ChatFrame frame;
+        try {
+            frame = objectMapper.readValue(message.getPayload(), ChatFrame.class);
+        } catch (JsonProcessingException e) {
+            send(connection, ServerFrame.error(null, null, "Malformed frame: " + e.getOriginalMessage()));
+            return;
+        }
+
+        if (frame.sessionId() == null || frame.sessionId().isBlank()) {
+            send(connection, ServerFrame.error(null, frame.requestId(), "sessionId is required"));
+            return;
+        }
+
+        switch (frame.type() == null ? "" : frame.type()) {
+            case "chat" -> chat(connection, frame);
+            case "credit" -> credit(connection, frame);
+            case "cancel" -> {
+                ChatChannel channel = connection.channels().get(frame.sessionId());
+                if (channel != null) {
+                    channel.cancel(frame.requestId());
+                }
+            }
+            case "close" -> {
+                ChatChannel channel = connection.channels().remove(frame.sessionId());
+                if (channel != null) {
+                    channel.cancel(null);
+                }
+            }
+            default -> send(connection, ServerFrame.error(frame.sessionId(), frame.requestId(),
+                    "Unknown frame type: " + frame.type()));
+        }
+    }
+
+    private void chat(Connection connection, ChatFrame frame) {
+        if (frame.requestId() == null || frame.requestId().isBlank()) {
+            send(connection, ServerFrame.error(frame.sessionId(), null, "requestId is required"));
+            return;
+        }
+        if (frame.message() == null || frame.message().isBlank()) {
+            send(connection, ServerFrame.error(frame.sessionId(), frame.requestId(), "Message cannot be empty."));
+            return;
+        }
+
+        ChatChannel channel = channel(connection, frame);
+        if (channel == null) {
+            return;
+        }
+        if (frame.credits() != null && frame.credits() > 0) {
+            channel.grant(frame.credits());
+        }
+        if (!channel.begin(frame.requestId())) {
+            send(connection, ServerFrame.error(frame.sessionId(), frame.requestId(),
+                    "Session already has a request in flight"));
+            return;
+        }
+        channel.attach(executor.submit(() -> stream(connection, channel, frame)));
+    }
+
+    private void credit(Connection connection, ChatFrame frame) {
+        if (frame.credits() == null || frame.credits() <= 0) {
+            send(connection, ServerFrame.error(frame.sessionId(), frame.requestId(), "credits must be positive"));
+            return;
+        }
+        ChatChannel channel = channel(connection, frame);
+        if (channel != null) {
+            channel.grant(frame.credits());
+        }
+    }
+
+    /**
+     * Returns the session's channel, opening it if the connection has room for another session.
+     */
+    private ChatChannel channel(Connection connection, ChatFrame frame) {
+        ChatChannel channel = connection.channels().get(frame.sessionId());
+        if (channel != null) {
+            return channel;
+        }
+        // Frames of one connection are delivered sequentially, so check-then-put does not race
+        if (connection.channels().size() >= properties.getMaxSessions()) {
+            send(connection, ServerFrame.error(frame.sessionId(), frame.requestId(),
+                    "Too many sessions on this connection (" + properties.getMaxSessions() + ")"));
+            return null;
+        }
+        channel = new ChatChannel(frame.sessionId(), properties.getInitialCredits());
+        connection.channels().put(frame.sessionId(), channel);
+        return channel;
+    }
+
+    /**
+     * Streams one request on its own virtual thread.
+     */
+    private void stream(Connection connection, ChatChannel channel, ChatFrame frame) {
+        String sessionId = frame.sessionId();
+        String requestId = frame.requestId();
+        long[] seq = new long[1];
+        streaming.incrementAndGet();
+        try {
+            chatService.stream(new ChatRequest(frame.message(), sessionId, frame.systemPrompt(), frame.model()),
+                    token -> {
+                        long produced = System.nanoTime();
+                        awaitCredit(channel);
+                        send(connection, ServerFrame.token(sessionId, requestId, seq[0]++, token), produced);
+                    });
+            send(connection, ServerFrame.done(sessionId, requestId, seq[0]));
+        } catch (RuntimeException e) {
+            // Clear the interrupt so the final frame can still be written
+            boolean interrupted = Thread.interrupted();
+            if (interrupted || e instanceof CancellationException || channel.isCancelled()) {
+                log.info("Cancelled request {} of session {}", requestId, sessionId);
+                send(connection, ServerFrame.cancelled(sessionId, requestId));
+            } else if (e instanceof PromptTooLargeException) {
+                log.warn("Rejected request {} of session {}: {}", requestId, sessionId, e.getMessage());
+                send(connection, ServerFrame.error(sessionId, requestId, e.getMessage()));
+            } else {
+                log.error("Streaming request {} of session {} failed", requestId, sessionId, e);
+                send(connection, ServerFrame.error(sessionId, requestId, "Unable to process request at this time."));
+            }
+        } finally {
+            channel.finish();
+            streaming.decrementAndGet();
+        }
+    }
+
+    /**
+     * Takes one credit for the next token frame, pausing the stream until the client grants more.
+     */
+    private void awaitCredit(ChatChannel channel) {
+        long waited;
+        try {
+            waited = channel.acquire(properties.getCreditTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Cancelled while waiting for client credit");
+        }
+        if (waited < 0) {
+            throw new IllegalStateException("Session " + channel.sessionId()
+                    + " granted no credit within " + properties.getCreditTimeout());
+        }
+        if (waited > 0) {
+            pauses.increment();
+            creditWait.record(waited, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void send(Connection connection, ServerFrame frame) {
+        send(connection, frame, System.nanoTime());
+    }
+
+    /**
+     * Queues a frame; its latency is recorded once the socket write completes.
+     *
+     * @param produced {@link System#nanoTime()} when the frame's content was produced
+     */
+    private void send(Connection connection, ServerFrame frame, long produced) {
+        TextMessage message;
+        try {
+            message = new TextMessage(objectMapper.writeValueAsString(frame));
+        } catch (JsonProcessingException e) {
+            log.error("Cannot serialize {} frame", frame.type(), e);
+            return;
+        }
+        connection.timed().track(message, frame.type(), produced);
+        try {
+            // Returns right away if another thread is flushing; that thread then writes this frame
+            connection.session().sendMessage(message);
+        } catch (IOException | SessionLimitExceededException e) {
+            connection.timed().untrack(message);
+            // The connection is gone or too slow; closing it cancels its streams
+            log.debug("Dropping {} frame for connection {}: {}", frame.type(), connection.session().getId(),
+                    e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A client connection and the chat sessions multiplexed on it.
+     *
+     * @param session serializing decorator that frames are sent through
+     * @param timed   the raw session below it, which sees the actual writes
+     */
+    private record Connection(WebSocketSession session, TimedSession timed,
+                              ConcurrentHashMap<String, ChatChannel> channels) {
+    }
+
+    /**
+     * Records {@code ws.frame.latency} when the write of a tracked frame to the
+     * underlying session completes, on whichever thread flushes it.
+     */
+    private final class TimedSession extends WebSocketSessionDecorator {
+
+        /**
+         * Frames queued but not yet written, keyed by identity since frames with equal
+         * payloads are distinct writes. Frames discarded when the connection closes
+         * stay here and go with the connection.
+         */
+        private final Map<WebSocketMessage<?>, Pending> pending = Collections.synchronizedMap(new IdentityHashMap<>());
+
+        TimedSession(WebSocketSession delegate) {
+            super(delegate);
+        }
+
+        void track(WebSocketMessage<?> message, String type, long produced) {
+            pending.put(message, new Pending(type, produced));
+        }
+
+        void untrack(WebSocketMessage<?> message) {
+            pending.remove(message);
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            boolean written = false;
+            try {
+                super.sendMessage(message);
+                written = true;
+            } finally {
+                Pending sent = pending.remove(message);
+                if (written && sent != null) {
+                    meterRegistry.timer("ws.frame.latency", "type", sent.type())
+                            .record(System.nanoTime() - sent.produced(), TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+
+    private record Pending(String type, long produced) {
+    }
+}
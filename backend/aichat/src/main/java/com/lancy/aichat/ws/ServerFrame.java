@@ -0,0 +1,42 @@
+package com.lancy.aichat.ws;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Frame sent by the server on {@code /ws/chat}.
+ *
+ * <p>{@code type} is one of:
+ * <ul>
+ *     <li>{@code token} - chunk {@code seq} (0-based) of the reply in {@code text}</li>
+ *     <li>{@code done} - reply complete; {@code seq} is the number of token frames sent</li>
+ *     <li>{@code cancelled} - the request was cancelled</li>
+ *     <li>{@code error} - the frame or request failed; details in {@code error}</li>
+ * </ul>
+ * </p>
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ServerFrame(
+        String type,
+        String sessionId,
+        String requestId,
+        Long seq,
+        String text,
+        String error
+) {
+
+    static ServerFrame token(String sessionId, String requestId, long seq, String text) {
+        return new ServerFrame("token", sessionId, requestId, seq, text, null);
+    }
+
+    static ServerFrame done(String sessionId, String requestId, long frames) {
+        return new ServerFrame("done", sessionId, requestId, frames, null, null);
+    }
+
+    static ServerFrame cancelled(String sessionId, String requestId) {
+        return new ServerFrame("cancelled", sessionId, requestId, null, null, null);
+    }
+
+    static ServerFrame error(String sessionId, String requestId, String error) {
+        return new ServerFrame("error", sessionId, requestId, null, null, error);
+    }
+}
@@ -0,0 +1,255 @@
+package com.lancy.aichat.alert;
+
+import com.lancy.aichat.config.AlertProperties;
+import com.lancy.aichat.config.MarketDataProperties;
+import com.lancy.aichat.dto.ChatRequest;
+import com.lancy.aichat.dto.ChatResponse;
+import com.lancy.aichat.routing.ProviderRouter;
+import com.lancy.aichat.service.ChatService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for rule evaluation, debouncing and commentary of alerts.
+ *
+ * <p>
+ * Events are fed to the engine directly and the clock is passed to
+ * {@link AlertEngine#due(long)}. No Spring context is loaded.
+ * </p>
+ */
+public class AlertEngineTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    private AlertProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AlertEngine engine;
+
+    private long timestamp = Instant.parse("2024-05-01T14:30:00Z").toEpochMilli();
+
+    @BeforeEach
+    void setup() {
+        properties = new AlertProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        engine = new AlertEngine(properties, new MarketDataProperties(), meterRegistry);
+    }
+
+    private void event(String symbol, double open, double close, double rsi) {
+        timestamp += 60_000;
+        engine.onIndicators(symbol.equals("AAPL") ? 0 : 1, symbol, timestamp, open, close, close, rsi, 1.0, 0.2);
+    }
+
+    private static AlertRule rule(String id, String symbol, AlertMetric metric, AlertRule.Condition condition,
+                                  double threshold) {
+        return new AlertRule(id, symbol, metric, condition, threshold, null);
+    }
+
+    /** Far enough ahead for every debounce window and cooldown to be over */
+    private static long later() {
+        return System.nanoTime() + Duration.ofHours(1).toNanos();
+    }
+
+    @Test
+    void testRulesFireOnCrossingNotWhileHolding() {
+        engine.add(rule("overbought", "aapl", AlertMetric.RSI, AlertRule.Condition.ABOVE, 70));
+        engine.add(rule("oversold", null, AlertMetric.RSI, AlertRule.Condition.BELOW, 30));
+
+        event("AAPL", 100, 100, 50);
+        event("AAPL", 100, 100, 75);
+        event("AAPL", 100, 100, 80);
+        event("AAPL", 100, 100, 70);
+        event("MSFT", 100, 100, 72);
+
+        assertEquals(1.0, meterRegistry.counter("alerts.triggers").count());
+        List<Alert> alerts = engine.due(later());
+        assertEquals(1, alerts.size());
+        assertEquals("AAPL", alerts.get(0).symbol());
+        assertEquals(List.of("overbought"), alerts.get(0).rules().stream().map(AlertRule::id).toList());
+
+        // Back below and up again: a new crossing
+        event("AAPL", 100, 100, 60);
+        event("AAPL", 100, 100, 71);
+        // First value already beyond the threshold counts as a crossing
+        event("MSFT", 100, 100, 25);
+
+        assertEquals(3.0, meterRegistry.counter("alerts.triggers").count());
+        assertEquals(2, engine.due(later() + Duration.ofHours(1).toNanos()).size());
+    }
+
+    @Test
+    void testGapAndDrawdownMetrics() {
+        engine.add(rule("gap", "AAPL", AlertMetric.GAP_PCT, AlertRule.Condition.ABOVE, 2));
+        engine.add(rule("drawdown", "AAPL", AlertMetric.DRAWDOWN_PCT, AlertRule.Condition.ABOVE, 5));
+
+        event("AAPL", 100, 100, 50);
+        event("AAPL", 103, 104, 55);
+        event("AAPL", 104, 110, 60);
+        event("AAPL", 108, 103, 45);
+
+        Alert alert = engine.due(later()).get(0);
+        assertEquals(List.of("gap", "drawdown"), alert.rules().stream().map(AlertRule::id).toList());
+        assertEquals(2, alert.triggers());
+        assertEquals(103.0, alert.metrics().get(AlertMetric.PRICE));
+        assertEquals((110 - 103) / 110.0 * 100, alert.metrics().get(AlertMetric.DRAWDOWN_PCT), 1e-9);
+        assertEquals(Instant.ofEpochMilli(timestamp), alert.timestamp());
+        assertTrue(alert.toPrompt().contains("Alert on AAPL"));
+        assertTrue(alert.toPrompt().contains("- gap % above 2"));
+    }
+
+    @Test
+    void testBurstCoalescedIntoOneAlertPerSymbol() {
+        properties.setMaxRulesPerAlert(2);
+        for (int level = 101; level <= 105; level++) {
+            engine.add(rule("price-" + level, "AAPL", AlertMetric.PRICE, AlertRule.Condition.ABOVE, level));
+        }
+        long start = System.nanoTime();
+
+        event("AAPL", 100, 100, 50);
+        event("AAPL", 100, 101.5, 50);
+        event("AAPL", 100, 100, 50);
+        event("AAPL", 100, 103, 50);
+        event("AAPL", 100, 106, 50);
+
+        assertTrue(engine.due(start).isEmpty(), "debounce window still open");
+        List<Alert> alerts = engine.due(System.nanoTime() + 3 * SECOND);
+        assertEquals(1, alerts.size());
+        assertEquals(List.of("price-101", "price-102"), alerts.get(0).rules().stream().map(AlertRule::id).toList());
+        assertEquals(6, alerts.get(0).triggers());
+        assertEquals(1.0, meterRegistry.counter("alerts.raised").count());
+
+        // Within the cooldown triggers wait for the next alert
+        event("AAPL", 100, 100, 50);
+        event("AAPL", 100, 101.5, 50);
+        assertTrue(engine.due(System.nanoTime() + 10 * SECOND).isEmpty());
+        assertEquals(1, engine.due(System.nanoTime() + properties.getCooldown().toNanos() + 10 * SECOND).size());
+    }
+
+    @Test
+    void testRuleManagement() {
+        properties.setMaxRules(2);
+        AlertRule added = engine.add(new AlertRule(null, " msft ", AlertMetric.PRICE, AlertRule.Condition.BELOW,
+                300, " "));
+        assertNotNull(added.id());
+        assertEquals("MSFT", added.symbol());
+        assertNull(added.note());
+        engine.add(rule("r2", null, AlertMetric.RSI, AlertRule.Condition.ABOVE, 70));
+        assertEquals(AlertRule.ANY_SYMBOL, engine.rules().get(1).symbol());
+
+        engine.add(rule("r2", null, AlertMetric.RSI, AlertRule.Condition.ABOVE, 80));
+        assertEquals(80, engine.rules().get(1).threshold());
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.add(rule("r3", null, AlertMetric.RSI, AlertRule.Condition.ABOVE, 90)));
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.add(rule("r2", null, AlertMetric.RSI, null, 90)));
+        assertThrows(IllegalArgumentException.class,
+                () -> engine.add(rule("r2", null, AlertMetric.RSI, AlertRule.Condition.ABOVE, Double.NaN)));
+
+        assertTrue(engine.remove("r2"));
+        assertFalse(engine.remove("r2"));
+        assertEquals(List.of(added), engine.rules());
+    }
+
+    @Test
+    void testThousandsOfRulesEvaluatedWithoutAllocation() {
+        for (int i = 0; i < 5000; i++) {
+            AlertMetric metric = AlertMetric.ALL[i % AlertMetric.ALL.length];
+            engine.add(rule("r" + i, i % 2 == 0 ? null : "AAPL", metric,
+                    i % 3 == 0 ? AlertRule.Condition.BELOW : AlertRule.Condition.ABOVE, 1000 + i));
+        }
+        engine.add(rule("hot", "AAPL", AlertMetric.PRICE, AlertRule.Condition.ABOVE, 100.5));
+        // Warm up: symbol state, JIT and the trigger path
+        for (int i = 0; i < 20_000; i++) {
+            event("AAPL", 100, 100 + (i & 1), 50);
+        }
+        engine.due(later());
+        double triggered = meterRegistry.counter("alerts.triggers").count();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 100_000; i++) {
+            event("AAPL", 100, 100 + (i & 1), 50);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue(allocated < 64 * 1024, "allocated " + allocated + " bytes");
+        // Every other event crosses the hot rule
+        assertEquals(50_000.0, meterRegistry.counter("alerts.triggers").count() - triggered);
+    }
+
+    @Test
+    void testConcurrentFlushNeverRaisesEmptyAlert() throws Exception {
+        properties.setDebounce(Duration.ZERO);
+        properties.setMaxDelay(Duration.ZERO);
+        properties.setCooldown(Duration.ZERO);
+        for (int i = 0; i < 2000; i++) {
+            engine.add(rule("r" + i, "AAPL", AlertMetric.PRICE, AlertRule.Condition.ABOVE, 100.5));
+        }
+        List<Alert> alerts = new CopyOnWriteArrayList<>();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread flusher = new Thread(() -> {
+            while (!done.get()) {
+                alerts.addAll(engine.due(System.nanoTime()));
+            }
+        });
+        flusher.start();
+
+        for (int i = 0; i < 4000; i++) {
+            event("AAPL", 100, 100 + (i & 1), 50);
+        }
+        done.set(true);
+        flusher.join();
+        alerts.addAll(engine.due(later()));
+
+        long triggered = 0;
+        for (Alert alert : alerts) {
+            assertFalse(alert.rules().isEmpty());
+            triggered += alert.triggers();
+        }
+        assertEquals(meterRegistry.counter("alerts.triggers").count(), triggered);
+    }
+
+    @Test
+    void testCommentaryPublishedAndStaleAlertsSkipped() throws Exception {
+        ChatService chatService = mock(ChatService.class);
+        ProviderRouter router = mock(ProviderRouter.class);
+        when(chatService.chat(any(ChatRequest.class))).thenReturn(new ChatResponse("Overbought into resistance."));
+        AlertService service = new AlertService(engine, chatService, router, properties, meterRegistry);
+        Alert alert = new Alert("a1", "AAPL", Instant.now(),
+                List.of(rule("overbought", "AAPL", AlertMetric.RSI, AlertRule.Condition.ABOVE, 70)), 1,
+                Map.of(AlertMetric.RSI, 74.0), Instant.now(), null);
+
+        service.comment(alert);
+
+        ArgumentCaptor<ChatRequest> request = ArgumentCaptor.forClass(ChatRequest.class);
+        verify(chatService).chat(request.capture());
+        assertTrue(request.getValue().message().contains("- RSI above 70"));
+        assertEquals(AlertService.SYSTEM_PROMPT, request.getValue().systemPrompt());
+        assertNull(request.getValue().sessionId());
+        assertEquals(1.0, meterRegistry.counter("alerts.commentary", "outcome", "success").count());
+
+        // Busy with foreground calls until the alert is too old to comment on
+        properties.setMaxAge(Duration.ofMillis(100));
+        when(router.inFlight()).thenReturn(3);
+        service.comment(alert);
+
+        verifyNoMoreInteractions(chatService);
+        assertEquals(1.0, meterRegistry.counter("alerts.dropped", "reason", "stale").count());
+    }
+}
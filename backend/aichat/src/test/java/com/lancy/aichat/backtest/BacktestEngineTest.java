@@ -0,0 +1,200 @@
+package com.lancy.aichat.backtest;
+
+import com.lancy.aichat.backtest.Rule.Indicator;
+import com.lancy.aichat.backtest.Rule.Operator;
+import com.lancy.aichat.backtest.StrategySpec.Direction;
+import com.lancy.aichat.dto.TradeAnalysis;
+import com.lancy.aichat.marketdata.history.BarSeries;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.DoubleStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the backtest simulator and the fork-join engine.
+ *
+ * <p>
+ * Uses synthetic price series with known behaviour. No Spring context is loaded.
+ * </p>
+ */
+public class BacktestEngineTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Sine wave around 100 with a period of 20 bars.
+     */
+    private static BarSeries wave(String symbol, int bars, double phase) {
+        long[] t = new long[bars];
+        double[] o = new double[bars];
+        double[] h = new double[bars];
+        double[] l = new double[bars];
+        double[] c = new double[bars];
+        double[] v = new double[bars];
+        for (int i = 0; i < bars; i++) {
+            t[i] = i * 86_400_000L;
+            c[i] = 100 + 10 * Math.sin(2 * Math.PI * i / 20 + phase);
+            o[i] = i == 0 ? c[i] : c[i - 1];
+            h[i] = Math.max(o[i], c[i]) + 0.5;
+            l[i] = Math.min(o[i], c[i]) - 0.5;
+            v[i] = 1000;
+        }
+        return new BarSeries(symbol, t, o, h, l, c, v);
+    }
+
+    private static StrategySpec meanReversion() {
+        return new StrategySpec(Direction.LONG,
+                new Rule(Indicator.EMA_DISTANCE, Operator.BELOW, -5),
+                new Rule(Indicator.EMA_DISTANCE, Operator.ABOVE, 5),
+                0, 0, 0, 0, 0, 1, 0, 0, 0);
+    }
+
+    @Test
+    void testMeanReversionProfitsOnOscillatingPrices() {
+        BacktestResult result = new Simulator(meanReversion(), 252).run("WAVE", wave("WAVE", 400, 0));
+
+        assertTrue(result.trades() > 10);
+        assertTrue(result.totalReturn() > 0);
+        assertTrue(result.sharpe() > 0);
+        // Only the position force-closed on the last bar may lose
+        assertTrue(result.winRate() > 0.9);
+    }
+
+    @Test
+    void testStopFillsAtOpenWhenBarGapsThroughIt() {
+        BarSeries bars = new BarSeries("GAP", new long[]{0, 1},
+                new double[]{100, 97}, new double[]{101, 99}, new double[]{99, 95},
+                new double[]{100, 96}, new double[]{1, 1});
+        StrategySpec spec = new StrategySpec(Direction.LONG,
+                new Rule(Indicator.CLOSE, Operator.BELOW, 1000), null,
+                1, 0, 0, 0, 0, 0, 0, 0, 1);
+
+        BacktestResult result = new Simulator(spec, 252).run("GAP", bars);
+
+        assertEquals(1, result.trades());
+        assertEquals(-0.03, result.totalReturn(), 1e-9);
+        assertEquals(0.03, result.maxDrawdown(), 1e-9);
+        assertEquals(0.0, result.winRate());
+    }
+
+    @Test
+    void testShortProfitsFromFallingPrices() {
+        BarSeries bars = new BarSeries("DOWN", new long[]{0, 1, 2},
+                new double[]{100, 100, 90}, new double[]{100, 100, 90}, new double[]{100, 90, 80},
+                new double[]{100, 90, 80}, new double[]{1, 1, 1});
+        StrategySpec spec = new StrategySpec(Direction.SHORT,
+                new Rule(Indicator.CLOSE, Operator.ABOVE, 0), null,
+                0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+        BacktestResult result = new Simulator(spec, 252).run("DOWN", bars);
+
+        assertEquals(1, result.trades());
+        assertEquals(0.2, result.totalReturn(), 1e-9);
+    }
+
+    @Test
+    void testGridExpandsToCartesianProduct() {
+        Map<String, List<Double>> grid = new LinkedHashMap<>();
+        grid.put("entryThreshold", List.of(-7.0, -6.0, -5.0));
+        grid.put("exitThreshold", List.of(4.0, 6.0));
+
+        List<StrategySpec> specs = BacktestEngine.expand(meanReversion(), grid);
+
+        assertEquals(6, specs.size());
+        assertEquals(-6.0, specs.get(2).entry().threshold());
+        assertEquals(4.0, specs.get(2).exit().threshold());
+        assertThrows(IllegalArgumentException.class,
+                () -> BacktestEngine.expand(meanReversion(), Map.of("leverage", List.of(2.0))));
+    }
+
+    @Test
+    void testRunsCountedWithoutExpanding() {
+        Map<String, List<Double>> grid = new LinkedHashMap<>();
+        grid.put("entryThreshold", List.of(-7.0, -6.0, -5.0));
+        grid.put("exitThreshold", List.of());
+        grid.put("stopLossPct", List.of(1.0, 2.0));
+        assertEquals(12, BacktestEngine.runs(2, grid));
+        assertEquals(2, BacktestEngine.runs(2, null));
+
+        // 2000^6 does not fit in a long
+        List<Double> values = DoubleStream.iterate(0, v -> v + 1).limit(2000).boxed().toList();
+        Map<String, List<Double>> huge = new LinkedHashMap<>();
+        for (String parameter : List.of("a", "b", "c", "d", "e", "f")) {
+            huge.put(parameter, values);
+        }
+        assertEquals(Long.MAX_VALUE, BacktestEngine.runs(3, huge));
+    }
+
+    @Test
+    void testParallelRunMatchesSequentialRuns() {
+        List<BarSeries> series = List.of(wave("A", 300, 0), wave("B", 250, 1), wave("C", 200, 2));
+        Map<String, List<Double>> grid = new LinkedHashMap<>();
+        grid.put("entryThreshold", List.of(-8.0, -7.0, -6.0, -5.0));
+        grid.put("exitThreshold", List.of(4.0, 5.0, 6.0));
+        List<StrategySpec> specs = BacktestEngine.expand(meanReversion(), grid);
+
+        List<BacktestResult> results = new BacktestEngine(pool).run(series, specs, 252);
+
+        assertEquals(36, results.size());
+        for (int s = 0; s < series.size(); s++) {
+            for (int p = 0; p < specs.size(); p++) {
+                BacktestResult expected = new Simulator(specs.get(p), 252).run(series.get(s).symbol(), series.get(s));
+                assertEquals(expected, results.get(s * specs.size() + p));
+            }
+        }
+    }
+
+    @Test
+    void testCancelledRunStopsEarly() {
+        List<BarSeries> series = List.of(wave("A", 300, 0), wave("B", 250, 1), wave("C", 200, 2));
+        Map<String, List<Double>> grid = new LinkedHashMap<>();
+        grid.put("entryThreshold", List.of(-8.0, -7.0, -6.0, -5.0));
+        grid.put("exitThreshold", List.of(4.0, 5.0, 6.0));
+        List<StrategySpec> specs = BacktestEngine.expand(meanReversion(), grid);
+        ForkJoinPool single = new ForkJoinPool(1);
+        AtomicInteger checks = new AtomicInteger();
+        try {
+            // Cancelled after the root task's check; every later check stops its task or run
+            assertThrows(CancellationException.class, () -> new BacktestEngine(single).run(series, specs, 252,
+                    () -> checks.incrementAndGet() > 1));
+        } finally {
+            single.shutdownNow();
+        }
+
+        // Root, both halves and the check after invoke: nothing below the first split ran
+        assertEquals(4, checks.get());
+    }
+
+    @Test
+    void testResultMapsToTradeAnalysis() {
+        BacktestResult result = new BacktestResult("AAPL", meanReversion(), 500, 40, 0.6, 0.25, 1.4,
+                0.08, 2.1, 0.006, 3.3, 0.4);
+
+        TradeAnalysis analysis = result.toTradeAnalysis();
+
+        assertEquals("POSITIVE", analysis.sentiment());
+        assertEquals("HIGH", analysis.setupQuality());
+        assertEquals(1.0, analysis.confidenceScore());
+        assertTrue(analysis.riskAssessment().startsWith("Max drawdown 8.0%"));
+    }
+
+    @Test
+    void testBarsPerYearFromInterval() {
+        assertEquals(252, BacktestService.barsPerYear(Duration.ofDays(1)), 1e-9);
+        assertEquals(252 * 390, BacktestService.barsPerYear(Duration.ofMinutes(1)), 1e-9);
+    }
+}
@@ -0,0 +1,173 @@
+package com.lancy.aichat.call;
+
+import com.lancy.aichat.config.DeadlineProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for request deadline resolution, the request context lifecycle and
+ * aborting provider calls through {@link CallScope}.
+ *
+ * <p>
+ * Requests are mock servlet requests. No Spring context is loaded.
+ * </p>
+ */
+public class DeadlineInterceptorTest {
+
+    private DeadlineProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CallRegistry registry;
+
+    private DeadlineInterceptor interceptor;
+
+    @BeforeEach
+    void setup() {
+        properties = new DeadlineProperties();
+        properties.getEndpoints().put("chat", Duration.ofSeconds(90));
+        properties.getEndpoints().put("chat/tools", Duration.ofMinutes(3));
+        meterRegistry = new SimpleMeterRegistry();
+        registry = new CallRegistry(meterRegistry);
+        interceptor = new DeadlineInterceptor(registry, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("POST", uri);
+    }
+
+    @Test
+    void testTimeoutResolution() {
+        assertEquals(Duration.ofSeconds(90), interceptor.timeout("chat", null));
+        assertEquals(Duration.ofMinutes(3), interceptor.timeout("chat/tools", null));
+        assertEquals(Duration.ofSeconds(90), interceptor.timeout("chat/other", null));
+        assertEquals(properties.getDefaultTimeout(), interceptor.timeout("backtest", null));
+        assertEquals(Duration.ofMillis(2500), interceptor.timeout("chat", "2500"));
+        assertEquals(Duration.ofSeconds(30), interceptor.timeout("chat", "30s"));
+        assertEquals(properties.getMaxTimeout(), interceptor.timeout("chat", "1h"));
+        assertEquals(Duration.ofSeconds(90), interceptor.timeout("chat", "soon"));
+    }
+
+    @Test
+    void testContextBoundForTheRequest() {
+        MockHttpServletRequest request = request("/api/chat/tools");
+        request.addHeader(DeadlineInterceptor.REQUEST_ID_HEADER, "4f0c2a9e-abc-123");
+        request.addHeader(DeadlineInterceptor.TIMEOUT_HEADER, "5000");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, new Object()));
+        CallContext context = CallRegistry.current().orElseThrow();
+        assertEquals("4f0c2a9e-abc-123", context.requestId());
+        assertEquals("chat/tools", context.endpoint());
+        assertEquals(Duration.ofSeconds(5), context.timeout());
+        assertEquals("4f0c2a9e-abc-123", response.getHeader(DeadlineInterceptor.REQUEST_ID_HEADER));
+
+        interceptor.afterCompletion(request, response, new Object(), null);
+        assertTrue(CallRegistry.current().isEmpty());
+        assertFalse(registry.cancel("4f0c2a9e-abc-123"));
+    }
+
+    @Test
+    void testInvalidRequestIdReplaced() {
+        MockHttpServletRequest request = request("/api/chat");
+        request.addHeader(DeadlineInterceptor.REQUEST_ID_HEADER, "bad id\n");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, new Object());
+        try {
+            String id = response.getHeader(DeadlineInterceptor.REQUEST_ID_HEADER);
+            assertNotEquals("bad id\n", id);
+            assertEquals(id, CallRegistry.current().orElseThrow().requestId());
+        } finally {
+            interceptor.afterCompletion(request, response, new Object(), null);
+        }
+    }
+
+    @Test
+    void testShortOrInFlightRequestIdReplaced() {
+        MockHttpServletRequest shortId = request("/api/chat");
+        shortId.addHeader(DeadlineInterceptor.REQUEST_ID_HEADER, "req-1");
+        MockHttpServletResponse shortResponse = new MockHttpServletResponse();
+        interceptor.preHandle(shortId, shortResponse, new Object());
+        assertNotEquals("req-1", shortResponse.getHeader(DeadlineInterceptor.REQUEST_ID_HEADER));
+        interceptor.afterCompletion(shortId, shortResponse, new Object(), null);
+
+        CallContext first = registry.open("4f0c2a9e-in-flight", "chat", Duration.ofMinutes(1));
+        MockHttpServletRequest reused = request("/api/chat");
+        reused.addHeader(DeadlineInterceptor.REQUEST_ID_HEADER, "4f0c2a9e-in-flight");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(reused, response, new Object());
+        try {
+            String id = response.getHeader(DeadlineInterceptor.REQUEST_ID_HEADER);
+            assertNotEquals("4f0c2a9e-in-flight", id);
+            assertEquals(id, CallRegistry.current().orElseThrow().requestId());
+
+            // Cancelling by the reused id still reaches the first request only
+            assertTrue(registry.cancel("4f0c2a9e-in-flight"));
+            assertEquals(CallContext.Reason.CLIENT, first.abortReason());
+            assertNull(CallRegistry.current().orElseThrow().abortReason());
+        } finally {
+            interceptor.afterCompletion(reused, response, new Object(), null);
+            registry.close(first);
+        }
+    }
+
+    @Test
+    void testDisabledLeavesRequestsUnbounded() {
+        properties.setEnabled(false);
+        MockHttpServletRequest request = request("/api/chat");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(interceptor.preHandle(request, response, new Object()));
+        assertTrue(CallRegistry.current().isEmpty());
+        assertNull(response.getHeader(DeadlineInterceptor.REQUEST_ID_HEADER));
+    }
+
+    @Test
+    void testScopeInterruptsAtDeadlineAndClearsInterrupt() throws Exception {
+        CallContext context = registry.open("req", "chat", Duration.ofMillis(50));
+        CountDownLatch interrupted = new CountDownLatch(1);
+        try (CallScope scope = registry.arm()) {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            assertNotNull(scope.aborted("PRIMARY", System.nanoTime(), new IllegalStateException()));
+        } finally {
+            registry.close(context);
+        }
+
+        assertTrue(interrupted.await(0, TimeUnit.SECONDS));
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals(CallContext.Reason.DEADLINE, context.abortReason());
+    }
+
+    @Test
+    void testScopeWithoutContextOnlyReportsInterrupts() {
+        try (CallScope scope = registry.arm()) {
+            assertNull(scope.aborted("PRIMARY", System.nanoTime(), new IllegalStateException()));
+            Thread.currentThread().interrupt();
+            assertNotNull(scope.aborted("PRIMARY", System.nanoTime(), new IllegalStateException()));
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(1.0, meterRegistry.counter("chat.aborted", "provider", "PRIMARY", "reason", "cancelled").count());
+    }
+}
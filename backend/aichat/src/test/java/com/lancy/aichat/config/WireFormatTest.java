@@ -0,0 +1,133 @@
+package com.lancy.aichat.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.dto.ChatResponse;
+import com.lancy.aichat.marketdata.history.BarSeries;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the CBOR wire format with JSON.
+ *
+ * <p>
+ * Checks that both formats carry the same data and logs bytes on the wire
+ * (raw and gzipped) and encode/decode time per payload. Only sizes are
+ * asserted; timings depend on the machine. No Spring context is loaded.
+ * </p>
+ */
+public class WireFormatTest {
+
+    private static final Logger log = LoggerFactory.getLogger(WireFormatTest.class);
+
+    private static final int ITERATIONS = 200;
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+
+    private final ObjectMapper cbor = new WireFormatConfig()
+            .cborHttpMessageConverter(Jackson2ObjectMapperBuilder.json())
+            .getObjectMapper();
+
+    /**
+     * One day of minute bars, the shape returned by {@code GET /api/history/{symbol}}.
+     */
+    private static BarSeries bars(int n) {
+        long[] timestamps = new long[n];
+        double[] open = new double[n];
+        double[] high = new double[n];
+        double[] low = new double[n];
+        double[] close = new double[n];
+        double[] volume = new double[n];
+        double price = 190.0;
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = 1_700_000_000_000L + i * 60_000L;
+            open[i] = price;
+            price += Math.sin(i * 0.37) * 0.25;
+            high[i] = Math.max(open[i], price) + 0.05;
+            low[i] = Math.min(open[i], price) - 0.05;
+            close[i] = price;
+            volume[i] = 10_000 + (i * 7919) % 5_000;
+        }
+        return new BarSeries("AAPL", timestamps, open, high, low, close, volume);
+    }
+
+    private static int gzipped(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.size();
+    }
+
+    /**
+     * Logs size and mean encode/decode time of {@code value} in both formats.
+     *
+     * @return {JSON bytes, CBOR bytes}
+     */
+    private <T> int[] compare(String name, T value, Class<T> type) throws IOException {
+        byte[] jsonBytes = json.writeValueAsBytes(value);
+        byte[] cborBytes = cbor.writeValueAsBytes(value);
+
+        long[] nanos = new long[4];
+        for (int warmup = 0; warmup < 2; warmup++) {
+            nanos = new long[4];
+            for (int i = 0; i < ITERATIONS; i++) {
+                long t0 = System.nanoTime();
+                json.writeValueAsBytes(value);
+                long t1 = System.nanoTime();
+                json.readValue(jsonBytes, type);
+                long t2 = System.nanoTime();
+                cbor.writeValueAsBytes(value);
+                long t3 = System.nanoTime();
+                cbor.readValue(cborBytes, type);
+                long t4 = System.nanoTime();
+                nanos[0] += t1 - t0;
+                nanos[1] += t2 - t1;
+                nanos[2] += t3 - t2;
+                nanos[3] += t4 - t3;
+            }
+        }
+
+        log.info("{}: JSON {} B (gzip {} B), encode {} us, decode {} us | CBOR {} B (gzip {} B), encode {} us, decode {} us",
+                name, jsonBytes.length, gzipped(jsonBytes), nanos[0] / ITERATIONS / 1000, nanos[1] / ITERATIONS / 1000,
+                cborBytes.length, gzipped(cborBytes), nanos[2] / ITERATIONS / 1000, nanos[3] / ITERATIONS / 1000);
+        return new int[]{jsonBytes.length, cborBytes.length};
+    }
+
+    @Test
+    void testCborRoundTripsSameData() throws IOException {
+        BarSeries series = bars(100);
+
+        BarSeries decoded = cbor.readValue(cbor.writeValueAsBytes(series), BarSeries.class);
+
+        assertEquals(series.symbol(), decoded.symbol());
+        assertArrayEquals(series.timestamps(), decoded.timestamps());
+        assertArrayEquals(series.close(), decoded.close());
+        assertArrayEquals(series.volume(), decoded.volume());
+    }
+
+    @Test
+    void testCborSmallerForNumericPayloads() throws IOException {
+        int[] sizes = compare("history 1440 bars", bars(1440), BarSeries.class);
+
+        // Doubles are 9 bytes in CBOR against ~17 characters of decimal text in JSON
+        assertTrue(sizes[1] < sizes[0] * 0.75, "CBOR " + sizes[1] + " B vs JSON " + sizes[0] + " B");
+    }
+
+    @Test
+    void testCborOnParForTextPayloads() throws IOException {
+        String text = "Setup quality is medium: RSI(14) at 64 with price 2.1% above EMA(20). ".repeat(60);
+
+        int[] sizes = compare("chat response", new ChatResponse(text), ChatResponse.class);
+
+        // Strings are copied as-is in both formats; only framing differs
+        assertTrue(sizes[1] <= sizes[0] * 1.01, "CBOR " + sizes[1] + " B vs JSON " + sizes[0] + " B");
+    }
+}
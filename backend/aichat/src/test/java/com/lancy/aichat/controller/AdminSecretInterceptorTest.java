@@ -0,0 +1,60 @@
+package com.lancy.aichat.controller;
+
+import com.lancy.aichat.config.AdminProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the secret check of the admin endpoints.
+ *
+ * <p>
+ * Requests are mock servlet requests. No Spring context is loaded.
+ * </p>
+ */
+public class AdminSecretInterceptorTest {
+
+    private AdminProperties properties;
+
+    private AdminSecretInterceptor interceptor;
+
+    @BeforeEach
+    void setup() {
+        properties = new AdminProperties();
+        interceptor = new AdminSecretInterceptor(properties);
+    }
+
+    private static MockHttpServletRequest request(String secret) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/admin/provider");
+        if (secret != null) {
+            request.addHeader(AdminSecretInterceptor.SECRET_HEADER, secret);
+        }
+        return request;
+    }
+
+    @Test
+    void testClosedWithoutConfiguredSecret() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(request("anything"), response, null));
+        assertEquals(403, response.getStatus());
+    }
+
+    @Test
+    void testOnlyMatchingSecretPasses() throws Exception {
+        properties.setSecret("s3cret");
+
+        MockHttpServletResponse missing = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request(null), missing, null));
+        assertEquals(401, missing.getStatus());
+
+        MockHttpServletResponse wrong = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request("s3cre"), wrong, null));
+        assertEquals(401, wrong.getStatus());
+
+        assertTrue(interceptor.preHandle(request("s3cret"), new MockHttpServletResponse(), null));
+    }
+}
@@ -1,7 +1,15 @@
 package com.lancy.aichat.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.lancy.aichat.dto.ChatRequest;
+import com.lancy.aichat.dto.ChatResponse;
 import com.lancy.aichat.service.ChatService;
 import com.lancy.aichat.service.provider.AiProviderStrategy;
+import com.lancy.aichat.store.SessionAffinity;
+import com.lancy.aichat.tool.ToolRegistry;
+import com.lancy.aichat.tool.ToolSession;
+import com.lancy.aichat.token.PromptTooLargeException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,9 +21,14 @@ import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
@@ -35,6 +48,12 @@ public class ChatControllerTest {
     @Mock
     private ChatService chatService; // Mocked service
 
+    @Mock
+    private SessionAffinity sessionAffinity; // Mocked routing hints
+
+    @Mock
+    private ToolRegistry toolRegistry; // Mocked tool sessions
+
     @InjectMocks
     private ChatController chatController; // Controller under test
 
@@ -121,4 +140,68 @@ public class ChatControllerTest {
 
         verify(chatService, times(1)).getResponse("Hello", "llama3:latest");
     }
+
+    @Test
+    void testPostChatWithSessionIdUsesSessionAwareService() throws Exception {
+        ChatRequest expected = new ChatRequest("Hello", "session-1", null, "llama3");
+        when(chatService.chat(expected)).thenReturn(new ChatResponse("Mocked Session Response"));
+        when(sessionAffinity.ownerOf("session-1")).thenReturn(Optional.of("node-a:8080"));
+
+        String requestBody = "{ \"message\": \"Hello\", \"sessionId\": \"session-1\", \"model\": \"llama3\" }";
+
+        mockMvc.perform(post("/api/chat")
+                        .contentType("application/json")
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.response").value("Mocked Session Response"))
+                .andExpect(header().string("X-Session-Owner", "node-a:8080"));
+
+        verify(chatService, times(1)).chat(expected);
+        verify(chatService, never()).getResponse(anyString(), any());
+    }
+
+    @Test
+    void testPostChatNegotiatesCbor() throws Exception {
+        when(chatService.getResponse("Hello", "llama3:latest"))
+                .thenReturn("Mocked CBOR Response");
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+
+        byte[] requestBody = cbor.writeValueAsBytes(new ChatRequest("Hello", null, null, "llama3:latest"));
+
+        byte[] responseBody = mockMvc.perform(post("/api/chat")
+                        .contentType("application/cbor")
+                        .accept("application/cbor")
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals("Mocked CBOR Response", cbor.readValue(responseBody, ChatResponse.class).response());
+    }
+
+    @Test
+    void testPostChatToolsUsesToolSession() throws Exception {
+        ChatRequest expected = new ChatRequest("Size a position in AAPL", null, null, null);
+        ToolSession session = mock(ToolSession.class);
+        when(toolRegistry.newSession()).thenReturn(session);
+        when(chatService.chat(expected, session)).thenReturn(new ChatResponse("Buy 100 shares"));
+
+        mockMvc.perform(post("/api/chat/tools")
+                        .contentType("application/json")
+                        .content("{ \"message\": \"Size a position in AAPL\" }"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.response").value("Buy 100 shares"));
+
+        verify(chatService, times(1)).chat(expected, session);
+    }
+
+    @Test
+    void testOversizedMessageRejectedWith413() throws Exception {
+        when(chatService.getResponse("huge", null))
+                .thenThrow(new PromptTooLargeException("Message exceeds the limit of 32000 tokens", 32001, 32000));
+
+        mockMvc.perform(get("/api/chat").param("message", "huge"))
+                .andExpect(status().isPayloadTooLarge())
+                .andExpect(jsonPath("$.response").value("Error: Message exceeds the limit of 32000 tokens."));
+    }
 }
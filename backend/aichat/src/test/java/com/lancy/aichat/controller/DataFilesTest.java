@@ -0,0 +1,48 @@
+package com.lancy.aichat.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for resolving client file names against a data directory.
+ *
+ * <p>
+ * Works on a temporary directory. No Spring context is loaded.
+ * </p>
+ */
+public class DataFilesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testOnlyReadableFilesBelowTheRootResolve() throws Exception {
+        Path root = Files.createDirectory(dir.resolve("replay"));
+        Path bars = Files.writeString(Files.createDirectory(root.resolve("bars")).resolve("aapl.csv"), "x");
+        Path outside = Files.writeString(dir.resolve("secret.csv"), "x");
+
+        assertEquals(bars.toRealPath(), DataFiles.resolve(root.toString(), "bars/aapl.csv").orElseThrow());
+        assertEquals(bars.toRealPath(), DataFiles.resolve(root.toString(), "bars/../bars/./aapl.csv").orElseThrow());
+
+        assertTrue(DataFiles.resolve(root.toString(), "../secret.csv").isEmpty());
+        assertTrue(DataFiles.resolve(root.toString(), outside.toString()).isEmpty());
+        assertTrue(DataFiles.resolve(root.toString(), "bars").isEmpty());
+        assertTrue(DataFiles.resolve(root.toString(), "missing.csv").isEmpty());
+        assertTrue(DataFiles.resolve(root.toString(), " ").isEmpty());
+        assertTrue(DataFiles.resolve(root.toString(), "bad\0name").isEmpty());
+    }
+
+    @Test
+    void testLinksOutOfTheRootRejected() throws Exception {
+        Path root = Files.createDirectory(dir.resolve("replay"));
+        Path outside = Files.writeString(dir.resolve("secret.csv"), "x");
+        Files.createSymbolicLink(root.resolve("link.csv"), outside);
+
+        assertTrue(DataFiles.resolve(root.toString(), "link.csv").isEmpty());
+    }
+}
@@ -0,0 +1,234 @@
+package com.lancy.aichat.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.config.JobProperties;
+import com.lancy.aichat.store.InMemoryChatStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for JobService lifecycle, cancellation, bounds and metrics.
+ *
+ * <p>
+ * Jobs run on real virtual threads against an in-memory ChatStore.
+ * No Spring context is loaded.
+ * </p>
+ */
+public class JobServiceTest {
+
+    private JobProperties properties;
+
+    private SimpleMeterRegistry registry;
+
+    private JobService jobService;
+
+    @BeforeEach
+    void setup() {
+        properties = new JobProperties();
+        properties.setMaxConcurrent(1);
+        properties.setMaxActive(3);
+        registry = new SimpleMeterRegistry();
+        jobService = new JobService(new InMemoryChatStore(100), new ObjectMapper().findAndRegisterModules(),
+                properties, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobService.shutdown();
+    }
+
+    /**
+     * Polls until the job reaches {@code state}.
+     */
+    private JobView await(String id, JobState state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            JobView view = jobService.get(id).orElseThrow();
+            if (view.state() == state) {
+                return view;
+            }
+            Thread.sleep(5);
+        }
+        fail("Job " + id + " did not reach " + state);
+        return null;
+    }
+
+    @Test
+    void testSubmitRunsJobAndKeepsResult() throws InterruptedException {
+        JobView submitted = jobService.submit("chat", context -> {
+            context.progress(1, 1, "Done");
+            return List.of("answer");
+        });
+
+        assertEquals(JobState.QUEUED, submitted.state());
+        JobView done = await(submitted.id(), JobState.SUCCEEDED);
+        assertEquals(List.of("answer"), done.result());
+        assertEquals(1, done.completed());
+        assertNotNull(done.startedAt());
+        assertNotNull(done.finishedAt());
+    }
+
+    @Test
+    void testProgressVisibleWhileRunning() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        JobView job = jobService.submit("chat", context -> {
+            context.progress(2, 5, "Sending message 3 of 5");
+            release.await();
+            return "ok";
+        });
+
+        JobView running = await(job.id(), JobState.RUNNING);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (running.completed() != 2 && System.nanoTime() < deadline) {
+            running = jobService.get(job.id()).orElseThrow();
+        }
+        assertEquals(2, running.completed());
+        assertEquals(5, running.total());
+        release.countDown();
+        await(job.id(), JobState.SUCCEEDED);
+    }
+
+    @Test
+    void testCancelInterruptsRunningWork() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        JobView job = jobService.submit("chat", context -> {
+            started.countDown();
+            try {
+                // Stands in for a blocking provider HTTP call
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return "never";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        JobView cancelled = jobService.cancel(job.id()).orElseThrow();
+
+        assertEquals(JobState.CANCELLED, cancelled.state());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(JobState.CANCELLED, jobService.get(job.id()).orElseThrow().state());
+    }
+
+    @Test
+    void testCancelQueuedJobNeverRuns() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean ran = new AtomicBoolean();
+        JobView blocker = jobService.submit("chat", context -> release.await(5, TimeUnit.SECONDS));
+        JobView queued = jobService.submit("chat", context -> ran.getAndSet(true));
+        await(blocker.id(), JobState.RUNNING);
+
+        assertEquals(JobState.CANCELLED, jobService.cancel(queued.id()).orElseThrow().state());
+        release.countDown();
+        await(blocker.id(), JobState.SUCCEEDED);
+
+        assertFalse(ran.get());
+        assertNull(jobService.get(queued.id()).orElseThrow().startedAt());
+    }
+
+    @Test
+    void testCancelFinishedJobKeepsState() throws InterruptedException {
+        JobView job = jobService.submit("chat", context -> "ok");
+        await(job.id(), JobState.SUCCEEDED);
+
+        assertEquals(JobState.SUCCEEDED, jobService.cancel(job.id()).orElseThrow().state());
+    }
+
+    @Test
+    void testFailureRecorded() throws InterruptedException {
+        JobView job = jobService.submit("risk", context -> {
+            throw new IllegalArgumentException("No history for XYZ");
+        });
+
+        JobView failed = await(job.id(), JobState.FAILED);
+        assertEquals("No history for XYZ", failed.error());
+    }
+
+    @Test
+    void testSubmissionsBeyondMaxActiveRejected() {
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            jobService.submit("chat", context -> release.await(5, TimeUnit.SECONDS));
+        }
+
+        assertThrows(RejectedExecutionException.class, () -> jobService.submit("chat", context -> "x"));
+        release.countDown();
+        assertEquals(1.0, registry.counter("jobs.rejected", "type", "chat").count());
+    }
+
+    @Test
+    void testConcurrentSubmissionsNeverExceedMaxActive() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch go = new CountDownLatch(1);
+        List<String> accepted = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger rejected = new AtomicInteger();
+        try (ExecutorService clients = Executors.newFixedThreadPool(32)) {
+            for (int i = 0; i < 32; i++) {
+                clients.execute(() -> {
+                    try {
+                        go.await();
+                        accepted.add(jobService.submit("chat", context -> release.await(5, TimeUnit.SECONDS)).id());
+                    } catch (RejectedExecutionException e) {
+                        rejected.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            go.countDown();
+        }
+
+        assertEquals(3, accepted.size());
+        assertEquals(29, rejected.get());
+
+        // Finished jobs give their slots back
+        release.countDown();
+        for (String id : accepted) {
+            await(id, JobState.SUCCEEDED);
+        }
+        JobView next = jobService.submit("chat", context -> "x");
+        await(next.id(), JobState.SUCCEEDED);
+    }
+
+    @Test
+    void testFinishedJobExpiresAfterResultTtl() throws InterruptedException {
+        properties.setResultTtl(Duration.ofMillis(50));
+        JobView job = jobService.submit("chat", context -> Map.of("a", 1));
+        await(job.id(), JobState.SUCCEEDED);
+
+        Thread.sleep(100);
+
+        assertTrue(jobService.get(job.id()).isEmpty());
+    }
+
+    @Test
+    void testThroughputAndQueueTimeMetrics() throws InterruptedException {
+        JobView first = jobService.submit("chat", context -> "a");
+        JobView second = jobService.submit("chat", context -> "b");
+        await(first.id(), JobState.SUCCEEDED);
+        await(second.id(), JobState.SUCCEEDED);
+
+        assertEquals(2.0, registry.counter("jobs.submitted", "type", "chat").count());
+        assertEquals(2.0, registry.counter("jobs.completed", "type", "chat", "state", "SUCCEEDED").count());
+        assertEquals(2, registry.timer("jobs.queue.time", "type", "chat").count());
+    }
+}
@@ -0,0 +1,130 @@
+package com.lancy.aichat.marketdata;
+
+import com.lancy.aichat.marketdata.indicator.Atr;
+import com.lancy.aichat.marketdata.indicator.Ema;
+import com.lancy.aichat.marketdata.indicator.RollingVolatility;
+import com.lancy.aichat.marketdata.indicator.Rsi;
+import com.lancy.aichat.marketdata.indicator.Vwap;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the incremental indicators against direct (non-incremental) calculations.
+ */
+public class IndicatorsTest {
+
+    private static final double[] CLOSES = {
+            44.34, 44.09, 44.15, 43.61, 44.33, 44.83, 45.10, 45.42, 45.84, 46.08,
+            45.89, 46.03, 45.61, 46.28, 46.28, 46.00, 46.03, 46.41, 46.22, 45.64
+    };
+
+    @Test
+    void testEmaSeededWithSimpleAverage() {
+        Ema ema = new Ema(3);
+        ema.update(1);
+        ema.update(2);
+        assertTrue(Double.isNaN(ema.value()));
+        ema.update(3);
+        assertEquals(2.0, ema.value(), 1e-12);
+        ema.update(6);
+        assertEquals(4.0, ema.value(), 1e-12); // 2 + 0.5 * (6 - 2)
+    }
+
+    @Test
+    void testRsiMatchesWilderDefinition() {
+        Rsi rsi = new Rsi(14);
+        for (double close : CLOSES) {
+            rsi.update(close);
+        }
+
+        // Reference: seed with simple averages of first 14 changes, then Wilder smoothing
+        double gain = 0;
+        double loss = 0;
+        for (int i = 1; i <= 14; i++) {
+            double change = CLOSES[i] - CLOSES[i - 1];
+            gain += Math.max(change, 0) / 14;
+            loss += Math.max(-change, 0) / 14;
+        }
+        for (int i = 15; i < CLOSES.length; i++) {
+            double change = CLOSES[i] - CLOSES[i - 1];
+            gain = (gain * 13 + Math.max(change, 0)) / 14;
+            loss = (loss * 13 + Math.max(-change, 0)) / 14;
+        }
+        assertEquals(100 - 100 / (1 + gain / loss), rsi.value(), 1e-9);
+    }
+
+    @Test
+    void testRsiAllGainsIsHundred() {
+        Rsi rsi = new Rsi(3);
+        for (int i = 0; i < 5; i++) {
+            rsi.update(i);
+        }
+        assertEquals(100.0, rsi.value(), 1e-12);
+    }
+
+    @Test
+    void testAtrUsesTrueRangeWithGaps() {
+        Atr atr = new Atr(2);
+        atr.update(11, 9, 10);   // TR = 2
+        atr.update(15, 13, 14);  // gap up: TR = max(2, |15-10|, |13-10|) = 5
+        assertEquals(3.5, atr.value(), 1e-12);
+        atr.update(14, 13, 13.5); // TR = max(1, 0, 1) = 1
+        assertEquals(2.25, atr.value(), 1e-12);
+    }
+
+    @Test
+    void testVwapResetsEachDay() {
+        Vwap vwap = new Vwap();
+        long day = 86_400_000L;
+        vwap.update(day, 12, 8, 10, 100);   // typical 10
+        vwap.update(day + 60_000, 22, 18, 20, 300); // typical 20
+        assertEquals(17.5, vwap.value(), 1e-12);
+
+        vwap.update(2 * day, 6, 4, 5, 10);
+        assertEquals(5.0, vwap.value(), 1e-12);
+    }
+
+    @Test
+    void testRollingVolatilityMatchesSampleStdDev() {
+        int window = 5;
+        RollingVolatility vol = new RollingVolatility(window, 252);
+        for (double close : CLOSES) {
+            vol.update(close);
+        }
+
+        double[] r = new double[window];
+        for (int i = 0; i < window; i++) {
+            int idx = CLOSES.length - window + i;
+            r[i] = Math.log(CLOSES[idx] / CLOSES[idx - 1]);
+        }
+        double mean = 0;
+        for (double x : r) {
+            mean += x / window;
+        }
+        double var = 0;
+        for (double x : r) {
+            var += (x - mean) * (x - mean) / (window - 1);
+        }
+        assertEquals(Math.sqrt(var) * Math.sqrt(252), vol.value(), 1e-12);
+    }
+
+    @Test
+    void testSymbolIndicatorsSnapshot() {
+        SymbolIndicators indicators = new SymbolIndicators("TEST", 3, 3, 3, 3, 252);
+        for (int i = 0; i < CLOSES.length; i++) {
+            indicators.update(86_400_000L + i * 60_000L, CLOSES[i] + 0.5, CLOSES[i] - 0.5, CLOSES[i], 100);
+        }
+
+        IndicatorSnapshot snapshot = indicators.snapshot();
+
+        assertEquals("TEST", snapshot.symbol());
+        assertEquals(45.64, snapshot.last(), 1e-12);
+        assertEquals(CLOSES.length, snapshot.updates());
+        assertFalse(Double.isNaN(snapshot.ema()));
+        assertFalse(Double.isNaN(snapshot.rsi()));
+        assertFalse(Double.isNaN(snapshot.atr()));
+        assertFalse(Double.isNaN(snapshot.volatility()));
+        assertTrue(snapshot.toPromptLine().startsWith("TEST @1970-01-02T00:19:00Z last=45.64"));
+    }
+}
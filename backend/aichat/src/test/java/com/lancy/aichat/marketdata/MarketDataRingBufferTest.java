@@ -0,0 +1,120 @@
+package com.lancy.aichat.marketdata;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MarketDataRingBuffer.
+ *
+ * <p>
+ * Covers ordering, capacity limits and concurrent producers with a single consumer.
+ * </p>
+ */
+public class MarketDataRingBufferTest {
+
+    @Test
+    void testBarsDrainedInPublishOrder() {
+        MarketDataRingBuffer buffer = new MarketDataRingBuffer(8);
+        assertTrue(buffer.put(1L, 0, 10, 11, 9, 10.5, 100, 0));
+        assertTrue(buffer.putTick(2L, 1, 20, 5, 0));
+
+        List<String> seen = new ArrayList<>();
+        int drained = buffer.drain((ts, sym, o, h, l, c, v) -> seen.add(ts + ":" + sym + ":" + c + ":" + v), 10);
+
+        assertEquals(2, drained);
+        assertEquals(List.of("1:0:10.5:100.0", "2:1:20.0:5.0"), seen);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testOfferFailsWhenFullAndRecoversAfterDrain() {
+        MarketDataRingBuffer buffer = new MarketDataRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i, 0, 1, 1, 1, 1, 1));
+        }
+        assertFalse(buffer.offer(5, 0, 1, 1, 1, 1, 1));
+
+        assertEquals(2, buffer.drain((ts, sym, o, h, l, c, v) -> { }, 2));
+        assertTrue(buffer.offer(5, 0, 1, 1, 1, 1, 1));
+        assertEquals(3, buffer.size());
+    }
+
+    @Test
+    void testPutGivesUpWhenNothingDrains() {
+        MarketDataRingBuffer buffer = new MarketDataRingBuffer(2);
+        assertTrue(buffer.put(1, 0, 1, 1, 1, 1, 1, 0));
+        assertTrue(buffer.put(2, 0, 1, 1, 1, 1, 1, 0));
+
+        long start = System.nanoTime();
+        assertFalse(buffer.put(3, 0, 1, 1, 1, 1, 1, Duration.ofMillis(20).toNanos()));
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(20).toNanos());
+    }
+
+    @Test
+    void testDrainSkipsBarWhoseHandlerThrows() {
+        MarketDataRingBuffer buffer = new MarketDataRingBuffer(8);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i, 0, 1, 1, 1, 1, 1));
+        }
+        List<Long> seen = new ArrayList<>();
+        BarHandler failOnSecond = (ts, sym, o, h, l, c, v) -> {
+            if (ts == 1) {
+                throw new IllegalStateException("listener failed");
+            }
+            seen.add(ts);
+        };
+
+        assertThrows(IllegalStateException.class, () -> buffer.drain(failOnSecond, 10));
+        assertEquals(2, buffer.size());
+        assertEquals(2, buffer.drain(failOnSecond, 10));
+        assertEquals(List.of(0L, 2L, 3L), seen);
+    }
+
+    @Test
+    void testCapacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new MarketDataRingBuffer(100));
+    }
+
+    @Test
+    void testConcurrentProducersLoseNothing() throws InterruptedException {
+        MarketDataRingBuffer buffer = new MarketDataRingBuffer(1024);
+        int producers = 4;
+        int perProducer = 100_000;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int symbol = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    buffer.put(i, symbol, i, i, i, i, 1, Long.MAX_VALUE);
+                }
+            }));
+        }
+
+        long[] lastPerSymbol = {-1, -1, -1, -1};
+        AtomicLong total = new AtomicLong();
+        long expected = (long) producers * perProducer;
+        while (total.get() < expected) {
+            buffer.drain((ts, sym, o, h, l, c, v) -> {
+                // Per-producer order is preserved
+                assertEquals(lastPerSymbol[sym] + 1, ts);
+                lastPerSymbol[sym] = ts;
+                total.incrementAndGet();
+            }, 256);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(expected, total.get());
+        for (long last : lastPerSymbol) {
+            assertEquals(perProducer - 1, last);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.lancy.aichat.marketdata;
+
+import com.lancy.aichat.config.MarketDataProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for MarketDataService ingestion paths and prompt enrichment.
+ *
+ * <p>
+ * Uses a real consumer thread and, for the socket feed, a loopback connection.
+ * No Spring context is loaded.
+ * </p>
+ */
+public class MarketDataServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MarketDataProperties properties;
+
+    private MarketDataService service;
+
+    @BeforeEach
+    void setup() throws IOException {
+        properties = new MarketDataProperties();
+        properties.setBufferCapacity(1024);
+        properties.setEmaPeriod(3);
+        properties.setRsiPeriod(3);
+        properties.setAtrPeriod(3);
+        properties.setVolatilityWindow(3);
+        try (ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            properties.setSocketPort(probe.getLocalPort());
+        }
+        service = new MarketDataService(properties, List.of(), new SimpleMeterRegistry());
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void testReplayFileUpdatesIndicators() throws Exception {
+        Path file = tempDir.resolve("bars.csv");
+        Files.writeString(file, """
+                timestamp,symbol,open,high,low,close,volume
+                2024-05-01T14:30:00Z,AAPL,100,101,99,100.5,1000
+                2024-05-01T14:31:00Z,AAPL,100.5,102,100,101.5,1200
+                not,a,valid,line
+                2024-05-01T14:32:00Z,AAPL,101.5,103,101,102.5,900
+                1714574040000,MSFT,400.25,10
+                2024-05-01T14:33:00Z,AAPL,102.5,103,101.5,102,1100
+                """);
+
+        assertEquals(5, service.replay(file));
+        assertTrue(service.awaitDrained(Duration.ofSeconds(5)));
+
+        IndicatorSnapshot aapl = service.snapshot("aapl").orElseThrow();
+        assertEquals(102.0, aapl.last(), 1e-12);
+        assertEquals(4, aapl.updates());
+        assertFalse(Double.isNaN(aapl.rsi()));
+
+        assertEquals(400.25, service.snapshot("MSFT").orElseThrow().last(), 1e-12);
+        assertTrue(service.snapshot("TSLA").isEmpty());
+    }
+
+    @Test
+    void testSocketFeedIngestsLines() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), properties.getSocketPort());
+             Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            writer.write("1714574040000,NVDA,900.5,3\n");
+            writer.write("1714574041000,NVDA,901.0,2\n");
+        }
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (service.snapshot("NVDA").map(IndicatorSnapshot::updates).orElse(0L) < 2
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(901.0, service.snapshot("NVDA").orElseThrow().last(), 1e-12);
+    }
+
+    @Test
+    void testFailingListenerDoesNotStopConsumer() throws Exception {
+        service.stop();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IndicatorListener failing = (symbolId, symbol, timestamp, open, close, ema, rsi, atr, volatility) -> {
+            if (symbol.equals("BAD")) {
+                throw new IllegalStateException("listener failed");
+            }
+        };
+        service = new MarketDataService(properties, List.of(failing), meterRegistry);
+        service.start();
+
+        service.publishBar("BAD", 1714574040000L, 100, 101, 99, 100.5, 1000);
+        service.publishBar("AAPL", 1714574040000L, 100, 101, 99, 100.5, 1000);
+        assertTrue(service.awaitDrained(Duration.ofSeconds(5)));
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (service.snapshot("AAPL").isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(100.5, service.snapshot("AAPL").orElseThrow().last(), 1e-12);
+        assertEquals(1.0, meterRegistry.counter("marketdata.bars.failed").count());
+    }
+
+    @Test
+    void testPublishFailsOnceStopped() {
+        service.stop();
+
+        assertThrows(IllegalStateException.class,
+                () -> service.publishBar("AAPL", 1714574040000L, 100, 101, 99, 100.5, 1000));
+        assertThrows(IllegalStateException.class, () -> service.publishTick("AAPL", 1714574040000L, 100, 1));
+    }
+
+    @Test
+    void testReplayAbortsWhenPublishingFails() throws Exception {
+        Path file = tempDir.resolve("bars.csv");
+        Files.writeString(file, """
+                2024-05-01T14:30:00Z,AAPL,100,101,99,100.5,1000
+                2024-05-01T14:31:00Z,AAPL,100.5,102,100,101.5,1200
+                """);
+        service.stop();
+
+        // Not mistaken for malformed lines and skipped one by one
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> service.replay(file));
+        assertEquals("Market data service is not running", e.getMessage());
+    }
+
+    @Test
+    void testEnricherAppendsSnapshotsForMentionedTickers() throws Exception {
+        service.publishBar("AAPL", 1714574040000L, 100, 101, 99, 100.5, 1000);
+        assertTrue(service.awaitDrained(Duration.ofSeconds(5)));
+        MarketContextEnricher enricher = new MarketContextEnricher(service, properties);
+
+        String enriched = enricher.enrich("What's the setup on $AAPL right now? Compare to MSFT.");
+
+        assertTrue(enriched.startsWith("What's the setup on $AAPL right now? Compare to MSFT.\n\n[Market data]\nAAPL @"));
+        assertFalse(enriched.contains("MSFT @"));
+        assertEquals("hello there", enricher.enrich("hello there"));
+    }
+}
@@ -0,0 +1,196 @@
+package com.lancy.aichat.marketdata.history;
+
+import com.lancy.aichat.config.HistoryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the memory-mapped BarStore.
+ *
+ * <p>
+ * Uses tiny segments (8 rows, index stride 2) so range scans cross segment
+ * boundaries and the sparse index is exercised. No Spring context is loaded.
+ * </p>
+ */
+public class BarStoreTest {
+
+    private static final long MINUTE = 60_000;
+
+    @TempDir
+    Path tempDir;
+
+    private HistoryProperties properties;
+
+    private BarStore store;
+
+    @BeforeEach
+    void setup() {
+        properties = new HistoryProperties();
+        properties.setDirectory(tempDir.toString());
+        properties.setRowsPerSegment(8);
+        properties.setIndexStride(2);
+        properties.setMaxMappedSegments(2);
+        store = new BarStore(properties, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Appends {@code count} minute bars with close = index.
+     */
+    private void appendMinutes(BarStore target, String symbol, int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(target.append(symbol, i * MINUTE, i, i + 0.5, i - 0.5, i, 10));
+        }
+    }
+
+    @Test
+    void testRangeAcrossSegmentsIsHalfOpen() {
+        appendMinutes(store, "AAPL", 30);
+
+        BarRange range = store.range("AAPL", 5 * MINUTE, 21 * MINUTE);
+
+        assertEquals(16, range.size());
+        assertEquals(3, range.chunks().size());
+        double expected = 5;
+        for (BarChunk chunk : range.chunks()) {
+            for (int i = 0; i < chunk.size(); i++) {
+                assertEquals(expected * MINUTE, chunk.timestamps().get(i));
+                assertEquals(expected++, chunk.close().get(i));
+            }
+        }
+    }
+
+    @Test
+    void testRangeBetweenBarsAndOutsideData() {
+        appendMinutes(store, "AAPL", 10);
+
+        assertEquals(2, store.range("AAPL", 2 * MINUTE + 1, 5 * MINUTE).size());
+        assertTrue(store.range("AAPL", 100 * MINUTE, 200 * MINUTE).isEmpty());
+        assertTrue(store.range("MSFT", 0, Long.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void testViewsAreReadOnlyAndNotCopied() {
+        appendMinutes(store, "AAPL", 4);
+
+        BarChunk chunk = store.range("AAPL", 0, Long.MAX_VALUE).chunks().get(0);
+
+        assertTrue(chunk.close().isReadOnly());
+        assertTrue(chunk.close().isDirect());
+        assertFalse(chunk.close().hasArray());
+    }
+
+    @Test
+    void testOutOfOrderBarsAreIgnored() {
+        appendMinutes(store, "AAPL", 3);
+
+        assertFalse(store.append("AAPL", MINUTE, 1, 1, 1, 1, 1));
+        assertFalse(store.append("AAPL", 2 * MINUTE, 1, 1, 1, 1, 1));
+        assertEquals(3, store.range("AAPL", 0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void testReopenRestoresDataAndContinuesAppending() {
+        appendMinutes(store, "aapl", 12);
+        store.close();
+
+        BarStore reopened = new BarStore(properties, new SimpleMeterRegistry());
+        assertEquals(11 * MINUTE, reopened.lastTimestamp("AAPL").getAsLong());
+        assertTrue(reopened.append("AAPL", 12 * MINUTE, 12, 12, 12, 12, 1));
+
+        BarRange range = reopened.range("AAPL", 0, Long.MAX_VALUE);
+        assertEquals(13, range.size());
+        assertEquals(List.of("AAPL"), reopened.symbols());
+    }
+
+    @Test
+    void testLeastRecentlyUsedSeriesClosedAndReopened() {
+        properties.setMaxOpenSeries(2);
+        BarStore bounded = new BarStore(properties, new SimpleMeterRegistry());
+        appendMinutes(bounded, "AAPL", 10);
+        appendMinutes(bounded, "MSFT", 10);
+        BarRange before = bounded.range("AAPL", 0, Long.MAX_VALUE);
+
+        appendMinutes(bounded, "TSLA", 10);
+
+        assertEquals(2, bounded.openSeries());
+        // Views handed out before the eviction stay readable
+        assertEquals(9.0, before.chunks().get(1).close().get(1));
+        // AAPL was evicted; reopening it continues where it left off
+        assertFalse(bounded.append("AAPL", 9 * MINUTE, 1, 1, 1, 1, 1));
+        assertTrue(bounded.append("AAPL", 10 * MINUTE, 10, 10, 10, 10, 1));
+        assertEquals(11, bounded.range("AAPL", 0, Long.MAX_VALUE).size());
+        assertEquals(10, bounded.range("MSFT", 0, Long.MAX_VALUE).size());
+        assertEquals(2, bounded.openSeries());
+    }
+
+    @Test
+    void testClosedSeriesRefusesAppends() {
+        SymbolSeries series = SymbolSeries.open("AAPL", tempDir.resolve("AAPL"), 8, 2, new SegmentCache(2));
+        assertEquals(SymbolSeries.Appended.ADDED, series.append(MINUTE, 1, 1, 1, 1, 1));
+        assertEquals(SymbolSeries.Appended.OUT_OF_ORDER, series.append(MINUTE, 1, 1, 1, 1, 1));
+
+        series.close();
+
+        assertEquals(SymbolSeries.Appended.CLOSED, series.append(2 * MINUTE, 1, 1, 1, 1, 1));
+        assertEquals(1, series.range(0, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void testDownsampleAggregatesOhlcv() {
+        appendMinutes(store, "AAPL", 30);
+
+        BarSeries bars = store.downsample("AAPL", 0, Long.MAX_VALUE, Duration.ofMinutes(10));
+
+        assertEquals(3, bars.size());
+        assertArrayEquals(new long[]{0, 10 * MINUTE, 20 * MINUTE}, bars.timestamps());
+        assertEquals(10, bars.open()[1]);
+        assertEquals(19.5, bars.high()[1]);
+        assertEquals(9.5, bars.low()[1]);
+        assertEquals(19, bars.close()[1]);
+        assertEquals(100, bars.volume()[1]);
+    }
+
+    @Test
+    void testImportFileIsIdempotent() throws IOException {
+        Path file = tempDir.resolve("bars.csv");
+        Files.writeString(file, """
+                timestamp,symbol,open,high,low,close,volume
+                60000,AAPL,1,2,0.5,1.5,100
+                120000,AAPL,1.5,2.5,1,2,200
+                oops,AAPL
+                60000,MSFT,300.5,10
+                """);
+
+        assertEquals(3, store.importFile(file));
+        assertEquals(0, store.importFile(file));
+        assertEquals(List.of("AAPL", "MSFT"), store.symbols());
+    }
+
+    @Test
+    void testInvalidSymbolRejected() {
+        assertThrows(IllegalArgumentException.class, () -> store.append("../etc", 1, 1, 1, 1, 1, 1));
+    }
+
+    @Test
+    void testHistoryEnricherAppendsSummary() {
+        long day = Duration.ofDays(1).toMillis();
+        store.append("AAPL", 0, 100, 110, 95, 105, 1000);
+        store.append("AAPL", day, 105, 120, 100, 110, 1000);
+        HistoryContextEnricher enricher = new HistoryContextEnricher(store, new HistoryProperties());
+
+        String enriched = enricher.enrich("Review AAPL and TSLA");
+
+        assertEquals("Review AAPL and TSLA\n\n[History]\n"
+                + "AAPL 30d to 1970-01-02: 2 days close=110.00 chg=+10.0% high=120.00 low=95.00", enriched);
+    }
+}
@@ -0,0 +1,208 @@
+package com.lancy.aichat.review;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.config.SimilarTradeProperties;
+import com.lancy.aichat.config.TokenBudgetProperties;
+import com.lancy.aichat.config.TradeReviewProperties;
+import com.lancy.aichat.dto.ChatRequest;
+import com.lancy.aichat.dto.ChatResponse;
+import com.lancy.aichat.service.ChatService;
+import com.lancy.aichat.similar.SimilarTrade;
+import com.lancy.aichat.similar.SimilarTradeIndex;
+import com.lancy.aichat.token.TokenGovernor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for trade packing, reply validation and re-queueing of failed trades.
+ *
+ * <p>
+ * The provider is replaced by a mocked {@link ChatService}. No Spring context is loaded.
+ * </p>
+ */
+public class TradeReviewServiceTest {
+
+    private static final Pattern TRADE_ID = Pattern.compile("^id=(\\S+)", Pattern.MULTILINE);
+
+    private ChatService chatService;
+
+    private TradeReviewProperties properties;
+
+    private TokenBudgetProperties tokenProperties;
+
+    private SimilarTradeIndex similarTrades;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TradeReviewService service;
+
+    @BeforeEach
+    void setup() {
+        chatService = mock(ChatService.class);
+        properties = new TradeReviewProperties();
+        tokenProperties = new TokenBudgetProperties();
+        tokenProperties.setEnabled(false);
+        meterRegistry = new SimpleMeterRegistry();
+        similarTrades = mock(SimilarTradeIndex.class);
+        service = new TradeReviewService(chatService, new TokenGovernor(tokenProperties, meterRegistry),
+                new ObjectMapper(), properties, similarTrades, new SimilarTradeProperties(), meterRegistry);
+    }
+
+    private static List<TradeReviewRequest.Trade> trades(int count) {
+        List<TradeReviewRequest.Trade> trades = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            trades.add(new TradeReviewRequest.Trade("T" + i, "AAPL", "LONG", 100.0, 190.0, 190.0 + i,
+                    null, null, null, "Bought the breakout above the morning high"));
+        }
+        return trades;
+    }
+
+    private static List<String> ids(String prompt) {
+        List<String> ids = new ArrayList<>();
+        Matcher matcher = TRADE_ID.matcher(prompt);
+        while (matcher.find()) {
+            ids.add(matcher.group(1));
+        }
+        return ids;
+    }
+
+    private static String entry(String id) {
+        return "{\"tradeId\":\"" + id + "\",\"sentiment\":\"positive\",\"setupQuality\":\"HIGH\","
+                + "\"confidenceScore\":0.7,\"riskAssessment\":\"Risk was defined by the stop.\","
+                + "\"improvementSuggestion\":\"Scale out into strength.\"}";
+    }
+
+    /**
+     * Answers every trade of the prompt with a valid entry.
+     */
+    private static ChatResponse answerAll(ChatRequest request) {
+        List<String> entries = ids(request.message()).stream().map(TradeReviewServiceTest::entry).toList();
+        return new ChatResponse("```json\n[" + String.join(",", entries) + "]\n```");
+    }
+
+    @Test
+    void testManyTradesPackedIntoOneCall() {
+        when(chatService.chat(any(ChatRequest.class))).thenAnswer(invocation -> answerAll(invocation.getArgument(0)));
+
+        TradeReviewReport report = service.review(new TradeReviewRequest(trades(20), null));
+
+        verify(chatService, times(1)).chat(any(ChatRequest.class));
+        assertEquals(20, report.results().size());
+        assertEquals("T1", report.results().get(0).tradeId());
+        assertEquals("POSITIVE", report.results().get(0).analysis().sentiment());
+        assertEquals(0.7, report.results().get(19).analysis().confidenceScore());
+        assertEquals(20, report.stats().analysed());
+        assertEquals(1, report.stats().calls());
+        assertTrue(report.stats().promptTokensPerTrade() * 3 < report.stats().singlePromptTokensPerTrade());
+        assertEquals(20.0, meterRegistry.counter("review.trades", "outcome", "analysed").count());
+    }
+
+    @Test
+    void testBatchesBoundedByPromptBudgetAndRequest() {
+        when(chatService.chat(any(ChatRequest.class))).thenAnswer(invocation -> answerAll(invocation.getArgument(0)));
+        ArgumentCaptor<ChatRequest> requests = ArgumentCaptor.forClass(ChatRequest.class);
+
+        TradeReviewReport oneByOne = service.review(new TradeReviewRequest(trades(3), 1));
+        assertEquals(3, oneByOne.stats().calls());
+        assertEquals(oneByOne.stats().singlePromptTokensPerTrade(), oneByOne.stats().promptTokensPerTrade());
+
+        properties.setMaxPromptTokens(300);
+        TradeReviewReport budgeted = service.review(new TradeReviewRequest(trades(20), null));
+        verify(chatService, atLeast(6)).chat(requests.capture());
+        assertTrue(budgeted.stats().calls() > 1);
+        assertEquals(20, budgeted.stats().analysed());
+        assertTrue(requests.getAllValues().stream().allMatch(request -> TradeBatchPacker.SYSTEM_PROMPT
+                .equals(request.systemPrompt()) && request.sessionId() == null));
+    }
+
+    @Test
+    void testBatchesBoundedByOutputCap() {
+        tokenProperties.setEnabled(true);
+        tokenProperties.getEndpointOutputTokens().put("background", 450);
+        properties.setOutputTokensPerTrade(90);
+        when(chatService.chat(any(ChatRequest.class))).thenAnswer(invocation -> answerAll(invocation.getArgument(0)));
+
+        TradeReviewReport report = service.review(new TradeReviewRequest(trades(12), null));
+
+        assertEquals(3, report.stats().calls());
+        assertEquals(5.0, meterRegistry.summary("review.batch.size").max());
+    }
+
+    @Test
+    void testOnlyTradesWithoutValidEntryRequeued() {
+        // First reply: T1 valid, T2 out of range, T4 without sentiment, T3 cut off by the output cap
+        String first = "[" + entry("T1") + ","
+                + entry("T2").replace("0.7", "7") + ","
+                + entry("T4").replace("\"sentiment\":\"positive\",", "") + ","
+                + "{\"tradeId\":\"T3\",\"sentiment\":\"NEG";
+        List<List<String>> prompts = new ArrayList<>();
+        when(chatService.chat(any(ChatRequest.class))).thenAnswer(invocation -> {
+            ChatRequest request = invocation.getArgument(0);
+            prompts.add(ids(request.message()));
+            return prompts.size() == 1 ? new ChatResponse(first) : answerAll(request);
+        });
+
+        TradeReviewReport report = service.review(new TradeReviewRequest(trades(4), null));
+
+        assertEquals(List.of(List.of("T1", "T2", "T3", "T4"), List.of("T2", "T3", "T4")), prompts);
+        assertEquals(4, report.stats().analysed());
+        assertEquals(3, report.stats().requeued());
+        assertEquals(1, report.results().get(0).attempts());
+        assertEquals(2, report.results().get(2).attempts());
+        assertEquals(2, report.results().get(3).attempts());
+        assertEquals(3.0, meterRegistry.counter("review.requeued").count());
+    }
+
+    @Test
+    void testProviderFailureRetriedUpToMaxAttempts() {
+        properties.setMaxAttempts(2);
+        when(chatService.chat(any(ChatRequest.class))).thenThrow(new RuntimeException("Provider unavailable"));
+
+        TradeReviewReport report = service.review(new TradeReviewRequest(trades(2), null));
+
+        verify(chatService, times(2)).chat(any(ChatRequest.class));
+        assertEquals(0, report.stats().analysed());
+        assertNull(report.results().get(0).analysis());
+        assertEquals("Provider unavailable", report.results().get(1).error());
+        assertEquals(2.0, meterRegistry.counter("review.trades", "outcome", "failed").count());
+    }
+
+    @Test
+    void testInvalidTradeListsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.review(new TradeReviewRequest(List.of(), null)));
+        List<TradeReviewRequest.Trade> duplicate = new ArrayList<>(trades(2));
+        duplicate.add(trades(1).get(0));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.review(new TradeReviewRequest(duplicate, null)));
+        assertEquals("Duplicate trade id: T1", e.getMessage());
+        verifyNoInteractions(chatService);
+    }
+
+    @Test
+    void testSimilarPastTradesAddedAndReviewedTradesIndexed() {
+        List<TradeReviewRequest.Trade> trades = trades(2);
+        when(similarTrades.similar(trades.get(0), 5)).thenReturn(List.of(
+                new SimilarTrade("P1", "AAPL", "LONG", null, 0.1, 2.0, 1.0, null),
+                new SimilarTrade("P2", "AAPL", "LONG", null, 0.2, -1.0, -0.5, null)));
+        ArgumentCaptor<ChatRequest> request = ArgumentCaptor.forClass(ChatRequest.class);
+        when(chatService.chat(request.capture())).thenAnswer(invocation -> answerAll(invocation.getArgument(0)));
+
+        service.review(new TradeReviewRequest(trades, null));
+
+        String prompt = request.getValue().message();
+        assertTrue(prompt.contains("| notes: Bought the breakout above the morning high "
+                + "| 2 similar past trades: 1 won, avg +0.50%, avg +0.3R\nid=T2"), prompt);
+        verify(similarTrades).ingest(trades);
+    }
+}
@@ -0,0 +1,132 @@
+package com.lancy.aichat.risk;
+
+import com.lancy.aichat.marketdata.history.BarSeries;
+import com.lancy.aichat.risk.MonteCarloEngine.Simulation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the Monte Carlo engine, return models and risk statistics.
+ *
+ * <p>
+ * Uses synthetic returns with known distributions. No Spring context is loaded.
+ * </p>
+ */
+public class MonteCarloEngineTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private static double[] normalReturns(int days, double sigma, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] returns = new double[days];
+        for (int d = 0; d < days; d++) {
+            returns[d] = sigma * random.nextGaussian();
+        }
+        return returns;
+    }
+
+    @Test
+    void testCholeskyFactorsCovariance() {
+        double[] lower = CholeskyModel.cholesky(new double[]{4, 0, 2, 10}, 2);
+
+        assertArrayEquals(new double[]{2, 0, 1, 3}, lower, 1e-12);
+        assertThrows(IllegalArgumentException.class, () -> CholeskyModel.cholesky(new double[]{1, 0, 1, 1}, 2));
+    }
+
+    @Test
+    void testBootstrapVarFromTwoPointDistribution() {
+        ReturnModel model = new BootstrapModel(new double[]{0.01, -0.01}, 2, 1);
+
+        Simulation result = new MonteCarloEngine(pool).simulate(model, new double[]{100}, 1, 10_000, 1);
+        RiskReport report = RiskService.summarize(result, RiskRequest.Method.BOOTSTRAP, 1, 2, 100,
+                List.of(0.99), 0);
+
+        double loss = -100 * (Math.exp(-0.01) - 1);
+        assertEquals(loss, report.levels().get(0).var(), 1e-4);
+        assertEquals(loss, report.levels().get(0).cvar(), 1e-4);
+        assertEquals(0, report.expectedPnl(), 0.05);
+    }
+
+    @Test
+    void testParametricVarMatchesNormalQuantile() {
+        CholeskyModel model = CholeskyModel.fit(normalReturns(5_000, 0.01, 7), 5_000, 1);
+
+        Simulation result = new MonteCarloEngine(pool).simulate(model, new double[]{1_000_000}, 1, 200_000, 3);
+        RiskReport report = RiskService.summarize(result, RiskRequest.Method.PARAMETRIC, 1, 5_000, 1_000_000,
+                List.of(0.99), 0);
+
+        // 2.326 standard deviations of a 1% daily move
+        assertEquals(23_263, report.levels().get(0).var(), 23_263 * 0.05);
+        assertTrue(report.levels().get(0).cvar() > report.levels().get(0).var());
+    }
+
+    @Test
+    void testCancelledSimulationStopsEarly() {
+        ReturnModel model = new BootstrapModel(new double[]{0.01, -0.01}, 2, 1);
+        ForkJoinPool single = new ForkJoinPool(1);
+        AtomicInteger checks = new AtomicInteger();
+        try {
+            // Cancelled after the root task's check; every later check stops its task or path
+            assertThrows(CancellationException.class, () -> new MonteCarloEngine(single).simulate(model,
+                    new double[]{100}, 10, 4 * MonteCarloEngine.LEAF_PATHS, 1, () -> checks.incrementAndGet() > 1));
+        } finally {
+            single.shutdownNow();
+        }
+
+        // Root, both halves and the check after invoke: no path was generated
+        assertEquals(4, checks.get());
+    }
+
+    @Test
+    void testShortPositionLosesOnRallies() {
+        ReturnModel model = new BootstrapModel(new double[]{0.05}, 1, 1);
+
+        Simulation result = new MonteCarloEngine(pool).simulate(model, new double[]{-100}, 2, 10, 1);
+
+        assertEquals(-100 * (Math.exp(0.1) - 1), result.pnl()[0], 1e-4);
+        assertEquals(100 * (Math.exp(0.1) - 1), result.drawdown()[0], 1e-4);
+    }
+
+    @Test
+    void testSameSeedGivesSameResultForAnyParallelism() {
+        double[] returns = normalReturns(1_000, 0.02, 11);
+        ReturnModel model = new BootstrapModel(returns, 500, 2);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            Simulation a = new MonteCarloEngine(pool).simulate(model, new double[]{50, -20}, 5, 100_000, 42);
+            Simulation b = new MonteCarloEngine(single).simulate(model, new double[]{50, -20}, 5, 100_000, 42);
+
+            assertArrayEquals(a.pnl(), b.pnl());
+            assertArrayEquals(a.drawdown(), b.drawdown());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+
+    @Test
+    void testAlignKeepsCommonDatesOnly() {
+        BarSeries a = new BarSeries("A", new long[]{1, 2, 3, 4}, new double[4], new double[4], new double[4],
+                new double[]{100, 110, 121, 133.1}, new double[4]);
+        BarSeries b = new BarSeries("B", new long[]{2, 4}, new double[2], new double[2], new double[2],
+                new double[]{50, 25}, new double[2]);
+
+        RiskService.History history = RiskService.align(List.of(a, b));
+
+        assertEquals(1, history.days());
+        assertEquals(Math.log(133.1 / 110), history.returns()[0], 1e-12);
+        assertEquals(Math.log(0.5), history.returns()[1], 1e-12);
+    }
+}
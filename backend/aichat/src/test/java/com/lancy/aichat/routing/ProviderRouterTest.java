@@ -0,0 +1,150 @@
+package com.lancy.aichat.routing;
+
+import com.lancy.aichat.config.AiProviderProperties;
+import com.lancy.aichat.dto.ChatResponse;
+import com.lancy.aichat.dto.SwitchProviderRequest;
+import com.lancy.aichat.service.provider.AiProviderStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for runtime provider switching and draining of in-flight requests.
+ *
+ * <p>
+ * No Spring context is loaded.
+ * </p>
+ */
+public class ProviderRouterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ProviderRouter router;
+
+    @BeforeEach
+    void setup() {
+        AiProviderProperties properties = new AiProviderProperties();
+        properties.setProvider(AiProviderProperties.Provider.OLLAMA);
+        meterRegistry = new SimpleMeterRegistry();
+        router = new ProviderRouter(properties,
+                List.of(provider("OLLAMA"), provider("OPENAI"), provider("ANTHROPIC")), meterRegistry);
+    }
+
+    private static AiProviderStrategy provider(String name) {
+        return new AiProviderStrategy() {
+            @Override
+            public ChatResponse chat(String message, String systemPrompt) {
+                return new ChatResponse(name);
+            }
+
+            @Override
+            public String getProviderName() {
+                return name;
+            }
+        };
+    }
+
+    @Test
+    void testStartupRoutingFromProperties() {
+        RoutingConfig config = router.current();
+
+        assertEquals(1, config.version());
+        assertEquals("OLLAMA", config.provider());
+        assertEquals(List.of("OPENAI"), config.fallbacks());
+        assertNull(config.model());
+    }
+
+    @Test
+    void testStartupFailsOnUnregisteredProvider() {
+        router.validate();
+
+        AiProviderProperties properties = new AiProviderProperties();
+        properties.setProvider(AiProviderProperties.Provider.PRIMARY);
+        ProviderRouter unknownPrimary = new ProviderRouter(properties, List.of(provider("OPENAI")), meterRegistry);
+        IllegalStateException e = assertThrows(IllegalStateException.class, unknownPrimary::validate);
+        assertEquals("ai.provider: PRIMARY matches no registered provider [OPENAI]", e.getMessage());
+
+        properties.setProvider(AiProviderProperties.Provider.OPENAI);
+        properties.setFallbacks(List.of(AiProviderProperties.Provider.ANTHROPIC));
+        ProviderRouter unknownFallback = new ProviderRouter(properties, List.of(provider("OPENAI")), meterRegistry);
+        assertThrows(IllegalStateException.class, unknownFallback::validate);
+    }
+
+    @Test
+    void testUpdateKeepsUnsetFieldsAndDropsPrimaryFromFallbacks() {
+        RoutingConfig next = router.update(new SwitchProviderRequest("anthropic",
+                List.of("ANTHROPIC", "openai", "OLLAMA", "OPENAI"), "claude-3-5-haiku", null));
+
+        assertEquals(2, next.version());
+        assertEquals("ANTHROPIC", next.provider());
+        assertEquals(List.of("OPENAI", "OLLAMA"), next.fallbacks());
+        assertEquals("claude-3-5-haiku", next.modelFor("ANTHROPIC"));
+        assertNull(next.modelFor("OPENAI"));
+
+        RoutingConfig reverted = router.update(new SwitchProviderRequest(null, null, "", null));
+        assertEquals("ANTHROPIC", reverted.provider());
+        assertEquals(List.of("OPENAI", "OLLAMA"), reverted.fallbacks());
+        assertNull(reverted.model());
+        assertEquals(2.0, meterRegistry.counter("routing.switches").count());
+        assertEquals(3.0, meterRegistry.get("routing.version").gauge().value());
+    }
+
+    @Test
+    void testUnknownProviderRejectedWithoutSwitching() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> router.update(new SwitchProviderRequest("GEMINI", null, null, null)));
+
+        assertEquals("Unknown provider: GEMINI", e.getMessage());
+        assertEquals(1, router.current().version());
+    }
+
+    @Test
+    void testLeaseKeepsItsSnapshotAcrossSwitch() {
+        ProviderRouter.Lease lease = router.lease();
+        router.update(new SwitchProviderRequest("OPENAI", null, null, null));
+
+        assertEquals("OLLAMA", lease.config().provider());
+        assertEquals("OPENAI", router.current().provider());
+        RoutingStatus status = router.status();
+        assertEquals(1, status.draining().size());
+        assertEquals(1, status.draining().get(0).requests());
+
+        lease.close();
+        lease.close();
+        assertTrue(router.status().draining().isEmpty());
+        assertTrue(router.awaitDrained(router.current().version(), Duration.ZERO));
+    }
+
+    @Test
+    void testAwaitDrainedWaitsForInFlightRequests() throws Exception {
+        ProviderRouter.Lease lease = router.lease();
+        RoutingConfig next = router.update(new SwitchProviderRequest("OPENAI", null, null, null));
+
+        assertFalse(router.awaitDrained(next.version(), Duration.ofMillis(20)));
+
+        CompletableFuture<Boolean> drained = CompletableFuture.supplyAsync(
+                () -> router.awaitDrained(next.version(), Duration.ofSeconds(5)));
+        Thread.sleep(50);
+        assertFalse(drained.isDone());
+        lease.close();
+
+        assertTrue(drained.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testInFlightCountedPerProvider() {
+        try (ProviderRouter.InFlight first = router.call("OLLAMA");
+             ProviderRouter.InFlight second = router.call("ollama")) {
+            assertEquals(2, router.status().inFlight().get("OLLAMA"));
+            assertEquals(2.0, meterRegistry.get("provider.inflight").tag("provider", "OLLAMA").gauge().value());
+        }
+        assertEquals(0, router.status().inFlight().get("OLLAMA"));
+    }
+}
@@ -1,14 +1,40 @@
 package com.lancy.aichat.service;
 
+import com.lancy.aichat.call.CallAbortedException;
+import com.lancy.aichat.call.CallContext;
+import com.lancy.aichat.call.CallRegistry;
 import com.lancy.aichat.config.AiProviderProperties;
+import com.lancy.aichat.config.ChatStoreProperties;
+import com.lancy.aichat.config.TokenBudgetProperties;
+import com.lancy.aichat.dto.ChatRequest;
 import com.lancy.aichat.dto.ChatResponse;
+import com.lancy.aichat.dto.SwitchProviderRequest;
+import com.lancy.aichat.routing.ProviderRouter;
 import com.lancy.aichat.service.provider.AiProviderStrategy;
+import com.lancy.aichat.store.InMemoryChatStore;
+import com.lancy.aichat.store.ResponseCache;
+import com.lancy.aichat.token.PromptTooLargeException;
+import com.lancy.aichat.token.TokenGovernor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -34,6 +60,25 @@ public class ChatServiceTest {
 
     private ChatService chatService;
 
+    private ChatStoreProperties storeProperties;
+
+    private ResponseCache responseCache;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CallRegistry callRegistry;
+
+    private TokenBudgetProperties tokenProperties;
+
+    private TokenGovernor tokenGovernor;
+
+    private ProviderRouter router;
+
+    private ObservationRegistry observationRegistry;
+
+    /** Contexts of stopped observations, in stop order */
+    private List<Observation.Context> observations;
+
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
@@ -42,11 +87,52 @@ public class ChatServiceTest {
        // when(properties.getProvider()).thenReturn(() -> "PRIMARY");
         // Configure properties mock to return primary provider enum
         when(properties.getProvider()).thenReturn(AiProviderProperties.Provider.PRIMARY);
+        when(properties.getFallbacks()).thenReturn(List.of(AiProviderProperties.Provider.OPENAI));
+
+        // Response cache disabled by default (response TTL is zero)
+        storeProperties = new ChatStoreProperties();
+        responseCache = new ResponseCache(new InMemoryChatStore(100), storeProperties);
+
+        meterRegistry = new SimpleMeterRegistry();
+        callRegistry = new CallRegistry(meterRegistry);
+        tokenProperties = new TokenBudgetProperties();
+        tokenGovernor = new TokenGovernor(tokenProperties, meterRegistry);
+        router = new ProviderRouter(properties, List.of(primaryProvider, fallbackProvider), meterRegistry);
+        observations = new CopyOnWriteArrayList<>();
+        observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+
+            @Override
+            public void onStop(Observation.Context context) {
+                observations.add(context);
+            }
+        });
 
+        // Create ChatService with mocked providers
+        chatService = new ChatService(List.of(primaryProvider, fallbackProvider), router, responseCache, List.of(), callRegistry, tokenGovernor, observationRegistry);
+    }
 
+    @AfterEach
+    void tearDown() {
+        callRegistry.shutdown();
+    }
 
-        // Create ChatService with mocked providers
-        chatService = new ChatService(List.of(primaryProvider, fallbackProvider), properties);
+    /**
+     * Provider answer that blocks like a long generation until the thread is interrupted,
+     * failing the way the HTTP client does.
+     */
+    private static ChatResponse generateUntilInterrupted() {
+        try {
+            Thread.sleep(10_000);
+            return new ChatResponse("Too late");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("I/O error: Request was interrupted", e);
+        }
     }
 
     @Test
@@ -89,10 +175,29 @@ public class ChatServiceTest {
 
 
 
+    @Test
+    void testInterruptedCallerGetsNoFallback() {
+        // Arrange: the provider call is aborted because the calling job was cancelled
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        when(fallbackProvider.getProviderName()).thenReturn("OPENAI");
+        when(primaryProvider.chat(anyString(), any())).thenAnswer(invocation -> {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Request was interrupted");
+        });
+
+        // Act & Assert
+        try {
+            assertThrows(CancellationException.class, () -> chatService.getResponse("Hello", null));
+        } finally {
+            Thread.interrupted();
+        }
+        verify(fallbackProvider, never()).chat(anyString(), any());
+    }
+
     @Test
     void testNoPrimaryProviderThrowsException() {
         // Arrange: remove primary provider
-        chatService = new ChatService(List.of(fallbackProvider), properties);
+        chatService = new ChatService(List.of(fallbackProvider), router, responseCache, List.of(), callRegistry, tokenGovernor, observationRegistry);
 
         // Mock getProvider() to return enum value
         when(properties.getProvider()).thenReturn(AiProviderProperties.Provider.PRIMARY);
@@ -112,7 +217,7 @@ public class ChatServiceTest {
         when(primaryProvider.chat(anyString(), any())).thenThrow(new RuntimeException("Primary Failure"));
 
         // No fallback provider in the list
-        chatService = new ChatService(List.of(primaryProvider), properties);
+        chatService = new ChatService(List.of(primaryProvider), router, responseCache, List.of(), callRegistry, tokenGovernor, observationRegistry);
 
         // Act & Assert
         assertThrows(IllegalStateException.class,
@@ -133,4 +238,289 @@ public class ChatServiceTest {
         assertEquals("Primary Response", response);
         verify(primaryProvider, times(1)).chat("Hello", null);
     }
+
+    @Test
+    void testChatRequestPassedToProviderWithSession() {
+        // Arrange
+        ChatRequest request = new ChatRequest("Hello", "session-1", null, "llama3");
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        when(primaryProvider.chat(any(ChatRequest.class))).thenReturn(new ChatResponse("Session Response"));
+        when(fallbackProvider.getProviderName()).thenReturn("OPENAI");
+
+        // Act
+        ChatResponse response = chatService.chat(request);
+
+        // Assert
+        assertEquals("Session Response", response.response());
+        verify(primaryProvider, times(1)).chat(request);
+        verify(fallbackProvider, never()).chat(any(ChatRequest.class));
+    }
+
+    @Test
+    void testCachedResponseServedWithoutCallingProvider() {
+        // Arrange
+        storeProperties.setResponseTtl(Duration.ofMinutes(5));
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        when(primaryProvider.chat(anyString(), any())).thenReturn(new ChatResponse("Primary Response"));
+        when(fallbackProvider.getProviderName()).thenReturn("OPENAI");
+
+        // Act
+        String first = chatService.getResponse("Hello", null);
+        String second = chatService.getResponse("Hello", null);
+
+        // Assert
+        assertEquals("Primary Response", first);
+        assertEquals("Primary Response", second);
+        verify(primaryProvider, times(1)).chat("Hello", null);
+    }
+
+    @Test
+    void testFallbackResponseNotCachedForPrimary() {
+        // Arrange
+        storeProperties.setResponseTtl(Duration.ofMinutes(5));
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        when(fallbackProvider.getProviderName()).thenReturn("OPENAI");
+        when(primaryProvider.chat(anyString(), any()))
+                .thenThrow(new RuntimeException("Primary Failure"))
+                .thenReturn(new ChatResponse("Primary Response"));
+        when(fallbackProvider.chat(anyString(), any())).thenReturn(new ChatResponse("Fallback Response"));
+        when(primaryProvider.stream(any(ChatRequest.class), any())).thenThrow(new RuntimeException("Primary Failure"));
+        when(fallbackProvider.stream(any(ChatRequest.class), any())).thenReturn(new ChatResponse("Fallback Stream"));
+
+        // Act
+        String fallback = chatService.getResponse("Hello", null);
+        ChatResponse streamed = chatService.stream(new ChatRequest("Hello", null, null, null), token -> { });
+        String recovered = chatService.getResponse("Hello", null);
+        String cached = chatService.getResponse("Hello", null);
+
+        // Assert: the primary is asked again once it recovers, and its reply is cached
+        assertEquals("Fallback Response", fallback);
+        assertEquals("Fallback Stream", streamed.response());
+        assertEquals("Primary Response", recovered);
+        assertEquals("Primary Response", cached);
+        verify(primaryProvider, times(2)).chat("Hello", null);
+    }
+
+    @Test
+    void testEnrichersAppliedBeforeRouting() {
+        // Arrange
+        PromptEnricher enricher = message -> message + "\n\n[Market data]\nAAPL last=190.00";
+        chatService = new ChatService(List.of(primaryProvider, fallbackProvider), router, responseCache,
+                List.of(enricher), callRegistry, tokenGovernor, observationRegistry);
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        when(primaryProvider.chat(anyString(), any())).thenReturn(new ChatResponse("Enriched Response"));
+
+        // Act
+        String response = chatService.getResponse("Setup on AAPL?", null);
+
+        // Assert
+        assertEquals("Enriched Response", response);
+        verify(primaryProvider, times(1)).chat("Setup on AAPL?\n\n[Market data]\nAAPL last=190.00", null);
+    }
+
+    @Test
+    void testStreamFallsBackBeforeFirstToken() {
+        // Arrange
+        ChatRequest request = new ChatRequest("Hello", "session-1", null, null);
+        List<String> tokens = new ArrayList<>();
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        when(fallbackProvider.getProviderName()).thenReturn("OPENAI");
+        when(primaryProvider.stream(any(ChatRequest.class), any())).thenThrow(new RuntimeException("Primary Failure"));
+        when(fallbackProvider.stream(any(ChatRequest.class), any())).thenAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("Fallback");
+            return new ChatResponse("Fallback");
+        });
+
+        // Act
+        ChatResponse response = chatService.stream(request, tokens::add);
+
+        // Assert
+        assertEquals("Fallback", response.response());
+        assertEquals(List.of("Fallback"), tokens);
+    }
+
+    @Test
+    void testStreamFailureAfterFirstTokenNotRetried() {
+        // Arrange: the client already holds part of the primary's reply
+        ChatRequest request = new ChatRequest("Hello", "session-1", null, null);
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        when(fallbackProvider.getProviderName()).thenReturn("OPENAI");
+        when(primaryProvider.stream(any(ChatRequest.class), any())).thenAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("Partial");
+            throw new RuntimeException("Connection reset");
+        });
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> chatService.stream(request, token -> { }));
+        verify(fallbackProvider, never()).stream(any(ChatRequest.class), any());
+    }
+
+    @Test
+    void testDeadlineAbortsPrimaryWithoutFallback() {
+        // Arrange
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        when(fallbackProvider.getProviderName()).thenReturn("OPENAI");
+        when(primaryProvider.chat(any(ChatRequest.class))).thenAnswer(invocation -> generateUntilInterrupted());
+        CallContext context = callRegistry.open("req-1", "chat", Duration.ofMillis(100));
+
+        // Act
+        long start = System.nanoTime();
+        CallAbortedException e;
+        try {
+            e = assertThrows(CallAbortedException.class,
+                    () -> chatService.chat(new ChatRequest("Hello", "session-1", null, null)));
+        } finally {
+            callRegistry.close(context);
+        }
+
+        // Assert: aborted at the deadline, no fallback, request thread left clean
+        assertEquals(CallContext.Reason.DEADLINE, e.getReason());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertFalse(Thread.currentThread().isInterrupted());
+        verify(fallbackProvider, never()).chat(any(ChatRequest.class));
+        assertEquals(1.0, meterRegistry.counter("chat.aborted", "provider", "PRIMARY", "reason", "deadline").count());
+    }
+
+    @Test
+    void testExpiredRequestNotSentToProvider() {
+        // Arrange
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        CallContext context = callRegistry.open("req-2", "chat", Duration.ZERO);
+
+        // Act & Assert
+        try {
+            assertThrows(CallAbortedException.class, () -> chatService.getResponse("Hello", null));
+        } finally {
+            callRegistry.close(context);
+        }
+        verify(primaryProvider, never()).chat(anyString(), any());
+    }
+
+    @Test
+    void testClientCancelAbortsCallAndRecordsSavings() throws Exception {
+        // Arrange: one completed call gives the estimate of a typical generation
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        when(fallbackProvider.getProviderName()).thenReturn("OPENAI");
+        when(primaryProvider.chat(anyString(), any())).thenAnswer(invocation -> {
+            Thread.sleep(500);
+            return new ChatResponse("x".repeat(400));
+        });
+        chatService.getResponse("Warm up", null);
+        when(primaryProvider.chat(anyString(), any())).thenAnswer(invocation -> generateUntilInterrupted());
+
+        CallContext context = callRegistry.open("req-3", "chat", Duration.ofMinutes(1));
+        ScheduledExecutorService client = Executors.newSingleThreadScheduledExecutor();
+        try {
+            client.schedule(() -> callRegistry.cancel("req-3"), 50, TimeUnit.MILLISECONDS);
+
+            // Act
+            CallAbortedException e = assertThrows(CallAbortedException.class,
+                    () -> chatService.getResponse("Hello", null));
+
+            // Assert
+            assertEquals(CallContext.Reason.CLIENT, e.getReason());
+        } finally {
+            callRegistry.close(context);
+            client.shutdownNow();
+        }
+        verify(fallbackProvider, never()).chat(anyString(), any());
+        assertFalse(callRegistry.cancel("req-3"));
+        assertEquals(1, meterRegistry.summary("chat.aborted.saved.tokens").count());
+        assertTrue(meterRegistry.summary("chat.aborted.saved.tokens").totalAmount() > 0);
+    }
+
+    @Test
+    void testOversizedMessageRejectedBeforeEnrichment() {
+        // Arrange
+        tokenProperties.setRejectAboveTokens(100);
+        PromptEnricher enricher = mock(PromptEnricher.class);
+        chatService = new ChatService(List.of(primaryProvider, fallbackProvider), router, responseCache,
+                List.of(enricher), callRegistry, tokenGovernor, observationRegistry);
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+
+        // Act & Assert
+        assertThrows(PromptTooLargeException.class, () -> chatService.getResponse("word ".repeat(500), null));
+        verifyNoInteractions(enricher);
+        verify(primaryProvider, never()).chat(anyString(), any());
+        assertEquals(1.0, meterRegistry.counter("tokens.rejected").count());
+    }
+
+    @Test
+    void testEnrichedContextTrimmedToBudget() {
+        // Arrange: the market context alone is far over the input budget
+        tokenProperties.setMaxInputTokens(200);
+        PromptEnricher enricher = message -> message + "\n\n[Market data]\n" + "AAPL last=190.00 ".repeat(500);
+        chatService = new ChatService(List.of(primaryProvider, fallbackProvider), router, responseCache,
+                List.of(enricher), callRegistry, tokenGovernor, observationRegistry);
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        when(primaryProvider.chat(anyString(), any())).thenReturn(new ChatResponse("Trimmed Response"));
+
+        // Act
+        chatService.getResponse("Setup on AAPL?", null);
+
+        // Assert: the question survives intact, the context is cut
+        verify(primaryProvider).chat(argThat((String message) -> message.startsWith("Setup on AAPL?\n\n[Market data]")
+                && message.endsWith("[... context truncated ...]")
+                && tokenGovernor.count("PRIMARY", null, message) <= 200), isNull(String.class));
+        assertEquals(1, meterRegistry.summary("tokens.completion", "provider", "PRIMARY").count());
+    }
+
+    @Test
+    void testSwitchedRoutingUsesNewPrimaryModelAndFallbackChain() {
+        // Arrange: switch to OPENAI with a model, falling back to PRIMARY
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        when(fallbackProvider.getProviderName()).thenReturn("OPENAI");
+        router.update(new SwitchProviderRequest("openai", List.of("PRIMARY"), "gpt-4o-mini", null));
+        when(fallbackProvider.chat(any(ChatRequest.class))).thenThrow(new RuntimeException("OpenAI Failure"));
+        when(primaryProvider.chat(any(ChatRequest.class))).thenReturn(new ChatResponse("Primary Response"));
+
+        // Act
+        ChatResponse response = chatService.chat(new ChatRequest("Hello", null, null, null));
+
+        // Assert: the model is only asked of the new primary; the fallback uses its default
+        assertEquals("Primary Response", response.response());
+        verify(fallbackProvider).chat(new ChatRequest("Hello", null, null, "gpt-4o-mini"));
+        verify(primaryProvider).chat(new ChatRequest("Hello", null, null, null));
+        assertEquals(Map.of("OPENAI", 0, "PRIMARY", 0), router.status().inFlight());
+    }
+
+    @Test
+    void testObservationsOfFallbackAndStreamedCall() {
+        // Arrange: the primary fails, the fallback streams two chunks
+        when(primaryProvider.getProviderName()).thenReturn("PRIMARY");
+        when(fallbackProvider.getProviderName()).thenReturn("OPENAI");
+        when(primaryProvider.stream(any(ChatRequest.class), any())).thenThrow(new RuntimeException("Primary Failure"));
+        when(fallbackProvider.stream(any(ChatRequest.class), any())).thenAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("Hello");
+            onToken.accept(" world");
+            return new ChatResponse("Hello world");
+        });
+
+        // Act
+        chatService.stream(new ChatRequest("Hi", null, null, "llama3"), token -> { });
+
+        // Assert: nested stages stop first; each provider call is its own observation
+        assertEquals(List.of("chat.cache", "chat.provider", "chat.provider", "chat.route", "chat.request"),
+                observations.stream().map(Observation.Context::getName).toList());
+        Observation.Context primary = observations.get(1);
+        assertEquals("primary", primary.getLowCardinalityKeyValue("role").getValue());
+        assertEquals("llama3", primary.getHighCardinalityKeyValue("model").getValue());
+        assertEquals("Primary Failure", primary.getError().getMessage());
+        assertNull(primary.getHighCardinalityKeyValue("ttft.ms"));
+        Observation.Context fallback = observations.get(2);
+        assertEquals("OPENAI", fallback.getLowCardinalityKeyValue("provider").getValue());
+        assertEquals("fallback", fallback.getLowCardinalityKeyValue("role").getValue());
+        assertEquals("default", fallback.getHighCardinalityKeyValue("model").getValue());
+        assertEquals("1", fallback.getHighCardinalityKeyValue("prompt.tokens").getValue());
+        assertEquals("2", fallback.getHighCardinalityKeyValue("completion.tokens").getValue());
+        assertNotNull(fallback.getHighCardinalityKeyValue("ttft.ms"));
+        Observation.Context route = observations.get(3);
+        assertEquals("fallback", route.getLowCardinalityKeyValue("outcome").getValue());
+        assertEquals("OPENAI", route.getHighCardinalityKeyValue("provider").getValue());
+        assertEquals("miss", observations.get(0).getLowCardinalityKeyValue("result").getValue());
+        assertEquals("stream", observations.get(4).getLowCardinalityKeyValue("operation").getValue());
+    }
 }
@@ -0,0 +1,196 @@
+package com.lancy.aichat.service.provider;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.config.OllamaContextProperties;
+import com.lancy.aichat.service.provider.OllamaSessionContextCache.SessionContext;
+import com.lancy.aichat.store.InMemoryChatStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OllamaSessionContextCache.
+ *
+ * <p>
+ * Verifies reuse, invalidation, bounding and saved prompt-eval accounting
+ * against an in-memory ChatStore. No Spring context is loaded.
+ * </p>
+ */
+public class OllamaSessionContextCacheTest {
+
+    private OllamaContextProperties properties;
+
+    private SimpleMeterRegistry registry;
+
+    private InMemoryChatStore store;
+
+    private OllamaSessionContextCache cache;
+
+    @BeforeEach
+    void setup() {
+        properties = new OllamaContextProperties();
+        properties.setMaxTurns(2);
+        registry = new SimpleMeterRegistry();
+        store = new InMemoryChatStore(2);
+        cache = new OllamaSessionContextCache(properties, store, new ObjectMapper(), registry);
+    }
+
+    /**
+     * Acquires and immediately releases the session lock.
+     */
+    private SessionContext acquire(String sessionId, String systemPrompt, String model) {
+        SessionContext context = cache.acquire(sessionId, systemPrompt, model);
+        context.unlock();
+        return context;
+    }
+
+    @Test
+    void testSameSessionReusesContext() {
+        SessionContext first = acquire("s1", "system", "llama3");
+        cache.recordTurn(first, "Hi", "Hello", 50, 50, Duration.ofMillis(500), 10);
+
+        SessionContext second = acquire("s1", "system", "llama3");
+
+        assertEquals(2, second.history().size());
+        assertEquals("Hi", second.history().get(0).getText());
+        assertEquals(60, second.contextTokens());
+        assertEquals(1.0, registry.counter("ollama.context.hits").count());
+    }
+
+    @Test
+    void testSystemPromptChangeInvalidates() {
+        cache.recordTurn(acquire("s1", "system", "llama3"), "Hi", "Hello", 50, 50, Duration.ofMillis(500), 10);
+
+        SessionContext second = acquire("s1", "other system", "llama3");
+
+        assertTrue(second.history().isEmpty());
+        assertEquals(1.0, registry.counter("ollama.context.invalidations", "reason", "system-prompt").count());
+    }
+
+    @Test
+    void testModelChangeInvalidates() {
+        cache.recordTurn(acquire("s1", "system", "llama3"), "Hi", "Hello", 50, 50, Duration.ofMillis(500), 10);
+
+        SessionContext second = acquire("s1", "system", "mistral");
+
+        assertTrue(second.history().isEmpty());
+        assertEquals(1.0, registry.counter("ollama.context.invalidations", "reason", "model").count());
+    }
+
+    @Test
+    void testSessionEvictedFromBoundedStore() {
+        cache.recordTurn(acquire("s1", "system", "llama3"), "q", "a", 10, 10, Duration.ofMillis(100), 5);
+        cache.recordTurn(acquire("s2", "system", "llama3"), "q", "a", 10, 10, Duration.ofMillis(100), 5);
+        cache.recordTurn(acquire("s3", "system", "llama3"), "q", "a", 10, 10, Duration.ofMillis(100), 5);
+
+        assertEquals(2, store.size());
+        assertTrue(acquire("s1", "system", "llama3").history().isEmpty());
+    }
+
+    @Test
+    void testIdleSessionExpires() throws InterruptedException {
+        properties.setIdleTimeout(Duration.ofMillis(1));
+        cache.recordTurn(acquire("s1", "system", "llama3"), "q", "a", 10, 10, Duration.ofMillis(100), 5);
+        Thread.sleep(5);
+
+        assertTrue(acquire("s1", "system", "llama3").history().isEmpty());
+        assertEquals(2.0, registry.counter("ollama.context.misses").count());
+    }
+
+    @Test
+    void testInvalidateDropsSession() {
+        cache.recordTurn(acquire("s1", "system", "llama3"), "q", "a", 10, 10, Duration.ofMillis(100), 5);
+
+        cache.invalidate("s1");
+
+        assertTrue(acquire("s1", "system", "llama3").history().isEmpty());
+        assertEquals(1.0, registry.counter("ollama.context.invalidations", "reason", "explicit").count());
+    }
+
+    @Test
+    void testHistoryTrimmedInBlocksResetsPrefix() {
+        properties.setMaxTurns(4);
+        SessionContext context = acquire("s1", "system", "llama3");
+        for (int turn = 1; turn <= 5; turn++) {
+            cache.recordTurn(context, "q" + turn, "a" + turn, 10, 10, Duration.ofMillis(100), 5);
+        }
+
+        // Over the limit: cut to half in one go
+        assertEquals(4, context.history().size());
+        assertEquals("q4", context.history().get(0).getText());
+        assertEquals(0, context.contextTokens());
+
+        // The next turns keep the prefix until the limit is exceeded again
+        cache.recordTurn(context, "q6", "a6", 10, 10, Duration.ofMillis(100), 5);
+        cache.recordTurn(context, "q7", "a7", 10, 10, Duration.ofMillis(100), 5);
+        assertEquals("q4", context.history().get(0).getText());
+        assertEquals(30, context.contextTokens());
+    }
+
+    @Test
+    void testTurnsDroppedForBudgetStayDropped() {
+        properties.setMaxTurns(10);
+        SessionContext context = acquire("s1", "system", "llama3");
+        cache.recordTurn(context, "q1", "a1", 10, 10, Duration.ofMillis(100), 5);
+        cache.recordTurn(context, "q2", "a2", 10, 10, Duration.ofMillis(100), 5);
+        cache.recordTurn(context, "q3", "a3", 10, 10, Duration.ofMillis(100), 5);
+
+        context.dropOldest(4);
+        cache.recordTurn(context, "q4", "a4", 10, 10, Duration.ofMillis(100), 5);
+
+        SessionContext next = acquire("s1", "system", "llama3");
+        assertEquals(4, next.history().size());
+        assertEquals("q3", next.history().get(0).getText());
+        // The shorter prefix was evaluated from scratch
+        assertEquals(15, next.contextTokens());
+    }
+
+    @Test
+    void testSavedPromptEvalTimeRecordedForReusedPrefix() {
+        SessionContext context = acquire("s1", "system", "llama3");
+        // First turn: nothing reused
+        cache.recordTurn(context, "q1", "a1", 90, 90, Duration.ofMillis(900), 10);
+        // Second turn: 100 prefix + 5 new tokens expected, 5 evaluated, at 10ms per evaluated token
+        cache.recordTurn(context, "q2", "a2", 5, 5, Duration.ofMillis(50), 5);
+
+        assertEquals(100.0, registry.counter("ollama.context.reused.tokens").count());
+        assertEquals(1000.0,
+                registry.timer("ollama.context.prompt.eval.saved").totalTime(TimeUnit.MILLISECONDS), 0.001);
+    }
+
+    @Test
+    void testNoSavingsWhenOllamaEvaluatedTheWholePrompt() {
+        SessionContext context = acquire("s1", "system", "llama3");
+        cache.recordTurn(context, "q1", "a1", 50, 50, Duration.ofMillis(500), 10);
+        // Ollama restarted or unloaded the model: the 60-token prefix was evaluated again
+        cache.recordTurn(context, "q2", "a2", 5, 70, Duration.ofMillis(700), 5);
+
+        assertEquals(0.0, registry.counter("ollama.context.reused.tokens").count());
+        assertEquals(0, registry.timer("ollama.context.prompt.eval.saved").count());
+        assertEquals(75, context.contextTokens());
+    }
+
+    @Test
+    void testTurnsOfOneSessionSerializedOthersNotBlocked() throws Exception {
+        SessionContext held = cache.acquire("s1", "system", "llama3");
+
+        // Another session proceeds while s1 is busy generating
+        CompletableFuture.runAsync(() -> cache.acquire("s2", "system", "llama3").unlock())
+                .get(5, TimeUnit.SECONDS);
+        CompletableFuture<Void> sameSession = CompletableFuture.runAsync(
+                () -> cache.acquire("s1", "system", "llama3").unlock());
+        assertThrows(TimeoutException.class, () -> sameSession.get(100, TimeUnit.MILLISECONDS));
+
+        held.unlock();
+        sameSession.get(5, TimeUnit.SECONDS);
+
+        assertEquals(0, cache.lockedSessions());
+    }
+}
@@ -0,0 +1,196 @@
+package com.lancy.aichat.similar;
+
+import com.lancy.aichat.config.MarketDataProperties;
+import com.lancy.aichat.config.SimilarTradeProperties;
+import com.lancy.aichat.marketdata.history.BarSeries;
+import com.lancy.aichat.marketdata.history.BarStore;
+import com.lancy.aichat.review.TradeReviewRequest.Trade;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for trade features, exact and LSH k-NN search and the similar-trade index.
+ *
+ * <p>
+ * Bar history is a mocked {@link BarStore}. No Spring context is loaded.
+ * </p>
+ */
+public class SimilarTradeIndexTest {
+
+    private static final Instant OPENED = Instant.parse("2024-05-01T14:30:00Z");
+
+    private BarStore barStore;
+
+    private SimilarTradeProperties properties;
+
+    private SimilarTradeIndex index;
+
+    @BeforeEach
+    void setup() {
+        barStore = mock(BarStore.class);
+        properties = new SimilarTradeProperties();
+        index = new SimilarTradeIndex(new TradeFeatures(barStore, new MarketDataProperties(), properties),
+                properties, new SimpleMeterRegistry());
+    }
+
+    private static Trade trade(String id, String side, double exit, double holdingHours) {
+        return new Trade(id, "AAPL", side, 100.0, 100.0, exit, "LONG".equals(side) ? 98.0 : 102.0,
+                OPENED, OPENED.plusSeconds((long) (holdingHours * 3600)), null);
+    }
+
+    /**
+     * Steadily rising closes: RSI high, entry above its EMA and at the top of the range.
+     */
+    private static BarSeries uptrend(int bars) {
+        long[] t = new long[bars];
+        double[] o = new double[bars];
+        double[] h = new double[bars];
+        double[] l = new double[bars];
+        double[] c = new double[bars];
+        double[] v = new double[bars];
+        for (int i = 0; i < bars; i++) {
+            t[i] = OPENED.toEpochMilli() - (bars - i) * 300_000L;
+            c[i] = 90 + i * 0.1;
+            o[i] = c[i] - 0.05;
+            h[i] = c[i] + 0.1;
+            l[i] = c[i] - 0.1;
+            v[i] = 1000;
+        }
+        return new BarSeries("AAPL", t, o, h, l, c, v);
+    }
+
+    @Test
+    void testFeaturesFromTradeAndEntryContext() {
+        when(barStore.downsample(eq("AAPL"), anyLong(), eq(OPENED.toEpochMilli()), eq(Duration.ofMinutes(5))))
+                .thenReturn(uptrend(100));
+        TradeFeatures features = new TradeFeatures(barStore, new MarketDataProperties(), properties);
+
+        float[] vector = features.extract(trade("T1", "LONG", 104.0, 24));
+
+        assertEquals(TradeFeatures.DIMENSIONS, vector.length);
+        assertEquals(1f, vector[0]);
+        assertTrue(vector[1] > 0.5f, "RSI of an uptrend");
+        assertTrue(vector[3] > 0, "entry above the EMA");
+        assertTrue(vector[4] > 0.5f, "entry near the top of the range");
+        assertTrue(vector[5] > 0 && vector[5] < 1);
+        assertEquals(2f / 3, vector[6], 1e-6);
+        assertEquals((float) Math.tanh(0.04 / 0.05), vector[7], 1e-6);
+
+        float[] noHistory = features.extract(new Trade("T2", "AAPL", "SHORT", null, null, null, null, null, null, null));
+        assertArrayEquals(new float[]{-1, 0, 0, 0, 0, 0, 0, 0}, noHistory);
+    }
+
+    @Test
+    void testNearestTradesWithOutcomes() {
+        assertEquals(3, index.ingest(List.of(
+                trade("W1", "LONG", 104.0, 24),
+                trade("L1", "LONG", 97.0, 2),
+                trade("S1", "SHORT", 95.0, 24))));
+        assertEquals(0, index.ingest(List.of(trade("W1", "LONG", 110.0, 1))));
+
+        List<SimilarTrade> similar = index.similar(trade("Q", "LONG", 103.5, 20), 2);
+
+        assertEquals(List.of("W1", "L1"), similar.stream().map(SimilarTrade::tradeId).toList());
+        assertEquals(4.0, similar.get(0).returnPct());
+        assertEquals(2.0, similar.get(0).rMultiple());
+        assertEquals(24.0, similar.get(0).holdingHours());
+        assertTrue(similar.get(0).distance() < similar.get(1).distance());
+    }
+
+    @Test
+    void testIndexedTradeIsNotItsOwnNeighbour() {
+        index.ingest(List.of(trade("A", "LONG", 104.0, 24), trade("B", "LONG", 104.1, 24)));
+
+        assertEquals(List.of("B"), index.similar("A", 5).orElseThrow().stream().map(SimilarTrade::tradeId).toList());
+        assertTrue(index.similar("missing", 5).isEmpty());
+        assertTrue(index.similar(trade("C", "LONG", 101.0, 1), 0).isEmpty());
+    }
+
+    @Test
+    void testScanMatchesSortedDistances() {
+        SplittableRandom random = new SplittableRandom(7);
+        KnnIndex knn = new KnnIndex(8, Integer.MAX_VALUE, 0, 12, 1);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            float[] vector = randomVector(random);
+            vectors.add(vector);
+            knn.add(vector);
+        }
+        float[] query = randomVector(random);
+
+        KnnIndex.Neighbors neighbours = knn.search(query, 10, id -> id == 3);
+
+        int[] expected = IntStream.range(0, vectors.size()).filter(id -> id != 3).boxed()
+                .sorted(Comparator.comparingDouble(id -> squaredDistance(vectors.get(id), query)))
+                .limit(10).mapToInt(Integer::intValue).toArray();
+        assertArrayEquals(expected, neighbours.ids());
+        assertFalse(knn.usesLsh());
+    }
+
+    @Test
+    void testLshRecallAgainstExactScan() {
+        SplittableRandom random = new SplittableRandom(11);
+        KnnIndex knn = new KnnIndex(8, 1000, 8, 10, 42);
+        // Clustered like real trades: most neighbours share a regime
+        float[][] centres = new float[50][];
+        for (int c = 0; c < centres.length; c++) {
+            centres[c] = randomVector(random);
+        }
+        for (int i = 0; i < 20_000; i++) {
+            float[] vector = centres[i % centres.length].clone();
+            for (int j = 0; j < vector.length; j++) {
+                vector[j] += (float) (random.nextGaussian() * 0.1);
+            }
+            knn.add(vector);
+        }
+        assertTrue(knn.usesLsh());
+
+        int hits = 0;
+        int queries = 200;
+        for (int q = 0; q < queries; q++) {
+            float[] query = centres[q % centres.length].clone();
+            query[q % query.length] += 0.05f;
+            int[] exact = knn.scan(query, 10, id -> false).ids();
+            int[] approximate = knn.search(query, 10, id -> false).ids();
+            Arrays.sort(exact);
+            for (int id : approximate) {
+                if (Arrays.binarySearch(exact, id) >= 0) {
+                    hits++;
+                }
+            }
+        }
+        double recall = hits / (queries * 10.0);
+        assertTrue(recall > 0.9, "recall " + recall);
+    }
+
+    private static float[] randomVector(SplittableRandom random) {
+        float[] vector = new float[8];
+        for (int j = 0; j < vector.length; j++) {
+            vector[j] = (float) (random.nextDouble() * 2 - 1);
+        }
+        return vector;
+    }
+
+    private static double squaredDistance(float[] a, float[] b) {
+        double sum = 0;
+        for (int j = 0; j < a.length; j++) {
+            float d = a[j] - b[j];
+            sum += d * d;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,78 @@
+package com.lancy.aichat.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Contract tests for the node-local ChatStore implementations.
+ *
+ * <p>
+ * The same assertions run against the in-memory and the file-backed store.
+ * No Spring context is loaded.
+ * </p>
+ */
+public class ChatStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testInMemoryStoreContract() throws InterruptedException {
+        assertContract(new InMemoryChatStore(100));
+    }
+
+    @Test
+    void testFileStoreContract() throws InterruptedException {
+        assertContract(new FileChatStore(tempDir));
+    }
+
+    @Test
+    void testInMemoryStoreEvictsLeastRecentlyUsed() {
+        InMemoryChatStore store = new InMemoryChatStore(2);
+        store.put("session", "a", "1", null);
+        store.put("session", "b", "2", null);
+        store.get("session", "a");
+        store.put("session", "c", "3", null);
+
+        assertEquals(Optional.of("1"), store.get("session", "a"));
+        assertEquals(Optional.empty(), store.get("session", "b"));
+    }
+
+    @Test
+    void testFileStoreSurvivesReopen() {
+        new FileChatStore(tempDir).put("session", "user/42", "{\"turns\":[]}", Duration.ofHours(1));
+
+        assertEquals(Optional.of("{\"turns\":[]}"), new FileChatStore(tempDir).get("session", "user/42"));
+    }
+
+    @Test
+    void testInvalidNamespaceRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new FileChatStore(tempDir).put("../etc", "k", "v", null));
+    }
+
+    private static void assertContract(ChatStore store) throws InterruptedException {
+        assertEquals(Optional.empty(), store.get("session", "k"));
+
+        store.put("session", "k", "v1", null);
+        store.put("response", "k", "other", null);
+        assertEquals(Optional.of("v1"), store.get("session", "k"));
+        assertEquals(Optional.of("other"), store.get("response", "k"));
+
+        store.put("session", "k", "v2\nmulti-line", Duration.ofMinutes(1));
+        assertEquals(Optional.of("v2\nmulti-line"), store.get("session", "k"));
+
+        store.remove("session", "k");
+        assertEquals(Optional.empty(), store.get("session", "k"));
+
+        store.put("session", "short", "v", Duration.ofMillis(1));
+        Thread.sleep(5);
+        assertEquals(Optional.empty(), store.get("session", "short"));
+    }
+}
@@ -0,0 +1,157 @@
+package com.lancy.aichat.store;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for RemoteChatStore and NearCacheChatStore.
+ *
+ * <p>
+ * A JDK {@link HttpServer} backed by a map stands in for the store server,
+ * so no Spring context or external service is needed.
+ * </p>
+ */
+public class RemoteChatStoreTest {
+
+    private HttpServer server;
+
+    private final Map<String, String> data = new ConcurrentHashMap<>();
+
+    private final AtomicInteger gets = new AtomicInteger();
+
+    private SimpleMeterRegistry registry;
+
+    private RemoteChatStore remote;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/internal/store/", this::handle);
+        server.start();
+
+        registry = new SimpleMeterRegistry();
+        remote = new RemoteChatStore(
+                RestClient.builder().baseUrl("http://localhost:" + server.getAddress().getPort()).build(),
+                registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testRemoteStoreRoundTrip() {
+        assertEquals(Optional.empty(), remote.get("session", "a b&c"));
+
+        remote.put("session", "a b&c", "{\"v\":1}", Duration.ofMinutes(1));
+        assertEquals(Optional.of("{\"v\":1}"), remote.get("session", "a b&c"));
+
+        remote.remove("session", "a b&c");
+        assertEquals(Optional.empty(), remote.get("session", "a b&c"));
+    }
+
+    @Test
+    void testRemoteStoreDegradesToMissWhenServerDown() {
+        server.stop(0);
+
+        assertEquals(Optional.empty(), remote.get("session", "k"));
+        remote.put("session", "k", "v", null);
+
+        assertEquals(2.0, registry.counter("chat.store.remote.errors").count());
+    }
+
+    @Test
+    void testNearCacheServesHotReadsLocally() {
+        NearCacheChatStore store = new NearCacheChatStore(remote, Duration.ofMinutes(1), 100,
+                new PeerInvalidationBroadcaster(List.of(), RestClient.create()), registry);
+        data.put("session/k", "v");
+
+        assertEquals(Optional.of("v"), store.get("session", "k"));
+        assertEquals(Optional.of("v"), store.get("session", "k"));
+
+        assertEquals(1, gets.get());
+        assertEquals(1.0, registry.counter("chat.store.near.hits").count());
+    }
+
+    @Test
+    void testNearCacheInvalidation() {
+        NearCacheChatStore store = new NearCacheChatStore(remote, Duration.ofMinutes(1), 100,
+                new PeerInvalidationBroadcaster(List.of(), RestClient.create()), registry);
+        data.put("session/k", "old");
+        store.get("session", "k");
+
+        // Another replica changed the value and notified this node
+        data.put("session/k", "new");
+        store.invalidateLocal("session", "k");
+
+        assertEquals(Optional.of("new"), store.get("session", "k"));
+    }
+
+    @Test
+    void testNearCacheWriteThrough() {
+        NearCacheChatStore store = new NearCacheChatStore(remote, Duration.ofMinutes(1), 100,
+                new PeerInvalidationBroadcaster(List.of(), RestClient.create()), registry);
+
+        store.put("session", "k", "v", null);
+
+        assertEquals("v", data.get("session/k"));
+        assertEquals(Optional.of("v"), store.get("session", "k"));
+        assertEquals(0, gets.get());
+    }
+
+    /**
+     * Minimal store server: GET/PUT/DELETE /internal/store/{namespace}?key=...
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        String namespace = exchange.getRequestURI().getPath().substring("/internal/store/".length());
+        String key = UriComponentsBuilder.fromUri(exchange.getRequestURI()).build()
+                .getQueryParams().getFirst("key");
+        key = URLDecoder.decode(key, StandardCharsets.UTF_8);
+        String id = namespace + "/" + key;
+
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                gets.incrementAndGet();
+                String value = data.get(id);
+                if (value == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    byte[] body = value.getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().add("Content-Type", "text/plain");
+                    exchange.sendResponseHeaders(200, body.length);
+                    exchange.getResponseBody().write(body);
+                }
+            }
+            case "PUT" -> {
+                data.put(id, new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+                exchange.sendResponseHeaders(204, -1);
+            }
+            case "DELETE" -> {
+                data.remove(id);
+                exchange.sendResponseHeaders(204, -1);
+            }
+            default -> exchange.sendResponseHeaders(405, -1);
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,62 @@
+package com.lancy.aichat.store;
+
+import com.lancy.aichat.config.ChatStoreProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the SessionAffinity consistent-hash ring.
+ */
+public class SessionAffinityTest {
+
+    private static SessionAffinity ring(List<String> nodes, String selfNode) {
+        ChatStoreProperties properties = new ChatStoreProperties();
+        properties.setNodes(nodes);
+        properties.setSelfNode(selfNode);
+        return new SessionAffinity(properties);
+    }
+
+    @Test
+    void testNoNodesMeansNoHintAndLocal() {
+        SessionAffinity affinity = ring(List.of(), null);
+
+        assertEquals(Optional.empty(), affinity.ownerOf("session-1"));
+        assertTrue(affinity.isLocal("session-1"));
+    }
+
+    @Test
+    void testOwnerIsStableAndSpread() {
+        SessionAffinity affinity = ring(List.of("a:8080", "b:8080", "c:8080"), "a:8080");
+
+        int[] counts = new int[3];
+        for (int i = 0; i < 3000; i++) {
+            String owner = affinity.ownerOf("session-" + i).orElseThrow();
+            assertEquals(owner, affinity.ownerOf("session-" + i).orElseThrow());
+            counts[owner.charAt(0) - 'a']++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 600, "unbalanced ring: " + count);
+        }
+    }
+
+    @Test
+    void testAddingNodeMovesOnlyAFractionOfSessions() {
+        SessionAffinity before = ring(List.of("a:8080", "b:8080", "c:8080"), null);
+        SessionAffinity after = ring(List.of("a:8080", "b:8080", "c:8080", "d:8080"), null);
+
+        int moved = 0;
+        for (int i = 0; i < 4000; i++) {
+            String ownerBefore = before.ownerOf("s" + i).orElseThrow();
+            String ownerAfter = after.ownerOf("s" + i).orElseThrow();
+            if (!ownerBefore.equals(ownerAfter)) {
+                assertEquals("d:8080", ownerAfter);
+                moved++;
+            }
+        }
+        assertTrue(moved < 1600, "too many sessions moved: " + moved);
+    }
+}
@@ -0,0 +1,60 @@
+package com.lancy.aichat.store;
+
+import com.lancy.aichat.config.ChatStoreProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the shared-secret check of the internal store endpoints.
+ *
+ * <p>
+ * Requests are mock servlet requests. No Spring context is loaded.
+ * </p>
+ */
+public class StoreSecretInterceptorTest {
+
+    private ChatStoreProperties properties;
+
+    private StoreSecretInterceptor interceptor;
+
+    @BeforeEach
+    void setup() {
+        properties = new ChatStoreProperties();
+        interceptor = new StoreSecretInterceptor(properties);
+    }
+
+    private static MockHttpServletRequest request(String secret) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/internal/store/session");
+        if (secret != null) {
+            request.addHeader(StoreSecretInterceptor.SECRET_HEADER, secret);
+        }
+        return request;
+    }
+
+    @Test
+    void testClosedWithoutConfiguredSecret() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(request("anything"), response, null));
+        assertEquals(403, response.getStatus());
+    }
+
+    @Test
+    void testOnlyMatchingSecretPasses() throws Exception {
+        properties.setSecret("s3cret");
+
+        MockHttpServletResponse missing = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request(null), missing, null));
+        assertEquals(401, missing.getStatus());
+
+        MockHttpServletResponse wrong = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(request("s3cre"), wrong, null));
+        assertEquals(401, wrong.getStatus());
+
+        assertTrue(interceptor.preHandle(request("s3cret"), new MockHttpServletResponse(), null));
+    }
+}
@@ -0,0 +1,164 @@
+package com.lancy.aichat.token;
+
+import com.lancy.aichat.call.CallContext;
+import com.lancy.aichat.call.CallRegistry;
+import com.lancy.aichat.config.TokenBudgetProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for token counting, input trimming, history fitting and output caps.
+ *
+ * <p>
+ * Uses the real JTokkit encodings. No Spring context is loaded.
+ * </p>
+ */
+public class TokenGovernorTest {
+
+    private TokenBudgetProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private CallRegistry callRegistry;
+
+    private TokenGovernor governor;
+
+    @BeforeEach
+    void setup() {
+        properties = new TokenBudgetProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        callRegistry = new CallRegistry(meterRegistry);
+        governor = new TokenGovernor(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callRegistry.shutdown();
+    }
+
+    @Test
+    void testEncodingByModelThenProvider() {
+        properties.getEncodings().put("OPENAI", "o200k_base");
+        properties.getEncodings().put("gpt-3.5-turbo", "cl100k_base");
+
+        assertEquals("o200k_base", governor.encoding("OPENAI", null).getName());
+        assertEquals("cl100k_base", governor.encoding("OPENAI", "gpt-3.5-turbo").getName());
+        assertEquals("cl100k_base", governor.encoding("OLLAMA", "llama3.2:1b").getName());
+        assertEquals(0, governor.count("OLLAMA", null, null));
+        assertTrue(governor.count("OLLAMA", null, "Is AAPL overbought?") > 3);
+    }
+
+    @Test
+    void testSpecialTokensCountedAsText() {
+        assertTrue(governor.count("OLLAMA", null, "<|endoftext|>") > 1);
+    }
+
+    @Test
+    void testMessageWithinBudgetUnchanged() {
+        String enriched = "Setup on AAPL?\n\n[Market data]\nAAPL last=190.00";
+
+        assertSame(enriched, governor.fit("OLLAMA", null, "Be precise.", "Setup on AAPL?", enriched));
+        assertEquals(1, meterRegistry.summary("tokens.prompt", "provider", "OLLAMA").count());
+
+        // The size is counted on the way (message and appended context apart) and handed to callers
+        TokenGovernor.Fitted fitted = governor.fitPrompt("OLLAMA", null, "Be precise.", "Setup on AAPL?", enriched);
+        assertEquals(governor.count("OLLAMA", null, "Be precise.") + governor.count("OLLAMA", null, "Setup on AAPL?")
+                + governor.count("OLLAMA", null, enriched.substring("Setup on AAPL?".length())), fitted.tokens());
+        properties.setEnabled(false);
+        assertEquals(TokenGovernor.Fitted.UNKNOWN,
+                governor.fitPrompt("OLLAMA", null, "Be precise.", "Setup on AAPL?", enriched).tokens());
+    }
+
+    @Test
+    void testOversizedUserTextKeepsBothEnds() {
+        properties.setMaxInputTokens(120);
+        String message = "Review this trade log. " + "BUY 100 AAPL @ 190.00; ".repeat(400) + "What is my win rate?";
+
+        String fitted = governor.fit("OLLAMA", null, null, message, message);
+
+        assertTrue(fitted.startsWith("Review this trade log."));
+        assertTrue(fitted.endsWith("What is my win rate?"));
+        assertTrue(fitted.contains("tokens omitted"));
+        assertTrue(governor.count("OLLAMA", null, fitted) <= 120);
+        assertTrue(meterRegistry.counter("tokens.trimmed", "provider", "OLLAMA", "part", "message").count() > 0);
+    }
+
+    @Test
+    void testSystemPromptExhaustingBudgetRejected() {
+        properties.setMaxInputTokens(20);
+
+        assertThrows(PromptTooLargeException.class,
+                () -> governor.fit("OLLAMA", null, "You are a careful assistant. ".repeat(10), "Hi", "Hi"));
+    }
+
+    @Test
+    void testAdmitRejectsOnlyAboveLimit() {
+        properties.setRejectAboveTokens(50);
+
+        governor.admit("OLLAMA", null, "short question");
+        PromptTooLargeException e = assertThrows(PromptTooLargeException.class,
+                () -> governor.admit("OLLAMA", null, "lorem ipsum ".repeat(10_000)));
+        assertEquals(50, e.getLimit());
+        assertEquals(1.0, meterRegistry.counter("tokens.rejected").count());
+    }
+
+    @Test
+    void testHistoryDropsOldestTurns() {
+        properties.setMaxInputTokens(300);
+        List<Message> history = new ArrayList<>();
+        for (int turn = 0; turn < 6; turn++) {
+            history.add(new UserMessage("Question " + turn + ": " + "details ".repeat(20)));
+            history.add(new AssistantMessage("Answer " + turn + ": " + "analysis ".repeat(20)));
+        }
+
+        List<Message> fitted = governor.fitHistory("OLLAMA", null, "Be precise.", history, "Next question?");
+
+        assertTrue(fitted.size() < history.size());
+        assertEquals(0, fitted.size() % 2);
+        assertEquals(history.subList(history.size() - fitted.size(), history.size()), fitted);
+        assertTrue(fitted.get(0) instanceof UserMessage);
+        assertTrue(meterRegistry.counter("tokens.trimmed", "provider", "OLLAMA", "part", "history").count() > 0);
+
+        // Trimmed in a block: the next turn keeps the same prefix
+        List<Message> next = new ArrayList<>(fitted);
+        next.add(new UserMessage("Question 6: " + "details ".repeat(20)));
+        next.add(new AssistantMessage("Answer 6: " + "analysis ".repeat(20)));
+        assertEquals(next, governor.fitHistory("OLLAMA", null, "Be precise.", next, "Next question?"));
+    }
+
+    @Test
+    void testMaxOutputTokensPerEndpoint() {
+        properties.setMaxOutputTokens(1024);
+        properties.getEndpointOutputTokens().put("chat/tools", 1536);
+        properties.getEndpointOutputTokens().put(TokenGovernor.BACKGROUND, 512);
+
+        assertEquals(512, governor.maxOutputTokens());
+
+        CallContext tools = callRegistry.open("r1", "chat/tools/extra", Duration.ofMinutes(1));
+        try {
+            assertEquals(1536, governor.maxOutputTokens());
+        } finally {
+            callRegistry.close(tools);
+        }
+        CallContext chat = callRegistry.open("r2", "chat", Duration.ofMinutes(1));
+        try {
+            assertEquals(1024, governor.maxOutputTokens());
+        } finally {
+            callRegistry.close(chat);
+        }
+
+        properties.setEnabled(false);
+        assertNull(governor.maxOutputTokens());
+    }
+}
@@ -0,0 +1,102 @@
+package com.lancy.aichat.tool;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.marketdata.IndicatorSnapshot;
+import com.lancy.aichat.marketdata.MarketDataService;
+import com.lancy.aichat.tool.QuantTools.IndicatorRequest;
+import com.lancy.aichat.tool.QuantTools.PnlStats;
+import com.lancy.aichat.tool.QuantTools.PnlStatsRequest;
+import com.lancy.aichat.tool.QuantTools.PositionSize;
+import com.lancy.aichat.tool.QuantTools.PositionSizeRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.model.function.FunctionCallback;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the quant tools offered to the model.
+ *
+ * <p>
+ * MarketDataService is mocked. No Spring context is loaded.
+ * </p>
+ */
+public class QuantToolsTest {
+
+    private MarketDataService marketData;
+
+    private QuantTools quantTools;
+
+    @BeforeEach
+    void setup() {
+        marketData = mock(MarketDataService.class);
+        quantTools = new QuantTools(marketData, new ObjectMapper());
+    }
+
+    @Test
+    void testPositionSizeFromExplicitStop() {
+        PositionSize size = quantTools.positionSize(new PositionSizeRequest(null, 100_000.0, 1.0, 50.0, 48.0, null));
+
+        // $1,000 risk / $2 per share
+        assertEquals(500, size.shares());
+        assertEquals(1_000.0, size.dollarRisk(), 1e-9);
+        assertEquals(25.0, size.percentOfEquity(), 1e-9);
+    }
+
+    @Test
+    void testPositionSizeCappedByEquity() {
+        PositionSize size = quantTools.positionSize(new PositionSizeRequest(null, 10_000.0, 5.0, 100.0, 99.9, null));
+
+        assertEquals(100, size.shares());
+    }
+
+    @Test
+    void testPositionSizeDefaultsToLivePriceAndAtrStop() {
+        when(marketData.snapshot("AAPL")).thenReturn(Optional.of(
+                new IndicatorSnapshot("AAPL", 0, 190.0, 189.0, 55.0, 2.5, 189.5, 0.2, 100)));
+
+        PositionSize size = quantTools.positionSize(new PositionSizeRequest("aapl", 50_000.0, 1.0, null, null, null));
+
+        assertEquals(190.0, size.entryPrice(), 1e-9);
+        assertEquals(185.0, size.stopPrice(), 1e-9);
+        assertEquals(100, size.shares());
+    }
+
+    @Test
+    void testIndicatorsReportMissingValuesAsNull() {
+        when(marketData.snapshot("MSFT")).thenReturn(Optional.of(
+                new IndicatorSnapshot("MSFT", 0, 400.0, 399.0, Double.NaN, Double.NaN, 400.1, Double.NaN, 2)));
+
+        QuantTools.IndicatorValues values = quantTools.indicators(new IndicatorRequest("MSFT"));
+
+        assertEquals(400.0, values.last());
+        assertNull(values.rsi());
+        assertThrows(IllegalArgumentException.class, () -> quantTools.indicators(new IndicatorRequest("NONE")));
+    }
+
+    @Test
+    void testPnlStats() {
+        PnlStats stats = quantTools.pnlStats(new PnlStatsRequest(List.of(0.10, -0.05, 0.10, -0.10)));
+
+        assertEquals(4, stats.trades());
+        assertEquals(0.5, stats.winRate(), 1e-9);
+        assertEquals(0.0125, stats.averageReturn(), 1e-9);
+        assertEquals(20.0 / 15.0, stats.profitFactor(), 1e-9);
+        assertEquals(1.1 * 0.95 * 1.1 * 0.9 - 1, stats.totalReturn(), 1e-9);
+        assertEquals(0.10, stats.maxDrawdown(), 1e-9);
+    }
+
+    @Test
+    void testCallbacksExposeJsonSchemas() {
+        List<FunctionCallback> callbacks = quantTools.callbacks();
+
+        assertEquals(List.of("position_size", "indicators", "pnl_stats"),
+                callbacks.stream().map(FunctionCallback::getName).toList());
+        assertTrue(callbacks.get(0).getInputTypeSchema().contains("accountEquity"));
+        assertTrue(callbacks.get(2).call("{\"returns\":[0.01]}").contains("\"trades\":1"));
+    }
+}
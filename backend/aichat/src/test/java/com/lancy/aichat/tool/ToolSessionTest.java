@@ -0,0 +1,245 @@
+package com.lancy.aichat.tool;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.config.ToolProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.AssistantMessage.ToolCall;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage.ToolResponse;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.model.function.FunctionCallback;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for the ToolSession loop: parallel execution, per-request caching,
+ * round cap, error handling and latency metrics.
+ *
+ * <p>
+ * The model is scripted through {@link ModelTurn}; besides the real quant tools
+ * the registry offers test tools that block or count invocations.
+ * No Spring context is loaded.
+ * </p>
+ */
+public class ToolSessionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicInteger counted = new AtomicInteger();
+
+    private final CyclicBarrier pair = new CyclicBarrier(2);
+
+    private ToolProperties properties;
+
+    private SimpleMeterRegistry registry;
+
+    private ToolRegistry tools;
+
+    public record Input(String key) {}
+
+    @BeforeEach
+    void setup() {
+        properties = new ToolProperties();
+        registry = new SimpleMeterRegistry();
+        QuantTools quantTools = new QuantTools(mock(com.lancy.aichat.marketdata.MarketDataService.class), objectMapper) {
+            @Override
+            public List<FunctionCallback> callbacks() {
+                List<FunctionCallback> all = new ArrayList<>(super.callbacks());
+                all.add(FunctionCallback.builder()
+                        .function("counted", (Input input) -> Map.of("n", counted.incrementAndGet()))
+                        .description("Counts invocations")
+                        .inputType(Input.class)
+                        .build());
+                all.add(FunctionCallback.builder()
+                        .function("pair", (Input input) -> {
+                            try {
+                                // Completes only if both calls of the turn run at the same time
+                                pair.await(5, TimeUnit.SECONDS);
+                                return Map.of("paired", input.key());
+                            } catch (Exception e) {
+                                throw new IllegalStateException("not run in parallel");
+                            }
+                        })
+                        .description("Waits for a second concurrent call")
+                        .inputType(Input.class)
+                        .build());
+                all.add(FunctionCallback.builder()
+                        .function("slow", (Input input) -> {
+                            try {
+                                Thread.sleep(5_000);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            return Map.of();
+                        })
+                        .description("Sleeps")
+                        .inputType(Input.class)
+                        .build());
+                return all;
+            }
+        };
+        tools = new ToolRegistry(quantTools, properties, objectMapper, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tools.shutdown();
+    }
+
+    private static AssistantMessage toolCalls(ToolCall... calls) {
+        return new AssistantMessage("", Map.of(), List.of(calls));
+    }
+
+    private static ToolCall call(String id, String name, String arguments) {
+        return new ToolCall(id, "function", name, arguments);
+    }
+
+    /**
+     * Tool results the model received in its last turn.
+     */
+    private static List<ToolResponse> lastResults(List<Message> messages) {
+        return ((ToolResponseMessage) messages.get(messages.size() - 1)).getResponses();
+    }
+
+    @Test
+    void testToolResultsFedBackToModel() {
+        List<List<ToolResponse>> seen = new ArrayList<>();
+
+        String answer = tools.newSession().run(List.of(new UserMessage("Stats of my trades?")), (messages, callbacks) -> {
+            if (messages.size() == 1) {
+                assertTrue(callbacks.stream().anyMatch(c -> c.getName().equals("pnl_stats")));
+                return toolCalls(call("1", "pnl_stats", "{\"returns\":[0.02,-0.01,0.03]}"));
+            }
+            seen.add(lastResults(messages));
+            return new AssistantMessage("Win rate is 67%.");
+        });
+
+        assertEquals("Win rate is 67%.", answer);
+        assertEquals(1, seen.size());
+        assertTrue(seen.get(0).get(0).responseData().contains("\"winRate\":0.666"));
+        assertEquals(1, registry.timer("tools.call.latency", "tool", "pnl_stats", "outcome", "success").count());
+        assertEquals(1.0, registry.summary("tools.rounds").totalAmount());
+    }
+
+    @Test
+    void testCallsOfOneTurnRunInParallel() {
+        List<ToolResponse> results = new ArrayList<>();
+
+        tools.newSession().run(List.of(new UserMessage("go")), (messages, callbacks) -> {
+            if (messages.size() == 1) {
+                return toolCalls(call("1", "pair", "{\"key\":\"a\"}"), call("2", "pair", "{\"key\":\"b\"}"));
+            }
+            results.addAll(lastResults(messages));
+            return new AssistantMessage("done");
+        });
+
+        assertEquals("{\"paired\":\"a\"}", results.get(0).responseData());
+        assertEquals("{\"paired\":\"b\"}", results.get(1).responseData());
+        assertEquals("1", results.get(0).id());
+    }
+
+    @Test
+    void testRepeatedCallsServedFromCache() {
+        AtomicInteger turns = new AtomicInteger();
+
+        tools.newSession().run(List.of(new UserMessage("go")), (messages, callbacks) -> switch (turns.getAndIncrement()) {
+            case 0 -> toolCalls(call("1", "counted", "{\"key\":\"x\"}"), call("2", "counted", "{ \"key\" : \"x\" }"));
+            case 1 -> toolCalls(call("3", "counted", "{\"key\":\"x\"}"), call("4", "counted", "{\"key\":\"y\"}"));
+            default -> new AssistantMessage("done");
+        });
+
+        assertEquals(2, counted.get());
+        assertEquals(2.0, registry.counter("tools.cache.hits", "tool", "counted").count());
+    }
+
+    @Test
+    void testRoundsCappedThenModelMustAnswer() {
+        properties.setMaxRounds(2);
+        List<Integer> offered = new ArrayList<>();
+
+        String answer = tools.newSession().run(List.of(new UserMessage("go")), (messages, callbacks) -> {
+            offered.add(callbacks.size());
+            return callbacks.isEmpty()
+                    ? new AssistantMessage("final")
+                    : toolCalls(call(String.valueOf(offered.size()), "counted", "{\"key\":\"" + offered.size() + "\"}"));
+        });
+
+        assertEquals("final", answer);
+        assertEquals(3, offered.size());
+        assertEquals(0, offered.get(2));
+        assertEquals(1.0, registry.counter("tools.rounds.capped").count());
+    }
+
+    @Test
+    void testToolErrorsReturnedToModel() {
+        List<ToolResponse> results = new ArrayList<>();
+
+        tools.newSession().run(List.of(new UserMessage("go")), (messages, callbacks) -> {
+            if (messages.size() == 1) {
+                return toolCalls(call("1", "no_such_tool", "{}"),
+                        call("2", "position_size", "{\"accountEquity\":-5,\"riskPercent\":1}"),
+                        call("3", "pnl_stats", "not json"));
+            }
+            results.addAll(lastResults(messages));
+            return new AssistantMessage("sorry");
+        });
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).responseData().contains("Unknown tool"));
+        assertTrue(results.get(1).responseData().contains("accountEquity must be positive"));
+        assertTrue(results.get(2).responseData().startsWith("{\"error\""));
+        assertEquals(1, registry.timer("tools.call.latency", "tool", "position_size", "outcome", "error").count());
+    }
+
+    @Test
+    void testSlowToolTimesOut() {
+        properties.setTimeout(Duration.ofMillis(100));
+        List<ToolResponse> results = new ArrayList<>();
+
+        long start = System.nanoTime();
+        tools.newSession().run(List.of(new UserMessage("go")), (messages, callbacks) -> {
+            if (messages.size() == 1) {
+                // The duplicate shares the first call's future, cancelled when it times out
+                return toolCalls(call("1", "slow", "{\"key\":\"z\"}"), call("2", "slow", "{\"key\":\"z\"}"));
+            }
+            results.addAll(lastResults(messages));
+            return new AssistantMessage("gave up");
+        });
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).responseData().contains("timed out"));
+        assertTrue(results.get(1).responseData().contains("timed out"));
+    }
+
+    @Test
+    void testTooManyCallsInOneTurnRejected() {
+        properties.setMaxCallsPerRound(1);
+        List<ToolResponse> results = new ArrayList<>();
+
+        tools.newSession().run(List.of(new UserMessage("go")), (messages, callbacks) -> {
+            if (messages.size() == 1) {
+                return toolCalls(call("1", "counted", "{\"key\":\"a\"}"), call("2", "counted", "{\"key\":\"b\"}"));
+            }
+            results.addAll(lastResults(messages));
+            return new AssistantMessage("ok");
+        });
+
+        assertEquals(1, counted.get());
+        assertTrue(results.get(1).responseData().contains("Too many tool calls"));
+    }
+}
@@ -0,0 +1,280 @@
+package com.lancy.aichat.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lancy.aichat.config.WebSocketProperties;
+import com.lancy.aichat.dto.ChatRequest;
+import com.lancy.aichat.dto.ChatResponse;
+import com.lancy.aichat.service.ChatService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for ChatWebSocketHandler framing, multiplexing, credit-based backpressure
+ * and cancellation.
+ *
+ * <p>
+ * The WebSocket session and ChatService are mocked; requests stream on real
+ * virtual threads. No Spring context is loaded.
+ * </p>
+ */
+public class ChatWebSocketHandlerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final BlockingQueue<ServerFrame> frames = new LinkedBlockingQueue<>();
+
+    private WebSocketProperties properties;
+
+    private SimpleMeterRegistry registry;
+
+    private ChatService chatService;
+
+    private WebSocketSession session;
+
+    private ChatWebSocketHandler handler;
+
+    @BeforeEach
+    void setup() throws Exception {
+        properties = new WebSocketProperties();
+        registry = new SimpleMeterRegistry();
+        chatService = mock(ChatService.class);
+
+        session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("c1");
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            TextMessage message = invocation.getArgument(0);
+            frames.add(objectMapper.readValue(message.getPayload(), ServerFrame.class));
+            return null;
+        }).when(session).sendMessage(any());
+
+        handler = new ChatWebSocketHandler(chatService, objectMapper, properties, registry);
+        handler.afterConnectionEstablished(session);
+    }
+
+    @AfterEach
+    void tearDown() {
+        handler.shutdown();
+    }
+
+    /**
+     * Makes the provider reply to every request with one token per element.
+     */
+    private void reply(String... tokens) {
+        when(chatService.stream(any(), any())).thenAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            for (String token : tokens) {
+                onToken.accept(token);
+            }
+            return new ChatResponse(String.join("", tokens));
+        });
+    }
+
+    private void receive(String json) throws Exception {
+        handler.handleMessage(session, new TextMessage(json));
+    }
+
+    private void chat(String sessionId, String requestId) throws Exception {
+        receive("{\"type\":\"chat\",\"sessionId\":\"" + sessionId + "\",\"requestId\":\"" + requestId
+                + "\",\"message\":\"Analyze AAPL\"}");
+    }
+
+    private ServerFrame next() throws InterruptedException {
+        ServerFrame frame = frames.poll(5, TimeUnit.SECONDS);
+        assertNotNull(frame, "expected a frame");
+        return frame;
+    }
+
+    @Test
+    void testTokensStreamedThenDone() throws Exception {
+        reply("Buy", " the", " dip");
+
+        chat("s1", "r1");
+
+        for (long seq = 0; seq < 3; seq++) {
+            ServerFrame token = next();
+            assertEquals("token", token.type());
+            assertEquals("s1", token.sessionId());
+            assertEquals("r1", token.requestId());
+            assertEquals(seq, token.seq());
+        }
+        ServerFrame done = next();
+        assertEquals("done", done.type());
+        assertEquals(3L, done.seq());
+        assertEquals(3, registry.timer("ws.frame.latency", "type", "token").count());
+    }
+
+    @Test
+    void testFrameLatencyIncludesTimeQueuedBehindAnotherWrite() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            TextMessage message = invocation.getArgument(0);
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            frames.add(objectMapper.readValue(message.getPayload(), ServerFrame.class));
+            return null;
+        }).when(session).sendMessage(any());
+        reply("a");
+
+        chat("s1", "r1");
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        // Queued behind the blocked write: sendMessage returns at once, the frame is written later
+        chat("s2", "r2");
+        Thread.sleep(200);
+        release.countDown();
+        for (int i = 0; i < 4; i++) {
+            next();
+        }
+
+        Timer latency = registry.timer("ws.frame.latency", "type", "token");
+        assertEquals(2, latency.count());
+        assertTrue(latency.totalTime(TimeUnit.MILLISECONDS) >= 300, "both tokens waited for the write");
+    }
+
+    @Test
+    void testStreamPausesWithoutCreditAndResumesOnGrant() throws Exception {
+        properties.setInitialCredits(2);
+        reply("a", "b", "c", "d", "e");
+
+        chat("s1", "r1");
+
+        assertEquals("a", next().text());
+        assertEquals("b", next().text());
+        assertNull(frames.poll(200, TimeUnit.MILLISECONDS), "stream should pause without credit");
+        assertEquals(1.0, registry.get("ws.streams.active").gauge().value());
+
+        receive("{\"type\":\"credit\",\"sessionId\":\"s1\",\"credits\":3}");
+
+        assertEquals("c", next().text());
+        assertEquals("d", next().text());
+        assertEquals("e", next().text());
+        assertEquals("done", next().type());
+        assertEquals(1.0, registry.counter("ws.backpressure.pauses").count());
+    }
+
+    @Test
+    void testPausedSessionDoesNotBlockOtherSessions() throws Exception {
+        properties.setInitialCredits(1);
+        reply("x", "y");
+
+        chat("slow", "r1");
+        assertEquals("x", next().text());
+
+        chat("fast", "r2");
+        assertEquals("fast", next().sessionId());
+        receive("{\"type\":\"credit\",\"sessionId\":\"fast\",\"credits\":5}");
+
+        ServerFrame frame = next();
+        assertEquals("fast", frame.sessionId());
+        ServerFrame done = next();
+        assertEquals("fast", done.sessionId());
+        assertEquals("done", done.type());
+        assertNull(frames.poll(100, TimeUnit.MILLISECONDS), "slow session should still be paused");
+    }
+
+    @Test
+    void testCancelInterruptsStream() throws Exception {
+        when(chatService.stream(any(), any())).thenAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("partial");
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("cancelled");
+            }
+            return new ChatResponse("never");
+        });
+
+        chat("s1", "r1");
+        assertEquals("partial", next().text());
+
+        receive("{\"type\":\"cancel\",\"sessionId\":\"s1\",\"requestId\":\"r1\"}");
+
+        ServerFrame cancelled = next();
+        assertEquals("cancelled", cancelled.type());
+        assertEquals("r1", cancelled.requestId());
+    }
+
+    @Test
+    void testSecondRequestOnBusySessionRejected() throws Exception {
+        properties.setInitialCredits(0);
+        reply("a");
+
+        chat("s1", "r1");
+        chat("s1", "r2");
+
+        ServerFrame error = next();
+        assertEquals("error", error.type());
+        assertEquals("r2", error.requestId());
+    }
+
+    @Test
+    void testInvalidFramesAnsweredWithErrors() throws Exception {
+        receive("not json");
+        receive("{\"type\":\"chat\",\"requestId\":\"r1\",\"message\":\"hi\"}");
+        receive("{\"type\":\"chat\",\"sessionId\":\"s1\",\"requestId\":\"r1\",\"message\":\" \"}");
+        receive("{\"type\":\"bogus\",\"sessionId\":\"s1\"}");
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("error", next().type());
+        }
+        verify(chatService, never()).stream(any(ChatRequest.class), any());
+    }
+
+    @Test
+    void testSessionsPerConnectionBounded() throws Exception {
+        properties.setMaxSessions(1);
+        reply("a");
+
+        chat("s1", "r1");
+        assertEquals("token", next().type());
+        assertEquals("done", next().type());
+
+        chat("s2", "r2");
+        ServerFrame error = next();
+        assertEquals("error", error.type());
+        assertEquals("s2", error.sessionId());
+    }
+
+    @Test
+    void testConnectionCloseCancelsStreamsAndUpdatesGauge() throws Exception {
+        properties.setInitialCredits(0);
+        reply("a");
+        assertEquals(1.0, registry.get("ws.connections").gauge().value());
+
+        chat("s1", "r1");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("ws.streams.active").gauge().value() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        handler.afterConnectionClosed(session, CloseStatus.GOING_AWAY);
+
+        assertEquals(0.0, registry.get("ws.connections").gauge().value());
+        assertEquals("cancelled", next().type());
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("ws.streams.active").gauge().value() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0.0, registry.get("ws.streams.active").gauge().value());
+    }
+}